@@ -8,6 +8,15 @@ import commons.Card;
 import commons.CardSubtask;
 import commons.Tag;
 import commons.events.CardRemovedEvent;
+import commons.operations.AddCardTagOperation;
+import commons.operations.BoardOperation;
+import commons.operations.DeleteSubtaskOperation;
+import commons.operations.NewCardOperation;
+import commons.operations.NewSubtaskOperation;
+import commons.operations.RemoveCardTagOperation;
+import commons.operations.SetCardTextOperation;
+import commons.operations.SetCardTitleOperation;
+import commons.operations.SetSubtaskCompletenessOperation;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Alert;
@@ -21,8 +30,10 @@ import javafx.scene.input.KeyCode;
 import javafx.stage.Modality;
 
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
@@ -150,16 +161,27 @@ public class CardDetailsCtrl implements Initializable {
         if (this.taskName.getText().trim().isEmpty()) {
             alertMessage("You can't create a task without a title.");
         } else {
+            // all the changes are sent as a single batch; a new card is referred to as the first operation (-1).
+            List<BoardOperation> operations = new ArrayList<>();
+            long cardListId;
+            long cardId;
             if (this.cardObject.getId() == 0) {
                 this.cardObject.patch(cardPatcher -> cardPatcher.setTitle(this.taskName.getText()));
                 this.cardObject.patch(cardPatcher -> cardPatcher.setText(this.taskDescription.getText()));
-                this.cardObject = this.server.addCard(this.listId, this.cardObject);
+                operations.add(new NewCardOperation(this.listId, this.cardObject));
+                cardListId = this.listId;
+                cardId = -1;
             } else {
-                this.setTitle();
-                this.setDescription();
+                cardListId = this.cardObject.getCardList();
+                cardId = this.cardObject.getId();
+                this.setTitle(operations, cardListId, cardId);
+                this.setDescription(operations, cardListId, cardId);
+            }
+            this.setTags(operations, cardListId, cardId);
+            this.setSubtasks(operations, cardListId, cardId);
+            if (!operations.isEmpty()) {
+                this.server.batch(operations);
             }
-            this.setTags();
-            this.setSubtasks();
             this.cardObject = new Card();
             this.showBoard();
         }
@@ -167,52 +189,65 @@ public class CardDetailsCtrl implements Initializable {
 
     /**
      * Set the title if it is not the same as the original.
+     *
+     * @param operations the batch to add the change to.
+     * @param cardListId the ID of the list of the card.
+     * @param cardId     the ID of the card.
      */
-    public void setTitle() {
+    private void setTitle(final List<BoardOperation> operations, final long cardListId, final long cardId) {
         if (!this.cardObject.getTitle().equals(this.taskName.getText())) {
-            this.server.setCardTitle(this.cardObject.getCardList(), this.cardObject.getId(), this.taskName.getText());
+            operations.add(new SetCardTitleOperation(cardListId, cardId, this.taskName.getText()));
         }
     }
 
     /**
      * Set the description if it is not the same as the original.
+     *
+     * @param operations the batch to add the change to.
+     * @param cardListId the ID of the list of the card.
+     * @param cardId     the ID of the card.
      */
-    public void setDescription() {
+    private void setDescription(final List<BoardOperation> operations, final long cardListId, final long cardId) {
         if (!this.cardObject.getText().equals(this.taskDescription.getText())) {
-            this.server.setCardText(this.cardObject.getCardList(), this.cardObject.getId(),
-                    this.taskDescription.getText());
+            operations.add(new SetCardTextOperation(cardListId, cardId, this.taskDescription.getText()));
         }
     }
 
     /**
      * Set the subtasks if they are not the same as the original.
+     *
+     * @param operations the batch to add the changes to.
+     * @param cardListId the ID of the list of the card.
+     * @param cardId     the ID of the card.
      */
-    public void setSubtasks() {
+    private void setSubtasks(final List<BoardOperation> operations, final long cardListId, final long cardId) {
         Collection<CardSubtask> unionOfSubtasks = new HashSet<>(this.cardObject.getSubtasks());
         unionOfSubtasks.addAll(this.subTasks.getItems());
         for (final CardSubtask subtask : unionOfSubtasks) {
             if (this.subTasks.getItems().contains(subtask)) {
-                if (!this.cardObject.getSubtasks().contains(subtask)) {
-                    this.server.newSubTask(this.cardObject.getCardList(), this.cardObject.getId(), subtask);
-                }
                 CheckBox checkBox = (CheckBox) this.subTasks.lookup("#%d".formatted(subtask.getId()));
-                if (checkBox.isSelected() != subtask.isCompleted()) {
-                    this.updateSubtaskCompleteness(subtask, checkBox.isSelected());
+                if (!this.cardObject.getSubtasks().contains(subtask)) {
+                    // a new subtask is created with its completeness already set.
+                    subtask.patch(subtaskPatcher -> subtaskPatcher.setCompleteness(checkBox.isSelected()));
+                    operations.add(new NewSubtaskOperation(cardListId, cardId, subtask));
+                } else if (checkBox.isSelected() != subtask.isCompleted()) {
+                    operations.add(new SetSubtaskCompletenessOperation(cardListId, cardId, subtask.getId(),
+                            checkBox.isSelected()));
                 }
             } else {
-                this.server.removeSubTask(this.cardObject.getCardList(), this.cardObject.getId(), subtask);
+                operations.add(new DeleteSubtaskOperation(cardListId, cardId, subtask.getId()));
             }
         }
     }
 
-    private void updateSubtaskCompleteness(final CardSubtask subtask, final boolean completed) {
-        this.server.setSubtaskCompleteness(this.cardObject.getCardList(), this.cardObject.getId(), subtask, completed);
-    }
-
     /**
      * Set the tags if they are not the same as the original.
+     *
+     * @param operations the batch to add the changes to.
+     * @param cardListId the ID of the list of the card.
+     * @param cardId     the ID of the card.
      */
-    public void setTags() {
+    private void setTags(final List<BoardOperation> operations, final long cardListId, final long cardId) {
         if (new HashSet<>(this.tags.getItems()).equals(this.cardObject.getTags())) {
             return;
         }
@@ -220,10 +255,10 @@ public class CardDetailsCtrl implements Initializable {
         unionOfTags.addAll(this.tags.getItems());
         for (final Tag tag : unionOfTags) {
             if (!this.cardObject.getTags().contains(tag)) {
-                this.server.addTag(this.cardObject.getCardList(), this.cardObject.getId(), tag);
+                operations.add(new AddCardTagOperation(cardListId, cardId, tag.getId()));
             }
             if (!this.tags.getItems().contains(tag)) {
-                this.server.removeTag(this.cardObject.getCardList(), this.cardObject.getId(), tag);
+                operations.add(new RemoveCardTagOperation(cardListId, cardId, tag.getId()));
             }
         }
     }
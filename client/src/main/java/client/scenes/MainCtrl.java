@@ -9,6 +9,7 @@ import commons.Card;
 import commons.Tag;
 import commons.events.BoardRemovedEvent;
 import commons.events.CardRemovedEvent;
+import commons.events.EventBatch;
 import commons.events.ServerToClientEvent;
 import javafx.application.Platform;
 import javafx.collections.ObservableList;
@@ -22,6 +23,7 @@ import javafx.util.Pair;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * The main controller. From here all other scenes are displayed.
@@ -313,17 +315,21 @@ public class MainCtrl {
      */
     public void handleUpdate(final ServerToClientEvent event) {
         Platform.runLater(() -> {
-            if (event instanceof BoardRemovedEvent) {
-                showBoardRemovedAlert();
-                this.showBoardList();
-                return;
-            }
-            if (event instanceof CardRemovedEvent e) {
-                if (this.cardDetails.getWindow().isShowing()) {
-                    this.cardDetailsCtrl.cardDeleted(e);
+            // the events of a batch are applied at once, so the board is only reloaded after the last one.
+            var events = event instanceof EventBatch batch ? batch.flattened() : List.of(event);
+            for (var e : events) {
+                if (e instanceof BoardRemovedEvent) {
+                    showBoardRemovedAlert();
+                    this.showBoardList();
+                    return;
+                }
+                if (e instanceof CardRemovedEvent removed) {
+                    if (this.cardDetails.getWindow().isShowing()) {
+                        this.cardDetailsCtrl.cardDeleted(removed);
+                    }
                 }
             }
-            this.overviewCtrl.reloadBoard(event);
+            this.overviewCtrl.reloadBoard(events.isEmpty() ? event : events.get(events.size() - 1));
         });
     }
 
@@ -8,6 +8,7 @@ import commons.CardList;
 import commons.CardSubtask;
 import commons.Tag;
 import commons.events.ServerToClientEvent;
+import commons.operations.BoardOperation;
 import jakarta.websocket.DeploymentException;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.ProcessingException;
@@ -15,6 +16,7 @@ import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.GenericEntity;
 import jakarta.ws.rs.core.GenericType;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -341,6 +343,21 @@ public class ServerUtils implements ServerUtilsInterface, AutoCloseable {
                 .post(Entity.entity(card, MediaType.APPLICATION_JSON), Card.class);
     }
 
+    /**
+     * Apply a batch of operations to the board you are subscribed to, all at once. An operation can refer to the
+     * entity created by the n-th operation of the batch with the id -n.
+     *
+     * @param operations the operations, applied in order.
+     * @return for each operation, the ID of the entity it created, or 0 if it didn't create one.
+     */
+    @Override
+    public List<Long> batch(final List<BoardOperation> operations) {
+        return this.httpClient.target(this.httpServerURI).path("/boards/%d/batch".formatted(this.boardId))
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(new GenericEntity<>(operations, new OperationListGenericType().getType()),
+                        MediaType.APPLICATION_JSON), new LongListGenericType());
+    }
+
     /**
      * Get a card from the board you are subscribed to.
      *
@@ -746,4 +763,12 @@ public class ServerUtils implements ServerUtilsInterface, AutoCloseable {
     private static class TagListGenericType extends GenericType<List<Tag>> {
         // This class is intentionally left empty, as it is only used to specify the type parameter of GenericType.
     }
+
+    private static class OperationListGenericType extends GenericType<List<BoardOperation>> {
+        // This class is intentionally left empty, as it is only used to specify the type parameter of GenericType.
+    }
+
+    private static class LongListGenericType extends GenericType<List<Long>> {
+        // This class is intentionally left empty, as it is only used to specify the type parameter of GenericType.
+    }
 }
@@ -7,6 +7,7 @@ import commons.CardList;
 import commons.CardSubtask;
 import commons.Tag;
 import commons.events.ServerToClientEvent;
+import commons.operations.BoardOperation;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -144,6 +145,15 @@ public interface ServerUtilsInterface extends AutoCloseable {
      */
     Card addCard(long listId, Card card);
 
+    /**
+     * Apply a batch of operations to the board you are subscribed to, all at once. An operation can refer to the
+     * entity created by the n-th operation of the batch with the id -n.
+     *
+     * @param operations the operations, applied in order.
+     * @return for each operation, the ID of the entity it created, or 0 if it didn't create one.
+     */
+    List<Long> batch(List<BoardOperation> operations);
+
     /**
      * Get a card from the board you are subscribed to.
      *
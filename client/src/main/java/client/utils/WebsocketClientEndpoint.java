@@ -3,6 +3,8 @@ package client.utils;
 import client.scenes.MainCtrl;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.inject.Inject;
+import commons.events.BinaryEventCodec;
+import commons.events.EventBatch;
 import commons.events.MessageProcessedEvent;
 import commons.events.ServerToClientEvent;
 import commons.events.SubscribeToBoard;
@@ -18,13 +20,17 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 /**
  * This is the websocket client endpoint. This class connect to the server with a websocket and handles updates.
+ * <p>
+ * It asks for the binary subprotocol of the events, and handles the events as JSON if the server doesn't support it.
  */
-@ClientEndpoint
+@ClientEndpoint(subprotocols = BinaryEventCodec.SUBPROTOCOL)
 public class WebsocketClientEndpoint implements AutoCloseable {
     private static final long WEBSOCKET_WAIT_DURATION = 500L;
     private static final Logger LOGGER = LogManager.getLogger();
@@ -106,13 +112,52 @@ public class WebsocketClientEndpoint implements AutoCloseable {
     public void onMessage(final String message) throws JsonProcessingException {
         ServerToClientEvent event = ServerToClientEvent.deserialize(message);
         LOGGER.info(message);
+        this.handle(event);
+    }
+
+    /**
+     * Invoked on a binary message, when the binary subprotocol was negotiated.
+     *
+     * @param message The message.
+     * @throws IOException If the message is not an event.
+     */
+    @SuppressWarnings("unused")
+    @OnMessage
+    public void onMessage(final ByteBuffer message) throws IOException {
+        var event = BinaryEventCodec.decode(message);
+        LOGGER.info(event);
+        this.handle(event);
+    }
 
-        if (event instanceof final MessageProcessedEvent eventMessage &&
-            eventMessage.message().equals(VERIFICATION_MESSAGE_TEMPLATE.formatted(this.verificationId))) {
-            this.countDownLatch.countDown();
+    private void handle(final ServerToClientEvent event) {
+        if (!(event instanceof EventBatch batch)) {
+            if (this.isVerification(event)) {
+                this.countDownLatch.countDown();
+                return;
+            }
+            this.mainCtrl.handleUpdate(event);
             return;
         }
-        this.mainCtrl.handleUpdate(event);
+
+        // the server may have coalesced the verification message with the events around it.
+        var updates = new ArrayList<ServerToClientEvent>();
+        for (var e : batch.flattened()) {
+            if (this.isVerification(e)) {
+                this.countDownLatch.countDown();
+            } else {
+                updates.add(e);
+            }
+        }
+        if (updates.size() == 1) {
+            this.mainCtrl.handleUpdate(updates.get(0));
+        } else if (!updates.isEmpty()) {
+            this.mainCtrl.handleUpdate(new EventBatch(updates));
+        }
+    }
+
+    private boolean isVerification(final ServerToClientEvent event) {
+        return event instanceof final MessageProcessedEvent eventMessage &&
+               eventMessage.message().equals(VERIFICATION_MESSAGE_TEMPLATE.formatted(this.verificationId));
     }
 
     /**
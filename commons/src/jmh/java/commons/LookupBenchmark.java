@@ -0,0 +1,143 @@
+package commons;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the indexed lookups of the entities with the linear scans they replaced.
+ * <p>
+ * Run with {@code ./gradlew :commons:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LookupBenchmark {
+    private static final int LISTS = 10;
+
+    @Param({"100", "10000", "100000"})
+    private int cards;
+
+    private Board board;
+    private CardList list;
+    private long[] ids;
+    private long[] subtaskIds;
+    private int next;
+
+    /**
+     * Builds a board with the given number of cards, spread over a few lists, and a subtask on each card.
+     */
+    @Setup
+    public void setUp() {
+        this.board = new Board();
+        this.ids = new long[this.cards];
+        this.subtaskIds = new long[this.cards];
+
+        long id = 1;
+        for (int l = 0; l < LISTS; l++) {
+            var cardList = new CardList();
+            cardList.setId(id++);
+            this.board.patch(bp -> bp.addCardList(cardList));
+        }
+
+        this.list = this.board.getCardLists().get(0);
+
+        for (int i = 0; i < this.cards; i++) {
+            var card = new Card();
+            card.setId(id++);
+            this.ids[i] = card.getId();
+
+            // all the cards go in the first list, so that the list lookups cover the whole range of sizes.
+            this.list.patch(lp -> lp.addCard(card));
+
+            var subtask = new CardSubtask();
+            subtask.setId(id++);
+            this.subtaskIds[i] = subtask.getId();
+            card.patch(cp -> cp.addSubtask(subtask));
+        }
+    }
+
+    private long nextId() {
+        var id = this.ids[this.next];
+        this.next = (this.next + 1) % this.ids.length;
+        return id;
+    }
+
+    private long nextSubtaskId() {
+        var id = this.subtaskIds[this.next];
+        this.next = (this.next + 1) % this.subtaskIds.length;
+        return id;
+    }
+
+    /**
+     * Indexed lookup of a card in its list.
+     *
+     * @return The card.
+     */
+    @Benchmark
+    public Card indexedListLookup() {
+        return this.list.cardById(this.nextId());
+    }
+
+    /**
+     * The scan that {@link CardList#cardById(long)} used before.
+     *
+     * @return The card.
+     */
+    @Benchmark
+    public Card streamListLookup() {
+        var id = this.nextId();
+        return this.list.getCards().stream().filter(it -> it.getId() == id).findFirst().orElseThrow();
+    }
+
+    /**
+     * Indexed lookup of a card in the whole board.
+     *
+     * @return The card.
+     */
+    @Benchmark
+    public Card indexedBoardLookup() {
+        return this.board.cardById(this.nextId());
+    }
+
+    /**
+     * The scan that {@link Board#cardById(long)} used before.
+     *
+     * @return The card.
+     */
+    @Benchmark
+    public Card streamBoardLookup() {
+        var id = this.nextId();
+        return this.board.getCardLists().stream().flatMap(it -> it.getCards().stream())
+                .filter(it -> it.getId() == id).findFirst().orElseThrow();
+    }
+
+    /**
+     * Indexed lookup of a subtask in the whole board.
+     *
+     * @return The subtask.
+     */
+    @Benchmark
+    public CardSubtask indexedSubtaskLookup() {
+        return this.board.subtaskById(this.nextSubtaskId());
+    }
+
+    /**
+     * The scan of the lists, cards and subtasks that {@link Board#subtaskById(long)} fell back to before.
+     *
+     * @return The subtask.
+     */
+    @Benchmark
+    public CardSubtask streamSubtaskLookup() {
+        var id = this.nextSubtaskId();
+        return this.board.getCardLists().stream().flatMap(it -> it.getCards().stream())
+                .flatMap(it -> it.getSubtasks().stream()).filter(it -> it.getId() == id).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,173 @@
+package commons.events;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+import commons.Card;
+import commons.CardList;
+import commons.CardSubtask;
+import commons.ColorPreset;
+import commons.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and decoding every type of event, with the shared codec, and with an object mapper built per
+ * call, as the events used to.
+ * <p>
+ * Run with {@code ./gradlew :commons:jmh -Pjmh.includes=EventCodecBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventCodecBenchmark {
+    @Param({"listCreated", "listRemoved", "listsReordered", "cardRemoved", "cardCreated", "cardMoved",
+            "xListCardMoved", "cardTitleSet", "cardTextSet", "cardCategorySet", "cardDueDateSet", "cardListTitleSet",
+            "boardTitleSet", "tagCreated", "tagDeleted", "boardFontColorSet", "boardBackgroundColorSet",
+            "colorPresetCreated", "colorPresetRemoved", "defaultColorPresetSet", "colorPresetNameSet",
+            "colorPresetFontColorSet", "colorPresetBackgroundColorSet", "listFontColorSet", "listBackgroundColorSet",
+            "cardPresetSet", "cardTagAdded", "cardTagRemoved", "messageProcessed", "boardRemoved", "boardImported",
+            "boardResync", "tagNameSet", "tagFontColorSet", "tagBackgroundSet", "cardSubtaskCreated",
+            "cardSubtaskRemoved", "cardSubtaskNameSet", "cardSubtaskCompletenessSet", "eventBatch",
+            "cardSubtaskMoved", "subscribeToBoard"})
+    private String type;
+
+    private Object event;
+    private String json;
+
+    /**
+     * Builds an event of the type, with a value for each of its components.
+     *
+     * @throws ReflectiveOperationException If the event could not be built.
+     * @throws JsonProcessingException      If the event could not be encoded.
+     */
+    @Setup
+    public void setUp() throws ReflectiveOperationException, JsonProcessingException {
+        if (this.type.equals("subscribeToBoard")) {
+            this.event = new SubscribeToBoard(1);
+            this.json = EventCodec.encode((ClientToServerEvent) this.event);
+            return;
+        }
+
+        for (var subtype : ServerToClientEvent.class.getAnnotation(JsonSubTypes.class).value()) {
+            if (subtype.name().equals(this.type)) {
+                this.event = sample(subtype.value());
+            }
+        }
+        if (this.event == null) {
+            throw new IllegalArgumentException("no event type " + this.type);
+        }
+        this.json = EventCodec.encode((ServerToClientEvent) this.event);
+    }
+
+    private static Object sample(final Class<?> type) throws ReflectiveOperationException {
+        var components = type.getRecordComponents();
+        var types = new Class<?>[components.length];
+        var args = new Object[components.length];
+
+        for (int i = 0; i < components.length; i++) {
+            types[i] = components[i].getType();
+            args[i] = sampleValue(types[i]);
+        }
+
+        return type.getDeclaredConstructor(types).newInstance(args);
+    }
+
+    private static Object sampleValue(final Class<?> type) {
+        if (type == long.class) {
+            return 42L;
+        } else if (type == boolean.class) {
+            return true;
+        } else if (type == String.class) {
+            return "some text";
+        } else if (type == ZonedDateTime.class) {
+            return ZonedDateTime.of(2023, 4, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+        } else if (type == Card.class) {
+            var card = new Card("card");
+            card.patch(cp -> cp.addSubtask(new CardSubtask()));
+            return card;
+        } else if (type == CardList.class) {
+            var list = new CardList();
+            list.patch(lp -> lp.addCard(new Card("card")));
+            return list;
+        } else if (type == Tag.class) {
+            return new Tag("tag");
+        } else if (type == ColorPreset.class) {
+            return new ColorPreset();
+        } else if (type == CardSubtask.class) {
+            return new CardSubtask();
+        } else if (type == List.class) {
+            return List.of(new CardTitleSetEvent(1, "a"), new CardTextSetEvent(1, "b"));
+        }
+
+        throw new IllegalArgumentException("no sample for " + type);
+    }
+
+    private static ObjectMapper newMapper() {
+        return new ObjectMapper()
+                .findAndRegisterModules()
+                .setDateFormat(new StdDateFormat().withColonInTimeZone(true));
+    }
+
+    private Class<?> base() {
+        return this.event instanceof ClientToServerEvent ? ClientToServerEvent.class : ServerToClientEvent.class;
+    }
+
+    /**
+     * Encodes the event with the shared codec.
+     *
+     * @return The JSON.
+     * @throws JsonProcessingException Never.
+     */
+    @Benchmark
+    public String encode() throws JsonProcessingException {
+        return this.event instanceof ClientToServerEvent e ? EventCodec.encode(e)
+                : EventCodec.encode((ServerToClientEvent) this.event);
+    }
+
+    /**
+     * Decodes the event with the shared codec.
+     *
+     * @return The event.
+     * @throws JsonProcessingException Never.
+     */
+    @Benchmark
+    public Object decode() throws JsonProcessingException {
+        return this.event instanceof ClientToServerEvent ? EventCodec.decodeClientToServer(this.json)
+                : EventCodec.decodeServerToClient(this.json);
+    }
+
+    /**
+     * Encodes the event with a new object mapper.
+     *
+     * @return The JSON.
+     * @throws JsonProcessingException Never.
+     */
+    @Benchmark
+    public String encodeWithNewMapper() throws JsonProcessingException {
+        return newMapper().writerFor(this.base()).writeValueAsString(this.event);
+    }
+
+    /**
+     * Decodes the event with a new object mapper.
+     *
+     * @return The event.
+     * @throws JsonProcessingException Never.
+     */
+    @Benchmark
+    public Object decodeWithNewMapper() throws JsonProcessingException {
+        return newMapper().readerFor(this.base()).readValue(this.json);
+    }
+}
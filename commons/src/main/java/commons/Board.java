@@ -14,9 +14,14 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.OrderBy;
 import jakarta.persistence.OrderColumn;
 import jakarta.persistence.Transient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -25,30 +30,58 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 
 /**
  * Represents a board in the Talio application. A board consists of one or more lists,
  * and has a title. It can also have multiple observers that will be notified of changes to the board.
  */
 @Entity
+@NamedEntityGraph(name = Board.FULL_GRAPH, attributeNodes = @NamedAttributeNode("cardLists"))
 public final class Board {
+    /**
+     * The entity graph to load a whole board with: the lists are joined, and the rest of the collections are batch
+     * fetched (joining more of them would multiply the rows).
+     */
+    public static final String FULL_GRAPH = "Board.full";
 
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private long id;
 
-    @OneToMany(mappedBy = "board", fetch = FetchType.EAGER)
-    @OrderColumn(name = "listsSequence")
+    @OneToMany(mappedBy = "board", fetch = FetchType.LAZY)
+    @OrderBy("orderKey, id")
     private List<CardList> cardLists;
 
-    @OneToMany(mappedBy = "boardId", fetch = FetchType.EAGER)
+    // the ids of the tags and presets are cached along with them; the server evicts them when a tag or preset is
+    // created or deleted, since the cache doesn't see the inverse side of the association change.
+    @OneToMany(mappedBy = "boardId", fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<Tag> tags;
 
     @Transient
     @JsonIgnore
     private ArrayList<BoardObserver> observers;
 
+    @Transient
+    @JsonIgnore
+    private transient LongIndex<CardList> cardListIndex;
+
+    @Transient
+    @JsonIgnore
+    private transient LongIndex<Tag> tagIndex;
+
+    @Transient
+    @JsonIgnore
+    private transient LongIndex<ColorPreset> presetIndex;
+
+    @Transient
+    @JsonIgnore
+    private transient CardReverseIndex cardReverseIndex;
+
+    @Transient
+    @JsonIgnore
+    private transient boolean cardListsOrdered;
+
     @Column
     private String title;
 
@@ -61,8 +94,16 @@ public final class Board {
     @Column
     private long defaultCardColorPreset;
 
-    @OneToMany(mappedBy = "board", fetch = FetchType.EAGER)
+    /**
+     * Counts the changes to the fields of the board, so that a change can be made conditional on the board not
+     * having changed since it was last seen.
+     */
+    @Column
+    private long version;
+
+    @OneToMany(mappedBy = "board", fetch = FetchType.LAZY)
     @OrderColumn(name = "presetsSequence")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Collection<ColorPreset> presets;
 
     /**
@@ -86,6 +127,16 @@ public final class Board {
         return id;
     }
 
+    /**
+     * Gets the version of the board, which is incremented by every change to its fields.
+     *
+     * @return The version.
+     */
+    @JsonGetter("version")
+    public long getVersion() {
+        return version;
+    }
+
     /**
      * getter for the title.
      *
@@ -157,6 +208,23 @@ public final class Board {
         return presets;
     }
 
+    /**
+     * Copies the fields of the board, without its lists, tags and presets, to list the board by.
+     *
+     * @return The copy.
+     */
+    public Board summary() {
+        var summary = new Board();
+        summary.id = this.id;
+        summary.title = this.title;
+        summary.fontColor = this.fontColor;
+        summary.backgroundColor = this.backgroundColor;
+        summary.defaultCardColorPreset = this.defaultCardColorPreset;
+        summary.version = this.version;
+
+        return summary;
+    }
+
     /**
      * Adds the given observer to the list of observers to notify on changes to the board.
      *
@@ -171,6 +239,24 @@ public final class Board {
         observer.setBoard(this);
     }
 
+    /**
+     * Detaches all observers from the board, and from all of its lists, cards, subtasks and tags.
+     * <p>
+     * Used on the back-end, where a board stays in memory across patches, before its long-lived observers
+     * are attached.
+     */
+    public void detachObservers() {
+        this.observers = null;
+
+        for (var list : this.cardLists) {
+            list.detachObservers();
+        }
+
+        for (var tag : this.tags) {
+            tag.detachObservers();
+        }
+    }
+
     /**
      * Equals method for this class.
      *
@@ -241,6 +327,7 @@ public final class Board {
          */
         public void setTitle(final String newTitle) {
             Board.this.title = newTitle;
+            Board.this.version++;
 
             Board.this.forEachObserver(observer -> observer.titleSet(newTitle));
         }
@@ -265,7 +352,14 @@ public final class Board {
          */
         public void addCardList(final CardList list) {
             list.setBoard(Board.this.id);
-            Board.this.cardLists.add(list);
+            Board.this.sortedCardLists().append(list);
+            if (Board.this.cardListIndex != null) {
+                Board.this.cardListIndex.add(list);
+            }
+
+            if (Board.this.cardReverseIndex != null) {
+                list.setReverseIndex(Board.this.cardReverseIndex);
+            }
 
             Board.this.forEachObserver(o -> o.listCreated(list));
         }
@@ -278,10 +372,18 @@ public final class Board {
         public void removeCardList(final long cardListId) {
             var list = findCardList(cardListId);
 
-            if (!Board.this.cardLists.remove(list)) {
+            if (!Board.this.sortedCardLists().remove(list)) {
                 throw new NoSuchElementException();
             }
 
+            if (Board.this.cardListIndex != null) {
+                Board.this.cardListIndex.remove(list);
+            }
+
+            if (Board.this.cardReverseIndex != null) {
+                list.setReverseIndex(null);
+            }
+
             Board.this.forEachObserver(observer -> observer.listRemoved(list));
         }
 
@@ -294,18 +396,11 @@ public final class Board {
          *                      Or 0 if the list should be moved before all the other lists of the board.
          */
         public void moveCardList(final long cardListId, final long placedAfterId) {
-            Predicate<CardList> placedAfterListPredicate = (list) -> list.getId() == placedAfterId;
-
             CardList card = findCardList(cardListId);
-            Optional<CardList> placedAfter = Board.this.cardLists.stream().filter(placedAfterListPredicate).findFirst();
+            Optional<CardList> placedAfter =
+                    Optional.ofNullable(Board.this.cardListIndex().find(placedAfterId));
 
-            Board.this.cardLists.remove(card);
-
-            int insertIndex =
-                    placedAfter.map(Board.this.cardLists::indexOf).map(it -> it + 1) // insert after, not before
-                            .orElse(0);
-
-            Board.this.cardLists.add(insertIndex, card);
+            Board.this.sortedCardLists().move(card, placedAfter.orElse(null));
 
             Board.this.forEachObserver(observer -> observer.listsReordered(card, placedAfter.orElse(null)));
         }
@@ -330,12 +425,10 @@ public final class Board {
          * @param destCardListId  The id of the destination card list.
          * @param destCardAfterId The id of the card that the moved card will be placed after, or 0 if the card should
          *                        be moved to the very beginning of the destination card list.
-         * @param saveCard        Consumer that saves a card.
-         * @param saveCardList    Consumer that saves a card list.
+         * @param saveCard        Consumer that saves a card. Only the moved card changes.
          */
         public void xListCardMove(final long srcCardListId, final long srcCardId, final long destCardListId,
-                                  final long destCardAfterId, final Consumer<Card> saveCard,
-                                  final Consumer<CardList> saveCardList) {
+                                  final long destCardAfterId, final Consumer<Card> saveCard) {
             if (srcCardListId == destCardListId) {
                 throw new IllegalArgumentException("xlist move on the same list.");
             }
@@ -344,19 +437,25 @@ public final class Board {
 
             var card = new Card[1];
             srcCardList.patch(sp -> card[0] = sp.removeCard(srcCardId, false));
-            var hook =
-                    destCardList.getCards().stream().filter(c -> c.getId() == destCardAfterId).findFirst().orElse(null);
+            var hook = destCardList.findCardOrNull(destCardAfterId);
             card[0].setCardList(destCardListId, true);
 
             destCardList.patch(sp -> sp.addCardAfter(card[0], hook));
 
-            saveCardList.accept(srcCardList);
-            saveCardList.accept(destCardList);
             saveCard.accept(card[0]);
 
             Board.this.forEachObserver(o -> o.xListCardMoved(srcCardList, card[0], destCardList, hook));
         }
 
+        /**
+         * Gives all the card lists fresh order keys, keeping their order.
+         *
+         * @param saveCardList Receives the card lists whose order key changed.
+         */
+        public void rebalanceOrderKeys(final Consumer<CardList> saveCardList) {
+            Board.this.sortedCardLists().rebalance(saveCardList);
+        }
+
         /**
          * Adds a new tag to the board.
          *
@@ -366,6 +465,9 @@ public final class Board {
             tag.setBoardId(Board.this.id);
 
             Board.this.tags.add(tag);
+            if (Board.this.tagIndex != null) {
+                Board.this.tagIndex.add(tag);
+            }
 
             Board.this.forEachObserver(o -> o.tagAdded(tag));
         }
@@ -375,14 +477,22 @@ public final class Board {
         }
 
         /**
-         * Removes a tag from the board.
+         * Removes a tag from the board, and from all of its cards. The observers are only told about the removal from
+         * the board, which implies the others.
          *
          * @param tagId The id of the tag to delete.
          */
         public void removeTag(final long tagId) {
             var tag = findTag(tagId);
 
+            for (var card : Board.this.cardsWithTag(tagId)) {
+                card.untag(tag);
+            }
+
             Board.this.tags.remove(tag);
+            if (Board.this.tagIndex != null) {
+                Board.this.tagIndex.remove(tag);
+            }
 
             Board.this.forEachObserver(o -> o.tagRemoved(tag));
         }
@@ -406,6 +516,7 @@ public final class Board {
          */
         public void setFontColor(final String fontColor) {
             Board.this.fontColor = fontColor;
+            Board.this.version++;
 
             Board.this.forEachObserver(o -> o.fontColorSet(fontColor));
         }
@@ -417,6 +528,7 @@ public final class Board {
          */
         public void setBackgroundColor(final String backgroundColor) {
             Board.this.backgroundColor = backgroundColor;
+            Board.this.version++;
 
             Board.this.forEachObserver(o -> o.backgroundColorSet(backgroundColor));
         }
@@ -434,12 +546,11 @@ public final class Board {
             if (presetId == 0) {
                 Board.this.defaultCardColorPreset = 0;
             } else {
-                if (Board.this.presets.stream().noneMatch(it -> it.getId() == presetId)) {
-                    throw new NoSuchColorPreset(presetId);
-                }
+                findColorPreset(presetId);
 
                 Board.this.defaultCardColorPreset = presetId;
             }
+            Board.this.version++;
 
             Board.this.forEachObserver(o -> o.defaultCardColorPresetSet(Board.this.defaultCardColorPreset));
         }
@@ -456,6 +567,9 @@ public final class Board {
             savedPreset.setBoard(Board.this.id);
 
             Board.this.presets.add(savedPreset);
+            if (Board.this.presetIndex != null) {
+                Board.this.presetIndex.add(savedPreset);
+            }
 
             Board.this.forEachObserver(o -> o.colorPresetCreated(savedPreset));
 
@@ -463,17 +577,26 @@ public final class Board {
         }
 
         /**
-         * Removes a preset from the list of presets.
+         * Removes a preset from the list of presets, and clears it on the cards that used it. The observers are only
+         * told about the removal of the preset, which implies the others.
          *
          * @param presetId The id of the preset to remove.
          * @return The removed preset.
          */
         public ColorPreset removeColorPreset(final long presetId) {
             var preset = findColorPreset(presetId);
+
+            for (var card : Board.this.cardsWithPreset(presetId)) {
+                card.clearColorPreset();
+            }
             if (!Board.this.presets.remove(preset)) {
                 throw new IllegalStateException();
             }
 
+            if (Board.this.presetIndex != null) {
+                Board.this.presetIndex.remove(preset);
+            }
+
             Board.this.forEachObserver(o -> o.colorPresetRemoved(preset));
 
             return preset;
@@ -519,6 +642,58 @@ public final class Board {
         }
     }
 
+    private OrderKeys.Sorted<CardList> sortedCardLists() {
+        var sorted = new OrderKeys.Sorted<>(this.cardLists, CardList::getOrderKey, CardList::setOrderKey);
+        if (!this.cardListsOrdered) {
+            sorted.normalize(list -> { });
+            this.cardListsOrdered = true;
+        }
+
+        return sorted;
+    }
+
+    /**
+     * Makes sure the lists, cards and subtasks of the board have order keys, in increasing order. Used on the back-end
+     * after loading a board, to assign keys to the rows that were created before order keys existed.
+     *
+     * @param saveCardList Receives the card lists whose order key changed.
+     * @param saveCard     Receives the cards whose order key changed.
+     * @param saveSubtask  Receives the subtasks whose order key changed.
+     */
+    public void normalizeOrderKeys(final Consumer<CardList> saveCardList, final Consumer<Card> saveCard,
+                                   final Consumer<CardSubtask> saveSubtask) {
+        new OrderKeys.Sorted<>(this.cardLists, CardList::getOrderKey, CardList::setOrderKey).normalize(saveCardList);
+        this.cardListsOrdered = true;
+
+        for (var list : this.cardLists) {
+            list.normalizeOrderKeys(saveCard, saveSubtask);
+        }
+    }
+
+    private LongIndex<CardList> cardListIndex() {
+        if (this.cardListIndex == null) {
+            this.cardListIndex = LongIndex.of(this.cardLists, CardList::getId);
+        }
+
+        return this.cardListIndex;
+    }
+
+    private LongIndex<Tag> tagIndex() {
+        if (this.tagIndex == null) {
+            this.tagIndex = LongIndex.of(this.tags, Tag::getId);
+        }
+
+        return this.tagIndex;
+    }
+
+    private LongIndex<ColorPreset> presetIndex() {
+        if (this.presetIndex == null) {
+            this.presetIndex = LongIndex.of(this.presets, ColorPreset::getId);
+        }
+
+        return this.presetIndex;
+    }
+
     /**
      * Gets the corresponding card list, by ID.
      *
@@ -527,8 +702,44 @@ public final class Board {
      * @throws NoSuchCardList If no such card list was found.
      */
     public CardList cardListById(final long cardListId) throws NoSuchCardList {
-        return this.cardLists.stream().filter(l -> l.getId() == cardListId).findFirst()
-                .orElseThrow(() -> new NoSuchCardList(cardListId));
+        var list = this.cardListIndex().find(cardListId);
+        if (list == null) {
+            throw new NoSuchCardList(cardListId);
+        }
+
+        return list;
+    }
+
+    private CardReverseIndex cardReverseIndex() {
+        if (this.cardReverseIndex == null) {
+            this.cardReverseIndex = new CardReverseIndex();
+
+            for (var list : this.cardLists) {
+                list.setReverseIndex(this.cardReverseIndex);
+            }
+        }
+
+        return this.cardReverseIndex;
+    }
+
+    /**
+     * Finds the cards that have a tag, through the reverse index of the board.
+     *
+     * @param tagId The tag id.
+     * @return The cards, in no particular order.
+     */
+    public List<Card> cardsWithTag(final long tagId) {
+        return this.cardReverseIndex().withTag(tagId);
+    }
+
+    /**
+     * Finds the cards that use a color preset, through the reverse index of the board.
+     *
+     * @param presetId The preset id.
+     * @return The cards, in no particular order.
+     */
+    public List<Card> cardsWithPreset(final long presetId) {
+        return this.cardReverseIndex().withPreset(presetId);
     }
 
     /**
@@ -539,8 +750,12 @@ public final class Board {
      * @throws NoSuchCard If no such card was found.
      */
     public Card cardById(final long card) throws NoSuchCard {
-        return this.cardLists.stream().flatMap(it -> it.getCards().stream()).filter(it -> it.getId() == card)
-                .findFirst().orElseThrow(() -> new NoSuchCard(card));
+        var found = this.cardReverseIndex().card(card);
+        if (found == null) {
+            throw new NoSuchCard(card);
+        }
+
+        return found;
     }
 
     /**
@@ -551,8 +766,12 @@ public final class Board {
      * @throws NoSuchSubtask If no such subtask exists.
      */
     public CardSubtask subtaskById(final long subtask) throws NoSuchSubtask {
-        return this.cardLists.stream().flatMap(it -> it.getCards().stream()).flatMap(it -> it.getSubtasks().stream())
-                .filter(it -> it.getId() == subtask).findFirst().orElseThrow(() -> new NoSuchSubtask(subtask));
+        var found = this.cardReverseIndex().subtask(subtask);
+        if (found == null) {
+            throw new NoSuchSubtask(subtask);
+        }
+
+        return found;
     }
 
     /**
@@ -563,8 +782,12 @@ public final class Board {
      * @throws NoSuchColorPreset If no such color preset was found.
      */
     public ColorPreset colorPresetById(final long colorPresetId) throws NoSuchColorPreset {
-        return this.presets.stream().filter(it -> it.getId() == colorPresetId).findFirst()
-                .orElseThrow(() -> new NoSuchColorPreset(colorPresetId));
+        var preset = this.presetIndex().find(colorPresetId);
+        if (preset == null) {
+            throw new NoSuchColorPreset(colorPresetId);
+        }
+
+        return preset;
     }
 
     /**
@@ -575,7 +798,12 @@ public final class Board {
      * @throws NoSuchTag If no such tag exists.
      */
     public Tag tagById(final long tagId) throws NoSuchTag {
-        return this.tags.stream().filter(it -> it.getId() == tagId).findFirst().orElseThrow(() -> new NoSuchTag(tagId));
+        var tag = this.tagIndex().find(tagId);
+        if (tag == null) {
+            throw new NoSuchTag(tagId);
+        }
+
+        return tag;
     }
 
     /**
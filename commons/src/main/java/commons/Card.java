@@ -10,8 +10,10 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.JoinTable;
 import jakarta.persistence.OneToMany;
-import jakarta.persistence.OrderColumn;
+import jakarta.persistence.OrderBy;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Transient;
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -54,20 +56,49 @@ public final class Card implements Serializable {
     @Column
     private long cardList;
 
+    // the names are the defaults, spelled out since the server writes the rows of the join table directly.
     @ManyToMany
+    @JoinTable(name = "card_tags", joinColumns = @JoinColumn(name = "card_id"),
+            inverseJoinColumns = @JoinColumn(name = "tags_id"))
     private Set<Tag> tags;
 
     @Column
     private long colorPresetKey;
 
-    @OneToMany(mappedBy = "card", fetch = FetchType.EAGER)
-    @OrderColumn(name = "subtaskSequence")
+    @OneToMany(mappedBy = "card", fetch = FetchType.LAZY)
+    @OrderBy("orderKey, id")
     private List<CardSubtask> subtasks;
 
+    @Column
+    @JsonIgnore
+    private String orderKey;
+
+    /**
+     * Counts the changes to the fields of the card, so that a change can be made conditional on the card not
+     * having changed since it was last seen.
+     */
+    @Column
+    private long version;
+
     @Transient
     @JsonIgnore
     private ArrayList<CardObserver> observers;
 
+    @Transient
+    @JsonIgnore
+    private transient boolean subtasksOrdered;
+
+    /**
+     * The reverse index of the board of the card, if the board has one.
+     */
+    @Transient
+    @JsonIgnore
+    private transient CardReverseIndex reverseIndex;
+
+    void setReverseIndex(final CardReverseIndex index) {
+        this.reverseIndex = index;
+    }
+
     void setCardList(final long cardList, final boolean xlistMove) {
         if (this.cardList != 0 && (this.cardList != cardList && !xlistMove)) {
             throw new IllegalStateException("setCardList called more than one time");
@@ -153,6 +184,17 @@ public final class Card implements Serializable {
     }
 
 
+    /**
+     * Detaches all observers from this card and its subtasks.
+     */
+    void detachObservers() {
+        this.observers = null;
+
+        for (var subtask : this.subtasks) {
+            subtask.detachObservers();
+        }
+    }
+
     /**
      * Get id.
      *
@@ -163,6 +205,31 @@ public final class Card implements Serializable {
         return id;
     }
 
+    /**
+     * Gets the version of the card, which is incremented by every change to its fields.
+     *
+     * @return The version.
+     */
+    @JsonGetter("version")
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the order key of this card.
+     *
+     * @return The order key.
+     * @see OrderKeys
+     */
+    @JsonIgnore
+    public String getOrderKey() {
+        return orderKey;
+    }
+
+    void setOrderKey(final String orderKey) {
+        this.orderKey = orderKey;
+    }
+
     /**
      * Get title.
      *
@@ -243,6 +310,32 @@ public final class Card implements Serializable {
         return colorPresetKey;
     }
 
+    /**
+     * Removes a deleted tag from the card, without notifying the observers: the deletion of the tag is the one change
+     * they are told about, for all of the cards it was on.
+     *
+     * @param tag The tag.
+     */
+    void untag(final Tag tag) {
+        this.tags.remove(tag);
+        if (this.reverseIndex != null) {
+            this.reverseIndex.tagRemoved(this, tag.getId());
+        }
+    }
+
+    /**
+     * Clears the color preset of the card, once the preset is deleted, without notifying the observers: the deletion
+     * of the preset is the one change they are told about, for all of the cards that used it.
+     */
+    void clearColorPreset() {
+        if (this.reverseIndex != null) {
+            this.reverseIndex.presetSet(this, this.colorPresetKey, 0);
+        }
+
+        this.colorPresetKey = 0;
+        this.version++;
+    }
+
     /**
      * Patches the Card, with the given patcher.
      *
@@ -288,6 +381,7 @@ public final class Card implements Serializable {
          */
         public void setTitle(final String newTitle) {
             Card.this.title = newTitle;
+            Card.this.version++;
 
             Card.this.forEachObserver(observer -> observer.titleSet(newTitle));
         }
@@ -299,6 +393,7 @@ public final class Card implements Serializable {
          */
         public void setText(final String newText) {
             Card.this.text = newText;
+            Card.this.version++;
 
             Card.this.forEachObserver(observer -> observer.textSet(newText));
         }
@@ -310,6 +405,7 @@ public final class Card implements Serializable {
          */
         public void setCategory(final String newCategory) {
             Card.this.category = newCategory;
+            Card.this.version++;
 
             Card.this.forEachObserver(observer -> observer.categorySet(newCategory));
         }
@@ -321,6 +417,7 @@ public final class Card implements Serializable {
          */
         public void setDueDate(final ZonedDateTime newDueDate) {
             Card.this.dueDate = newDueDate;
+            Card.this.version++;
 
             Card.this.forEachObserver(observer -> observer.dueDateSet(newDueDate));
         }
@@ -331,7 +428,12 @@ public final class Card implements Serializable {
          * @param newColorPresetKey The new color preset key.
          */
         public void setColorPreset(final long newColorPresetKey) {
+            if (Card.this.reverseIndex != null) {
+                Card.this.reverseIndex.presetSet(Card.this, Card.this.colorPresetKey, newColorPresetKey);
+            }
+
             Card.this.colorPresetKey = newColorPresetKey;
+            Card.this.version++;
 
             Card.this.forEachObserver(observer -> observer.presetSet(newColorPresetKey));
         }
@@ -347,6 +449,9 @@ public final class Card implements Serializable {
             }
 
             Card.this.tags.add(tag);
+            if (Card.this.reverseIndex != null) {
+                Card.this.reverseIndex.tagAdded(Card.this, tag.getId());
+            }
 
             Card.this.forEachObserver(observer -> observer.tagAdded(tag));
         }
@@ -362,6 +467,9 @@ public final class Card implements Serializable {
             }
 
             Card.this.tags.remove(tag);
+            if (Card.this.reverseIndex != null) {
+                Card.this.reverseIndex.tagRemoved(Card.this, tag.getId());
+            }
 
             Card.this.forEachObserver(observer -> observer.tagRemoved(tag));
         }
@@ -373,7 +481,10 @@ public final class Card implements Serializable {
          */
         public void addSubtask(final CardSubtask subtask) {
             subtask.setCard(Card.this.id);
-            Card.this.subtasks.add(subtask);
+            Card.this.sortedSubtasks().append(subtask);
+            if (Card.this.reverseIndex != null) {
+                Card.this.reverseIndex.subtaskAdded(subtask);
+            }
 
             Card.this.forEachObserver(o -> o.subtaskCreated(subtask));
         }
@@ -386,9 +497,12 @@ public final class Card implements Serializable {
         public void deleteSubtask(final long subtaskId) {
             var subtask = Card.this.subtaskById(subtaskId);
 
-            if (!Card.this.subtasks.remove(subtask)) {
+            if (!Card.this.sortedSubtasks().remove(subtask)) {
                 throw new IllegalStateException();
             }
+            if (Card.this.reverseIndex != null) {
+                Card.this.reverseIndex.subtaskRemoved(subtask);
+            }
 
             Card.this.forEachObserver(o -> o.subtaskDeleted(subtask));
         }
@@ -408,17 +522,20 @@ public final class Card implements Serializable {
             Optional<CardSubtask> placedAfter = Card.this.subtasks.stream()
                     .filter(placedAfterSubtaskPredicate).findFirst();
 
-            Card.this.subtasks.remove(subtask);
-
-            int insertIndex = placedAfter.map(Card.this.subtasks::indexOf)
-                    .map(it -> it + 1) // insert after, not before
-                    .orElse(0);
-
-            Card.this.subtasks.add(insertIndex, subtask);
+            Card.this.sortedSubtasks().move(subtask, placedAfter.orElse(null));
 
             Card.this.forEachObserver(observer -> observer.subtaskMoved(subtask, placedAfter.orElse(null)));
         }
 
+        /**
+         * Gives all the subtasks fresh order keys, keeping their order.
+         *
+         * @param saveSubtask Receives the subtasks whose order key changed.
+         */
+        public void rebalanceOrderKeys(final Consumer<CardSubtask> saveSubtask) {
+            Card.this.sortedSubtasks().rebalance(saveSubtask);
+        }
+
         /**
          * Patches the given subtask.
          *
@@ -431,6 +548,27 @@ public final class Card implements Serializable {
         }
     }
 
+    private OrderKeys.Sorted<CardSubtask> sortedSubtasks() {
+        var sorted = new OrderKeys.Sorted<>(this.subtasks, CardSubtask::getOrderKey, CardSubtask::setOrderKey);
+        if (!this.subtasksOrdered) {
+            sorted.normalize(subtask -> { });
+            this.subtasksOrdered = true;
+        }
+
+        return sorted;
+    }
+
+    /**
+     * Makes sure the subtasks have order keys, in increasing order.
+     *
+     * @param saveSubtask Receives the subtasks whose order key changed.
+     */
+    void normalizeOrderKeys(final Consumer<CardSubtask> saveSubtask) {
+        new OrderKeys.Sorted<>(this.subtasks, CardSubtask::getOrderKey, CardSubtask::setOrderKey)
+                .normalize(saveSubtask);
+        this.subtasksOrdered = true;
+    }
+
     private void forEachObserver(final Consumer<CardObserver> observerConsumer) {
         if (this.observers != null) {
             this.observers.forEach(observerConsumer);
@@ -439,13 +577,16 @@ public final class Card implements Serializable {
 
     /**
      * Equals method for this class.
+     * <p>
+     * The order key is left out, since it only mirrors the position within the parent, and is not sent to clients;
+     * and so is the version, which only counts the changes.
      *
      * @param o The other object to check the equality with.
      * @return {@code true} if equal, {@code false} if not equal.
      */
     @Override
     public boolean equals(final Object o) {
-        return EqualsBuilder.reflectionEquals(this, o);
+        return EqualsBuilder.reflectionEquals(this, o, "orderKey", "version");
     }
 
     /**
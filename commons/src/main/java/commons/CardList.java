@@ -11,7 +11,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
-import jakarta.persistence.OrderColumn;
+import jakarta.persistence.OrderBy;
 import jakarta.persistence.Transient;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 
@@ -20,7 +20,6 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 
 @Entity
 public final class CardList {
@@ -34,14 +33,60 @@ public final class CardList {
         this.id = newId;
     }
 
-    @OneToMany(mappedBy = "cardList", fetch = FetchType.EAGER)
-    @OrderColumn(name = "cardSequence")
+    @OneToMany(mappedBy = "cardList", fetch = FetchType.LAZY)
+    @OrderBy("orderKey, id")
     private final List<Card> cards;
 
+    @Column
+    @JsonIgnore
+    private String orderKey;
+
+    /**
+     * Counts the changes to the fields of the list, so that a change can be made conditional on the list not
+     * having changed since it was last seen.
+     */
+    @Column
+    private long version;
+
     @Transient
     @JsonIgnore
     private ArrayList<CardListObserver> observers;
 
+    @Transient
+    @JsonIgnore
+    private transient LongIndex<Card> cardIndex;
+
+    @Transient
+    @JsonIgnore
+    private transient boolean cardsOrdered;
+
+    /**
+     * The reverse index of the board of the list, if the board has one.
+     */
+    @Transient
+    @JsonIgnore
+    private transient CardReverseIndex reverseIndex;
+
+    /**
+     * Moves the cards of the list to the reverse index of the board the list was added to, or out of the one of the
+     * board it was removed from.
+     *
+     * @param index The index, or null.
+     */
+    void setReverseIndex(final CardReverseIndex index) {
+        for (var card : this.cards) {
+            if (this.reverseIndex != null) {
+                this.reverseIndex.remove(card);
+            }
+
+            if (index != null) {
+                index.add(card);
+            }
+        }
+
+        this.reverseIndex = index;
+    }
+
     @Column
     private long board;
 
@@ -98,6 +143,17 @@ public final class CardList {
         observer.setCardList(this);
     }
 
+    /**
+     * Detaches all observers from this list and its cards.
+     */
+    void detachObservers() {
+        this.observers = null;
+
+        for (var card : this.cards) {
+            card.detachObservers();
+        }
+    }
+
     /**
      * Get id.
      *
@@ -108,6 +164,16 @@ public final class CardList {
         return id;
     }
 
+    /**
+     * Gets the version of the list, which is incremented by every change to its fields.
+     *
+     * @return The version.
+     */
+    @JsonGetter("version")
+    public long getVersion() {
+        return version;
+    }
+
     /**
      * Get cards.
      *
@@ -118,6 +184,21 @@ public final class CardList {
         return cards;
     }
 
+    /**
+     * Gets the order key of this list.
+     *
+     * @return The order key.
+     * @see OrderKeys
+     */
+    @JsonIgnore
+    public String getOrderKey() {
+        return orderKey;
+    }
+
+    void setOrderKey(final String orderKey) {
+        this.orderKey = orderKey;
+    }
+
     /**
      * Get the title of the list.
      *
@@ -179,13 +260,34 @@ public final class CardList {
             return CardList.this.cardById(cardId);
         }
 
+        private void indexCard(final Card card) {
+            if (CardList.this.cardIndex != null) {
+                CardList.this.cardIndex.add(card);
+            }
+
+            if (CardList.this.reverseIndex != null) {
+                CardList.this.reverseIndex.add(card);
+            }
+        }
+
+        private void unindexCard(final Card card) {
+            if (CardList.this.cardIndex != null) {
+                CardList.this.cardIndex.remove(card);
+            }
+
+            if (CardList.this.reverseIndex != null) {
+                CardList.this.reverseIndex.remove(card);
+            }
+        }
+
         /**
          * Adds a card to this list.
          *
          * @param card The card to add.
          */
         public void addCard(final Card card) {
-            CardList.this.cards.add(card);
+            CardList.this.sortedCards().append(card);
+            indexCard(card);
 
             card.setCardList(CardList.this.id, false);
 
@@ -200,9 +302,8 @@ public final class CardList {
          *             null if at the very beginning of the list.
          */
         public void addCardAfter(final Card card, final Card hook) {
-            var newPos = hook == null ? 0 : CardList.this.cards.indexOf(findCard(hook.getId())) + 1;
-
-            CardList.this.cards.add(newPos, card);
+            CardList.this.sortedCards().insertAfter(card, hook == null ? null : findCard(hook.getId()));
+            indexCard(card);
         }
 
         /**
@@ -222,6 +323,7 @@ public final class CardList {
          */
         public void setTitle(final String newTitle) {
             CardList.this.title = newTitle;
+            CardList.this.version++;
 
             CardList.this.forEachObserver(observer -> observer.titleSet(newTitle));
         }
@@ -235,7 +337,8 @@ public final class CardList {
         Card removeCard(final long cardId, final boolean notify) {
             var card = findCard(cardId);
 
-            CardList.this.cards.remove(card);
+            CardList.this.sortedCards().remove(card);
+            unindexCard(card);
 
             if (notify) {
                 CardList.this.forEachObserver(observer -> observer.cardRemoved(card));
@@ -253,18 +356,10 @@ public final class CardList {
          *                      Use 0 to move a card to the very beginning of the list.
          */
         public void moveCard(final long cardId, final long placedAfterId) {
-            Predicate<Card> placedAfterCardPredicate = (card) -> card.getId() == placedAfterId;
-
             Card card = findCard(cardId);
-            Optional<Card> placedAfter = CardList.this.cards.stream().filter(placedAfterCardPredicate).findFirst();
-
-            CardList.this.cards.remove(card);
+            Optional<Card> placedAfter = Optional.ofNullable(CardList.this.findCardOrNull(placedAfterId));
 
-            int insertIndex = placedAfter.map(CardList.this.cards::indexOf)
-                    .map(it -> it + 1) // insert after, not before
-                    .orElse(0);
-
-            CardList.this.cards.add(insertIndex, card);
+            CardList.this.sortedCards().move(card, placedAfter.orElse(null));
 
             CardList.this.forEachObserver(observer -> observer.cardMoved(card, placedAfter.orElse(null)));
         }
@@ -276,6 +371,7 @@ public final class CardList {
          */
         public void setFontColor(final String newFontColor) {
             CardList.this.fontColor = newFontColor;
+            CardList.this.version++;
 
             CardList.this.forEachObserver(o -> o.fontColorSet(newFontColor));
         }
@@ -287,10 +383,20 @@ public final class CardList {
          */
         public void setBackgroundColor(final String newBackgroundColor) {
             CardList.this.backgroundColor = newBackgroundColor;
+            CardList.this.version++;
 
             CardList.this.forEachObserver(o -> o.backgroundColorSet(newBackgroundColor));
         }
 
+        /**
+         * Gives all the cards fresh order keys, keeping their order.
+         *
+         * @param saveCard Receives the cards whose order key changed.
+         */
+        public void rebalanceOrderKeys(final Consumer<Card> saveCard) {
+            CardList.this.sortedCards().rebalance(saveCard);
+        }
+
         /**
          * Patches a card.
          *
@@ -306,13 +412,16 @@ public final class CardList {
 
     /**
      * Equals method for this class.
+     * <p>
+     * The order key is left out, since it only mirrors the position within the parent, and is not sent to clients;
+     * and so is the version, which only counts the changes.
      *
      * @param o The other object to check the equality with.
      * @return {@code true} if equal, {@code false} if not equal.
      */
     @Override
     public boolean equals(final Object o) {
-        return EqualsBuilder.reflectionEquals(this, o);
+        return EqualsBuilder.reflectionEquals(this, o, "orderKey", "version");
     }
 
     /**
@@ -351,9 +460,55 @@ public final class CardList {
      * @throws NoSuchCard If no such card was found.
      */
     public Card cardById(final long card) throws NoSuchCard {
-        return this.cards.stream()
-                .filter(it -> it.getId() == card)
-                .findFirst().orElseThrow(() -> new NoSuchCard(card));
+        var found = this.findCardOrNull(card);
+        if (found == null) {
+            throw new NoSuchCard(card);
+        }
+
+        return found;
+    }
+
+    private OrderKeys.Sorted<Card> sortedCards() {
+        var sorted = new OrderKeys.Sorted<>(this.cards, Card::getOrderKey, Card::setOrderKey);
+        if (!this.cardsOrdered) {
+            sorted.normalize(card -> { });
+            this.cardsOrdered = true;
+        }
+
+        return sorted;
+    }
+
+    /**
+     * Makes sure the cards, and their subtasks, have order keys in increasing order.
+     *
+     * @param saveCard    Receives the cards whose order key changed.
+     * @param saveSubtask Receives the subtasks whose order key changed.
+     */
+    void normalizeOrderKeys(final Consumer<Card> saveCard, final Consumer<CardSubtask> saveSubtask) {
+        new OrderKeys.Sorted<>(this.cards, Card::getOrderKey, Card::setOrderKey).normalize(saveCard);
+        this.cardsOrdered = true;
+
+        for (var card : this.cards) {
+            card.normalizeOrderKeys(saveSubtask);
+        }
+    }
+
+    private LongIndex<Card> cardIndex() {
+        if (this.cardIndex == null) {
+            this.cardIndex = LongIndex.of(this.cards, Card::getId);
+        }
+
+        return this.cardIndex;
+    }
+
+    /**
+     * Looks up a card by its id.
+     *
+     * @param card The card id.
+     * @return The card, or null if there is no such card in this list.
+     */
+    Card findCardOrNull(final long card) {
+        return this.cardIndex().find(card);
     }
 }
 
@@ -0,0 +1,180 @@
+package commons;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The cards of a board, by the ids of their tags and of their color presets, so that finding the cards with a tag or
+ * a preset takes time proportional to the number of cards found, rather than to the size of the board. The cards and
+ * their subtasks are also indexed by their own ids, so that finding one doesn't depend on the size of the board either.
+ * <p>
+ * The board builds it on the first lookup, and hands it to its lists and their cards; from then on it is kept up to
+ * date by the patchers: the list patchers when cards are added or removed, and the card patchers when tags or subtasks
+ * are added or removed, or the preset is set.
+ */
+final class CardReverseIndex {
+    private final HashMap<Long, Set<Card>> byTag;
+    private final HashMap<Long, Set<Card>> byPreset;
+    private final LongIndex<Card> cards;
+    private final LongIndex<CardSubtask> subtasks;
+
+    /**
+     * Constructor.
+     */
+    CardReverseIndex() {
+        this.byTag = new HashMap<>();
+        this.byPreset = new HashMap<>();
+        this.cards = new LongIndex<>(Card::getId);
+        this.subtasks = new LongIndex<>(CardSubtask::getId);
+    }
+
+    private static void put(final HashMap<Long, Set<Card>> index, final long key, final Card card) {
+        // the cards are compared by identity, since equal cards can be different cards.
+        index.computeIfAbsent(key, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(card);
+    }
+
+    private static void remove(final HashMap<Long, Set<Card>> index, final long key, final Card card) {
+        var cards = index.get(key);
+        if (cards != null && cards.remove(card) && cards.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Adds a card that was added to the board, and makes it keep the index up to date.
+     *
+     * @param card The card.
+     */
+    void add(final Card card) {
+        card.setReverseIndex(this);
+        this.cards.add(card);
+
+        for (var subtask : card.getSubtasks()) {
+            this.subtasks.add(subtask);
+        }
+
+        for (var tag : card.getTags()) {
+            put(this.byTag, tag.getId(), card);
+        }
+
+        this.presetSet(card, 0, card.getColorPresetKey());
+    }
+
+    /**
+     * Removes a card that was removed from the board.
+     *
+     * @param card The card.
+     */
+    void remove(final Card card) {
+        card.setReverseIndex(null);
+        this.cards.remove(card);
+
+        for (var subtask : card.getSubtasks()) {
+            this.subtasks.remove(subtask);
+        }
+
+        for (var tag : card.getTags()) {
+            remove(this.byTag, tag.getId(), card);
+        }
+
+        this.presetSet(card, card.getColorPresetKey(), 0);
+    }
+
+    /**
+     * Records that a tag was added to a card.
+     *
+     * @param card  The card.
+     * @param tagId The tag id.
+     */
+    void tagAdded(final Card card, final long tagId) {
+        put(this.byTag, tagId, card);
+    }
+
+    /**
+     * Records that a tag was removed from a card.
+     *
+     * @param card  The card.
+     * @param tagId The tag id.
+     */
+    void tagRemoved(final Card card, final long tagId) {
+        remove(this.byTag, tagId, card);
+    }
+
+    /**
+     * Records that a subtask was added to a card.
+     *
+     * @param subtask The subtask.
+     */
+    void subtaskAdded(final CardSubtask subtask) {
+        this.subtasks.add(subtask);
+    }
+
+    /**
+     * Records that a subtask was removed from a card.
+     *
+     * @param subtask The subtask.
+     */
+    void subtaskRemoved(final CardSubtask subtask) {
+        this.subtasks.remove(subtask);
+    }
+
+    /**
+     * Records that the preset of a card changed.
+     *
+     * @param card      The card.
+     * @param oldPreset The id of the preset it had, or 0 if none.
+     * @param newPreset The id of the preset it has, or 0 if none.
+     */
+    void presetSet(final Card card, final long oldPreset, final long newPreset) {
+        if (oldPreset != 0) {
+            remove(this.byPreset, oldPreset, card);
+        }
+
+        if (newPreset != 0) {
+            put(this.byPreset, newPreset, card);
+        }
+    }
+
+    /**
+     * Gets the cards with a tag.
+     *
+     * @param tagId The tag id.
+     * @return The cards, in no particular order.
+     */
+    List<Card> withTag(final long tagId) {
+        return List.copyOf(this.byTag.getOrDefault(tagId, Set.of()));
+    }
+
+    /**
+     * Gets a card by its id.
+     *
+     * @param cardId The card id.
+     * @return The card, or null if there is no such card on the board.
+     */
+    Card card(final long cardId) {
+        return this.cards.find(cardId);
+    }
+
+    /**
+     * Gets a subtask by its id.
+     *
+     * @param subtaskId The subtask id.
+     * @return The subtask, or null if there is no such subtask on the board.
+     */
+    CardSubtask subtask(final long subtaskId) {
+        return this.subtasks.find(subtaskId);
+    }
+
+    /**
+     * Gets the cards that use a preset.
+     *
+     * @param presetId The preset id.
+     * @return The cards, in no particular order.
+     */
+    List<Card> withPreset(final long presetId) {
+        return List.copyOf(this.byPreset.getOrDefault(presetId, Set.of()));
+    }
+}
@@ -30,10 +30,19 @@ public final class CardSubtask implements Serializable {
     @Column
     private long card;
 
+    @Column
+    @JsonIgnore
+    private String orderKey;
+
     @Transient
     @JsonIgnore
     private List<SubtaskObserver> observers;
 
+    // package-private setId used for tests
+    void setId(final long newId) {
+        this.id = newId;
+    }
+
     void setCard(final long cardId) {
         if (this.card != 0 && this.card != cardId) {
             throw new IllegalStateException();
@@ -74,6 +83,13 @@ public final class CardSubtask implements Serializable {
         observer.setSubtask(this);
     }
 
+    /**
+     * Detaches all observers from the subtask.
+     */
+    void detachObservers() {
+        this.observers = null;
+    }
+
     /**
      * Getter for id.
      *
@@ -94,6 +110,21 @@ public final class CardSubtask implements Serializable {
         return card;
     }
 
+    /**
+     * Gets the order key of this subtask.
+     *
+     * @return The order key.
+     * @see OrderKeys
+     */
+    @JsonIgnore
+    public String getOrderKey() {
+        return orderKey;
+    }
+
+    void setOrderKey(final String orderKey) {
+        this.orderKey = orderKey;
+    }
+
     /**
      * Getter for name.
      *
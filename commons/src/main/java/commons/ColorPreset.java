@@ -1,15 +1,24 @@
 package commons;
 
 import com.fasterxml.jackson.annotation.JsonGetter;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Objects;
 
+/**
+ * A preset of colors for cards. Like tags, presets change rarely, so they are kept in the second-level cache of the
+ * server.
+ */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public final class ColorPreset implements Cloneable {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -0,0 +1,250 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+/**
+ * An open-addressing hash map from (non-zero) long ids to entities, without boxing the keys.
+ * <p>
+ * Used by the entities to look up their children by id. The index is built from the children when it is first needed,
+ * and kept up to date by the patchers. Children that have no id yet when they are added are kept aside, and indexed
+ * by the first lookup that misses once they have one; a miss costs no more than that, there is no scan of the
+ * children.
+ *
+ * @param <T> The type of the entities.
+ */
+final class LongIndex<T> {
+    private static final int MIN_CAPACITY = 8;
+
+    /**
+     * The key of an empty slot. Entities that were not saved yet have id 0, so they are never indexed.
+     */
+    private static final long EMPTY = 0;
+
+    private final ToLongFunction<? super T> idOf;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    // the entities added before they had an id.
+    private final ArrayList<T> unsaved;
+
+    /**
+     * Constructor.
+     *
+     * @param idOf Gets the id of an entity.
+     */
+    LongIndex(final ToLongFunction<? super T> idOf) {
+        this.idOf = idOf;
+        this.keys = new long[MIN_CAPACITY];
+        this.values = new Object[MIN_CAPACITY];
+        this.unsaved = new ArrayList<>();
+    }
+
+    /**
+     * Creates an index of the given entities.
+     *
+     * @param entities The entities.
+     * @param idOf     Gets the id of an entity.
+     * @param <T>      The type of the entities.
+     * @return The index.
+     */
+    static <T> LongIndex<T> of(final Iterable<? extends T> entities, final ToLongFunction<? super T> idOf) {
+        var index = new LongIndex<T>(idOf);
+        for (var entity : entities) {
+            index.add(entity);
+        }
+
+        return index;
+    }
+
+    private static int mix(final long key) {
+        var h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int slotOf(final long key) {
+        var mask = this.keys.length - 1;
+        var slot = mix(key) & mask;
+
+        while (this.keys[slot] != EMPTY && this.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Gets the entity with the given id, without falling back to a scan.
+     *
+     * @param id The id.
+     * @return The entity, or null if it's not in the index.
+     */
+    @SuppressWarnings("unchecked")
+    T get(final long id) {
+        if (id == EMPTY) {
+            return null;
+        }
+
+        return (T) this.values[this.slotOf(id)];
+    }
+
+    /**
+     * Finds the entity with the given id, first indexing the entities that were added without an id and have one by
+     * now.
+     *
+     * @param id The id.
+     * @return The entity, or null if there is no such entity.
+     */
+    T find(final long id) {
+        if (id == EMPTY) {
+            // only entities that were not saved yet have id 0, and they are kept aside.
+            for (var e : this.unsaved) {
+                if (this.idOf.applyAsLong(e) == EMPTY) {
+                    return e;
+                }
+            }
+
+            return null;
+        }
+
+        var entity = this.get(id);
+        if (entity != null && this.idOf.applyAsLong(entity) == id) {
+            return entity;
+        }
+
+        if (this.unsaved.isEmpty()) {
+            return null;
+        }
+
+        var found = false;
+        for (var it = this.unsaved.iterator(); it.hasNext();) {
+            var e = it.next();
+            var eId = this.idOf.applyAsLong(e);
+            if (eId != EMPTY) {
+                it.remove();
+                this.put(eId, e);
+                found |= eId == id;
+            }
+        }
+
+        return found ? this.get(id) : null;
+    }
+
+    /**
+     * Adds an entity to the index.
+     *
+     * @param entity The entity.
+     */
+    void add(final T entity) {
+        var id = this.idOf.applyAsLong(entity);
+        if (id == EMPTY) {
+            this.unsaved.add(entity);
+            return;
+        }
+
+        this.put(id, entity);
+    }
+
+    private void put(final long id, final T entity) {
+        if (id == EMPTY) {
+            return;
+        }
+
+        var slot = this.slotOf(id);
+        if (this.keys[slot] == EMPTY) {
+            this.keys[slot] = id;
+            this.size++;
+        }
+
+        this.values[slot] = entity;
+
+        // keep the load factor at most 1/2, so that probe sequences stay short.
+        if (this.size * 2 > this.keys.length) {
+            this.resize(this.keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes an entity from the index.
+     *
+     * @param entity The entity.
+     */
+    void remove(final T entity) {
+        var id = this.idOf.applyAsLong(entity);
+        if (id == EMPTY) {
+            this.removeUnsaved(entity);
+            return;
+        }
+
+        var slot = this.slotOf(id);
+        if (this.keys[slot] == EMPTY || this.values[slot] != entity) {
+            // it might have been added before it had an id.
+            this.removeUnsaved(entity);
+            return;
+        }
+
+        this.size--;
+
+        // backward shift deletion: move the following entries of the cluster up, so that there are no tombstones.
+        var mask = this.keys.length - 1;
+        var hole = slot;
+        var next = (hole + 1) & mask;
+        while (this.keys[next] != EMPTY) {
+            var home = mix(this.keys[next]) & mask;
+            // the entry at next can fill the hole only if its home slot is not in (hole, next].
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.keys[hole] = this.keys[next];
+                this.values[hole] = this.values[next];
+                hole = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        this.keys[hole] = EMPTY;
+        this.values[hole] = null;
+    }
+
+    private void removeUnsaved(final T entity) {
+        // by identity: entities that were not saved yet may well be equal.
+        this.unsaved.removeIf(e -> e == entity);
+    }
+
+    /**
+     * Removes all the entities from the index.
+     */
+    void clear() {
+        Arrays.fill(this.keys, EMPTY);
+        Arrays.fill(this.values, null);
+        this.size = 0;
+        this.unsaved.clear();
+    }
+
+    /**
+     * Gets the number of indexed entities.
+     *
+     * @return The size.
+     */
+    int size() {
+        return this.size;
+    }
+
+    private void resize(final int capacity) {
+        var oldKeys = this.keys;
+        var oldValues = this.values;
+
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                var slot = this.slotOf(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Fractional order keys, used to keep the lists of a board, the cards of a list and the subtasks of a card in order.
+ * <p>
+ * An order key is a base 62 string, and the children are sorted by comparing the keys as strings. There is always a
+ * key between any two keys, so moving a child only has to change the key of that child, instead of rewriting the
+ * position of every child after it.
+ * <p>
+ * A key consists of an integer part, whose first character encodes its length ({@code a}-{@code z} for positive
+ * integers, {@code A}-{@code Z} for negative ones), followed by an optional fractional part. Appending to the end only
+ * increments the integer part, so the keys stay short; inserting repeatedly at the same place makes the fractional
+ * part grow, and such keys are rebalanced once they get longer than {@link #MAX_LENGTH}.
+ * <p>
+ * The keys are compared char by char, so they rely on a binary collation of the order key columns in the database.
+ */
+public final class OrderKeys {
+    /**
+     * The length after which the keys of a list should be rebalanced.
+     */
+    public static final int MAX_LENGTH = 32;
+
+    private static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final char ZERO = DIGITS.charAt(0);
+    private static final char LAST = DIGITS.charAt(DIGITS.length() - 1);
+    private static final String SMALLEST_INTEGER = "A" + String.valueOf(ZERO).repeat(26);
+    private static final String FIRST = "a" + ZERO;
+
+    private OrderKeys() {
+    }
+
+    private static int digit(final char c) {
+        var d = DIGITS.indexOf(c);
+        if (d < 0) {
+            throw new IllegalArgumentException("invalid order key digit: " + c);
+        }
+
+        return d;
+    }
+
+    private static int integerLength(final char head) {
+        if (head >= 'a' && head <= 'z') {
+            return head - 'a' + 2;
+        }
+
+        if (head >= 'A' && head <= 'Z') {
+            return 'Z' - head + 2;
+        }
+
+        throw new IllegalArgumentException("invalid order key head: " + head);
+    }
+
+    private static String integerPart(final String key) {
+        var length = integerLength(key.charAt(0));
+        if (length > key.length()) {
+            throw new IllegalArgumentException("invalid order key: " + key);
+        }
+
+        return key.substring(0, length);
+    }
+
+    private static void validate(final String key) {
+        if (key.equals(SMALLEST_INTEGER)) {
+            throw new IllegalArgumentException("invalid order key: " + key);
+        }
+
+        var fraction = key.substring(integerPart(key).length());
+        if (!fraction.isEmpty() && fraction.charAt(fraction.length() - 1) == ZERO) {
+            throw new IllegalArgumentException("invalid order key: " + key);
+        }
+    }
+
+    /**
+     * A fraction (digits after the point) between a and b, where b == null stands for 1.
+     */
+    private static String midpoint(final String a, final String b) {
+        if (b != null) {
+            // skip the common prefix, treating the missing digits of a as zeros.
+            int n = 0;
+            while (n < b.length() && (n < a.length() ? a.charAt(n) : ZERO) == b.charAt(n)) {
+                n++;
+            }
+
+            if (n > 0) {
+                return b.substring(0, n) + midpoint(n < a.length() ? a.substring(n) : "", b.substring(n));
+            }
+        }
+
+        var digitA = a.isEmpty() ? 0 : digit(a.charAt(0));
+        var digitB = b != null ? digit(b.charAt(0)) : DIGITS.length();
+
+        if (digitB - digitA > 1) {
+            return String.valueOf(DIGITS.charAt((digitA + digitB + 1) / 2));
+        }
+
+        if (b != null && b.length() > 1) {
+            return b.substring(0, 1);
+        }
+
+        return DIGITS.charAt(digitA) + midpoint(a.isEmpty() ? "" : a.substring(1), null);
+    }
+
+    private static String increment(final String integer) {
+        var head = integer.charAt(0);
+        var digits = new StringBuilder(integer.substring(1));
+
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            var d = digit(digits.charAt(i)) + 1;
+            if (d < DIGITS.length()) {
+                digits.setCharAt(i, DIGITS.charAt(d));
+                return head + digits.toString();
+            }
+
+            digits.setCharAt(i, ZERO);
+        }
+
+        // carried out of the most significant digit.
+        if (head == 'Z') {
+            return FIRST;
+        }
+
+        if (head == 'z') {
+            return null;
+        }
+
+        var newHead = (char) (head + 1);
+        if (newHead > 'a') {
+            digits.append(ZERO);
+        } else {
+            digits.setLength(digits.length() - 1);
+        }
+
+        return newHead + digits.toString();
+    }
+
+    private static String decrement(final String integer) {
+        var head = integer.charAt(0);
+        var digits = new StringBuilder(integer.substring(1));
+
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            var d = digit(digits.charAt(i)) - 1;
+            if (d >= 0) {
+                digits.setCharAt(i, DIGITS.charAt(d));
+                return head + digits.toString();
+            }
+
+            digits.setCharAt(i, LAST);
+        }
+
+        // borrowed from the most significant digit.
+        if (head == 'a') {
+            return "Z" + LAST;
+        }
+
+        if (head == 'A') {
+            return null;
+        }
+
+        var newHead = (char) (head - 1);
+        if (newHead < 'Z') {
+            digits.append(LAST);
+        } else {
+            digits.setLength(digits.length() - 1);
+        }
+
+        return newHead + digits.toString();
+    }
+
+    /**
+     * Generates a key that sorts strictly between the two given keys.
+     *
+     * @param a The lower bound, or null if there is none.
+     * @param b The upper bound, or null if there is none.
+     * @return The new key.
+     * @throws IllegalArgumentException If the keys are invalid, or a is not smaller than b.
+     */
+    public static String between(final String a, final String b) {
+        if (a != null) {
+            validate(a);
+        }
+
+        if (b != null) {
+            validate(b);
+        }
+
+        if (a != null && b != null && a.compareTo(b) >= 0) {
+            throw new IllegalArgumentException("order keys out of order: " + a + " >= " + b);
+        }
+
+        if (a == null) {
+            if (b == null) {
+                return FIRST;
+            }
+
+            var ib = integerPart(b);
+            var fb = b.substring(ib.length());
+            if (ib.equals(SMALLEST_INTEGER)) {
+                return ib + midpoint("", fb);
+            }
+
+            if (ib.compareTo(b) < 0) {
+                return ib;
+            }
+
+            var decremented = decrement(ib);
+            if (decremented == null) {
+                throw new IllegalStateException("cannot decrement any more");
+            }
+
+            return decremented;
+        }
+
+        var ia = integerPart(a);
+        var fa = a.substring(ia.length());
+
+        if (b == null) {
+            var incremented = increment(ia);
+            return incremented != null ? incremented : ia + midpoint(fa, null);
+        }
+
+        var ib = integerPart(b);
+        var fb = b.substring(ib.length());
+        if (ia.equals(ib)) {
+            return ia + midpoint(fa, fb);
+        }
+
+        var incremented = increment(ia);
+        if (incremented == null) {
+            throw new IllegalStateException("cannot increment any more");
+        }
+
+        if (incremented.compareTo(b) < 0) {
+            return incremented;
+        }
+
+        return ia + midpoint(fa, null);
+    }
+
+    /**
+     * Generates n evenly spread, short keys in increasing order.
+     *
+     * @param n The number of keys.
+     * @return The keys.
+     */
+    public static List<String> sequence(final int n) {
+        var keys = new ArrayList<String>(n);
+
+        String key = null;
+        for (int i = 0; i < n; i++) {
+            key = between(key, null);
+            keys.add(key);
+        }
+
+        return keys;
+    }
+
+    /**
+     * Checks whether a key got long enough that its siblings should be rebalanced.
+     *
+     * @param key The key.
+     * @return Whether the siblings of the key should get fresh keys.
+     */
+    public static boolean needsRebalance(final String key) {
+        return key != null && key.length() > MAX_LENGTH;
+    }
+
+    /**
+     * The children of an entity, kept sorted by their order keys.
+     *
+     * @param list   The children.
+     * @param getKey Gets the order key of a child.
+     * @param setKey Sets the order key of a child.
+     * @param <T>    The type of the children.
+     */
+    record Sorted<T>(List<T> list, Function<T, String> getKey, BiConsumer<T, String> setKey) {
+        private int indexOf(final T item) {
+            var key = this.getKey.apply(item);
+            if (key != null) {
+                var i = Collections.binarySearch(this.list, item, Comparator.comparing(this.getKey));
+                if (i >= 0 && this.list.get(i) == item) {
+                    return i;
+                }
+            }
+
+            for (int i = 0; i < this.list.size(); i++) {
+                if (this.list.get(i) == item) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Appends a child.
+         *
+         * @param item The child.
+         */
+        void append(final T item) {
+            var last = this.list.isEmpty() ? null : this.getKey.apply(this.list.get(this.list.size() - 1));
+
+            this.setKey.accept(item, between(last, null));
+            this.list.add(item);
+        }
+
+        /**
+         * Inserts a child after another one.
+         *
+         * @param item  The child to insert.
+         * @param after The child to insert it after, or null to insert it first.
+         */
+        void insertAfter(final T item, final T after) {
+            var pos = after == null ? 0 : this.indexOf(after) + 1;
+            var lo = pos == 0 ? null : this.getKey.apply(this.list.get(pos - 1));
+            var hi = pos < this.list.size() ? this.getKey.apply(this.list.get(pos)) : null;
+
+            this.setKey.accept(item, between(lo, hi));
+            this.list.add(pos, item);
+        }
+
+        /**
+         * Removes a child.
+         *
+         * @param item The child.
+         * @return Whether the child was found.
+         */
+        boolean remove(final T item) {
+            var i = this.indexOf(item);
+            if (i < 0) {
+                return false;
+            }
+
+            this.list.remove(i);
+            return true;
+        }
+
+        /**
+         * Moves a child after another one. Only the key of the moved child changes.
+         *
+         * @param item  The child to move.
+         * @param after The child to move it after, or null to move it first.
+         */
+        void move(final T item, final T after) {
+            this.remove(item);
+            this.insertAfter(item, after == item ? null : after);
+        }
+
+        /**
+         * Makes sure all the children have keys, in increasing order, reassigning all of them if they don't.
+         *
+         * @param changed Receives the children whose keys changed.
+         * @return Whether the keys were reassigned.
+         */
+        boolean normalize(final Consumer<T> changed) {
+            String previous = null;
+            for (var item : this.list) {
+                var key = this.getKey.apply(item);
+                if (key == null || (previous != null && previous.compareTo(key) >= 0)) {
+                    this.rebalance(changed);
+                    return true;
+                }
+
+                previous = key;
+            }
+
+            return false;
+        }
+
+        /**
+         * Gives all the children fresh, short keys, keeping their order.
+         *
+         * @param changed Receives the children whose keys changed.
+         */
+        void rebalance(final Consumer<T> changed) {
+            var keys = sequence(this.list.size());
+            for (int i = 0; i < keys.size(); i++) {
+                var item = this.list.get(i);
+                if (!keys.get(i).equals(this.getKey.apply(item))) {
+                    this.setKey.accept(item, keys.get(i));
+                    changed.accept(item);
+                }
+            }
+        }
+
+        /**
+         * Checks whether any of the children has a key that is too long.
+         *
+         * @return Whether the children should be rebalanced.
+         */
+        boolean needsRebalance() {
+            for (var item : this.list) {
+                if (OrderKeys.needsRebalance(this.getKey.apply(item))) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+}
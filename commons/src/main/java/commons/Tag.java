@@ -2,6 +2,7 @@ package commons;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import commons.observers.TagObserver;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -9,6 +10,8 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Transient;
 import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -18,8 +21,12 @@ import java.util.function.Consumer;
 
 /**
  * A Tag is a label that can be applied to a card.
+ * <p>
+ * Tags change rarely compared to cards, so they are kept in the second-level cache of the server.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public final class Tag implements Serializable {
 
     @Serial
@@ -28,6 +35,11 @@ public final class Tag implements Serializable {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private long id;
 
+    // package-private setId used for testing
+    void setId(final long newId) {
+        this.id = newId;
+    }
+
     @Column
     private String name;
 
@@ -52,6 +64,15 @@ public final class Tag implements Serializable {
         this.boardId = boardId;
     }
 
+    /**
+     * Used on the backend to set the board before saving the tag.
+     *
+     * @param board The board the tag belongs to.
+     */
+    public void presaveForBoard(final Board board) {
+        setBoardId(board.getId());
+    }
+
     /**
      * The constructor of this class.
      *
@@ -129,6 +150,13 @@ public final class Tag implements Serializable {
         observer.setTag(this);
     }
 
+    /**
+     * Detaches all observers from the tag.
+     */
+    void detachObservers() {
+        this.observers = null;
+    }
+
     /**
      * Equals method for this class.
      *
@@ -0,0 +1,401 @@
+package commons.events;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the server to client events in a compact binary form, for the clients that negotiate the
+ * {@link #SUBPROTOCOL} subprotocol of the websocket; the others get the JSON of {@link EventCodec}.
+ * <p>
+ * An event is its numeric type tag, followed by its components, in order: longs as zigzag varints, booleans as a
+ * byte, strings as their varint length plus one (0 for null) and their UTF-8 bytes, dates as a presence byte, the
+ * zigzag varint epoch seconds, the varint nanos and the zone, and lists of events as their varint size and the events.
+ * The entities (cards, lists, tags, ...) that some events carry whole are written as length-prefixed JSON, like
+ * strings.
+ */
+public final class BinaryEventCodec {
+    /**
+     * The websocket subprotocol of the binary events.
+     */
+    public static final String SUBPROTOCOL = "talio.binary.v1";
+
+    /**
+     * The event types, by tag. The tags are part of the protocol, so new types must only ever be appended.
+     */
+    private static final List<Class<? extends ServerToClientEvent>> TYPES = List.of(
+            ListCreatedEvent.class,
+            ListRemovedEvent.class,
+            ListsReorderedEvent.class,
+            CardRemovedEvent.class,
+            CardCreatedEvent.class,
+            CardMovedEvent.class,
+            XListCardMoveEvent.class,
+            CardTitleSetEvent.class,
+            CardTextSetEvent.class,
+            CardCategorySetEvent.class,
+            CardDueDateSetEvent.class,
+            CardListTitleSetEvent.class,
+            BoardTitleSetEvent.class,
+            TagCreatedEvent.class,
+            TagDeletedEvent.class,
+            BoardFontColorSetEvent.class,
+            BoardBackgroundColorSetEvent.class,
+            ColorPresetCreatedEvent.class,
+            ColorPresetRemovedEvent.class,
+            DefaultCardColorPresetSetEvent.class,
+            ColorPresetNameSetEvent.class,
+            ColorPresetFontColorSetEvent.class,
+            ColorPresetBackgroundColorSetEvent.class,
+            ListFontColorSetEvent.class,
+            ListBackgroundColorSetEvent.class,
+            CardPresetSetEvent.class,
+            CardTagAddedEvent.class,
+            CardTagRemovedEvent.class,
+            MessageProcessedEvent.class,
+            BoardRemovedEvent.class,
+            BoardImportedEvent.class,
+            BoardResyncEvent.class,
+            TagNameSetEvent.class,
+            TagFontColorSetEvent.class,
+            TagBackgroundColorSetEvent.class,
+            CardSubtaskCreatedEvent.class,
+            CardSubtaskRemovedEvent.class,
+            CardSubtaskNameSetEvent.class,
+            CardSubtaskCompletenessSetEvent.class,
+            EventBatch.class,
+            CardSubtaskMovedEvent.class);
+
+    private static final Map<Class<?>, Integer> TAGS;
+    private static final Layout[] LAYOUTS;
+
+    static {
+        var tags = new HashMap<Class<?>, Integer>();
+        LAYOUTS = new Layout[TYPES.size()];
+        for (int tag = 0; tag < TYPES.size(); tag++) {
+            tags.put(TYPES.get(tag), tag);
+            LAYOUTS[tag] = layout(TYPES.get(tag));
+        }
+        TAGS = Map.copyOf(tags);
+    }
+
+    private BinaryEventCodec() {
+    }
+
+    private enum Kind {
+        LONG,
+        BOOLEAN,
+        STRING,
+        DATE,
+        EVENTS,
+        ENTITY
+    }
+
+    /**
+     * A component of an event type.
+     *
+     * @param kind     How it is encoded.
+     * @param accessor Gets it from an event.
+     * @param writer   Writes it, if it is an entity.
+     * @param reader   Reads it, if it is an entity.
+     */
+    private record Component(Kind kind, Method accessor, ObjectWriter writer, ObjectReader reader) {
+    }
+
+    /**
+     * How the events of a type are encoded.
+     *
+     * @param constructor The canonical constructor.
+     * @param components  The components, in order.
+     */
+    private record Layout(Constructor<?> constructor, Component[] components) {
+    }
+
+    private static Layout layout(final Class<?> type) {
+        var recordComponents = type.getRecordComponents();
+        var types = new Class<?>[recordComponents.length];
+        var components = new Component[recordComponents.length];
+
+        for (int i = 0; i < recordComponents.length; i++) {
+            var t = recordComponents[i].getType();
+            types[i] = t;
+
+            Kind kind;
+            if (t == long.class) {
+                kind = Kind.LONG;
+            } else if (t == boolean.class) {
+                kind = Kind.BOOLEAN;
+            } else if (t == String.class) {
+                kind = Kind.STRING;
+            } else if (t == ZonedDateTime.class) {
+                kind = Kind.DATE;
+            } else if (t == List.class) {
+                kind = Kind.EVENTS;
+            } else {
+                kind = Kind.ENTITY;
+            }
+
+            var mapper = EventCodec.mapper();
+            components[i] = new Component(kind, recordComponents[i].getAccessor(),
+                    kind == Kind.ENTITY ? mapper.writerFor(t) : null, kind == Kind.ENTITY ? mapper.readerFor(t) : null);
+        }
+
+        try {
+            return new Layout(type.getDeclaredConstructor(types), components);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(type + " has no canonical constructor", e);
+        }
+    }
+
+    /**
+     * Whether an event type has a tag.
+     *
+     * @param type The event type.
+     * @return Whether events of the type can be encoded.
+     */
+    static boolean hasTag(final Class<?> type) {
+        return TAGS.containsKey(type);
+    }
+
+    /**
+     * A buffer to encode into.
+     */
+    private static final class Output extends ByteArrayOutputStream {
+        private void writeVarint(final long value) {
+            var v = value;
+            while ((v & ~0x7FL) != 0) {
+                this.write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            this.write((int) v);
+        }
+
+        private void writeZigzag(final long value) {
+            this.writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        private void writeLengthPrefixed(final byte[] bytes) {
+            if (bytes == null) {
+                this.writeVarint(0);
+                return;
+            }
+
+            this.writeVarint(bytes.length + 1L);
+            this.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Encodes an event.
+     *
+     * @param event The event.
+     * @return The bytes.
+     * @throws IOException If an entity of the event could not be encoded.
+     */
+    public static byte[] encode(final ServerToClientEvent event) throws IOException {
+        var out = new Output();
+        write(out, event);
+        return out.toByteArray();
+    }
+
+    private static Object get(final Component component, final Object event) {
+        try {
+            return component.accessor().invoke(event);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] utf8(final String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void write(final Output out, final ServerToClientEvent event) throws IOException {
+        var tag = TAGS.get(event.getClass());
+        if (tag == null) {
+            throw new IllegalArgumentException(event.getClass() + " has no binary tag");
+        }
+
+        out.writeVarint(tag);
+        for (var component : LAYOUTS[tag].components()) {
+            var value = get(component, event);
+            switch (component.kind()) {
+                case LONG -> out.writeZigzag((long) value);
+                case BOOLEAN -> out.write((boolean) value ? 1 : 0);
+                case STRING -> out.writeLengthPrefixed(utf8((String) value));
+                case DATE -> {
+                    if (value == null) {
+                        out.write(0);
+                    } else {
+                        var date = (ZonedDateTime) value;
+                        out.write(1);
+                        out.writeZigzag(date.toEpochSecond());
+                        out.writeVarint(date.getNano());
+                        out.writeLengthPrefixed(utf8(date.getZone().getId()));
+                    }
+                }
+                case EVENTS -> {
+                    var events = (List<?>) value;
+                    out.writeVarint(events.size());
+                    for (var e : events) {
+                        write(out, (ServerToClientEvent) e);
+                    }
+                }
+                case ENTITY -> out.writeLengthPrefixed(
+                        value == null ? null : component.writer().writeValueAsBytes(value));
+                default -> throw new IllegalStateException();
+            }
+        }
+    }
+
+    /**
+     * Joins encoded events into the encoding of an {@link EventBatch} of them, without decoding them.
+     *
+     * @param events The encoded events, which are consumed.
+     * @return The encoded batch.
+     */
+    public static byte[] batch(final List<ByteBuffer> events) {
+        var out = new Output();
+        out.writeVarint(TAGS.get(EventBatch.class));
+        out.writeVarint(events.size());
+        for (var event : events) {
+            var bytes = new byte[event.remaining()];
+            event.get(bytes);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes an event.
+     *
+     * @param in The bytes, which are consumed.
+     * @return The event.
+     * @throws IOException If the bytes are not an event.
+     */
+    public static ServerToClientEvent decode(final ByteBuffer in) throws IOException {
+        try {
+            var event = read(in);
+            if (in.hasRemaining()) {
+                throw new IOException("trailing bytes after the event");
+            }
+            return event;
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("truncated event");
+        }
+    }
+
+    private static long readVarint(final ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            var b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("malformed varint");
+    }
+
+    private static long readZigzag(final ByteBuffer in) throws IOException {
+        var v = readVarint(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static byte[] readBytes(final ByteBuffer in) throws IOException {
+        var length = readVarint(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > in.remaining()) {
+            throw new EOFException("truncated event");
+        }
+
+        var bytes = new byte[(int) (length - 1)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(final ByteBuffer in) throws IOException {
+        var bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ZoneId readZone(final ByteBuffer in) throws IOException {
+        var zone = readString(in);
+        if (zone == null) {
+            throw new IOException("date without a time zone");
+        }
+
+        try {
+            return ZoneId.of(zone);
+        } catch (DateTimeException e) {
+            throw new IOException("unknown time zone " + zone, e);
+        }
+    }
+
+    private static ServerToClientEvent read(final ByteBuffer in) throws IOException {
+        var tag = readVarint(in);
+        if (tag < 0 || tag >= LAYOUTS.length) {
+            throw new IOException("unknown event tag " + tag);
+        }
+
+        var layout = LAYOUTS[(int) tag];
+        var args = new Object[layout.components().length];
+        for (int i = 0; i < args.length; i++) {
+            var component = layout.components()[i];
+            args[i] = switch (component.kind()) {
+                case LONG -> readZigzag(in);
+                case BOOLEAN -> in.get() != 0;
+                case STRING -> readString(in);
+                case DATE -> {
+                    if (in.get() == 0) {
+                        yield null;
+                    }
+                    var seconds = readZigzag(in);
+                    var nanos = readVarint(in);
+                    yield ZonedDateTime.ofInstant(Instant.ofEpochSecond(seconds, nanos), readZone(in));
+                }
+                case EVENTS -> {
+                    var size = readVarint(in);
+                    if (size > in.remaining()) {
+                        throw new EOFException("truncated event");
+                    }
+                    var events = new ArrayList<ServerToClientEvent>((int) size);
+                    for (long e = 0; e < size; e++) {
+                        events.add(read(in));
+                    }
+                    yield List.copyOf(events);
+                }
+                case ENTITY -> {
+                    var bytes = readBytes(in);
+                    yield bytes == null ? null : component.reader().readValue(bytes);
+                }
+            };
+        }
+
+        try {
+            return (ServerToClientEvent) layout.constructor().newInstance(args);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IOException("could not create the event", e);
+        }
+    }
+}
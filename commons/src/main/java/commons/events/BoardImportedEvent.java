@@ -0,0 +1,4 @@
+package commons.events;
+
+public record BoardImportedEvent(long boardId) implements ServerToClientEvent {
+}
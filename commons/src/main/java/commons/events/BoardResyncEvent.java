@@ -0,0 +1,9 @@
+package commons.events;
+
+/**
+ * Some events of the board were dropped before reaching the client, which should reload the board instead.
+ *
+ * @param boardId The board id.
+ */
+public record BoardResyncEvent(long boardId) implements ServerToClientEvent {
+}
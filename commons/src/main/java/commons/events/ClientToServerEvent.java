@@ -3,7 +3,6 @@ package commons.events;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * This class represents a client to server event that can be serialized into and deserialized from a JSON string.
@@ -19,7 +18,7 @@ public abstract class ClientToServerEvent {
      * @throws JsonProcessingException Any exception while processing the JSON.
      */
     public final String serialize() throws JsonProcessingException {
-        return new ObjectMapper().writerFor(ClientToServerEvent.class).writeValueAsString(this);
+        return EventCodec.encode(this);
     }
 
     /**
@@ -30,6 +29,6 @@ public abstract class ClientToServerEvent {
      * @throws JsonProcessingException Any exception while processing the JSON.
      */
     public static ClientToServerEvent deserialize(final String json) throws JsonProcessingException {
-        return new ObjectMapper().readerFor(ClientToServerEvent.class).readValue(json);
+        return EventCodec.decodeClientToServer(json);
     }
 }
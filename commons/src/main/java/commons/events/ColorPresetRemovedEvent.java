@@ -2,5 +2,10 @@ package commons.events;
 
 import commons.ColorPreset;
 
+/**
+ * A preset was removed from the board, so the cards that used it have no preset anymore.
+ *
+ * @param preset The preset.
+ */
 public record ColorPresetRemovedEvent(ColorPreset preset) implements ServerToClientEvent {
 }
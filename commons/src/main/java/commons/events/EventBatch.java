@@ -0,0 +1,29 @@
+package commons.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The events caused by a batch of operations, sent together so that clients can apply them at once.
+ *
+ * @param events The events, in the order they happened.
+ */
+public record EventBatch(List<ServerToClientEvent> events) implements ServerToClientEvent {
+    /**
+     * Gets the events of the batch, with the events of the batches nested in it in their place (a batch can be sent
+     * together with other events, in a batch of its own).
+     *
+     * @return The events, in the order they happened.
+     */
+    public List<ServerToClientEvent> flattened() {
+        var flattened = new ArrayList<ServerToClientEvent>(this.events.size());
+        for (var event : this.events) {
+            if (event instanceof EventBatch batch) {
+                flattened.addAll(batch.flattened());
+            } else {
+                flattened.add(event);
+            }
+        }
+        return flattened;
+    }
+}
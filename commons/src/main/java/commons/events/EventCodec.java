@@ -0,0 +1,131 @@
+package commons.events;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the events of the websocket protocol.
+ * <p>
+ * Building an object mapper (and finding its modules) costs far more than encoding an event, so there is only one,
+ * shared by all threads, and the readers and writers are built from it up front: a writer per event type, whose
+ * serializer is resolved once, and a reader per direction of the protocol.
+ */
+public final class EventCodec {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .findAndRegisterModules()
+            .setDateFormat(new StdDateFormat().withColonInTimeZone(true));
+
+    private static final ObjectReader SERVER_TO_CLIENT_READER = MAPPER.readerFor(ServerToClientEvent.class);
+    private static final ObjectWriter SERVER_TO_CLIENT_WRITER = MAPPER.writerFor(ServerToClientEvent.class);
+    private static final ObjectReader CLIENT_TO_SERVER_READER = MAPPER.readerFor(ClientToServerEvent.class);
+    private static final ObjectWriter CLIENT_TO_SERVER_WRITER = MAPPER.writerFor(ClientToServerEvent.class);
+
+    private static final Map<Class<?>, ObjectWriter> WRITERS;
+    private static final String BATCH_PREFIX;
+    private static final String BATCH_SUFFIX = "]}";
+
+    static {
+        var writers = new HashMap<Class<?>, ObjectWriter>();
+        for (var base : new Class<?>[] {ServerToClientEvent.class, ClientToServerEvent.class}) {
+            for (var type : base.getAnnotation(JsonSubTypes.class).value()) {
+                // a writer for the type itself still writes the type id, which its base declares.
+                writers.put(type.value(), MAPPER.writerFor(type.value()));
+            }
+        }
+        WRITERS = Map.copyOf(writers);
+
+        try {
+            var empty = encode(new EventBatch(List.of()));
+            BATCH_PREFIX = empty.substring(0, empty.length() - BATCH_SUFFIX.length());
+        } catch (JsonProcessingException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private EventCodec() {
+    }
+
+    /**
+     * The shared object mapper of the events.
+     *
+     * @return The object mapper.
+     */
+    static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Encodes a server to client event.
+     *
+     * @param event The event.
+     * @return The JSON.
+     * @throws JsonProcessingException If the event could not be encoded.
+     */
+    public static String encode(final ServerToClientEvent event) throws JsonProcessingException {
+        return WRITERS.getOrDefault(event.getClass(), SERVER_TO_CLIENT_WRITER).writeValueAsString(event);
+    }
+
+    /**
+     * Encodes a client to server event.
+     *
+     * @param event The event.
+     * @return The JSON.
+     * @throws JsonProcessingException If the event could not be encoded.
+     */
+    public static String encode(final ClientToServerEvent event) throws JsonProcessingException {
+        return WRITERS.getOrDefault(event.getClass(), CLIENT_TO_SERVER_WRITER).writeValueAsString(event);
+    }
+
+    /**
+     * Decodes a server to client event.
+     *
+     * @param json The JSON.
+     * @return The event.
+     * @throws JsonProcessingException If the JSON is not an event.
+     */
+    public static ServerToClientEvent decodeServerToClient(final String json) throws JsonProcessingException {
+        return SERVER_TO_CLIENT_READER.readValue(json);
+    }
+
+    /**
+     * Decodes a client to server event.
+     *
+     * @param json The JSON.
+     * @return The event.
+     * @throws JsonProcessingException If the JSON is not an event.
+     */
+    public static ClientToServerEvent decodeClientToServer(final String json) throws JsonProcessingException {
+        return CLIENT_TO_SERVER_READER.readValue(json);
+    }
+
+    /**
+     * Joins encoded server to client events into the encoding of an {@link EventBatch} of them, without decoding
+     * them.
+     *
+     * @param events The JSON of the events.
+     * @return The JSON of the batch.
+     */
+    public static String batch(final List<String> events) {
+        var length = BATCH_PREFIX.length() + BATCH_SUFFIX.length() + events.size();
+        for (var event : events) {
+            length += event.length();
+        }
+
+        var json = new StringBuilder(length).append(BATCH_PREFIX);
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(events.get(i));
+        }
+        return json.append(BATCH_SUFFIX).toString();
+    }
+}
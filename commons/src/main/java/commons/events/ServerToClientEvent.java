@@ -3,8 +3,6 @@ package commons.events;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.util.StdDateFormat;
 
 @JsonTypeInfo(
         use = JsonTypeInfo.Id.NAME,
@@ -40,6 +38,8 @@ import com.fasterxml.jackson.databind.util.StdDateFormat;
         @JsonSubTypes.Type(value = CardTagRemovedEvent.class, name = "cardTagRemoved"),
         @JsonSubTypes.Type(value = MessageProcessedEvent.class, name = "messageProcessed"),
         @JsonSubTypes.Type(value = BoardRemovedEvent.class, name = "boardRemoved"),
+        @JsonSubTypes.Type(value = BoardImportedEvent.class, name = "boardImported"),
+        @JsonSubTypes.Type(value = BoardResyncEvent.class, name = "boardResync"),
         @JsonSubTypes.Type(value = TagNameSetEvent.class, name = "tagNameSet"),
         @JsonSubTypes.Type(value = TagFontColorSetEvent.class, name = "tagFontColorSet"),
         @JsonSubTypes.Type(value = TagBackgroundColorSetEvent.class, name = "tagBackgroundSet"),
@@ -47,14 +47,10 @@ import com.fasterxml.jackson.databind.util.StdDateFormat;
         @JsonSubTypes.Type(value = CardSubtaskRemovedEvent.class, name = "cardSubtaskRemoved"),
         @JsonSubTypes.Type(value = CardSubtaskNameSetEvent.class, name = "cardSubtaskNameSet"),
         @JsonSubTypes.Type(value = CardSubtaskCompletenessSetEvent.class, name = "cardSubtaskCompletenessSet"),
+        @JsonSubTypes.Type(value = EventBatch.class, name = "eventBatch"),
+        @JsonSubTypes.Type(value = CardSubtaskMovedEvent.class, name = "cardSubtaskMoved"),
 })
 public interface ServerToClientEvent {
-    private static ObjectMapper objectMapper() {
-        return new ObjectMapper()
-                .findAndRegisterModules()
-                .setDateFormat(new StdDateFormat().withColonInTimeZone(true));
-    }
-
     /**
      * Serializes the event into a JSON string.
      *
@@ -62,9 +58,7 @@ public interface ServerToClientEvent {
      * @throws JsonProcessingException Any exception while processing the JSON.
      */
     default String serialize() throws JsonProcessingException {
-        return objectMapper()
-                .writerFor(ServerToClientEvent.class)
-                .writeValueAsString(this);
+        return EventCodec.encode(this);
     }
 
     /**
@@ -75,8 +69,6 @@ public interface ServerToClientEvent {
      * @throws JsonProcessingException Any exception while processing the JSON.
      */
     static ServerToClientEvent deserialize(final String json) throws JsonProcessingException {
-        return objectMapper()
-                .readerFor(ServerToClientEvent.class)
-                .readValue(json);
+        return EventCodec.decodeServerToClient(json);
     }
 }
@@ -2,5 +2,10 @@ package commons.events;
 
 import commons.Tag;
 
+/**
+ * A tag was deleted from the board, and so from all of its cards.
+ *
+ * @param tag The tag.
+ */
 public record TagDeletedEvent(Tag tag) implements ServerToClientEvent {
 }
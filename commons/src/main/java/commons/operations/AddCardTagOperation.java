@@ -0,0 +1,16 @@
+package commons.operations;
+
+/**
+ * Adds a tag to a card.
+ *
+ * @param listId The list id.
+ * @param cardId The card id.
+ * @param tagId  The tag id.
+ */
+public record AddCardTagOperation(long listId, long cardId, long tagId) implements BoardOperation {
+    @Override
+    public long applyTo(final Target target) {
+        target.addCardTag(target.resolve(this.listId), target.resolve(this.cardId), target.resolve(this.tagId));
+        return 0;
+    }
+}
@@ -0,0 +1,123 @@
+package commons.operations;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import commons.Card;
+import commons.CardSubtask;
+
+/**
+ * An operation on a board, that can be sent as part of a batch. The operations of a batch are applied in order,
+ * against the same board, in a single transaction, and the resulting events are sent to the clients together.
+ * <p>
+ * The ids of the entities created by the batch are only known once it is applied, so an operation can refer to the
+ * entity created by an earlier operation of the same batch with a negative id: {@code -n} stands for the id of the
+ * entity created by the n-th operation (counting from 1).
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = NewCardOperation.class, name = "newCard"),
+        @JsonSubTypes.Type(value = SetCardTitleOperation.class, name = "setCardTitle"),
+        @JsonSubTypes.Type(value = SetCardTextOperation.class, name = "setCardText"),
+        @JsonSubTypes.Type(value = AddCardTagOperation.class, name = "addCardTag"),
+        @JsonSubTypes.Type(value = RemoveCardTagOperation.class, name = "removeCardTag"),
+        @JsonSubTypes.Type(value = NewSubtaskOperation.class, name = "newSubtask"),
+        @JsonSubTypes.Type(value = DeleteSubtaskOperation.class, name = "deleteSubtask"),
+        @JsonSubTypes.Type(value = SetSubtaskCompletenessOperation.class, name = "setSubtaskCompleteness"),
+})
+public interface BoardOperation {
+    /**
+     * Applies the operation.
+     *
+     * @param target The board to apply it to.
+     * @return The id of the entity created by the operation, or 0 if it didn't create one.
+     */
+    long applyTo(Target target);
+
+    /**
+     * The board that the operations of a batch are applied to.
+     */
+    interface Target {
+        /**
+         * Resolves an id that might refer to an entity created earlier in the batch.
+         *
+         * @param id The id, or a negative reference to an earlier operation.
+         * @return The actual id.
+         * @throws IllegalArgumentException If the id refers to an operation that didn't create an entity.
+         */
+        long resolve(long id);
+
+        /**
+         * Adds a new card to a list.
+         *
+         * @param listId The list id.
+         * @param card   The card.
+         * @return The id of the new card.
+         */
+        long newCard(long listId, Card card);
+
+        /**
+         * Sets the title of a card.
+         *
+         * @param listId The list id.
+         * @param cardId The card id.
+         * @param title  The new title.
+         */
+        void setCardTitle(long listId, long cardId, String title);
+
+        /**
+         * Sets the text of a card.
+         *
+         * @param listId The list id.
+         * @param cardId The card id.
+         * @param text   The new text.
+         */
+        void setCardText(long listId, long cardId, String text);
+
+        /**
+         * Adds a tag to a card.
+         *
+         * @param listId The list id.
+         * @param cardId The card id.
+         * @param tagId  The tag id.
+         */
+        void addCardTag(long listId, long cardId, long tagId);
+
+        /**
+         * Removes a tag from a card.
+         *
+         * @param listId The list id.
+         * @param cardId The card id.
+         * @param tagId  The tag id.
+         */
+        void removeCardTag(long listId, long cardId, long tagId);
+
+        /**
+         * Adds a new subtask to a card.
+         *
+         * @param listId  The list id.
+         * @param cardId  The card id.
+         * @param subtask The subtask.
+         * @return The id of the new subtask.
+         */
+        long newSubtask(long listId, long cardId, CardSubtask subtask);
+
+        /**
+         * Deletes a subtask.
+         *
+         * @param listId    The list id.
+         * @param cardId    The card id.
+         * @param subtaskId The subtask id.
+         */
+        void deleteSubtask(long listId, long cardId, long subtaskId);
+
+        /**
+         * Sets the completeness of a subtask.
+         *
+         * @param listId    The list id.
+         * @param cardId    The card id.
+         * @param subtaskId The subtask id.
+         * @param completed Whether the subtask is completed.
+         */
+        void setSubtaskCompleteness(long listId, long cardId, long subtaskId, boolean completed);
+    }
+}
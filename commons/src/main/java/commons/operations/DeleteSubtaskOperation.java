@@ -0,0 +1,16 @@
+package commons.operations;
+
+/**
+ * Deletes a subtask.
+ *
+ * @param listId    The list id.
+ * @param cardId    The card id.
+ * @param subtaskId The subtask id.
+ */
+public record DeleteSubtaskOperation(long listId, long cardId, long subtaskId) implements BoardOperation {
+    @Override
+    public long applyTo(final Target target) {
+        target.deleteSubtask(target.resolve(this.listId), target.resolve(this.cardId), target.resolve(this.subtaskId));
+        return 0;
+    }
+}
@@ -0,0 +1,16 @@
+package commons.operations;
+
+import commons.Card;
+
+/**
+ * Adds a new card to a list. Later operations can refer to the new card by the (negative) position of this operation.
+ *
+ * @param listId The list id.
+ * @param card   The card, with id 0.
+ */
+public record NewCardOperation(long listId, Card card) implements BoardOperation {
+    @Override
+    public long applyTo(final Target target) {
+        return target.newCard(target.resolve(this.listId), this.card);
+    }
+}
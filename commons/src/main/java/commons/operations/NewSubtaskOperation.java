@@ -0,0 +1,18 @@
+package commons.operations;
+
+import commons.CardSubtask;
+
+/**
+ * Adds a new subtask to a card. Later operations can refer to the new subtask by the (negative) position of this
+ * operation.
+ *
+ * @param listId  The list id.
+ * @param cardId  The card id.
+ * @param subtask The subtask, with id 0.
+ */
+public record NewSubtaskOperation(long listId, long cardId, CardSubtask subtask) implements BoardOperation {
+    @Override
+    public long applyTo(final Target target) {
+        return target.newSubtask(target.resolve(this.listId), target.resolve(this.cardId), this.subtask);
+    }
+}
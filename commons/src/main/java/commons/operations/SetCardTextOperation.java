@@ -0,0 +1,16 @@
+package commons.operations;
+
+/**
+ * Sets the text of a card.
+ *
+ * @param listId The list id.
+ * @param cardId The card id.
+ * @param text   The new text.
+ */
+public record SetCardTextOperation(long listId, long cardId, String text) implements BoardOperation {
+    @Override
+    public long applyTo(final Target target) {
+        target.setCardText(target.resolve(this.listId), target.resolve(this.cardId), this.text);
+        return 0;
+    }
+}
@@ -0,0 +1,16 @@
+package commons.operations;
+
+/**
+ * Sets the title of a card.
+ *
+ * @param listId The list id.
+ * @param cardId The card id.
+ * @param title  The new title.
+ */
+public record SetCardTitleOperation(long listId, long cardId, String title) implements BoardOperation {
+    @Override
+    public long applyTo(final Target target) {
+        target.setCardTitle(target.resolve(this.listId), target.resolve(this.cardId), this.title);
+        return 0;
+    }
+}
@@ -0,0 +1,19 @@
+package commons.operations;
+
+/**
+ * Sets the completeness of a subtask.
+ *
+ * @param listId    The list id.
+ * @param cardId    The card id.
+ * @param subtaskId The subtask id.
+ * @param completed Whether the subtask is completed.
+ */
+public record SetSubtaskCompletenessOperation(long listId, long cardId, long subtaskId, boolean completed)
+        implements BoardOperation {
+    @Override
+    public long applyTo(final Target target) {
+        target.setSubtaskCompleteness(target.resolve(this.listId), target.resolve(this.cardId),
+                target.resolve(this.subtaskId), this.completed);
+        return 0;
+    }
+}
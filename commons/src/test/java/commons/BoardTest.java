@@ -136,5 +136,20 @@ class BoardTest {
         Assertions.assertEquals(board1.hashCode(), board2.hashCode(), "Should be symmetric"); // symmetric property
         Assertions.assertNotEquals(board1.hashCode(), board3.hashCode(), "equality check"); // equality check
     }
-}
 
+    @Test
+    void testSummary() {
+        this.board.patch(patcher -> {
+            patcher.setTitle("title");
+            patcher.setFontColor("#000000");
+            patcher.addCardList(new CardList());
+        });
+
+        var summary = this.board.summary();
+
+        Assertions.assertEquals("title", summary.getTitle(), "the title should be copied");
+        Assertions.assertEquals("#000000", summary.getFontColor(), "the font color should be copied");
+        Assertions.assertEquals(this.board.getVersion(), summary.getVersion(), "the version should be copied");
+        Assertions.assertTrue(summary.getCardLists().isEmpty(), "the lists should be left out");
+    }
+}
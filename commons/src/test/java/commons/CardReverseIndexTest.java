@@ -0,0 +1,177 @@
+package commons;
+
+import commons.patchExceptions.NoSuchCard;
+import commons.patchExceptions.NoSuchSubtask;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class CardReverseIndexTest {
+
+    private static Tag tagWithId(final long id) {
+        var tag = new Tag("tag " + id);
+        tag.setId(id);
+        return tag;
+    }
+
+    private static Card cardWithId(final long id) {
+        var card = new Card("card " + id);
+        card.setId(id);
+        return card;
+    }
+
+    private static CardList listWithId(final long id) {
+        var list = new CardList();
+        list.setId(id);
+        return list;
+    }
+
+    @Test
+    void testIndexesExistingCards() {
+        var board = new Board();
+        var list = listWithId(1);
+        var tag = tagWithId(1);
+        var card = cardWithId(1);
+        board.patch(bp -> bp.addCardList(list));
+        list.patch(lp -> lp.addCard(card));
+        card.patch(cp -> {
+            cp.addTag(tag);
+            cp.setColorPreset(7);
+        });
+
+        Assertions.assertEquals(List.of(card), board.cardsWithTag(1));
+        Assertions.assertEquals(List.of(card), board.cardsWithPreset(7));
+        Assertions.assertTrue(board.cardsWithTag(2).isEmpty());
+    }
+
+    @Test
+    void testFollowsTheCardPatchers() {
+        var board = new Board();
+        var list = listWithId(1);
+        var tag = tagWithId(1);
+        var card = cardWithId(1);
+        board.patch(bp -> bp.addCardList(list));
+        list.patch(lp -> lp.addCard(card));
+        Assertions.assertTrue(board.cardsWithTag(1).isEmpty());
+
+        card.patch(cp -> cp.addTag(tag));
+        card.patch(cp -> cp.setColorPreset(7));
+        Assertions.assertEquals(List.of(card), board.cardsWithTag(1));
+        Assertions.assertEquals(List.of(card), board.cardsWithPreset(7));
+
+        card.patch(cp -> cp.removeTag(tag));
+        card.patch(cp -> cp.setColorPreset(8));
+        Assertions.assertTrue(board.cardsWithTag(1).isEmpty());
+        Assertions.assertTrue(board.cardsWithPreset(7).isEmpty());
+        Assertions.assertEquals(List.of(card), board.cardsWithPreset(8));
+    }
+
+    @Test
+    void testFollowsTheCardsAcrossLists() {
+        var board = new Board();
+        var first = listWithId(1);
+        var second = listWithId(2);
+        var tag = tagWithId(1);
+        var card = cardWithId(1);
+        board.patch(bp -> {
+            bp.addCardList(first);
+            bp.addCardList(second);
+        });
+        first.patch(lp -> lp.addCard(card));
+        card.patch(cp -> cp.addTag(tag));
+        Assertions.assertEquals(List.of(card), board.cardsWithTag(1));
+
+        board.patch(bp -> bp.xListCardMove(1, 1, 2, 0, c -> { }));
+        Assertions.assertEquals(List.of(card), board.cardsWithTag(1));
+
+        second.patch(lp -> lp.removeCard(1));
+        Assertions.assertTrue(board.cardsWithTag(1).isEmpty());
+    }
+
+    @Test
+    void testRemovedListTakesItsCards() {
+        var board = new Board();
+        var list = listWithId(1);
+        var tag = tagWithId(1);
+        var card = cardWithId(1);
+        board.patch(bp -> bp.addCardList(list));
+        list.patch(lp -> lp.addCard(card));
+        card.patch(cp -> cp.addTag(tag));
+        Assertions.assertEquals(List.of(card), board.cardsWithTag(1));
+
+        board.patch(bp -> bp.removeCardList(1));
+        Assertions.assertTrue(board.cardsWithTag(1).isEmpty());
+
+        // cards of lists added afterwards are indexed with the list.
+        var other = listWithId(2);
+        var tagged = cardWithId(2);
+        other.patch(lp -> lp.addCard(tagged));
+        tagged.patch(cp -> cp.addTag(tag));
+        board.patch(bp -> bp.addCardList(other));
+        Assertions.assertEquals(List.of(tagged), board.cardsWithTag(1));
+    }
+
+    @Test
+    void testDeletedTagLeavesTheIndex() {
+        var board = new Board();
+        var list = listWithId(1);
+        var tag = tagWithId(1);
+        var card = cardWithId(1);
+        board.patch(bp -> {
+            bp.addTag(tag);
+            bp.addCardList(list);
+        });
+        list.patch(lp -> lp.addCard(card));
+        card.patch(cp -> cp.addTag(tag));
+
+        board.patch(bp -> bp.removeTag(1));
+
+        Assertions.assertTrue(card.getTags().isEmpty());
+        Assertions.assertTrue(board.cardsWithTag(1).isEmpty());
+    }
+
+    @Test
+    void testFindsCardsAndSubtasksById() {
+        var board = new Board();
+        var first = listWithId(1);
+        var second = listWithId(2);
+        var card = cardWithId(1);
+        var subtask = new CardSubtask();
+        subtask.setId(3);
+        board.patch(bp -> {
+            bp.addCardList(first);
+            bp.addCardList(second);
+        });
+        first.patch(lp -> lp.addCard(card));
+        Assertions.assertThrows(NoSuchSubtask.class, () -> board.subtaskById(3));
+
+        card.patch(cp -> cp.addSubtask(subtask));
+        Assertions.assertSame(card, board.cardById(1));
+        Assertions.assertSame(subtask, board.subtaskById(3));
+
+        board.patch(bp -> bp.xListCardMove(1, 1, 2, 0, c -> { }));
+        Assertions.assertSame(card, board.cardById(1));
+        Assertions.assertSame(subtask, board.subtaskById(3));
+
+        card.patch(cp -> cp.deleteSubtask(3));
+        Assertions.assertThrows(NoSuchSubtask.class, () -> board.subtaskById(3));
+
+        second.patch(lp -> lp.removeCard(1));
+        Assertions.assertThrows(NoSuchCard.class, () -> board.cardById(1));
+    }
+
+    @Test
+    void testIndexesCardsSavedAfterBeingAdded() {
+        var board = new Board();
+        var list = listWithId(1);
+        var card = new Card("unsaved");
+        board.patch(bp -> bp.addCardList(list));
+        Assertions.assertThrows(NoSuchCard.class, () -> board.cardById(5));
+
+        list.patch(lp -> lp.addCard(card));
+        card.setId(5);
+
+        Assertions.assertSame(card, board.cardById(5));
+    }
+}
@@ -59,6 +59,13 @@ class CardTest {
         assertEquals("Done", fullCard.getTitle());
     }
 
+    @Test
+    void testSetTitleIncrementsVersion() {
+        var version = fullCard.getVersion();
+        fullCard.patch(patcher -> patcher.setTitle("Done"));
+        assertEquals(version + 1, fullCard.getVersion());
+    }
+
     @Test
     void testGetText() {
         assertEquals("Description", fullCard.getText());
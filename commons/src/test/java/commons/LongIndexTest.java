@@ -0,0 +1,127 @@
+package commons;
+
+import commons.patchExceptions.NoSuchCardList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+class LongIndexTest {
+
+    private static CardList listWithId(final long id) {
+        var list = new CardList();
+        list.setId(id);
+        return list;
+    }
+
+    @Test
+    void testAddAndGet() {
+        var index = new LongIndex<CardList>(CardList::getId);
+        var a = listWithId(1);
+        var b = listWithId(2);
+
+        index.add(a);
+        index.add(b);
+
+        Assertions.assertSame(a, index.get(1));
+        Assertions.assertSame(b, index.get(2));
+        Assertions.assertNull(index.get(3));
+        Assertions.assertEquals(2, index.size());
+    }
+
+    @Test
+    void testUnsavedEntitiesAreNotIndexed() {
+        var index = new LongIndex<CardList>(CardList::getId);
+
+        index.add(new CardList());
+
+        Assertions.assertEquals(0, index.size());
+        Assertions.assertNull(index.get(0));
+    }
+
+    @Test
+    void testFindIndexesEntitiesSavedAfterBeingAdded() {
+        var index = new LongIndex<CardList>(CardList::getId);
+        var list = new CardList();
+
+        index.add(list);
+        Assertions.assertSame(list, index.find(0));
+
+        list.setId(5);
+        Assertions.assertSame(list, index.find(5));
+        Assertions.assertSame(list, index.get(5), "find should have indexed it");
+        Assertions.assertNull(index.find(6));
+    }
+
+    @Test
+    void testRemoveBeforeBeingSaved() {
+        var index = new LongIndex<CardList>(CardList::getId);
+        var list = new CardList();
+
+        index.add(list);
+        index.remove(list);
+        list.setId(5);
+
+        Assertions.assertNull(index.find(5));
+    }
+
+    @Test
+    void testRandomOperationsMatchHashMap() {
+        var random = new Random(42);
+        var index = new LongIndex<CardList>(CardList::getId);
+        var expected = new HashMap<Long, CardList>();
+
+        for (int i = 0; i < 100_000; i++) {
+            // small key range, so that there are many collisions and removals in the middle of clusters.
+            long id = 1 + random.nextInt(2000);
+
+            if (random.nextBoolean()) {
+                var list = listWithId(id);
+                index.add(list);
+                expected.put(id, list);
+            } else {
+                var list = expected.remove(id);
+                if (list != null) {
+                    index.remove(list);
+                }
+            }
+        }
+
+        Assertions.assertEquals(expected.size(), index.size());
+        for (long id = 1; id <= 2000; id++) {
+            Assertions.assertSame(expected.get(id), index.get(id));
+        }
+    }
+
+    @Test
+    void testRemoveOnlyRemovesTheSameEntity() {
+        var index = new LongIndex<CardList>(CardList::getId);
+        var a = listWithId(1);
+
+        index.add(a);
+        index.remove(listWithId(1));
+
+        Assertions.assertSame(a, index.get(1));
+    }
+
+    @Test
+    void testBoardLookupsAfterPatches() {
+        var board = new Board();
+        List<CardList> lists = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            var list = listWithId(i);
+            lists.add(list);
+            board.patch(bp -> bp.addCardList(list));
+        }
+
+        Assertions.assertSame(lists.get(3), board.cardListById(4));
+
+        board.patch(bp -> bp.removeCardList(4));
+
+        Assertions.assertThrows(NoSuchCardList.class, () -> board.cardListById(4));
+        Assertions.assertSame(lists.get(4), board.cardListById(5));
+    }
+}
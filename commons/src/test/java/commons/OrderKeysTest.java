@@ -0,0 +1,141 @@
+package commons;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class OrderKeysTest {
+
+    private static final class Item {
+        private String key;
+    }
+
+    private static OrderKeys.Sorted<Item> sorted(final List<Item> items) {
+        return new OrderKeys.Sorted<>(items, item -> item.key, (item, key) -> item.key = key);
+    }
+
+    private static void assertIncreasing(final List<Item> items) {
+        for (int i = 1; i < items.size(); i++) {
+            Assertions.assertTrue(items.get(i - 1).key.compareTo(items.get(i).key) < 0,
+                    "keys out of order at " + i);
+        }
+    }
+
+    @Test
+    void testBetween() {
+        var first = OrderKeys.between(null, null);
+        var after = OrderKeys.between(first, null);
+        var before = OrderKeys.between(null, first);
+        var middle = OrderKeys.between(first, after);
+
+        Assertions.assertTrue(before.compareTo(first) < 0);
+        Assertions.assertTrue(first.compareTo(middle) < 0);
+        Assertions.assertTrue(middle.compareTo(after) < 0);
+    }
+
+    @Test
+    void testBetweenRejectsUnorderedKeys() {
+        var a = OrderKeys.between(null, null);
+        var b = OrderKeys.between(a, null);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OrderKeys.between(b, a));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OrderKeys.between(a, a));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OrderKeys.between("?", null));
+    }
+
+    @Test
+    void testSequenceIsIncreasingAndShort() {
+        var keys = OrderKeys.sequence(10000);
+
+        for (int i = 1; i < keys.size(); i++) {
+            Assertions.assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0);
+        }
+
+        for (var key : keys) {
+            Assertions.assertFalse(OrderKeys.needsRebalance(key));
+        }
+    }
+
+    @Test
+    void testRepeatedInsertsAtTheSamePlace() {
+        var lo = OrderKeys.between(null, null);
+        var hi = OrderKeys.between(lo, null);
+
+        for (int i = 0; i < 1000; i++) {
+            var key = OrderKeys.between(lo, hi);
+            Assertions.assertTrue(lo.compareTo(key) < 0 && key.compareTo(hi) < 0);
+            hi = key;
+        }
+
+        Assertions.assertTrue(OrderKeys.needsRebalance(hi));
+    }
+
+    @Test
+    void testMoveOnlyChangesTheMovedKey() {
+        var items = new ArrayList<Item>();
+        var list = sorted(items);
+        for (int i = 0; i < 5; i++) {
+            list.append(new Item());
+        }
+
+        var moved = items.get(4);
+        var others = new ArrayList<String>();
+        for (int i = 0; i < 4; i++) {
+            others.add(items.get(i).key);
+        }
+
+        list.move(moved, items.get(1));
+
+        Assertions.assertSame(moved, items.get(2));
+        Assertions.assertEquals(others, List.of(items.get(0).key, items.get(1).key, items.get(3).key,
+                items.get(4).key));
+        assertIncreasing(items);
+    }
+
+    @Test
+    void testRandomOperationsKeepTheOrder() {
+        var random = new Random(42);
+        var items = new ArrayList<Item>();
+        var list = sorted(items);
+
+        for (int i = 0; i < 2000; i++) {
+            var op = random.nextInt(4);
+            if (op == 0 || items.size() < 2) {
+                list.append(new Item());
+            } else if (op == 1) {
+                list.insertAfter(new Item(), random.nextBoolean() ? null : items.get(random.nextInt(items.size())));
+            } else if (op == 2) {
+                Assertions.assertTrue(list.remove(items.get(random.nextInt(items.size()))));
+            } else {
+                var item = items.get(random.nextInt(items.size()));
+                list.move(item, random.nextBoolean() ? null : items.get(random.nextInt(items.size())));
+            }
+
+            if (list.needsRebalance()) {
+                list.rebalance(item -> { });
+            }
+        }
+
+        assertIncreasing(items);
+    }
+
+    @Test
+    void testNormalizeAssignsMissingKeys() {
+        var items = new ArrayList<Item>();
+        for (int i = 0; i < 3; i++) {
+            items.add(new Item());
+        }
+
+        var changed = new ArrayList<Item>();
+        Assertions.assertTrue(sorted(items).normalize(changed::add));
+        Assertions.assertEquals(3, changed.size());
+        assertIncreasing(items);
+
+        changed.clear();
+        Assertions.assertFalse(sorted(items).normalize(changed::add));
+        Assertions.assertTrue(changed.isEmpty());
+    }
+}
@@ -0,0 +1,123 @@
+package commons.events;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import commons.Card;
+import commons.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class BinaryEventCodecTest {
+    private static ServerToClientEvent roundTrip(final ServerToClientEvent event) throws IOException {
+        return BinaryEventCodec.decode(ByteBuffer.wrap(BinaryEventCodec.encode(event)));
+    }
+
+    /**
+     * Finds the implementations of {@link ServerToClientEvent}, whether they are registered as subtypes or not,
+     * among the classes of its package.
+     */
+    private static List<Class<?>> eventTypes() throws IOException, URISyntaxException, ClassNotFoundException {
+        var root = Path.of(ServerToClientEvent.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        var pkg = ServerToClientEvent.class.getPackageName();
+
+        List<String> names;
+        try (var files = Files.list(root.resolve(pkg.replace('.', '/')))) {
+            names = files.map(f -> f.getFileName().toString()).filter(n -> n.endsWith(".class")).toList();
+        }
+
+        var types = new ArrayList<Class<?>>();
+        for (var name : names) {
+            var type = Class.forName(pkg + "." + name.substring(0, name.length() - ".class".length()));
+            if (ServerToClientEvent.class.isAssignableFrom(type) && !type.isInterface()) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    @Test
+    void everyEventTypeHasATag() throws IOException, URISyntaxException, ClassNotFoundException {
+        var types = eventTypes();
+        for (var type : ServerToClientEvent.class.getAnnotation(JsonSubTypes.class).value()) {
+            Assertions.assertTrue(types.contains(type.value()), type.name());
+        }
+
+        for (var type : types) {
+            Assertions.assertTrue(BinaryEventCodec.hasTag(type), type.getName());
+        }
+    }
+
+    @Test
+    void batchesEncodedEvents() throws IOException {
+        var events = List.<ServerToClientEvent>of(new CardTitleSetEvent(1, "a"), new BoardResyncEvent(2),
+                new EventBatch(List.of(new CardTagAddedEvent(1, 2))));
+        var encoded = new ArrayList<ByteBuffer>();
+        for (var event : events) {
+            encoded.add(ByteBuffer.wrap(BinaryEventCodec.encode(event)));
+        }
+
+        var batch = BinaryEventCodec.batch(encoded);
+
+        Assertions.assertArrayEquals(BinaryEventCodec.encode(new EventBatch(events)), batch);
+        Assertions.assertEquals(new EventBatch(events), BinaryEventCodec.decode(ByteBuffer.wrap(batch)));
+    }
+
+    @Test
+    void encodesScalarsCompactly() throws IOException {
+        var event = new CardSubtaskCompletenessSetEvent(5, true);
+        var bytes = BinaryEventCodec.encode(event);
+
+        // the tag, the zigzag id and the boolean.
+        Assertions.assertEquals(3, bytes.length);
+        Assertions.assertTrue(bytes.length < event.serialize().length() / 10);
+        Assertions.assertEquals(event, BinaryEventCodec.decode(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    void roundTripsEveryKindOfComponent() throws IOException {
+        var card = new Card("title");
+        var tag = new Tag("tag");
+        var events = List.of(
+                new XListCardMoveEvent(1, Long.MAX_VALUE, 3, -1),
+                new CardTitleSetEvent(1, "unicode: \u00e9\u4e2d"),
+                new CardTitleSetEvent(1, null),
+                new CardDueDateSetEvent(2, ZonedDateTime.of(2023, 3, 10, 3, 4, 5, 6, ZoneId.of("Europe/Amsterdam"))),
+                new CardDueDateSetEvent(2, null),
+                new BoardRemovedEvent(),
+                new TagCreatedEvent(tag),
+                new EventBatch(List.of(new CardTagAddedEvent(1, 2), new EventBatch(List.of()))));
+
+        for (var event : events) {
+            Assertions.assertEquals(event, roundTrip(event));
+        }
+
+        var created = (CardCreatedEvent) roundTrip(new CardCreatedEvent(4, card));
+        Assertions.assertEquals(4, created.cardListId());
+        Assertions.assertEquals("title", created.card().getTitle());
+    }
+
+    @Test
+    void rejectsMalformedEvents() throws IOException {
+        var bytes = BinaryEventCodec.encode(new CardTitleSetEvent(1, "title"));
+
+        Assertions.assertThrows(IOException.class,
+                () -> BinaryEventCodec.decode(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1))));
+        Assertions.assertThrows(IOException.class,
+                () -> BinaryEventCodec.decode(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length + 1))));
+        Assertions.assertThrows(IOException.class, () -> BinaryEventCodec.decode(ByteBuffer.wrap(new byte[] {127})));
+
+        // a due date (tag 10) with a null zone.
+        Assertions.assertThrows(IOException.class,
+                () -> BinaryEventCodec.decode(ByteBuffer.wrap(new byte[] {10, 4, 1, 0, 0, 0})));
+    }
+}
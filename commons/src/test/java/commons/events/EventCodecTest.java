@@ -0,0 +1,55 @@
+package commons.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+class EventCodecTest {
+    @Test
+    void encodesNestedEventsWithTheirTypes() throws JsonProcessingException {
+        // the writer of the batch writes its events as events, with their type ids.
+        var batch = new EventBatch(List.of(new BoardResyncEvent(1), new CardTagAddedEvent(2, 3)));
+
+        var json = EventCodec.encode(batch);
+
+        Assertions.assertEquals("""
+                {"type":"eventBatch","events":[{"type":"boardResync","boardId":1},\
+                {"type":"cardTagAdded","cardId":2,"tagId":3}]}""", json);
+        Assertions.assertEquals(batch, EventCodec.decodeServerToClient(json));
+    }
+
+    @Test
+    void batchesEncodedEvents() throws JsonProcessingException {
+        var first = new CardTitleSetEvent(1, "a");
+        var second = new EventBatch(List.of(new CardTextSetEvent(1, "b"), new CardTagRemovedEvent(1, 2)));
+
+        var json = EventCodec.batch(List.of(EventCodec.encode(first), EventCodec.encode(second)));
+
+        var batch = (EventBatch) EventCodec.decodeServerToClient(json);
+        Assertions.assertEquals(new EventBatch(List.of(first, second)), batch);
+        Assertions.assertEquals(List.of(first, new CardTextSetEvent(1, "b"), new CardTagRemovedEvent(1, 2)),
+                batch.flattened());
+    }
+
+    @Test
+    void isSharedAcrossThreads() throws InterruptedException, ExecutionException {
+        var executor = Executors.newFixedThreadPool(8);
+        var tasks = new ArrayList<Callable<ServerToClientEvent>>();
+        for (int i = 0; i < 1000; i++) {
+            var event = new BoardTitleSetEvent(i, "title " + i);
+            tasks.add(() -> EventCodec.decodeServerToClient(EventCodec.encode(event)));
+        }
+
+        var results = executor.invokeAll(tasks);
+        for (int i = 0; i < results.size(); i++) {
+            Assertions.assertEquals(new BoardTitleSetEvent(i, "title " + i), results.get(i).get());
+        }
+        executor.shutdown();
+    }
+}
@@ -48,7 +48,7 @@ public class ServerToClientEventSerDeTests {
             new TestSpec(
                     new ListCreatedEvent(new CardList()),
                     """
-                            {"type":"listCreated","list":{"id":0,"cards":[],"title":"","fontColor":"","backgroundColor":""}}
+                            {"type":"listCreated","list":{"id":0,"cards":[],"version":0,"title":"","fontColor":"","backgroundColor":""}}
                             """.trim()
             ),
             new TestSpec(
@@ -63,7 +63,7 @@ public class ServerToClientEventSerDeTests {
                         list.patch(p -> p.addCard(card));
                     })),
                     """
-                            {"type":"listCreated","list":{"id":0,"cards":[{"id":0,"title":"Aa","text":"Bb","category":"","dueDate":null,"cardList":0,"tags":[],"colorPresetKey":0,"subtasks":[]}],"title":"","fontColor":"","backgroundColor":""}}
+                            {"type":"listCreated","list":{"id":0,"cards":[{"id":0,"title":"Aa","text":"Bb","category":"","dueDate":null,"cardList":0,"tags":[],"colorPresetKey":0,"subtasks":[],"version":2}],"version":0,"title":"","fontColor":"","backgroundColor":""}}
                             """.trim()
             ),
             new TestSpec(
@@ -75,7 +75,7 @@ public class ServerToClientEventSerDeTests {
             new TestSpec(
                     new CardCreatedEvent(2, new Card()),
                     """
-                            {"type":"cardCreated","cardListId":2,"card":{"id":0,"title":"","text":"","category":"","dueDate":null,"cardList":0,"tags":[],"colorPresetKey":0,"subtasks":[]}}
+                            {"type":"cardCreated","cardListId":2,"card":{"id":0,"title":"","text":"","category":"","dueDate":null,"cardList":0,"tags":[],"colorPresetKey":0,"subtasks":[],"version":0}}
                             """.trim()
             ),
             new TestSpec(
@@ -102,13 +102,13 @@ public class ServerToClientEventSerDeTests {
                         c.patch(p -> p.setText("cd"));
                     })),
                     """
-                            {"type":"cardRemoved","cardListId":1,"card":{"id":0,"title":"ab","text":"cd","category":"","dueDate":null,"cardList":0,"tags":[],"colorPresetKey":0,"subtasks":[]}}
+                            {"type":"cardRemoved","cardListId":1,"card":{"id":0,"title":"ab","text":"cd","category":"","dueDate":null,"cardList":0,"tags":[],"colorPresetKey":0,"subtasks":[],"version":2}}
                             """.trim()
             ),
             new TestSpec(
                     new ListRemovedEvent(new CardList()),
                     """
-                            {"type":"listRemoved","cardList":{"id":0,"cards":[],"title":"","fontColor":"","backgroundColor":""}}
+                            {"type":"listRemoved","cardList":{"id":0,"cards":[],"version":0,"title":"","fontColor":"","backgroundColor":""}}
                             """.trim()
             ),
             new TestSpec(
@@ -121,7 +121,7 @@ public class ServerToClientEventSerDeTests {
                         l.patch(p -> p.addCard(c));
                     })),
                     """
-                            {"type":"listRemoved","cardList":{"id":0,"cards":[{"id":0,"title":"ab","text":"cd","category":"","dueDate":null,"cardList":0,"tags":[],"colorPresetKey":0,"subtasks":[]}],"title":"","fontColor":"","backgroundColor":""}}
+                            {"type":"listRemoved","cardList":{"id":0,"cards":[{"id":0,"title":"ab","text":"cd","category":"","dueDate":null,"cardList":0,"tags":[],"colorPresetKey":0,"subtasks":[],"version":2}],"version":0,"title":"","fontColor":"","backgroundColor":""}}
                             """.trim()
             ),
             new TestSpec(
@@ -269,6 +269,12 @@ public class ServerToClientEventSerDeTests {
                     """
                             {"type":"cardSubtaskCompletenessSet","subtaskId":2,"newCompleteness":true}
                             """.trim()
+            ),
+            new TestSpec(
+                    new EventBatch(List.of(new CardTitleSetEvent(1, "a"), new CardSubtaskNameSetEvent(2, "b"))),
+                    """
+                            {"type":"eventBatch","events":[{"type":"cardTitleSet","cardId":1,"newTitle":"a"},{"type":"cardSubtaskNameSet","subtaskId":2,"newName":"b"}]}
+                            """.trim()
             )
     ));
 
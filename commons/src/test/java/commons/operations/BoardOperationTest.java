@@ -0,0 +1,97 @@
+package commons.operations;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Card;
+import commons.CardSubtask;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class BoardOperationTest {
+
+    @Test
+    void testRoundTrip() throws JsonProcessingException {
+        var mapper = new ObjectMapper().findAndRegisterModules();
+        List<BoardOperation> operations = List.of(
+                new SetCardTitleOperation(1, 2, "title"),
+                new AddCardTagOperation(1, 2, 3),
+                new DeleteSubtaskOperation(1, 2, 4),
+                new SetSubtaskCompletenessOperation(1, 2, 5, true));
+
+        var type = new TypeReference<List<BoardOperation>>() { };
+        var json = mapper.writerFor(type).writeValueAsString(operations);
+
+        Assertions.assertTrue(json.contains("\"type\":\"setCardTitle\""));
+        Assertions.assertEquals(operations, mapper.readValue(json, type));
+    }
+
+    @Test
+    void testNegativeIdsAreResolved() {
+        var calls = new ArrayList<String>();
+        var created = List.of(10L, 20L);
+        var target = new BoardOperation.Target() {
+            @Override
+            public long resolve(final long id) {
+                return id < 0 ? created.get((int) (-id - 1)) : id;
+            }
+
+            @Override
+            public long newCard(final long listId, final Card card) {
+                calls.add("newCard " + listId);
+                return 10;
+            }
+
+            @Override
+            public void setCardTitle(final long listId, final long cardId, final String title) {
+                calls.add("setCardTitle " + listId + " " + cardId);
+            }
+
+            @Override
+            public void setCardText(final long listId, final long cardId, final String text) {
+                calls.add("setCardText " + listId + " " + cardId);
+            }
+
+            @Override
+            public void addCardTag(final long listId, final long cardId, final long tagId) {
+                calls.add("addCardTag " + listId + " " + cardId + " " + tagId);
+            }
+
+            @Override
+            public void removeCardTag(final long listId, final long cardId, final long tagId) {
+                calls.add("removeCardTag " + listId + " " + cardId + " " + tagId);
+            }
+
+            @Override
+            public long newSubtask(final long listId, final long cardId, final CardSubtask subtask) {
+                calls.add("newSubtask " + listId + " " + cardId);
+                return 20;
+            }
+
+            @Override
+            public void deleteSubtask(final long listId, final long cardId, final long subtaskId) {
+                calls.add("deleteSubtask " + listId + " " + cardId + " " + subtaskId);
+            }
+
+            @Override
+            public void setSubtaskCompleteness(final long listId, final long cardId, final long subtaskId,
+                                               final boolean completed) {
+                calls.add("setSubtaskCompleteness " + listId + " " + cardId + " " + subtaskId);
+            }
+        };
+
+        Assertions.assertEquals(10, new NewCardOperation(1, new Card()).applyTo(target));
+        Assertions.assertEquals(20, new NewSubtaskOperation(1, -1, new CardSubtask()).applyTo(target));
+        Assertions.assertEquals(0, new SetSubtaskCompletenessOperation(1, -1, -2, true).applyTo(target));
+        Assertions.assertEquals(0, new AddCardTagOperation(1, -1, 7).applyTo(target));
+
+        Assertions.assertEquals(List.of(
+                "newCard 1",
+                "newSubtask 1 10",
+                "setSubtaskCompleteness 1 10 20",
+                "addCardTag 1 10 7"), calls);
+    }
+}
@@ -0,0 +1,84 @@
+package server.api;
+
+import commons.Board;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of publishing a mutation of a board to its subscribers, for different numbers of subscribers:
+ * with the frame the broker encodes once per event, and with each subscriber encoding the event for itself, as the
+ * websocket sessions used to.
+ * <p>
+ * Run with {@code ./gradlew :server:jmh -Pjmh.includes=FanOutBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FanOutBenchmark {
+    @Param({"1", "10", "50", "200"})
+    private int subscribers;
+
+    private MessageBroker sharedBroker;
+    private MessageBroker perSubscriberBroker;
+    private Board sharedBoard;
+    private Board perSubscriberBoard;
+    private long title;
+
+    private Blackhole blackhole;
+
+    /**
+     * Subscribes to the boards.
+     *
+     * @param bh The blackhole the subscribers send their messages to.
+     */
+    @Setup
+    public void setUp(final Blackhole bh) {
+        this.blackhole = bh;
+
+        this.sharedBroker = new MessageBroker();
+        this.sharedBoard = new Board();
+        this.perSubscriberBroker = new MessageBroker();
+        this.perSubscriberBoard = new Board();
+
+        for (int i = 0; i < this.subscribers; i++) {
+            this.sharedBroker.addSubscriber(this.sharedBoard.getId(), frame -> this.blackhole.consume(frame.message()));
+            this.perSubscriberBroker.addSubscriber(this.perSubscriberBoard.getId(), frame -> {
+                try {
+                    this.blackhole.consume(new TextMessage(frame.event().serialize()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Publishes a title change, encoded once.
+     */
+    @Benchmark
+    public void shared() {
+        var t = "title " + this.title++;
+        this.sharedBroker.getWrapper(this.sharedBoard).patch(bp -> bp.setTitle(t));
+    }
+
+    /**
+     * Publishes a title change, encoded once by the broker and then again by every subscriber.
+     */
+    @Benchmark
+    public void perSubscriber() {
+        var t = "title " + this.title++;
+        this.perSubscriberBroker.getWrapper(this.perSubscriberBoard).patch(bp -> bp.setTitle(t));
+    }
+}
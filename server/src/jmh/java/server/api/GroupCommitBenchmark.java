@@ -0,0 +1,121 @@
+package server.api;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput and the latency of small mutations of many boards, committed one by one or in groups of
+ * different sizes, against an H2 database on disk. The mutations run on the lanes of their boards, with connections
+ * from a Hikari pool, as they do in the server; so a group can't have more mutations than there are lane threads.
+ * <p>
+ * Run with {@code ./gradlew :server:jmh}. A {@code maxBatch} of -1 disables group commit, and one of 0 sizes the
+ * batch from the lane threads, as the server does by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(32)
+public class GroupCommitBenchmark {
+    private static final int BOARDS = 32;
+
+    @Param({"-1", "0", "1", "4"})
+    private int maxBatch;
+
+    @Param({"2"})
+    private long maxDelayMillis;
+
+    @Param({"8"})
+    private int laneThreads;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private BoardLanes boardLanes;
+    private GroupCommitter groupCommitter;
+
+    private final AtomicLong nextThread = new AtomicLong();
+
+    /**
+     * The board a benchmark thread mutates, so that every thread works on its own board, like the lanes do.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private long boardId;
+        private long version;
+
+        /**
+         * Picks the board of the thread.
+         *
+         * @param benchmark The benchmark.
+         */
+        @Setup
+        public void setUp(final GroupCommitBenchmark benchmark) {
+            this.boardId = benchmark.nextThread.incrementAndGet() % BOARDS + 1;
+        }
+    }
+
+    /**
+     * Creates the database, the lanes and the group committer.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        var config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:file:./build/jmh/group-commit");
+        config.setUsername("sa");
+        config.setPassword("");
+        // a connection for each lane thread, and one for the committer.
+        config.setMaximumPoolSize(this.laneThreads + 1);
+        this.dataSource = new HikariDataSource(config);
+
+        this.jdbc = new JdbcTemplate(this.dataSource);
+        this.jdbc.execute("DROP TABLE IF EXISTS board");
+        this.jdbc.execute("CREATE TABLE board (id BIGINT PRIMARY KEY, title VARCHAR(255))");
+        for (long id = 1; id <= BOARDS; id++) {
+            this.jdbc.update("INSERT INTO board (id, title) VALUES (?, ?)", id, "board");
+        }
+
+        this.boardLanes = new BoardLanes(this.laneThreads, 1024);
+        this.groupCommitter = new GroupCommitter(this.maxBatch >= 0, Math.max(this.maxBatch, 0), this.maxDelayMillis,
+                new DataSourceTransactionManager(this.dataSource), this.boardLanes, new BoardCache(BOARDS, 1000),
+                new MessageBroker());
+    }
+
+    /**
+     * Stops the committer and the lanes, and closes the pool.
+     *
+     * @throws InterruptedException If interrupted while stopping.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        this.groupCommitter.shutdown();
+        this.boardLanes.shutdown();
+        this.dataSource.close();
+    }
+
+    /**
+     * Renames a board on its lane, and waits until the change committed.
+     *
+     * @param state The board of the thread.
+     */
+    @Benchmark
+    public void mutate(final ThreadState state) {
+        var title = "title " + state.version++;
+        this.boardLanes.run(state.boardId, () -> this.groupCommitter.execute(state.boardId,
+                () -> this.jdbc.update("UPDATE board SET title = ? WHERE id = ?", title, state.boardId)));
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 import server.api.BoardWebsocketHandler;
 import server.api.MessageBroker;
+import server.api.SessionOutboxes;
 import server.database.BoardRepository;
 import server.database.CardListRepository;
 import server.database.CardRepository;
@@ -28,6 +29,7 @@ public class Config implements WebSocketConfigurer {
     private final ColorPresetRepository colorPresetRepository;
     private final SubtaskRepository subtaskRepository;
     private final MessageBroker messageBroker;
+    private final SessionOutboxes outboxes;
 
     /**
      * Constructor.
@@ -38,6 +40,7 @@ public class Config implements WebSocketConfigurer {
      * @param tagRepository         The tag repository.
      * @param colorPresetRepository The color preset repository.
      * @param subtaskRepository     The subtask repository.
+     * @param outboxes              The outbound queues of the websocket sessions.
      */
     public Config(
             final BoardRepository boardRepository,
@@ -45,7 +48,8 @@ public class Config implements WebSocketConfigurer {
             final CardRepository cardRepository,
             final TagRepository tagRepository,
             final ColorPresetRepository colorPresetRepository,
-            final SubtaskRepository subtaskRepository
+            final SubtaskRepository subtaskRepository,
+            final SessionOutboxes outboxes
     ) {
         this.boardRepository = boardRepository;
         this.cardListRepository = cardListRepository;
@@ -53,6 +57,7 @@ public class Config implements WebSocketConfigurer {
         this.tagRepository = tagRepository;
         this.colorPresetRepository = colorPresetRepository;
         this.subtaskRepository = subtaskRepository;
+        this.outboxes = outboxes;
 
         this.messageBroker = new MessageBroker();
     }
@@ -74,7 +79,7 @@ public class Config implements WebSocketConfigurer {
      */
     @Override
     public void registerWebSocketHandlers(final WebSocketHandlerRegistry registry) {
-        registry.addHandler(new BoardWebsocketHandler(boardRepository, messageBroker), "/board");
+        registry.addHandler(new BoardWebsocketHandler(boardRepository, messageBroker, outboxes), "/board");
     }
 
     /**
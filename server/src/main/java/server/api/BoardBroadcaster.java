@@ -0,0 +1,333 @@
+package server.api;
+
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.CardSubtask;
+import commons.ColorPreset;
+import commons.Tag;
+import commons.events.BoardBackgroundColorSetEvent;
+import commons.events.BoardFontColorSetEvent;
+import commons.events.BoardRemovedEvent;
+import commons.events.BoardTitleSetEvent;
+import commons.events.CardCategorySetEvent;
+import commons.events.CardCreatedEvent;
+import commons.events.CardDueDateSetEvent;
+import commons.events.CardListTitleSetEvent;
+import commons.events.CardMovedEvent;
+import commons.events.CardPresetSetEvent;
+import commons.events.CardRemovedEvent;
+import commons.events.CardSubtaskCompletenessSetEvent;
+import commons.events.CardSubtaskCreatedEvent;
+import commons.events.CardSubtaskMovedEvent;
+import commons.events.CardSubtaskNameSetEvent;
+import commons.events.CardSubtaskRemovedEvent;
+import commons.events.CardTagAddedEvent;
+import commons.events.CardTagRemovedEvent;
+import commons.events.CardTextSetEvent;
+import commons.events.CardTitleSetEvent;
+import commons.events.ColorPresetBackgroundColorSetEvent;
+import commons.events.ColorPresetCreatedEvent;
+import commons.events.ColorPresetFontColorSetEvent;
+import commons.events.ColorPresetNameSetEvent;
+import commons.events.ColorPresetRemovedEvent;
+import commons.events.DefaultCardColorPresetSetEvent;
+import commons.events.ListBackgroundColorSetEvent;
+import commons.events.ListCreatedEvent;
+import commons.events.ListFontColorSetEvent;
+import commons.events.ListRemovedEvent;
+import commons.events.ListsReorderedEvent;
+import commons.events.ServerToClientEvent;
+import commons.events.TagBackgroundColorSetEvent;
+import commons.events.TagCreatedEvent;
+import commons.events.TagDeletedEvent;
+import commons.events.TagFontColorSetEvent;
+import commons.events.TagNameSetEvent;
+import commons.events.XListCardMoveEvent;
+import commons.observers.BoardObserver;
+import commons.observers.CardListObserver;
+import commons.observers.CardObserver;
+import commons.observers.SubtaskObserver;
+import commons.observers.TagObserver;
+
+import java.time.ZonedDateTime;
+import java.util.function.Consumer;
+
+/**
+ * The observer graph of a live board. It turns the changes to the board into {@link ServerToClientEvent}s,
+ * and hands them to a single sink, which then fans them out to the subscribers of the board.
+ * <p>
+ * The graph is attached once per live board: observers for the existing entities are created when the board is
+ * bound, and after that only for entities that get created. This way the cost of a patch does not depend on the
+ * size of the board, nor on the number of subscribers.
+ */
+final class BoardBroadcaster implements BoardObserver {
+    private final long boardId;
+    private final Consumer<ServerToClientEvent> sink;
+
+    /**
+     * Constructor.
+     *
+     * @param boardId The id of the board.
+     * @param sink    The sink that the events will be published to.
+     */
+    BoardBroadcaster(final long boardId, final Consumer<ServerToClientEvent> sink) {
+        this.boardId = boardId;
+        this.sink = sink;
+    }
+
+    private void publish(final ServerToClientEvent event) {
+        this.sink.accept(event);
+    }
+
+    @Override
+    public void setBoard(final Board board) {
+        for (var list : board.getCardLists()) {
+            list.notify(new CardListBroadcaster());
+        }
+
+        for (var tag : board.getTags()) {
+            tag.notify(new TagBroadcaster());
+        }
+    }
+
+    @Override
+    public void listCreated(final CardList list) {
+        list.notify(new CardListBroadcaster());
+
+        this.publish(new ListCreatedEvent(list));
+    }
+
+    @Override
+    public void listRemoved(final CardList list) {
+        this.publish(new ListRemovedEvent(list));
+    }
+
+    @Override
+    public void listsReordered(final CardList list, final CardList placedAfter) {
+        this.publish(new ListsReorderedEvent(list.getId(), placedAfter != null ? placedAfter.getId() : 0));
+    }
+
+    @Override
+    public void xListCardMoved(final CardList srcList, final Card card, final CardList destList, final Card hook) {
+        this.publish(new XListCardMoveEvent(
+                srcList.getId(), card.getId(), destList.getId(), hook != null ? hook.getId() : 0));
+    }
+
+    @Override
+    public void titleSet(final String newTitle) {
+        this.publish(new BoardTitleSetEvent(this.boardId, newTitle));
+    }
+
+    @Override
+    public void tagAdded(final Tag tag) {
+        this.publish(new TagCreatedEvent(tag));
+
+        tag.notify(new TagBroadcaster());
+    }
+
+    @Override
+    public void tagRemoved(final Tag tag) {
+        this.publish(new TagDeletedEvent(tag));
+    }
+
+    @Override
+    public void fontColorSet(final String fontColor) {
+        this.publish(new BoardFontColorSetEvent(fontColor));
+    }
+
+    @Override
+    public void backgroundColorSet(final String backgroundColor) {
+        this.publish(new BoardBackgroundColorSetEvent(backgroundColor));
+    }
+
+    @Override
+    public void colorPresetCreated(final ColorPreset preset) {
+        this.publish(new ColorPresetCreatedEvent(preset));
+    }
+
+    @Override
+    public void colorPresetRemoved(final ColorPreset preset) {
+        this.publish(new ColorPresetRemovedEvent(preset));
+    }
+
+    @Override
+    public void defaultCardColorPresetSet(final long colorPresetKey) {
+        this.publish(new DefaultCardColorPresetSetEvent(colorPresetKey));
+    }
+
+    @Override
+    public void colorPresetNameSet(final long presetKey, final String newName) {
+        this.publish(new ColorPresetNameSetEvent(presetKey, newName));
+    }
+
+    @Override
+    public void colorPresetFontColorSet(final long presetKey, final String newFontColor) {
+        this.publish(new ColorPresetFontColorSetEvent(presetKey, newFontColor));
+    }
+
+    @Override
+    public void colorPresetBackgroundColorSet(final long presetKey, final String newBackgroundColor) {
+        this.publish(new ColorPresetBackgroundColorSetEvent(presetKey, newBackgroundColor));
+    }
+
+    @Override
+    public void boardRemoved() {
+        this.publish(new BoardRemovedEvent());
+    }
+
+    private final class CardListBroadcaster implements CardListObserver {
+        private CardList cardList;
+
+        @Override
+        public void setCardList(final CardList list) {
+            this.cardList = list;
+
+            for (var card : list.getCards()) {
+                card.notify(new CardBroadcaster());
+            }
+        }
+
+        @Override
+        public void cardAdded(final Card newCard) {
+            newCard.notify(new CardBroadcaster());
+
+            BoardBroadcaster.this.publish(new CardCreatedEvent(this.cardList.getId(), newCard));
+        }
+
+        @Override
+        public void cardRemoved(final Card card) {
+            BoardBroadcaster.this.publish(new CardRemovedEvent(this.cardList.getId(), card));
+        }
+
+        @Override
+        public void cardMoved(final Card card, final Card placedAfter) {
+            BoardBroadcaster.this.publish(new CardMovedEvent(
+                    this.cardList.getId(), card.getId(), placedAfter != null ? placedAfter.getId() : 0));
+        }
+
+        @Override
+        public void titleSet(final String newTitle) {
+            BoardBroadcaster.this.publish(new CardListTitleSetEvent(this.cardList.getId(), newTitle));
+        }
+
+        @Override
+        public void fontColorSet(final String newFontColor) {
+            BoardBroadcaster.this.publish(new ListFontColorSetEvent(this.cardList.getId(), newFontColor));
+        }
+
+        @Override
+        public void backgroundColorSet(final String newBackgroundColor) {
+            BoardBroadcaster.this.publish(new ListBackgroundColorSetEvent(this.cardList.getId(), newBackgroundColor));
+        }
+    }
+
+    private final class CardBroadcaster implements CardObserver {
+        private Card card;
+
+        @Override
+        public void setCard(final Card card) {
+            this.card = card;
+
+            for (var subtask : card.getSubtasks()) {
+                subtask.notify(new SubtaskBroadcaster());
+            }
+        }
+
+        @Override
+        public void titleSet(final String newTitle) {
+            BoardBroadcaster.this.publish(new CardTitleSetEvent(card.getId(), newTitle));
+        }
+
+        @Override
+        public void textSet(final String newText) {
+            BoardBroadcaster.this.publish(new CardTextSetEvent(card.getId(), newText));
+        }
+
+        @Override
+        public void categorySet(final String newCategory) {
+            BoardBroadcaster.this.publish(new CardCategorySetEvent(card.getId(), newCategory));
+        }
+
+        @Override
+        public void dueDateSet(final ZonedDateTime newDueDate) {
+            BoardBroadcaster.this.publish(new CardDueDateSetEvent(card.getId(), newDueDate));
+        }
+
+        @Override
+        public void presetSet(final long presetKey) {
+            BoardBroadcaster.this.publish(new CardPresetSetEvent(card.getId(), presetKey));
+        }
+
+        @Override
+        public void tagAdded(final Tag tag) {
+            BoardBroadcaster.this.publish(new CardTagAddedEvent(card.getId(), tag.getId()));
+        }
+
+        @Override
+        public void tagRemoved(final Tag tag) {
+            BoardBroadcaster.this.publish(new CardTagRemovedEvent(card.getId(), tag.getId()));
+        }
+
+        @Override
+        public void subtaskCreated(final CardSubtask subtask) {
+            BoardBroadcaster.this.publish(new CardSubtaskCreatedEvent(card.getId(), subtask));
+
+            subtask.notify(new SubtaskBroadcaster());
+        }
+
+        @Override
+        public void subtaskDeleted(final CardSubtask subtask) {
+            BoardBroadcaster.this.publish(new CardSubtaskRemovedEvent(card.getId(), subtask.getId()));
+        }
+
+        @Override
+        public void subtaskMoved(final CardSubtask subtask, final CardSubtask placedAfter) {
+            BoardBroadcaster.this.publish(new CardSubtaskMovedEvent(
+                    this.card.getId(), subtask.getId(), placedAfter != null ? placedAfter.getId() : 0));
+        }
+    }
+
+    private final class TagBroadcaster implements TagObserver {
+        private Tag tag;
+
+        @Override
+        public void setTag(final Tag tag) {
+            this.tag = tag;
+        }
+
+        @Override
+        public void nameSet(final String newName) {
+            BoardBroadcaster.this.publish(new TagNameSetEvent(tag, newName));
+        }
+
+        @Override
+        public void fontColorSet(final String fontColor) {
+            BoardBroadcaster.this.publish(new TagFontColorSetEvent(tag, fontColor));
+        }
+
+        @Override
+        public void backgroundColorSet(final String backgroundColor) {
+            BoardBroadcaster.this.publish(new TagBackgroundColorSetEvent(tag, backgroundColor));
+        }
+    }
+
+    private final class SubtaskBroadcaster implements SubtaskObserver {
+        private CardSubtask subtask;
+
+        @Override
+        public void setSubtask(final CardSubtask subtask) {
+            this.subtask = subtask;
+        }
+
+        @Override
+        public void nameSet(final String newName) {
+            BoardBroadcaster.this.publish(new CardSubtaskNameSetEvent(subtask.getId(), newName));
+        }
+
+        @Override
+        public void completenessUpdated(final boolean newIsComplete) {
+            BoardBroadcaster.this.publish(new CardSubtaskCompletenessSetEvent(subtask.getId(), newIsComplete));
+        }
+    }
+}
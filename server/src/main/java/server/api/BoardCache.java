@@ -0,0 +1,231 @@
+package server.api;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import commons.Board;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * A resident cache of live boards. Mutations are applied to the cached instances (which are then persisted),
+ * so the full board graph only has to be loaded from the database on a miss.
+ * <p>
+ * Boards are evicted in least-recently-used order, once either the number of resident boards or the total
+ * number of resident cards goes over the configured limits. Whatever is kept per live board elsewhere is dropped
+ * along with it, by the eviction listeners.
+ */
+@Component
+public final class BoardCache {
+    private final int maxBoards;
+    private final long maxCards;
+
+    private final LinkedHashMap<Long, Entry> boards;
+    private final CopyOnWriteArrayList<LongConsumer> evictionListeners;
+    private long residentCards;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor.
+     *
+     * @param maxBoards The maximum number of boards to keep in memory.
+     * @param maxCards  The maximum number of cards (summed across all resident boards) to keep in memory.
+     */
+    public BoardCache(@Value("${talio.board-cache.max-boards:64}") final int maxBoards,
+                      @Value("${talio.board-cache.max-cards:200000}") final long maxCards) {
+        if (maxBoards < 1 || maxCards < 0) {
+            throw new IllegalArgumentException("invalid board cache limits");
+        }
+
+        this.maxBoards = maxBoards;
+        this.maxCards = maxCards;
+        this.boards = new LinkedHashMap<>(16, 0.75f, true);
+        this.evictionListeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Adds a listener that is told the id of every board that leaves the cache. It is called with the cache locked,
+     * so it must not block.
+     *
+     * @param listener The listener.
+     */
+    public void onEviction(final LongConsumer listener) {
+        this.evictionListeners.add(listener);
+    }
+
+    private void evicted(final long boardId) {
+        for (var listener : this.evictionListeners) {
+            listener.accept(boardId);
+        }
+    }
+
+    private static final class Entry {
+        private final Board board;
+        private long weight;
+
+        private Entry(final Board board) {
+            this.board = board;
+            this.weight = weigh(board);
+        }
+    }
+
+    private static long weigh(final Board board) {
+        long cards = 0;
+        for (var list : board.getCardLists()) {
+            cards += list.getCards().size();
+        }
+
+        return cards;
+    }
+
+    /**
+     * Gets the live instance of a board, loading it with the given loader on a miss.
+     * <p>
+     * The loader is called without holding the cache lock. If two threads race to load the same board, the instance
+     * that was cached first wins, and both callers get that same instance.
+     *
+     * @param boardId The board id.
+     * @param loader  The loader, used on a miss.
+     * @return The board, or an empty optional if the loader did not find it.
+     */
+    public Optional<Board> get(final long boardId, final LongFunction<Optional<Board>> loader) {
+        synchronized (this) {
+            var entry = this.boards.get(boardId);
+            if (entry != null) {
+                this.hits++;
+                this.reweigh(entry);
+                return Optional.of(entry.board);
+            }
+
+            this.misses++;
+        }
+
+        var loaded = loader.apply(boardId);
+        if (loaded.isEmpty()) {
+            return loaded;
+        }
+
+        synchronized (this) {
+            var existing = this.boards.get(boardId);
+            if (existing != null) {
+                return Optional.of(existing.board);
+            }
+
+            this.insert(boardId, loaded.get());
+            return loaded;
+        }
+    }
+
+    /**
+     * Puts a (newly created) board in the cache.
+     *
+     * @param board The board.
+     */
+    public synchronized void put(final Board board) {
+        var old = this.boards.remove(board.getId());
+        if (old != null) {
+            this.residentCards -= old.weight;
+        }
+
+        this.insert(board.getId(), board);
+    }
+
+    /**
+     * Evicts a board from the cache. The next access will reload it.
+     *
+     * @param boardId The board id.
+     */
+    public synchronized void evict(final long boardId) {
+        var entry = this.boards.remove(boardId);
+        if (entry != null) {
+            this.residentCards -= entry.weight;
+            this.evicted(boardId);
+        }
+    }
+
+    /**
+     * Evicts all boards.
+     */
+    public synchronized void clear() {
+        for (var boardId : this.boards.keySet()) {
+            this.evicted(boardId);
+        }
+
+        this.boards.clear();
+        this.residentCards = 0;
+    }
+
+    private void insert(final long boardId, final Board board) {
+        var entry = new Entry(board);
+        this.boards.put(boardId, entry);
+        this.residentCards += entry.weight;
+
+        this.enforceLimits();
+    }
+
+    private void reweigh(final Entry entry) {
+        var newWeight = weigh(entry.board);
+        this.residentCards += newWeight - entry.weight;
+        entry.weight = newWeight;
+
+        this.enforceLimits();
+    }
+
+    private void enforceLimits() {
+        Iterator<Map.Entry<Long, Entry>> it = this.boards.entrySet().iterator();
+
+        // always keep the most recently used board, even if it's over the card limit on its own.
+        while ((this.boards.size() > this.maxBoards || this.residentCards > this.maxCards) && this.boards.size() > 1) {
+            var eldest = it.next();
+            it.remove();
+
+            this.residentCards -= eldest.getValue().weight;
+            this.evictions++;
+            this.evicted(eldest.getKey());
+        }
+    }
+
+    /**
+     * Returns a snapshot of the cache metrics.
+     *
+     * @return The metrics.
+     */
+    public synchronized Stats stats() {
+        return new Stats(this.hits, this.misses, this.evictions, this.boards.size(), this.residentCards,
+                this.maxBoards, this.maxCards);
+    }
+
+    /**
+     * Cache metrics.
+     *
+     * @param hits           The number of lookups served from memory.
+     * @param misses         The number of lookups that had to load the board.
+     * @param evictions      The number of boards evicted because of the limits.
+     * @param residentBoards The number of boards currently in memory.
+     * @param residentCards  The number of cards currently in memory.
+     * @param maxBoards      The configured board limit.
+     * @param maxCards       The configured card limit.
+     */
+    public record Stats(long hits, long misses, long evictions, int residentBoards, long residentCards,
+                        int maxBoards, long maxCards) {
+        /**
+         * The ratio of hits to lookups.
+         *
+         * @return The hit rate, or 0 if there were no lookups yet.
+         */
+        @JsonGetter("hitRate")
+        public double hitRate() {
+            var lookups = this.hits + this.misses;
+            return lookups == 0 ? 0 : (double) this.hits / lookups;
+        }
+    }
+}
@@ -6,10 +6,13 @@ import commons.CardList;
 import commons.CardSubtask;
 import commons.ColorPreset;
 import commons.Tag;
+import commons.events.BoardImportedEvent;
 import commons.events.BoardRemovedEvent;
 import commons.events.BoardTitleSetEvent;
 import commons.events.ServerToClientEvent;
+import commons.operations.BoardOperation;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,7 +24,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import server.api.exceptions.BoardBusy;
+import server.api.exceptions.VersionConflict;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +64,10 @@ public final class BoardController {
         } catch (IllegalArgumentException e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().build();
+        } catch (BoardBusy e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Message", e.getMessage()).build();
+        } catch (VersionConflict e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Message", e.getMessage()).build();
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError().build();
@@ -93,24 +105,88 @@ public final class BoardController {
         return query(() -> boardService.getBoard(id));
     }
 
+    /**
+     * Exports a board as NDJSON, streamed a chunk of cards at a time, so that neither the server nor the reader has to
+     * hold the whole board in memory.
+     *
+     * @param id The board id.
+     * @return The records of the board.
+     */
+    @GetMapping(value = "/boards/{id}/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> exportBoard(@PathVariable final long id) {
+        return queryWithBuilder(() -> {
+            var export = boardService.exportBoard(id);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(export::writeTo);
+        });
+    }
+
     @PostMapping("/boards")
     @ResponseBody
     private ResponseEntity<Board> newBoard() {
         return ResponseEntity.ok(boardService.newBoard());
     }
 
+    /**
+     * Imports a board, from its JSON, as {@code /boards/{id}} returns it.
+     *
+     * @param document The document, read as it is received.
+     * @return The id of the new board.
+     */
+    @PostMapping(value = "/boards/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    private ResponseEntity<Long> importBoard(final InputStream document) {
+        return importBoard(() -> boardService.importBoard(document));
+    }
+
+    /**
+     * Imports a board, from the NDJSON records that {@code /boards/{id}/export} wrote.
+     *
+     * @param records The records, read as they are received.
+     * @return The id of the new board.
+     */
+    @PostMapping(value = "/boards/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseBody
+    private ResponseEntity<Long> importRecords(final InputStream records) {
+        return importBoard(() -> boardService.importRecords(records));
+    }
+
+    @FunctionalInterface
+    interface Import {
+        Board read() throws IOException;
+    }
+
+    private ResponseEntity<Long> importBoard(final Import document) {
+        return queryWithBuilder(() -> {
+            Board board;
+            try {
+                board = document.read();
+            } catch (IOException e) {
+                return ResponseEntity.badRequest().header("Message", e.getMessage()).build();
+            }
+
+            // nobody is subscribed to the new board yet, only to the list of boards.
+            listeners.forEach((k, l) -> l.accept(new BoardImportedEvent(board.getId())));
+            return ResponseEntity.ok(board.getId());
+        });
+    }
+
     @PutMapping("/boards/{boardId}/board_title")
     @ResponseBody
-    private ResponseEntity<Void> setBoardTitle(@PathVariable final long boardId, @RequestBody final String boardTitle) {
-        listeners.forEach((k, l) -> l.accept(new BoardTitleSetEvent(boardId, boardTitle)));
-        return queryVoid(() -> boardService.setBoardTitle(boardId, boardTitle));
+    private ResponseEntity<Void> setBoardTitle(@PathVariable final long boardId, @RequestBody final String boardTitle,
+                                               @RequestParam(required = false) final Long version) {
+        return queryVoid(() -> {
+            boardService.setBoardTitle(boardId, boardTitle, version);
+            listeners.forEach((k, l) -> l.accept(new BoardTitleSetEvent(boardId, boardTitle)));
+        });
     }
 
     @DeleteMapping("/boards/{boardId}")
     @ResponseBody
     private ResponseEntity<Void> deleteBoard(@PathVariable final long boardId) {
-        listeners.forEach((k, l) -> l.accept(new BoardRemovedEvent()));
-        return queryVoid(() -> boardService.deleteBoard(boardId));
+        return queryVoid(() -> {
+            boardService.deleteBoard(boardId);
+            listeners.forEach((k, l) -> l.accept(new BoardRemovedEvent()));
+        });
     }
     @GetMapping("/updates")
     private DeferredResult<ResponseEntity<ServerToClientEvent>> longPollingUpdates() {
@@ -122,6 +198,20 @@ public final class BoardController {
         return res;
     }
 
+    /**
+     * Applies a batch of operations to a board, in a single transaction.
+     *
+     * @param boardId    The board id.
+     * @param operations The operations, applied in order.
+     * @return For each operation, the id of the entity it created, or 0 if it didn't create one.
+     */
+    @PostMapping("/boards/{boardId}/batch")
+    @ResponseBody
+    private ResponseEntity<List<Long>> batch(@PathVariable final long boardId,
+                                             @RequestBody final List<BoardOperation> operations) {
+        return query(() -> boardService.batch(boardId, operations));
+    }
+
     @PostMapping("/boards/{boardId}/lists")
     @ResponseBody
     private ResponseEntity<CardList> newList(@PathVariable final long boardId) {
@@ -137,8 +227,9 @@ public final class BoardController {
     @PutMapping("/boards/{boardId}/lists/{listId}/list_title")
     @ResponseBody
     private ResponseEntity<Void> setCardListTitle(@PathVariable final long boardId, @PathVariable final long listId,
-                                                  @RequestBody final String cardListTitle) {
-        return queryVoid(() -> boardService.setCardListTitle(boardId, listId, cardListTitle));
+                                                  @RequestBody final String cardListTitle,
+                                                  @RequestParam(required = false) final Long version) {
+        return queryVoid(() -> boardService.setCardListTitle(boardId, listId, cardListTitle, version));
     }
 
     @DeleteMapping("/boards/{boardId}/lists/{listId}")
@@ -170,27 +261,30 @@ public final class BoardController {
     @PutMapping("/boards/{boardId}/lists/{listId}/cards/{cardId}/card_title")
     @ResponseBody
     private ResponseEntity<Void> setCardTitle(@PathVariable final long boardId, @PathVariable final long listId,
-                                              @PathVariable final long cardId, @RequestBody final String cardTitle) {
-        return queryVoid(() -> boardService.setCardTitle(boardId, listId, cardId, cardTitle));
+                                              @PathVariable final long cardId, @RequestBody final String cardTitle,
+                                              @RequestParam(required = false) final Long version) {
+        return queryVoid(() -> boardService.setCardTitle(boardId, listId, cardId, cardTitle, version));
     }
 
     @PutMapping("/boards/{boardId}/lists/{listId}/cards/{cardId}/card_text")
     @ResponseBody
     private ResponseEntity<Void> setCardText(@PathVariable final long boardId, @PathVariable final long listId,
                                              @PathVariable final long cardId,
-                                             @RequestBody(required = false) final String cardText) {
-        return queryVoid(
-                () -> boardService.setCardText(boardId, listId, cardId, Objects.requireNonNullElse(cardText, "")));
+                                             @RequestBody(required = false) final String cardText,
+                                             @RequestParam(required = false) final Long version) {
+        return queryVoid(() -> boardService.setCardText(boardId, listId, cardId,
+                Objects.requireNonNullElse(cardText, ""), version));
     }
 
     @PutMapping("/boards/{boardId}/lists/{listId}/cards/{cardId}/due_date")
     @ResponseBody
     private ResponseEntity<Void> setCardDueDate(@PathVariable final long boardId, @PathVariable final long listId,
                                                 @PathVariable final long cardId,
-                                                @RequestBody final String dueDateString) {
+                                                @RequestBody final String dueDateString,
+                                                @RequestParam(required = false) final Long version) {
         ZonedDateTime dueDate = ZonedDateTime.parse(dueDateString);
 
-        return queryVoid(() -> boardService.setCardDueDate(boardId, listId, cardId, dueDate));
+        return queryVoid(() -> boardService.setCardDueDate(boardId, listId, cardId, dueDate, version));
     }
 
     @PutMapping("/boards/{boardId}/lists/{listId}/cards/{cardId}/tags/+{tagId}")
@@ -286,38 +380,42 @@ public final class BoardController {
 
     @PutMapping("/boards/{boardId}/fontColor")
     @ResponseBody
-    private ResponseEntity<Void> setBoardFont(@PathVariable final long boardId, @RequestBody final String fontColor) {
+    private ResponseEntity<Void> setBoardFont(@PathVariable final long boardId, @RequestBody final String fontColor,
+                                              @RequestParam(required = false) final Long version) {
         String actualFontColor = nullableStr(fontColor);
 
-        return queryVoid(() -> boardService.setBoardFont(boardId, actualFontColor));
+        return queryVoid(() -> boardService.setBoardFont(boardId, actualFontColor, version));
     }
 
     @PutMapping("/boards/{boardId}/backgroundColor")
     @ResponseBody
     private ResponseEntity<Void> setBoardBackground(@PathVariable final long boardId,
-                                                    @RequestBody final String backgroundColor) {
+                                                    @RequestBody final String backgroundColor,
+                                                    @RequestParam(required = false) final Long version) {
         String actualBackgroundColor = nullableStr(backgroundColor);
 
-        return queryVoid(() -> boardService.setBoardBackground(boardId, actualBackgroundColor));
+        return queryVoid(() -> boardService.setBoardBackground(boardId, actualBackgroundColor, version));
     }
 
     @PutMapping("/boards/{boardId}/lists/{listId}/fontColor")
     @ResponseBody
     private ResponseEntity<Void> setCardListFont(@PathVariable final long boardId, @PathVariable final long listId,
-                                                 @RequestBody final String fontColor) {
+                                                 @RequestBody final String fontColor,
+                                                 @RequestParam(required = false) final Long version) {
         String actualFontColor = nullableStr(fontColor);
 
-        return queryVoid(() -> boardService.setCardListFont(boardId, listId, actualFontColor));
+        return queryVoid(() -> boardService.setCardListFont(boardId, listId, actualFontColor, version));
     }
 
     @PutMapping("/boards/{boardId}/lists/{listId}/backgroundColor")
     @ResponseBody
     private ResponseEntity<Void> setCardListBackground(@PathVariable final long boardId,
                                                        @PathVariable final long listId,
-                                                       @RequestBody final String backgroundColor) {
+                                                       @RequestBody final String backgroundColor,
+                                                       @RequestParam(required = false) final Long version) {
         String actualBackgroundColor = nullableStr(backgroundColor);
 
-        return queryVoid(() -> boardService.setCardListBackground(boardId, listId, actualBackgroundColor));
+        return queryVoid(() -> boardService.setCardListBackground(boardId, listId, actualBackgroundColor, version));
     }
 
     @PostMapping("/boards/{boardId}/presets")
@@ -373,15 +471,17 @@ public final class BoardController {
 
     @PutMapping("/boards/{boardId}/defaultPreset")
     @ResponseBody
-    private ResponseEntity<Void> setDefaultPreset(@PathVariable final long boardId, @RequestBody final long presetKey) {
-        return queryVoid(() -> boardService.setDefaultPreset(boardId, presetKey));
+    private ResponseEntity<Void> setDefaultPreset(@PathVariable final long boardId, @RequestBody final long presetKey,
+                                                  @RequestParam(required = false) final Long version) {
+        return queryVoid(() -> boardService.setDefaultPreset(boardId, presetKey, version));
     }
 
     @PutMapping("/boards/{boardId}/lists/{listId}/cards/{cardId}/preset")
     @ResponseBody
     private ResponseEntity<Void> setCardPreset(@PathVariable final long boardId, @PathVariable final long listId,
-                                               @PathVariable final long cardId, @RequestBody final long presetKey) {
-        return queryVoid(() -> boardService.setCardPreset(boardId, listId, cardId, presetKey));
+                                               @PathVariable final long cardId, @RequestBody final long presetKey,
+                                               @RequestParam(required = false) final Long version) {
+        return queryVoid(() -> boardService.setCardPreset(boardId, listId, cardId, presetKey, version));
     }
 
     @PostMapping("/boards/{boardId}/lists/{listId}/cards/{cardId}/subtasks")
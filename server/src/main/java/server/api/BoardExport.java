@@ -0,0 +1,179 @@
+package server.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.CardSubtask;
+import commons.ColorPreset;
+import commons.Tag;
+import server.database.BoardDocuments;
+import server.database.BoardPages;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Exports a board as NDJSON: one record per line, each with a "type" (board, preset, tag, list, card or subtask), and
+ * the ids of its parents, so that it can be read one record at a time.
+ * <p>
+ * The board is read from its store rather than from its live instance, so exporting a board doesn't load it into the
+ * board cache, nor hold up its lane. The cards of each list are read a page of at most {@link #CHUNK_CARDS} cards at a
+ * time, and the records of a page are encoded into a buffer and written out before the next page is read, so the
+ * memory used doesn't grow with the size of the board. Each page is consistent by itself, but patches can land between
+ * two pages.
+ */
+final class BoardExport {
+    /**
+     * The maximum number of cards read from the store at once.
+     */
+    static final int CHUNK_CARDS = 256;
+
+    private final BoardPages pages;
+    private final List<CardList> cardLists;
+    private final byte[] header;
+
+    /**
+     * Constructor. Encodes the header of the board, read before the export is created, so that a missing board fails
+     * before anything is written.
+     *
+     * @param pages The board, as read from its store.
+     */
+    BoardExport(final BoardPages pages) {
+        this.pages = pages;
+
+        var board = pages.board();
+        var header = new ByteArrayOutputStream();
+        encode(header, generator -> writeHeader(generator, board));
+        this.header = header.toByteArray();
+        this.cardLists = List.copyOf(board.getCardLists());
+    }
+
+    @FunctionalInterface
+    private interface Records {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private static void encode(final ByteArrayOutputStream out, final Records records) {
+        try (var generator = BoardDocuments.mapper().getFactory().createGenerator(out)) {
+            // the records are separated by new lines, not by the default separator of root values.
+            generator.setRootValueSeparator(null);
+            records.write(generator);
+        } catch (IOException e) {
+            throw new IllegalStateException("could not encode the board", e);
+        }
+    }
+
+    /**
+     * Writes the board. The lists are the ones the board had when it was read; a list removed since has no cards left
+     * to read.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    void writeTo(final OutputStream out) throws IOException {
+        out.write(this.header);
+
+        var chunk = new ByteArrayOutputStream();
+        for (var list : this.cardLists) {
+            encode(chunk, generator -> writeList(generator, list));
+
+            Card last = null;
+            List<Card> cards;
+            do {
+                cards = this.pages.cards(list.getId(), last, CHUNK_CARDS);
+                var page = cards;
+                encode(chunk, generator -> {
+                    for (var card : page) {
+                        writeCard(generator, card);
+                    }
+                });
+
+                chunk.writeTo(out);
+                out.flush();
+                chunk.reset();
+                last = cards.isEmpty() ? null : cards.get(cards.size() - 1);
+            } while (cards.size() == CHUNK_CARDS);
+        }
+    }
+
+    private static void end(final JsonGenerator generator) throws IOException {
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeHeader(final JsonGenerator generator, final Board board) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "board");
+        generator.writeNumberField("id", board.getId());
+        generator.writeStringField("title", board.getTitle());
+        generator.writeStringField("fontColor", board.getFontColor());
+        generator.writeStringField("backgroundColor", board.getBackgroundColor());
+        generator.writeNumberField("defaultCardColorPreset", board.getDefaultCardColorPreset());
+        generator.writeNumberField("version", board.getVersion());
+        end(generator);
+
+        for (ColorPreset preset : board.getPresets()) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "preset");
+            generator.writeNumberField("id", preset.getId());
+            generator.writeStringField("name", preset.getName());
+            generator.writeStringField("background", preset.getBackground());
+            generator.writeStringField("foreground", preset.getForeground());
+            end(generator);
+        }
+
+        for (Tag tag : board.getTags()) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "tag");
+            generator.writeNumberField("id", tag.getId());
+            generator.writeStringField("name", tag.getName());
+            generator.writeStringField("fontColor", tag.getFontColor());
+            generator.writeStringField("backgroundColor", tag.getBackgroundColor());
+            end(generator);
+        }
+    }
+
+    private static void writeList(final JsonGenerator generator, final CardList list) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "list");
+        generator.writeNumberField("id", list.getId());
+        generator.writeStringField("title", list.getTitle());
+        generator.writeStringField("fontColor", list.getFontColor());
+        generator.writeStringField("backgroundColor", list.getBackgroundColor());
+        generator.writeNumberField("version", list.getVersion());
+        end(generator);
+    }
+
+    private static void writeCard(final JsonGenerator generator, final Card card) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "card");
+        generator.writeNumberField("id", card.getId());
+        generator.writeNumberField("list", card.getCardList());
+        generator.writeStringField("title", card.getTitle());
+        generator.writeStringField("text", card.getText());
+        generator.writeStringField("category", card.getCategory());
+        generator.writeFieldName("dueDate");
+        generator.writeObject(card.getDueDate());
+        generator.writeNumberField("colorPresetKey", card.getColorPresetKey());
+        generator.writeArrayFieldStart("tags");
+        for (Tag tag : card.getTags()) {
+            generator.writeNumber(tag.getId());
+        }
+        generator.writeEndArray();
+        generator.writeNumberField("version", card.getVersion());
+        end(generator);
+
+        for (CardSubtask subtask : card.getSubtasks()) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "subtask");
+            generator.writeNumberField("id", subtask.getId());
+            generator.writeNumberField("card", card.getId());
+            generator.writeStringField("name", subtask.getName());
+            generator.writeBooleanField("completed", subtask.isCompleted());
+            end(generator);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package server.api;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import server.api.exceptions.BoardBusy;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer execution lanes, one per board.
+ * <p>
+ * All the tasks submitted for a board run one after the other, in submission order, so the patches applied to a live
+ * board (and the events broadcast because of them) can never interleave. Lanes of different boards run in parallel
+ * on a shared pool of threads.
+ * <p>
+ * Every lane has a bounded queue; once it is full, new tasks are rejected with {@link BoardBusy} instead of piling up.
+ */
+@Component
+public final class BoardLanes {
+    /**
+     * The number of tasks a lane runs before giving its thread back to the pool, so that a busy board cannot starve
+     * the others.
+     */
+    private static final int TASKS_PER_TURN = 64;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoardLanes.class);
+
+    private static final ThreadLocal<Lane> CURRENT_LANE = new ThreadLocal<>();
+
+    private final int queueCapacity;
+    private final int threads;
+    private final ExecutorService pool;
+    private final ConcurrentHashMap<Long, Lane> lanes;
+
+    private final AtomicLong rejected;
+
+    /**
+     * Constructor.
+     *
+     * @param threads       The number of threads shared by the lanes, or 0 to use one thread per core.
+     * @param queueCapacity The maximum number of pending tasks per board.
+     */
+    public BoardLanes(@Value("${talio.board-lanes.threads:0}") final int threads,
+                      @Value("${talio.board-lanes.queue-capacity:1024}") final int queueCapacity) {
+        if (threads < 0 || queueCapacity < 1) {
+            throw new IllegalArgumentException("invalid board lane limits");
+        }
+
+        var poolSize = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        var threadCounter = new AtomicInteger();
+
+        this.queueCapacity = queueCapacity;
+        this.threads = poolSize;
+        this.pool = Executors.newFixedThreadPool(poolSize, r -> {
+            var t = new Thread(r, "board-lane-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.lanes = new ConcurrentHashMap<>();
+        this.rejected = new AtomicLong();
+    }
+
+    /**
+     * Runs a task on the lane of a board, and waits for its result.
+     * <p>
+     * If called from a task that is already running on the lane of the same board, the task is run directly.
+     *
+     * @param boardId The board id.
+     * @param task    The task.
+     * @param <T>     The type of the result.
+     * @return The result of the task.
+     * @throws BoardBusy If the lane of the board has too many pending tasks.
+     */
+    public <T> T call(final long boardId, final Supplier<T> task) {
+        var current = CURRENT_LANE.get();
+        if (current != null && current.boardId == boardId) {
+            return task.get();
+        }
+
+        var future = new CompletableFuture<T>();
+
+        this.offer(boardId, () -> {
+            try {
+                future.complete(task.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a task on the lane of a board, and waits for it to finish.
+     *
+     * @param boardId The board id.
+     * @param task    The task.
+     * @throws BoardBusy If the lane of the board has too many pending tasks.
+     */
+    public void run(final long boardId, final Runnable task) {
+        this.call(boardId, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Queues a task on the lane of a board, without waiting for it. Exceptions thrown by the task are only logged.
+     *
+     * @param boardId The board id.
+     * @param task    The task.
+     * @throws BoardBusy If the lane of the board has too many pending tasks.
+     */
+    public void submit(final long boardId, final Runnable task) {
+        this.offer(boardId, () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Task submitted to the lane of board {} failed", boardId, e);
+            }
+        });
+    }
+
+    private void offer(final long boardId, final Runnable task) {
+        while (!this.lanes.computeIfAbsent(boardId, Lane::new).offer(task)) {
+            // the lane was dropped in the meantime; the next one for the board takes over.
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Gets the number of threads shared by the lanes, which is the most tasks that can be running on lanes at once.
+     *
+     * @return The number of threads.
+     */
+    public int threads() {
+        return this.threads;
+    }
+
+    /**
+     * Wraps a task, so that wherever it runs, it counts as running on the lane of the caller. Meant for handing work
+     * over to another thread while the lane waits for it to finish; the lane must not run anything else meanwhile.
+     *
+     * @param task The task.
+     * @return The wrapped task.
+     */
+    public Runnable onCurrentLane(final Runnable task) {
+        var lane = CURRENT_LANE.get();
+
+        return () -> {
+            var previous = CURRENT_LANE.get();
+            CURRENT_LANE.set(lane);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    CURRENT_LANE.set(previous);
+                } else {
+                    CURRENT_LANE.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets the sequence number of a board: the number of tasks that ran on its lane so far.
+     *
+     * @param boardId The board id.
+     * @return The sequence number.
+     */
+    public long sequence(final long boardId) {
+        var lane = this.lanes.get(boardId);
+        return lane == null ? 0 : lane.sequence;
+    }
+
+    /**
+     * Drops the lane of a board that was removed. Tasks already queued on it (and those queued until it is dropped)
+     * still run on it; it is only dropped once it is idle, so that there is never more than one lane for the board.
+     *
+     * @param boardId The board id.
+     */
+    public void forget(final long boardId) {
+        var lane = this.lanes.get(boardId);
+        if (lane != null) {
+            lane.retire();
+        }
+    }
+
+    /**
+     * Stops the lane threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Returns a snapshot of the lane metrics.
+     *
+     * @return The metrics.
+     */
+    public Stats stats() {
+        int pending = 0;
+        int maxPending = 0;
+        for (var lane : this.lanes.values()) {
+            var size = lane.pending();
+            pending += size;
+            maxPending = Math.max(maxPending, size);
+        }
+
+        return new Stats(this.lanes.size(), pending, maxPending, this.rejected.get(), this.queueCapacity);
+    }
+
+    private final class Lane implements Runnable {
+        private final long boardId;
+        private final ArrayDeque<Runnable> queue;
+        private boolean scheduled;
+        // a retired lane is dropped once it is idle; a dropped lane is closed, and takes no more tasks.
+        private boolean retired;
+        private boolean closed;
+
+        // only written by the thread currently running the lane.
+        private volatile long sequence;
+
+        private Lane(final long boardId) {
+            this.boardId = boardId;
+            this.queue = new ArrayDeque<>();
+        }
+
+        private synchronized int pending() {
+            return this.queue.size();
+        }
+
+        /**
+         * Queues a task.
+         *
+         * @param task The task.
+         * @return Whether it was queued, false if the lane was dropped.
+         */
+        private synchronized boolean offer(final Runnable task) {
+            if (this.closed) {
+                return false;
+            }
+
+            if (this.queue.size() >= BoardLanes.this.queueCapacity) {
+                BoardLanes.this.rejected.incrementAndGet();
+                throw new BoardBusy(this.boardId);
+            }
+
+            this.queue.add(task);
+
+            if (!this.scheduled) {
+                this.scheduled = true;
+                BoardLanes.this.pool.execute(this);
+            }
+
+            return true;
+        }
+
+        private synchronized void retire() {
+            this.retired = true;
+            if (!this.scheduled) {
+                this.drop();
+            }
+        }
+
+        private void drop() {
+            this.closed = true;
+            BoardLanes.this.lanes.remove(this.boardId, this);
+        }
+
+        private synchronized Runnable poll() {
+            var task = this.queue.poll();
+            if (task == null) {
+                this.scheduled = false;
+                if (this.retired) {
+                    this.drop();
+                }
+            }
+
+            return task;
+        }
+
+        @Override
+        public void run() {
+            CURRENT_LANE.set(this);
+            try {
+                for (int i = 0; i < TASKS_PER_TURN; i++) {
+                    var task = this.poll();
+                    if (task == null) {
+                        return;
+                    }
+
+                    this.sequence++;
+                    task.run();
+                }
+
+                // still scheduled, but let the other lanes have a go before continuing.
+                BoardLanes.this.pool.execute(this);
+            } finally {
+                CURRENT_LANE.remove();
+            }
+        }
+    }
+
+    /**
+     * Lane metrics.
+     *
+     * @param lanes         The number of boards that have a lane.
+     * @param pending       The number of tasks waiting, summed across all lanes.
+     * @param maxPending    The number of tasks waiting on the busiest lane.
+     * @param rejected      The number of tasks rejected because a lane was full.
+     * @param queueCapacity The configured capacity of a lane.
+     */
+    public record Stats(int lanes, int pending, int maxPending, long rejected, int queueCapacity) {
+    }
+}
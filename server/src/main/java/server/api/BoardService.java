@@ -1,168 +1,352 @@
 package server.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import commons.Board;
 import commons.Card;
 import commons.CardList;
 import commons.CardSubtask;
 import commons.ColorPreset;
+import commons.OrderKeys;
 import commons.Tag;
-import org.springframework.data.domain.Sort;
+import commons.operations.BoardOperation;
 import org.springframework.stereotype.Service;
-import server.Config;
+import server.api.exceptions.BoardBusy;
 import server.api.exceptions.NoSuchBoard;
-import server.database.BoardRepository;
-import server.database.CardListRepository;
-import server.database.CardRepository;
-import server.database.ColorPresetRepository;
-import server.database.SubtaskRepository;
-import server.database.TagRepository;
+import server.api.exceptions.VersionConflict;
+import server.database.BoardImport;
+import server.database.BoardStore;
+import server.database.EntityStore;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 @Service
 public final class BoardService {
-    private final BoardRepository boardRepository;
-    private final CardListRepository cardListRepository;
-    private final CardRepository cardRepository;
-    private final TagRepository tagRepository;
-    private final ColorPresetRepository colorPresetRepository;
-    private final SubtaskRepository subtaskRepository;
+    private final BoardStore store;
+    private final EntityStore<Board> boards;
+    private final EntityStore<CardList> cardLists;
+    private final EntityStore<Card> cards;
+    private final EntityStore<Tag> tags;
+    private final EntityStore<ColorPreset> presets;
+    private final EntityStore<CardSubtask> subtasks;
 
     private final MessageBroker messageBroker;
+    private final BoardCache boardCache;
+    private final BoardLanes boardLanes;
+    private final WriteBehind writeBehind;
+    private final GroupCommitter groupCommitter;
+    private final ObjectMapper mapper;
 
     /**
      * Constructor.
      *
-     * @param config        Config.
-     * @param messageBroker The message broker.
+     * @param store          The persistence backend of the boards.
+     * @param messageBroker  The message broker.
+     * @param boardCache     The cache of live boards.
+     * @param boardLanes     The execution lanes of the boards.
+     * @param writeBehind    The write-behind of field updates.
+     * @param groupCommitter The committer of the board mutations.
+     * @param mapper         The object mapper the responses are written with.
      */
-    public BoardService(final Config config, final MessageBroker messageBroker) {
-        this.boardRepository = config.getBoardRepository();
-        this.cardListRepository = config.getCardListRepository();
-        this.cardRepository = config.getCardRepository();
-        this.tagRepository = config.getTagRepository();
-        this.colorPresetRepository = config.getColorPresetRepository();
-        this.subtaskRepository = config.getSubtaskRepository();
+    public BoardService(final BoardStore store, final MessageBroker messageBroker, final BoardCache boardCache,
+                        final BoardLanes boardLanes, final WriteBehind writeBehind,
+                        final GroupCommitter groupCommitter, final ObjectMapper mapper) {
+        this.store = store;
+        this.boards = store.boards();
+        this.cardLists = store.cardLists();
+        this.cards = store.cards();
+        this.tags = store.tags();
+        this.presets = store.presets();
+        this.subtasks = store.subtasks();
 
         this.messageBroker = messageBroker;
+        this.boardCache = boardCache;
+        this.boardLanes = boardLanes;
+        this.writeBehind = writeBehind;
+        this.groupCommitter = groupCommitter;
+        this.mapper = mapper;
+
+        this.messageBroker.setJournal(store::journal);
+        this.boardCache.onEviction(this.messageBroker::forgetBoard);
     }
 
     Boolean hasAnyBoard() {
-        return boardRepository.count() > 0;
+        return store.count() > 0;
     }
 
     /**
-     * Retrieves a list of all boards sorted by ID in ascending order.
+     * Retrieves a list of all boards sorted by ID in ascending order, without their lists, tags and presets.
      *
      * @return a List of Board objects.
      */
     List<Board> allSortedBoards() {
-        return this.boardRepository.findAll(Sort.by(Sort.Direction.ASC, "id"));
+        return this.store.findAll();
     }
 
     /**
-     * Retrieves a list of specific boards.
+     * Retrieves a list of specific boards, without their lists, tags and presets.
      *
      * @param boardIds the IDs of the boards to get.
      * @return a List of Board objects.
      */
     List<Board> specificBoards(final Iterable<Long> boardIds) {
-        return this.boardRepository.findAllById(boardIds);
+        return this.store.findAllById(boardIds);
     }
 
     Board getBoard(final long id) {
-        return boardRepository.findById(id).orElseThrow(() -> new NoSuchBoard(id));
+        return snapshot(id, b -> b, Board.class);
+    }
+
+    /**
+     * Starts exporting a board, as NDJSON records read from the store a page of cards at a time, without loading the
+     * board into the board cache.
+     *
+     * @param id The board id.
+     * @return The export, to be written out.
+     * @throws NoSuchBoard If there is no such board.
+     */
+    BoardExport exportBoard(final long id) {
+        // the patches submitted before are done, and their updates written, before the board is read from the store.
+        boardLanes.run(id, () -> writeBehind.flush(id));
+
+        return new BoardExport(store.pages(id).orElseThrow(() -> new NoSuchBoard(id)));
+    }
+
+    /**
+     * Gets the live instance of a board, from the board cache. Should only be called from the lane of the board.
+     *
+     * @param id The board id.
+     * @return The board.
+     * @throws NoSuchBoard If there is no such board.
+     */
+    private Board liveBoard(final long id) {
+        return boardCache.get(id, this::loadBoard).orElseThrow(() -> new NoSuchBoard(id));
+    }
+
+    /**
+     * Loads the whole board graph from the store, to become the live instance of the board.
+     *
+     * @param id The board id.
+     * @return The board, if it exists.
+     */
+    private Optional<Board> loadBoard(final long id) {
+        // the board might have been evicted with updates that were not written yet.
+        writeBehind.flush(id);
+
+        return store.load(id);
     }
 
     Board newBoard() {
-        return boardRepository.save(new Board());
+        var board = boards.save(new Board());
+        // copied before the board becomes live, and can be patched.
+        var created = copy(board, Board.class);
+
+        boardCache.put(board);
+
+        return created;
     }
 
-    void setBoardTitle(
-            final long boardId,
-            final String boardTitle
-    ) {
-        Board b = getBoard(boardId);
-        var bw = messageBroker.getWrapper(b);
+    /**
+     * Imports a board from its JSON, as a new board. The document is decoded before the rows are written, and the rows
+     * are written in one transaction.
+     *
+     * @param document The document.
+     * @return The new board.
+     * @throws IOException If the document could not be read.
+     */
+    Board importBoard(final InputStream document) throws IOException {
+        // the board becomes live when it is first read, loaded the same way as the other boards.
+        return store.importBoard(BoardImport.read(document));
+    }
 
-        bw.patch(bp -> {
-            bp.setTitle(boardTitle);
-            boardRepository.save(bp.getBaseBoard());
-        });
+    /**
+     * Imports a board from the NDJSON records it was exported as, as a new board. The records are decoded one at a
+     * time, before the rows are written.
+     *
+     * @param records The records.
+     * @return The new board.
+     * @throws IOException If the records could not be read.
+     */
+    Board importRecords(final InputStream records) throws IOException {
+        return store.importBoard(BoardImport.readRecords(records));
     }
 
-    void deleteBoard(final long boardId) {
-        Board b = getBoard(boardId);
-        var bw = messageBroker.getWrapper(b);
+    /**
+     * Reads from the live instance of the board, on the lane of the board, so that the read is ordered with respect
+     * to the patches submitted before it.
+     *
+     * @param boardId The board id.
+     * @param reader  The reader.
+     * @param <T>     The type of the result.
+     * @return The result of the reader.
+     */
+    private <T> T read(final long boardId, final Function<Board, T> reader) {
+        return boardLanes.call(boardId, () -> reader.apply(liveBoard(boardId)));
+    }
 
-        bw.patch(bp -> {
-            bp.removeBoard();
-            this.boardRepository.deleteById(boardId);
+    /**
+     * Reads an entity of the live instance of the board, on the lane of the board, and copies it there.
+     *
+     * @param boardId The board id.
+     * @param reader  The reader.
+     * @param type    The type of the entity.
+     * @param <T>     The type of the entity.
+     * @return The copy of the entity.
+     */
+    private <T> T snapshot(final long boardId, final Function<Board, T> reader, final Class<T> type) {
+        return read(boardId, b -> copy(reader.apply(b), type));
+    }
+
+    /**
+     * Copies an entity of a live board through its JSON, which is all that a response contains of it. The live board
+     * goes on being patched once the lane is left, so the responses are written from copies made on the lane, rather
+     * than from the live entities. Should only be called from the lane of the board.
+     *
+     * @param entity The entity.
+     * @param type   The type of the entity.
+     * @param <T>    The type of the entity.
+     * @return The copy.
+     */
+    private <T> T copy(final T entity, final Class<T> type) {
+        return mapper.convertValue(entity, type);
+    }
+
+    /**
+     * Patches the live instance of the board, on the lane of the board. The repository calls made by the patcher run
+     * in a single transaction, and the events caused by the patch are only published once it commits, together, as a
+     * single {@link commons.events.EventBatch} when there are several of them (e.g. deleting a list, along with its
+     * cards), which the clients apply at once.
+     * <p>
+     * This is meant for structural changes (creating, moving or deleting entities), so the pending field updates of
+     * the board are written first, as part of the same transaction.
+     * <p>
+     * If the patch fails, the transaction is rolled back, and the board is evicted from the board cache, since it
+     * might have been left partially patched; the next access reloads it from the database.
+     * <p>
+     * The transaction is run by the {@link GroupCommitter}, which may commit it together with the patches of other
+     * boards, and may run the patch again on its own; so the live board is only looked up inside of it.
+     *
+     * @param boardId The board id.
+     * @param patcher The patcher.
+     */
+    private void patch(final long boardId, final Consumer<Board.BoardPatcher> patcher) {
+        boardLanes.run(boardId, () -> {
+            try {
+                messageBroker.batched(boardId, () -> {
+                    groupCommitter.execute(boardId, () -> {
+                        writeBehind.flush(boardId);
+                        messageBroker.getWrapper(liveBoard(boardId)).patch(patcher);
+                    });
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                boardCache.evict(boardId);
+                throw e;
+            }
         });
     }
 
-    CardList newList(final long boardId) {
-        Board b = getBoard(boardId);
-        var bw = messageBroker.getWrapper(b);
+    /**
+     * Updates fields of the live instance of the board, on the lane of the board. The patcher should persist the
+     * entities it changes through {@link WriteBehind#save}; when write-behind is enabled, the changes are broadcast
+     * right away, and written later.
+     *
+     * @param boardId The board id.
+     * @param patcher The patcher.
+     */
+    private void update(final long boardId, final Consumer<Board.BoardPatcher> patcher) {
+        if (!writeBehind.isEnabled()) {
+            patch(boardId, patcher);
+            return;
+        }
 
-        var cardList = new CardList();
+        boardLanes.run(boardId, () -> {
+            var board = liveBoard(boardId);
 
-        cardList.presaveForBoard(b);
+            try {
+                messageBroker.getWrapper(board).patch(patcher);
+            } catch (RuntimeException e) {
+                boardCache.evict(boardId);
+                throw e;
+            }
+        });
+    }
 
-        var saved = cardListRepository.save(cardList);
+    void setBoardTitle(
+            final long boardId,
+            final String boardTitle,
+            final Long expectedVersion
+    ) {
+        ifVersion(boardId, expectedVersion, Board::getVersion, () -> patch(boardId, bp -> {
+            bp.setTitle(boardTitle);
+            boards.update(bp.getBaseBoard(), Set.of("title"));
+        }));
+    }
+
+    void deleteBoard(final long boardId) {
+        patch(boardId, bp -> {
+            bp.removeBoard();
+            this.boards.deleteById(boardId);
+        });
 
-        bw.patch(p -> p.addCardList(saved));
+        boardCache.evict(boardId);
+        messageBroker.forgetBoard(boardId);
+        boardLanes.forget(boardId);
+    }
 
-        boardRepository.save(b);
+    CardList newList(final long boardId) {
+        var saved = new CardList[1];
+        var created = new CardList[1];
+
+        patch(boardId, p -> {
+            var cardList = new CardList();
+            cardList.presaveForBoard(p.getBaseBoard());
+            saved[0] = cardLists.save(cardList);
+
+            // adding it assigns the order key.
+            p.addCardList(saved[0]);
+            cardLists.save(saved[0]);
+            created[0] = copy(saved[0], CardList.class);
+        });
 
-        return saved;
+        return created[0];
     }
 
 
     CardList getCardList(final long boardId,
                          final long listId) {
-        Board b = getBoard(boardId);
-
-        return b.cardListById(listId);
+        return snapshot(boardId, b -> b.cardListById(listId), CardList.class);
     }
 
     void setCardListTitle(final long boardId,
                           final long listId,
-                          final String cardListTitle) {
-        Board b = getBoard(boardId);
-        var bw = messageBroker.getWrapper(b);
-
-        bw.patch(bp -> bp.patchCardList(listId, lp -> {
-            lp.setTitle(cardListTitle);
-            cardListRepository.save(lp.getBaseCardList());
-        }));
+                          final String cardListTitle,
+                          final Long expectedVersion) {
+        patchCardList(boardId, listId, "title", expectedVersion, lp -> lp.setTitle(cardListTitle));
     }
 
     void deleteCardList(final long boardId,
                         final long listId) {
-        Board b = getBoard(boardId);
-        var bw = messageBroker.getWrapper(b);
-
-        bw.patch(p -> {
+        patch(boardId, p -> {
             p.removeCardList(listId);
-            cardListRepository.deleteById(listId);
-            boardRepository.save(p.getBaseBoard());
+            cardLists.deleteById(listId);
         });
     }
 
     void deleteCard(final long boardId,
                     final long listId,
                     final long cardId) {
-        Board board = getBoard(boardId);
-        var boardWrapper = messageBroker.getWrapper(board);
-
-        boardWrapper.patch(boardPatcher -> boardPatcher.patchCardList(listId, cardListPatcher -> {
+        patch(boardId, boardPatcher -> boardPatcher.patchCardList(listId, cardListPatcher -> {
             cardListPatcher.removeCard(cardId);
-            this.cardRepository.deleteById(cardId);
-            this.cardListRepository.save(cardListPatcher.getBaseCardList());
-            this.boardRepository.save(boardPatcher.getBaseBoard());
+            this.cards.deleteById(cardId);
         }));
     }
 
@@ -185,101 +369,113 @@ public final class BoardService {
             throw new IllegalArgumentException("card list of card should be 0");
         }
 
-
-        Board b = getBoard(boardId);
-        var bw = messageBroker.getWrapper(b);
-
         Card[] saved = new Card[1];
+        Card[] created = new Card[1];
 
-        bw.patch(bp -> bp.patchCardList(listId, lp -> {
+        patch(boardId, bp -> bp.patchCardList(listId, lp -> {
             card.presaveForList(lp.getBaseCardList());
 
-            saved[0] = cardRepository.save(card);
+            saved[0] = cards.save(card);
 
+            // adding it assigns the order key.
             lp.addCard(saved[0]);
 
-            cardListRepository.save(lp.getBaseCardList());
+            cards.save(saved[0]);
+            created[0] = copy(saved[0], Card.class);
         }));
 
-        return saved[0];
+        return created[0];
     }
 
     Card getCard(final long boardId,
                  final long listId,
                  final long cardId) {
-        Board b = getBoard(boardId);
-
-        var list = b.cardListById(listId);
-
-        return list.cardById(cardId);
+        return snapshot(boardId, b -> b.cardListById(listId).cardById(cardId), Card.class);
     }
 
     void setCardTitle(final long boardId,
                       final long listId,
                       final long cardId,
-                      final String cardTitle) {
-        patchCard(boardId, listId, cardId, cp -> cp.setTitle(cardTitle));
+                      final String cardTitle,
+                      final Long expectedVersion) {
+        patchCard(boardId, listId, cardId, "title", expectedVersion, cp -> cp.setTitle(cardTitle));
     }
 
     void setCardText(final long boardId,
                      final long listId,
                      final long cardId,
-                     final String cardText) {
-        patchCard(boardId, listId, cardId, cp -> cp.setText(cardText));
+                     final String cardText,
+                     final Long expectedVersion) {
+        patchCard(boardId, listId, cardId, "text", expectedVersion, cp -> cp.setText(cardText));
     }
 
     void setCardDueDate(final long boardId,
                         final long listId,
                         final long cardId,
-                        final ZonedDateTime dueDate) {
-        patchCard(boardId, listId, cardId, cp -> cp.setDueDate(dueDate));
+                        final ZonedDateTime dueDate,
+                        final Long expectedVersion) {
+        patchCard(boardId, listId, cardId, "dueDate", expectedVersion, cp -> cp.setDueDate(dueDate));
     }
 
     void addTagToCard(final long boardId,
                       final long listId,
                       final long cardId,
                       final long tagId) {
-        patchCard(boardId, listId, cardId, cp -> cp.addTag(getTag(tagId)));
+        patch(boardId, bp -> bp.patchCardList(listId, lp -> lp.patchCard(cardId, cp -> {
+            var tag = bp.getBaseBoard().tagById(tagId);
+            cp.addTag(tag);
+            store.cardTagAdded(cp.getBaseCard(), tag);
+        })));
     }
 
     List<Tag> getAllTags(
             final long boardId
     ) {
-        Board board = getBoard(boardId);
-
-        return board.getTags();
+        return read(boardId, b -> b.getTags().stream().map(t -> copy(t, Tag.class)).toList());
     }
 
     void removeTagFromCard(final long boardId,
                            final long listId,
                            final long cardId,
                            final long tagId) {
-        patchCard(boardId, listId, cardId, cp -> cp.removeTag(getTag(tagId)));
+        patch(boardId, bp -> bp.patchCardList(listId, lp -> lp.patchCard(cardId, cp -> {
+            var tag = bp.getBaseBoard().tagById(tagId);
+            cp.removeTag(tag);
+            store.cardTagRemoved(cp.getBaseCard(), tag);
+        })));
     }
 
     void setTagName(final long boardId,
                     final long tagId,
                     final String tagName) {
-        patchTag(boardId, tagId, tp -> tp.setName(tagName));
+        patchTag(boardId, tagId, "name", tp -> tp.setName(tagName));
     }
 
     void setTagFontColor(final long boardId,
                          final long tagId,
                          final String tagColor) {
-        patchTag(boardId, tagId, tp -> tp.setFontColor(tagColor));
+        patchTag(boardId, tagId, "fontColor", tp -> tp.setFontColor(tagColor));
     }
 
     void setTagBackgroundColor(final long boardId,
                                final long tagId,
                                final String tagBackgroundColor) {
-        patchTag(boardId, tagId, tp -> tp.setBackgroundColor(tagBackgroundColor));
+        patchTag(boardId, tagId, "backgroundColor", tp -> tp.setBackgroundColor(tagBackgroundColor));
     }
 
     void sameListCardMove(final long boardId,
                           final long listId,
                           final long cardId,
                           final long otherCardId) {
-        patchCardList(boardId, listId, lp -> lp.moveCard(cardId, otherCardId));
+        patch(boardId, bp -> bp.patchCardList(listId, lp -> {
+            lp.moveCard(cardId, otherCardId);
+
+            // only the order key of the moved card changes.
+            var card = cards.save(lp.getBaseCardList().cardById(cardId));
+            if (OrderKeys.needsRebalance(card.getOrderKey())) {
+                rebalanceCardsLater(boardId, listId);
+            }
+        }));
     }
 
     void xListCardMove(final long boardId,
@@ -287,11 +483,12 @@ public final class BoardService {
                        final long cardId,
                        final long otherListId,
                        final long otherCardId) {
-        Board b = getBoard(boardId);
-        var bw = messageBroker.getWrapper(b);
-
-        bw.patch(bp -> bp.xListCardMove(listId, cardId, otherListId, otherCardId,
-                cardRepository::save, cardListRepository::save));
+        patch(boardId, bp -> bp.xListCardMove(listId, cardId, otherListId, otherCardId, card -> {
+            cards.save(card);
+            if (OrderKeys.needsRebalance(card.getOrderKey())) {
+                rebalanceCardsLater(boardId, otherListId);
+            }
+        }));
     }
 
     /**
@@ -304,7 +501,15 @@ public final class BoardService {
     void listMove(final long boardId,
                   final long listId,
                   final long otherListId) {
-        patchBoard(boardId, bp -> bp.moveCardList(listId, otherListId));
+        patch(boardId, bp -> {
+            bp.moveCardList(listId, otherListId);
+
+            // only the order key of the moved list changes.
+            var list = cardLists.save(bp.getBaseBoard().cardListById(listId));
+            if (OrderKeys.needsRebalance(list.getOrderKey())) {
+                rebalanceCardListsLater(boardId);
+            }
+        });
     }
 
     Tag newTag(final long boardId, final Tag tag) {
@@ -312,59 +517,56 @@ public final class BoardService {
             throw new IllegalArgumentException("tag id must be 0");
         }
 
-        var saved = tagRepository.save(tag);
+        var saved = new Tag[1];
+        var created = new Tag[1];
 
-        patchBoard(boardId, bp -> bp.addTag(saved));
+        patch(boardId, bp -> {
+            // the tag row carries the board id, so the board itself doesn't have to be written.
+            tag.presaveForBoard(bp.getBaseBoard());
+            saved[0] = tags.save(tag);
+            bp.addTag(saved[0]);
+            created[0] = copy(saved[0], Tag.class);
+        });
 
-        return saved;
+        return created[0];
     }
 
     Tag getTag(final long boardId, final long tagId) {
-        Board board = getBoard(boardId);
-
-        return board.tagById(tagId);
-    }
-
-    Tag getTag(final long tagId) {
-        return tagRepository.findById(tagId).orElseThrow();
+        return snapshot(boardId, b -> b.tagById(tagId), Tag.class);
     }
 
     void deleteTag(final long boardId, final long tagId) {
-        patchBoard(boardId, bp -> {
+        patch(boardId, bp -> {
             var tag = bp.getBaseBoard().tagById(tagId);
-            bp.removeTag(tagId);
+            var tagged = bp.getBaseBoard().cardsWithTag(tagId);
 
-            for (var cl : bp.getBaseBoard().getCardLists()) {
-                for (var c : cl.getCards()) {
-                    if (c.getTags().contains(tag)) {
-                        c.patch(cp -> {
-                            cp.removeTag(tag);
-                            cardRepository.save(cp.getBaseCard());
-                        });
-                    }
-                }
-            }
+            // removes it from the cards too, with one event for all of them.
+            bp.removeTag(tagId);
+            store.tagRemovedFromCards(tag, tagged);
 
-            tagRepository.deleteById(tagId);
+            // the board row doesn't change, so only the tag is deleted.
+            tags.deleteById(tagId);
         });
     }
 
-    void setBoardFont(final long boardId, final String fontColor) {
-        patchBoard(boardId, bp -> bp.setFontColor(fontColor));
+    void setBoardFont(final long boardId, final String fontColor, final Long expectedVersion) {
+        patchBoard(boardId, "fontColor", expectedVersion, bp -> bp.setFontColor(fontColor));
     }
 
-    void setBoardBackground(final long boardId, final String backgroundColor) {
-        patchBoard(boardId, bp -> bp.setBackgroundColor(backgroundColor));
+    void setBoardBackground(final long boardId, final String backgroundColor, final Long expectedVersion) {
+        patchBoard(boardId, "backgroundColor", expectedVersion, bp -> bp.setBackgroundColor(backgroundColor));
     }
 
-    void setCardListFont(final long boardId, final long listId, final String fontColor) {
-        patchCardList(boardId, listId, lp -> lp.setFontColor(fontColor));
+    void setCardListFont(final long boardId, final long listId, final String fontColor, final Long expectedVersion) {
+        patchCardList(boardId, listId, "fontColor", expectedVersion, lp -> lp.setFontColor(fontColor));
     }
 
     void setCardListBackground(final long boardId,
                                final long listId,
-                               final String backgroundColor) {
-        patchCardList(boardId, listId, lp -> lp.setBackgroundColor(backgroundColor));
+                               final String backgroundColor,
+                               final Long expectedVersion) {
+        patchCardList(boardId, listId, "backgroundColor", expectedVersion,
+                lp -> lp.setBackgroundColor(backgroundColor));
     }
 
     ColorPreset newPreset(final long boardId, final ColorPreset preset) {
@@ -373,73 +575,66 @@ public final class BoardService {
         }
 
         var saved = new ColorPreset[1];
+        var created = new ColorPreset[1];
 
-        patchBoard(boardId, bp -> {
+        patch(boardId, bp -> {
+            // the preset row carries the board id, so the board itself doesn't have to be written.
             preset.presaveForBoard(bp.getBaseBoard());
-            saved[0] = colorPresetRepository.save(preset);
+            saved[0] = presets.save(preset);
             bp.addCardColorPreset(saved[0]);
+            created[0] = copy(saved[0], ColorPreset.class);
         });
 
-        return saved[0];
+        return created[0];
     }
 
     ColorPreset getPreset(final long boardId, final long presetKey) {
-        Board board = getBoard(boardId);
-
-        return board.colorPresetById(presetKey);
+        return snapshot(boardId, b -> b.colorPresetById(presetKey), ColorPreset.class);
     }
 
     void deletePreset(final long boardId, final long presetKey) {
-        Board board = getBoard(boardId);
-        var bw = messageBroker.getWrapper(board);
+        patch(boardId, bp -> {
+            var colored = bp.getBaseBoard().cardsWithPreset(presetKey);
 
-        bw.patch(bp -> {
+            // clears it on the cards too, with one event for all of them.
             bp.removeColorPreset(presetKey);
+            store.presetRemovedFromCards(presetKey, colored);
 
-            for (var cl : bp.getBaseBoard().getCardLists()) {
-                for (var card : cl.getCards()) {
-                    if (card.getColorPresetKey() == presetKey) {
-                        card.patch(cp -> {
-                            cp.setColorPreset(0);
-                            cardRepository.save(cp.getBaseCard());
-                        });
-                    }
-                }
-            }
-
-            colorPresetRepository.deleteById(presetKey);
-            boardRepository.save(bp.getBaseBoard());
+            // the board row doesn't change, so only the preset is deleted.
+            presets.deleteById(presetKey);
         });
     }
 
     void setPresetName(final long boardId,
                        final long presetKey,
                        final String name) {
-        patchBoard(boardId, bp -> bp.setPresetName(presetKey, name));
+        patchPreset(boardId, presetKey, "name", bp -> bp.setPresetName(presetKey, name));
     }
 
     void setPresetFontColor(final long boardId,
                             final long presetKey,
                             final String fontColor) {
-        patchBoard(boardId, bp -> bp.setPresetFontColor(presetKey, fontColor));
+        patchPreset(boardId, presetKey, "foreground", bp -> bp.setPresetFontColor(presetKey, fontColor));
     }
 
     void setPresetBackgroundColor(final long boardId,
                                   final long presetKey,
                                   final String backgroundColor) {
-        patchBoard(boardId, bp -> bp.setPresetBackgroundColor(presetKey, backgroundColor));
+        patchPreset(boardId, presetKey, "background", bp -> bp.setPresetBackgroundColor(presetKey, backgroundColor));
     }
 
     void setDefaultPreset(final long boardId,
-                          final long presetKey) {
-        patchBoard(boardId, bp -> bp.setDefaultCardColorPreset(presetKey));
+                          final long presetKey,
+                          final Long expectedVersion) {
+        patchBoard(boardId, "defaultCardColorPreset", expectedVersion, bp -> bp.setDefaultCardColorPreset(presetKey));
     }
 
     void setCardPreset(final long boardId,
                        final long listId,
                        final long cardId,
-                       final long presetKey) {
-        patchCard(boardId, listId, cardId, cp -> cp.setColorPreset(presetKey));
+                       final long presetKey,
+                       final Long expectedVersion) {
+        patchCard(boardId, listId, cardId, "colorPresetKey", expectedVersion, cp -> cp.setColorPreset(presetKey));
     }
 
     CardSubtask newSubtask(final long boardId,
@@ -455,34 +650,37 @@ public final class BoardService {
         }
 
         var saved = new CardSubtask[1];
+        var created = new CardSubtask[1];
 
-        patchCard(boardId, listId, cardId, cp -> {
+        patch(boardId, bp -> bp.patchCardList(listId, lp -> lp.patchCard(cardId, cp -> {
             subtask.presaveForCard(cp.getBaseCard());
-            saved[0] = subtaskRepository.save(subtask);
+            saved[0] = subtasks.save(subtask);
+
+            // adding it assigns the order key.
             cp.addSubtask(saved[0]);
-        });
+            subtasks.save(saved[0]);
+            created[0] = copy(saved[0], CardSubtask.class);
+        })));
 
-        return saved[0];
+        return created[0];
     }
 
     CardSubtask getSubtask(final long boardId,
                            final long listId,
                            final long cardId,
                            final long subtaskId) {
-        Board board = getBoard(boardId);
-        var cl = board.cardListById(listId);
-        var card = cl.cardById(cardId);
-        return card.subtaskById(subtaskId);
+        return snapshot(boardId, b -> b.cardListById(listId).cardById(cardId).subtaskById(subtaskId),
+                CardSubtask.class);
     }
 
     void deleteSubtask(final long boardId,
                        final long listId,
                        final long cardId,
                        final long subtaskId) {
-        patchCard(boardId, listId, cardId, cp -> {
+        patch(boardId, bp -> bp.patchCardList(listId, lp -> lp.patchCard(cardId, cp -> {
             cp.deleteSubtask(subtaskId);
-            subtaskRepository.deleteById(subtaskId);
-        });
+            subtasks.deleteById(subtaskId);
+        })));
     }
 
     void subtaskMove(final long boardId,
@@ -490,7 +688,15 @@ public final class BoardService {
                      final long cardId,
                      final long subtaskId,
                      final long otherSubtaskId) {
-        patchCard(boardId, listId, cardId, cp -> cp.moveSubtask(subtaskId, otherSubtaskId));
+        patch(boardId, bp -> bp.patchCardList(listId, lp -> lp.patchCard(cardId, cp -> {
+            cp.moveSubtask(subtaskId, otherSubtaskId);
+
+            // only the order key of the moved subtask changes.
+            var subtask = subtasks.save(cp.getBaseCard().subtaskById(subtaskId));
+            if (OrderKeys.needsRebalance(subtask.getOrderKey())) {
+                rebalanceSubtasksLater(boardId, listId, cardId);
+            }
+        })));
     }
 
     void setSubtaskName(final long boardId,
@@ -498,7 +704,7 @@ public final class BoardService {
                         final long cardId,
                         final long subtaskId,
                         final String newName) {
-        patchSubtask(boardId, listId, cardId, subtaskId, sp -> sp.setName(newName));
+        patchSubtask(boardId, listId, cardId, subtaskId, "name", sp -> sp.setName(newName));
     }
 
     void setSubtaskCompleteness(final long boardId,
@@ -506,69 +712,248 @@ public final class BoardService {
                                 final long cardId,
                                 final long subtaskId,
                                 final boolean newCompleteness) {
-        patchSubtask(boardId, listId, cardId, subtaskId, sp -> sp.setCompleteness(newCompleteness));
+        patchSubtask(boardId, listId, cardId, subtaskId, "completed", sp -> sp.setCompleteness(newCompleteness));
     }
 
+    /**
+     * Applies a batch of operations to a board, in order, on the lane of the board and in a single transaction.
+     * The events caused by the batch are published together once the transaction commits. If any of the operations
+     * fails, the whole batch is rolled back, and no events are published.
+     *
+     * @param boardId    The board id.
+     * @param operations The operations.
+     * @return For each operation, the id of the entity it created, or 0 if it didn't create one.
+     */
+    List<Long> batch(final long boardId, final List<BoardOperation> operations) {
+        return boardLanes.call(boardId, () -> {
+            try {
+                return messageBroker.batched(boardId, () -> {
+                    var result = new ArrayList<List<Long>>(1);
+                    groupCommitter.execute(boardId, () -> {
+                        var target = new BatchTarget(boardId);
+                        for (var operation : operations) {
+                            target.created.add(operation.applyTo(target));
+                        }
+
+                        result.clear();
+                        result.add(target.created);
+                    });
+
+                    return result.get(0);
+                });
+            } catch (RuntimeException e) {
+                // the operations that did succeed were rolled back, but the live board still has them.
+                boardCache.evict(boardId);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Applies the operations of a batch through the regular service methods. Those run inline, since the batch is
+     * already on the lane of the board, and join the transaction of the batch.
+     */
+    private final class BatchTarget implements BoardOperation.Target {
+        private final long boardId;
+        private final List<Long> created = new ArrayList<>();
+
+        private BatchTarget(final long boardId) {
+            this.boardId = boardId;
+        }
+
+        @Override
+        public long resolve(final long id) {
+            if (id >= 0) {
+                return id;
+            }
+
+            var index = (int) Math.min(-id - 1, Integer.MAX_VALUE);
+            if (index >= this.created.size() || this.created.get(index) == 0) {
+                throw new IllegalArgumentException(
+                        "operation " + (index + 1) + " of the batch did not create anything");
+            }
+
+            return this.created.get(index);
+        }
+
+        @Override
+        public long newCard(final long listId, final Card card) {
+            return BoardService.this.newCard(this.boardId, listId, card).getId();
+        }
+
+        @Override
+        public void setCardTitle(final long listId, final long cardId, final String title) {
+            BoardService.this.setCardTitle(this.boardId, listId, cardId, title, null);
+        }
+
+        @Override
+        public void setCardText(final long listId, final long cardId, final String text) {
+            BoardService.this.setCardText(this.boardId, listId, cardId, text, null);
+        }
+
+        @Override
+        public void addCardTag(final long listId, final long cardId, final long tagId) {
+            BoardService.this.addTagToCard(this.boardId, listId, cardId, tagId);
+        }
+
+        @Override
+        public void removeCardTag(final long listId, final long cardId, final long tagId) {
+            BoardService.this.removeTagFromCard(this.boardId, listId, cardId, tagId);
+        }
+
+        @Override
+        public long newSubtask(final long listId, final long cardId, final CardSubtask subtask) {
+            return BoardService.this.newSubtask(this.boardId, listId, cardId, subtask).getId();
+        }
+
+        @Override
+        public void deleteSubtask(final long listId, final long cardId, final long subtaskId) {
+            BoardService.this.deleteSubtask(this.boardId, listId, cardId, subtaskId);
+        }
+
+        @Override
+        public void setSubtaskCompleteness(final long listId, final long cardId, final long subtaskId,
+                                           final boolean completed) {
+            BoardService.this.setSubtaskCompleteness(this.boardId, listId, cardId, subtaskId, completed);
+        }
+    }
+
+    /**
+     * Schedules a patch on the lane of the board, without waiting for it. Used for maintenance that doesn't have to
+     * happen as part of a request, like rebalancing the order keys.
+     *
+     * @param boardId The board id.
+     * @param patcher The patcher.
+     */
+    private void patchLater(final long boardId, final Consumer<Board.BoardPatcher> patcher) {
+        try {
+            boardLanes.submit(boardId, () -> patch(boardId, patcher));
+        } catch (BoardBusy e) {
+            // the keys will be rebalanced after a later move instead.
+        }
+    }
+
+    private void rebalanceCardListsLater(final long boardId) {
+        patchLater(boardId, bp -> {
+            var changed = new ArrayList<CardList>();
+            bp.rebalanceOrderKeys(changed::add);
+            cardLists.saveAll(changed);
+        });
+    }
+
+    private void rebalanceCardsLater(final long boardId, final long listId) {
+        patchLater(boardId, bp -> {
+            var changed = new ArrayList<Card>();
+            bp.patchCardList(listId, lp -> lp.rebalanceOrderKeys(changed::add));
+            cards.saveAll(changed);
+        });
+    }
+
+    private void rebalanceSubtasksLater(final long boardId, final long listId, final long cardId) {
+        patchLater(boardId, bp -> {
+            var changed = new ArrayList<CardSubtask>();
+            bp.patchCardList(listId, lp -> lp.patchCard(cardId, cp -> cp.rebalanceOrderKeys(changed::add)));
+            subtasks.saveAll(changed);
+        });
+    }
+
+    /**
+     * Runs an action on the lane of the board, if the entity it changes is still at the version the client expects.
+     * Otherwise, it fails with a {@link VersionConflict} right away, before anything is changed; so unlike a failed
+     * patch, the live board doesn't need to be evicted.
+     *
+     * @param boardId         The board id.
+     * @param expectedVersion The version the client expects, or null to run the action regardless.
+     * @param version         Gets the version of the entity from the live board.
+     * @param action          The action.
+     */
+    private void ifVersion(final long boardId,
+                           final Long expectedVersion,
+                           final ToLongFunction<Board> version,
+                           final Runnable action) {
+        if (expectedVersion == null) {
+            action.run();
+            return;
+        }
+
+        boardLanes.run(boardId, () -> {
+            var actual = version.applyAsLong(liveBoard(boardId));
+            if (actual != expectedVersion) {
+                throw new VersionConflict(expectedVersion, actual);
+            }
+
+            action.run();
+        });
+    }
+
+    /**
+     * Updates one field of the board. Like the other field updates below, only the column of the field is written.
+     */
     private void patchBoard(final long boardId,
+                            final String field,
+                            final Long expectedVersion,
                             final Consumer<Board.BoardPatcher> patcherConsumer) {
-        Board board = getBoard(boardId);
-        var bw = messageBroker.getWrapper(board);
+        ifVersion(boardId, expectedVersion, Board::getVersion, () -> update(boardId, bp -> {
+            patcherConsumer.accept(bp);
+            writeBehind.save(boardId, bp.getBaseBoard(), boards, field);
+        }));
+    }
 
-        bw.patch(bp -> {
+    private void patchPreset(final long boardId,
+                             final long presetKey,
+                             final String field,
+                             final Consumer<Board.BoardPatcher> patcherConsumer) {
+        update(boardId, bp -> {
             patcherConsumer.accept(bp);
-            boardRepository.save(bp.getBaseBoard());
+            writeBehind.save(boardId, bp.getBaseBoard().colorPresetById(presetKey), presets, field);
         });
     }
 
     private void patchCardList(final long boardId,
                                final long listId,
+                               final String field,
+                               final Long expectedVersion,
                                final Consumer<CardList.CardListPatcher> patcherConsumer) {
-        Board b = getBoard(boardId);
-        var bw = messageBroker.getWrapper(b);
-
-        bw.patch(bp -> bp.patchCardList(listId, lp -> {
-            patcherConsumer.accept(lp);
-            cardListRepository.save(lp.getBaseCardList());
-        }));
+        ifVersion(boardId, expectedVersion, b -> b.cardListById(listId).getVersion(),
+                () -> update(boardId, bp -> bp.patchCardList(listId, lp -> {
+                    patcherConsumer.accept(lp);
+                    writeBehind.save(boardId, lp.getBaseCardList(), cardLists, field);
+                })));
     }
 
 
     private void patchCard(final long board,
                            final long list,
                            final long card,
+                           final String field,
+                           final Long expectedVersion,
                            final Consumer<Card.CardPatcher> patcher) {
-        Board b = getBoard(board);
-        var bw = messageBroker.getWrapper(b);
-
-        bw.patch(bp -> bp.patchCardList(list, lp -> lp.patchCard(card, cp -> {
-            patcher.accept(cp);
-            cardRepository.save(cp.getBaseCard());
-        })));
+        ifVersion(board, expectedVersion, b -> b.cardListById(list).cardById(card).getVersion(),
+                () -> update(board, bp -> bp.patchCardList(list, lp -> lp.patchCard(card, cp -> {
+                    patcher.accept(cp);
+                    writeBehind.save(board, cp.getBaseCard(), cards, field);
+                }))));
     }
 
     private void patchSubtask(final long board,
                               final long list,
                               final long card,
                               final long subtask,
+                              final String field,
                               final Consumer<CardSubtask.SubtaskPatcher> patcherConsumer) {
-        Board b = getBoard(board);
-        var bw = messageBroker.getWrapper(b);
-
-        bw.patch(bp -> bp.patchCardList(list, lp -> lp.patchCard(card, cp -> cp.patchSubtask(subtask, sp -> {
+        update(board, bp -> bp.patchCardList(list, lp -> lp.patchCard(card, cp -> cp.patchSubtask(subtask, sp -> {
             patcherConsumer.accept(sp);
-            subtaskRepository.save(sp.getBaseSubtask());
+            writeBehind.save(board, sp.getBaseSubtask(), subtasks, field);
         }))));
     }
 
     private void patchTag(final long boardId,
                           final long tagId,
+                          final String field,
                           final Consumer<Tag.TagPatcher> patcherConsumer) {
-        Board b = getBoard(boardId);
-        var bw = messageBroker.getWrapper(b);
-
-        bw.patch(boardPatcher -> boardPatcher.patchTag(tagId, tagPatcher -> {
+        update(boardId, boardPatcher -> boardPatcher.patchTag(tagId, tagPatcher -> {
             patcherConsumer.accept(tagPatcher);
-            tagRepository.save(tagPatcher.getBaseTag());
+            writeBehind.save(boardId, tagPatcher.getBaseTag(), tags, field);
         }));
     }
 }
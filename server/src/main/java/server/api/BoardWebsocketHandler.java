@@ -1,34 +1,42 @@
 package server.api;
 
+import commons.events.BinaryEventCodec;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 import server.database.BoardRepository;
 
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
- * WebSocket handler for handling connections to a board.
+ * WebSocket handler for handling connections to a board. The clients can negotiate the binary subprotocol of the
+ * events; the others get them as JSON.
  */
 @Component
-public class BoardWebsocketHandler extends TextWebSocketHandler {
+public class BoardWebsocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
     private final Map<WebSocketSession, BoardWebsocketSessionHandler> sessions = new IdentityHashMap<>();
     private final BoardRepository boardRepository;
     private final MessageBroker messageBroker;
+    private final SessionOutboxes outboxes;
 
     /**
      * Constructor.
      *
      * @param boardRepository The board repository.
      * @param messageBroker The MessageBroker.
+     * @param outboxes The outbound queues of the sessions.
      */
-    public BoardWebsocketHandler(final BoardRepository boardRepository, final MessageBroker messageBroker) {
+    public BoardWebsocketHandler(final BoardRepository boardRepository, final MessageBroker messageBroker,
+                                 final SessionOutboxes outboxes) {
         this.boardRepository = boardRepository;
         this.messageBroker = messageBroker;
+        this.outboxes = outboxes;
     }
 
     /**
@@ -39,7 +47,7 @@ public class BoardWebsocketHandler extends TextWebSocketHandler {
      */
     @Override
     public void afterConnectionEstablished(@NonNull final WebSocketSession session) throws Exception {
-        var handler = new BoardWebsocketSessionHandler(this.messageBroker);
+        var handler = new BoardWebsocketSessionHandler(this.messageBroker, this.outboxes);
         this.sessions.put(session, handler);
 
         handler.afterConnectionEstablished(session, this.boardRepository);
@@ -74,4 +82,14 @@ public class BoardWebsocketHandler extends TextWebSocketHandler {
 
         sess.afterConnectionClosed();
     }
+
+    /**
+     * The subprotocols the clients can negotiate.
+     *
+     * @return The binary subprotocol of the events.
+     */
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(BinaryEventCodec.SUBPROTOCOL);
+    }
 }
@@ -0,0 +1,273 @@
+package server.api;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the persistence work of board mutations in transactions, optionally committing the work of concurrent
+ * mutations (of different boards) together.
+ * <p>
+ * In group commit mode, a committer thread collects the work submitted by the lanes for up to {@code max-delay-ms},
+ * or until it has {@code max-batch} of them, runs it all in one transaction, and commits once. A lane waits for its
+ * work while holding its thread, so there are never more pieces of work than lane threads: the batch is at most the
+ * number of lane threads (and that number by default), so that a group is committed as soon as every lane waits for
+ * it, rather than once the delay is up. Each caller waits until
+ * the transaction that contains its work committed, so a response is never sent before its changes are durable.
+ * <p>
+ * If anything in a group fails, the group is rolled back, the boards it touched are evicted from the cache, and the
+ * work is retried one by one, each in its own transaction, so that one failing request does not fail the others.
+ * The work must therefore get the live board from the cache itself, rather than capturing it.
+ */
+@Component
+public final class GroupCommitter {
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+
+    private final TransactionTemplate transaction;
+    private final BoardLanes boardLanes;
+    private final BoardCache boardCache;
+    private final MessageBroker messageBroker;
+
+    private final LinkedBlockingQueue<Work> queue;
+    private final Thread committer;
+    private volatile boolean stopping;
+
+    private final AtomicLong groups;
+    private final AtomicLong committedWork;
+    private final AtomicLong retriedGroups;
+    private final AtomicLong maxGroupSize;
+    private final AtomicLong commitNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param enabled            Whether to commit concurrent mutations together.
+     * @param maxBatch           The most mutations committed together, or 0 for the number of lane threads.
+     * @param maxDelayMillis     The longest time the committer waits for more mutations before committing.
+     * @param transactionManager The transaction manager.
+     * @param boardLanes         The execution lanes of the boards.
+     * @param boardCache         The cache of live boards.
+     * @param messageBroker      The message broker.
+     */
+    public GroupCommitter(@Value("${talio.group-commit.enabled:false}") final boolean enabled,
+                          @Value("${talio.group-commit.max-batch:0}") final int maxBatch,
+                          @Value("${talio.group-commit.max-delay-ms:2}") final long maxDelayMillis,
+                          final PlatformTransactionManager transactionManager, final BoardLanes boardLanes,
+                          final BoardCache boardCache, final MessageBroker messageBroker) {
+        if (maxBatch < 0 || maxDelayMillis < 0) {
+            throw new IllegalArgumentException("invalid group commit limits");
+        }
+
+        this.enabled = enabled;
+        this.maxBatch = maxBatch == 0 ? boardLanes.threads() : Math.min(maxBatch, boardLanes.threads());
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.boardLanes = boardLanes;
+        this.boardCache = boardCache;
+        this.messageBroker = messageBroker;
+
+        this.queue = new LinkedBlockingQueue<>();
+        this.committer = new Thread(this::commitLoop, "group-committer");
+        this.committer.setDaemon(true);
+
+        this.groups = new AtomicLong();
+        this.committedWork = new AtomicLong();
+        this.retriedGroups = new AtomicLong();
+        this.maxGroupSize = new AtomicLong();
+        this.commitNanos = new AtomicLong();
+
+        if (enabled) {
+            this.committer.start();
+        }
+    }
+
+    private static final class Work {
+        private final long boardId;
+        private final Runnable task;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Work(final long boardId, final Runnable task) {
+            this.boardId = boardId;
+            this.task = task;
+        }
+    }
+
+    /**
+     * Runs the persistence work of a mutation of a board in a transaction, and waits until it committed. Called from
+     * the lane of the board. When called from within other work, it joins the transaction of that work.
+     *
+     * @param boardId The board id.
+     * @param task    The work.
+     */
+    public void execute(final long boardId, final Runnable task) {
+        if (!this.enabled) {
+            this.transaction.executeWithoutResult(status -> task.run());
+            return;
+        }
+
+        if (Thread.currentThread() == this.committer) {
+            task.run();
+            return;
+        }
+
+        if (this.stopping) {
+            throw new IllegalStateException("the group committer is shutting down");
+        }
+
+        var work = new Work(boardId, this.boardLanes.onCurrentLane(task));
+        this.queue.add(work);
+
+        try {
+            work.done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+
+            throw e;
+        }
+    }
+
+    private void commitLoop() {
+        var group = new ArrayList<Work>(this.maxBatch);
+
+        while (!this.stopping || !this.queue.isEmpty()) {
+            try {
+                var first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                group.add(first);
+
+                var deadline = System.nanoTime() + this.maxDelayNanos;
+                while (group.size() < this.maxBatch) {
+                    var next = this.queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                // shutting down: commit what was already collected, then drain the queue.
+                this.stopping = true;
+            }
+
+            if (!group.isEmpty()) {
+                this.commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(final List<Work> group) {
+        var start = System.nanoTime();
+
+        try {
+            this.transaction.executeWithoutResult(status -> {
+                for (var work : group) {
+                    work.task.run();
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            this.retry(group, e);
+            return;
+        }
+
+        this.groups.incrementAndGet();
+        this.committedWork.addAndGet(group.size());
+        this.maxGroupSize.accumulateAndGet(group.size(), Math::max);
+        this.commitNanos.addAndGet(System.nanoTime() - start);
+
+        for (var work : group) {
+            work.done.complete(null);
+        }
+    }
+
+    private void retry(final List<Work> group, final Throwable failure) {
+        if (group.size() == 1) {
+            group.get(0).done.completeExceptionally(failure);
+            return;
+        }
+
+        this.retriedGroups.incrementAndGet();
+
+        // the in-memory changes of the whole group were rolled back in the database, so start over from there.
+        for (var work : group) {
+            this.boardCache.evict(work.boardId);
+            this.messageBroker.discardHeld(work.boardId);
+        }
+
+        for (var work : group) {
+            try {
+                this.transaction.executeWithoutResult(status -> work.task.run());
+                this.committedWork.incrementAndGet();
+                work.done.complete(null);
+            } catch (RuntimeException | Error e) {
+                this.boardCache.evict(work.boardId);
+                work.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Commits the pending work and stops the committer thread.
+     *
+     * @throws InterruptedException If interrupted while waiting for the committer to finish.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        this.stopping = true;
+        this.committer.interrupt();
+        this.committer.join();
+    }
+
+    /**
+     * Returns a snapshot of the group commit metrics.
+     *
+     * @return The metrics.
+     */
+    public Stats stats() {
+        var g = this.groups.get();
+        return new Stats(this.enabled, this.maxBatch, TimeUnit.NANOSECONDS.toMillis(this.maxDelayNanos), g,
+                this.committedWork.get(), g == 0 ? 0 : (double) this.committedWork.get() / g, this.maxGroupSize.get(),
+                this.retriedGroups.get(), g == 0 ? 0 : this.commitNanos.get() / g / 1000, this.queue.size());
+    }
+
+    /**
+     * Group commit metrics.
+     *
+     * @param enabled             Whether group commit is enabled.
+     * @param maxBatch            The maximum group size, as bounded by the number of lane threads.
+     * @param maxDelayMillis      The configured maximum delay.
+     * @param groups              The number of groups committed.
+     * @param committedWork       The number of mutations committed.
+     * @param averageGroupSize    The average number of mutations per group.
+     * @param maxGroupSize        The largest group committed.
+     * @param retriedGroups       The number of groups that failed and were retried one by one.
+     * @param averageCommitMicros The average time to run and commit a group.
+     * @param queued              The number of mutations waiting for the committer.
+     */
+    public record Stats(boolean enabled, int maxBatch, long maxDelayMillis, long groups, long committedWork,
+                        double averageGroupSize, long maxGroupSize, long retriedGroups, long averageCommitMicros,
+                        int queued) {
+    }
+}
@@ -2,21 +2,78 @@ package server.api;
 
 import commons.Board;
 import commons.CardList;
-import commons.observers.BoardObserver;
+import commons.events.BinaryEventCodec;
+import commons.events.EventBatch;
+import commons.events.EventCodec;
+import commons.events.ServerToClientEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class MessageBroker {
-    private final HashMap<Long, ArrayList<BoardObserver>> boardObservers;
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageBroker.class);
+
+    /**
+     * Whether the events of a type carry entities (a created list, a deleted tag, ...), rather than only ids and
+     * values.
+     */
+    private static final ClassValue<Boolean> CARRIES_ENTITIES = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+            return type.isRecord() && Arrays.stream(type.getRecordComponents())
+                    .anyMatch(c -> c.getType().getPackageName().equals(Board.class.getPackageName()));
+        }
+    };
+
+    private final ConcurrentHashMap<Long, CopyOnWriteArrayList<Consumer<Frame>>> subscribers;
+    private final ConcurrentHashMap<Long, Binding> bindings;
+    private final ConcurrentHashMap<Long, List<ServerToClientEvent>> batches;
+    private volatile Journal journal;
 
     /**
      * Constructor.
      */
     public MessageBroker() {
-        this.boardObservers = new HashMap<>();
+        this.subscribers = new ConcurrentHashMap<>();
+        this.bindings = new ConcurrentHashMap<>();
+        this.batches = new ConcurrentHashMap<>();
+        this.journal = (boardId, events) -> {
+        };
+    }
+
+    /**
+     * Records the events of a board before they are published.
+     */
+    @FunctionalInterface
+    public interface Journal {
+        /**
+         * Records some events of a board. If this throws, the events are not published.
+         *
+         * @param boardId The id of the board.
+         * @param events  The events.
+         */
+        void append(long boardId, List<ServerToClientEvent> events);
+    }
+
+    /**
+     * Sets the journal that the events are recorded in, before they are published.
+     *
+     * @param journal The journal.
+     */
+    public void setJournal(final Journal journal) {
+        this.journal = journal;
     }
 
     /**
@@ -29,68 +86,280 @@ public class MessageBroker {
         return new BoardWrapper(b);
     }
 
-    private static <T> void addObserver(final HashMap<Long, ArrayList<T>> observers, final long id, final T observer) {
-        observers.putIfAbsent(id, new ArrayList<>());
+    /**
+     * An event published to the subscribers of a board, and the messages that send it to a client, as JSON or in the
+     * binary encoding. Each encoding is done at most once per event, when first asked for, and shared by every
+     * subscriber that asks for it.
+     * <p>
+     * The subscribers are called on the lane of the board, so the entities the event refers to can't change while it
+     * is encoded.
+     */
+    public static final class Frame {
+        private final ServerToClientEvent event;
+        private TextMessage message;
+        private byte[] binary;
 
-        observers.get(id).add(observer);
-    }
+        private Frame(final ServerToClientEvent event) {
+            this.event = event;
+        }
+
+        /**
+         * Creates the frame of an event.
+         *
+         * @param event The event.
+         * @return The frame.
+         */
+        public static Frame of(final ServerToClientEvent event) {
+            return new Frame(event);
+        }
+
+        /**
+         * Gets the event.
+         *
+         * @return The event.
+         */
+        public ServerToClientEvent event() {
+            return this.event;
+        }
+
+        /**
+         * Gets the event, as JSON.
+         *
+         * @return The message.
+         */
+        public synchronized TextMessage message() {
+            if (this.message == null) {
+                try {
+                    this.message = new TextMessage(this.event.serialize());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return this.message;
+        }
 
-    private static <T> void removeObserver(
-            final HashMap<Long, ArrayList<T>> observers,
-            final long id,
-            final T observer) {
-        var o = observers.get(id);
-        if (o != null) {
-            o.remove(observer);
-            if (o.isEmpty()) {
-                observers.remove(id);
+        /**
+         * Gets the event, in the binary encoding.
+         *
+         * @return The message, whose buffer is not shared with other subscribers (sending it consumes it), but whose
+         *         bytes are.
+         */
+        public synchronized BinaryMessage binary() {
+            if (this.binary == null) {
+                try {
+                    this.binary = BinaryEventCodec.encode(this.event);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
             }
+            return new BinaryMessage(this.binary);
         }
     }
 
     /**
-     * Adds a board observer to the list of observers tracked by the MessageBroker.
+     * Adds a subscriber to the events of a board.
      *
-     * @param boardId  The id of the board that the observer should track.
-     * @param observer The observer.
+     * @param boardId    The id of the board that the subscriber should track.
+     * @param subscriber The subscriber.
      */
-    public void addBoardObserver(final long boardId, final BoardObserver observer) {
-        addObserver(this.boardObservers, boardId, observer);
+    public void addSubscriber(final long boardId, final Consumer<Frame> subscriber) {
+        this.subscribers.compute(boardId, (id, s) -> {
+            var list = s != null ? s : new CopyOnWriteArrayList<Consumer<Frame>>();
+            list.add(subscriber);
+            return list;
+        });
     }
 
     /**
-     * Removes an observer from the list of observers tracked by the MessageBroker.
+     * Removes a subscriber from the events of a board.
      *
-     * @param boardId  The id of the board that the observer tracked.
-     * @param observer The observer.
+     * @param boardId    The id of the board that the subscriber tracked.
+     * @param subscriber The subscriber.
      */
-    public void removeBoardObserver(final long boardId, final BoardObserver observer) {
-        removeObserver(this.boardObservers, boardId, observer);
+    public void removeSubscriber(final long boardId, final Consumer<Frame> subscriber) {
+        this.subscribers.computeIfPresent(boardId, (id, s) -> {
+            s.remove(subscriber);
+            return s.isEmpty() ? null : s;
+        });
     }
 
     /**
-     * A wrapper over the board, that adds the MessageBroker observers before patching the board.
+     * Forgets about a board that was removed, or evicted from memory, dropping its observer graph.
+     *
+     * @param boardId The id of the board.
      */
-    public final class BoardWrapper {
-        private final Board b;
-        private boolean prepared = false;
+    public void forgetBoard(final long boardId) {
+        this.bindings.remove(boardId);
+    }
 
-        private BoardWrapper(final Board b) {
-            this.b = b;
+    private void publish(final long boardId, final ServerToClientEvent event) {
+        var batch = this.batches.get(boardId);
+        if (batch != null) {
+            batch.add(snapshot(event));
+            return;
+        }
+
+        this.journal.append(boardId, List.of(event));
+        this.deliver(boardId, event);
+    }
+
+    /**
+     * Copies the entities an event carries, as they are when it is emitted. The events held back are only journaled
+     * and published once the whole patch is done, and the later changes of the patch (e.g. setting the title of a card
+     * it created) must not show in the earlier events as well; replaying them would apply those changes twice.
+     *
+     * @param event The event.
+     * @return The event, or a copy of it.
+     */
+    private static ServerToClientEvent snapshot(final ServerToClientEvent event) {
+        if (!CARRIES_ENTITIES.get(event.getClass())) {
+            return event;
         }
 
-        private void prepareForPatch() {
-            if (prepared) {
-                return;
+        try {
+            return EventCodec.decodeServerToClient(EventCodec.encode(event));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void deliver(final long boardId, final ServerToClientEvent event) {
+        var s = this.subscribers.get(boardId);
+        if (s == null) {
+            return;
+        }
+
+        var frame = Frame.of(event);
+        for (var subscriber : s) {
+            // the change was already made (and committed), so a failing subscriber (a broken session, an event that
+            // can't be encoded) must neither keep it from the others, nor fail the mutation.
+            try {
+                subscriber.accept(frame);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not deliver an event of board {} to a subscriber", boardId, e);
             }
+        }
+    }
 
-            prepared = true;
-            var boardObservers = MessageBroker.this.boardObservers.get(this.b.getId());
-            if (boardObservers != null) {
-                for (var observer : boardObservers) {
-                    b.notify(observer);
-                }
+    /**
+     * Runs an action that patches a board, holding back the events it causes. If the action completes normally (e.g.
+     * its transaction committed), the events are then recorded in the journal, and published one by one; if it throws,
+     * they are dropped.
+     * <p>
+     * Should only be called from the lane of the board. Nested calls join the outermost call.
+     *
+     * @param boardId The id of the board.
+     * @param action  The action.
+     * @param <T>     The type of the result of the action.
+     * @return The result of the action.
+     */
+    public <T> T deferred(final long boardId, final Supplier<T> action) {
+        return this.hold(boardId, action, events -> {
+            for (var event : events) {
+                this.deliver(boardId, event);
+            }
+        });
+    }
+
+    /**
+     * Like {@link #deferred(long, Supplier)}, but the events are published together, as a single {@link EventBatch}.
+     *
+     * @param boardId The id of the board.
+     * @param action  The action.
+     * @param <T>     The type of the result of the action.
+     * @return The result of the action.
+     */
+    public <T> T batched(final long boardId, final Supplier<T> action) {
+        return this.hold(boardId, action, events -> {
+            if (events.size() == 1) {
+                this.deliver(boardId, events.get(0));
+            } else if (!events.isEmpty()) {
+                this.deliver(boardId, new EventBatch(List.copyOf(events)));
             }
+        });
+    }
+
+    /**
+     * Drops the events held back for a board so far, because the changes that caused them are going to be retried.
+     *
+     * @param boardId The id of the board.
+     */
+    public void discardHeld(final long boardId) {
+        var held = this.batches.get(boardId);
+        if (held != null) {
+            held.clear();
+        }
+    }
+
+    private <T> T hold(final long boardId, final Supplier<T> action, final Consumer<List<ServerToClientEvent>> flush) {
+        var held = new ArrayList<ServerToClientEvent>();
+        if (this.batches.putIfAbsent(boardId, held) != null) {
+            return action.get();
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } finally {
+            this.batches.remove(boardId);
+        }
+
+        if (!held.isEmpty()) {
+            this.journal.append(boardId, held);
+        }
+
+        flush.accept(held);
+
+        return result;
+    }
+
+    /**
+     * Makes sure the given board instance has its observer graph attached.
+     * <p>
+     * The graph stays attached for as long as the instance lives, so this only does work the first time a (live)
+     * board is patched, or after it was evicted from memory and loaded again as a different instance. Only the
+     * binding of that one board is locked while the graph is attached.
+     *
+     * @param b The board.
+     */
+    private void bind(final Board b) {
+        var boardId = b.getId();
+        var binding = this.bindings.get(boardId);
+        if (binding != null && binding.board.get() == b) {
+            return;
+        }
+
+        this.bindings.compute(boardId, (id, old) -> {
+            if (old != null && old.board.get() == b) {
+                return old;
+            }
+
+            b.detachObservers();
+            b.notify(new BoardBroadcaster(boardId, event -> this.publish(boardId, event)));
+            return new Binding(b);
+        });
+    }
+
+    /**
+     * The board instance that currently has the observer graph attached. Only weakly referenced, so that boards
+     * evicted from memory can be collected together with their graph.
+     */
+    private static final class Binding {
+        private final WeakReference<Board> board;
+
+        private Binding(final Board board) {
+            this.board = new WeakReference<>(board);
+        }
+    }
+
+    /**
+     * A wrapper over the board, that makes sure the MessageBroker observers are attached before patching the board.
+     */
+    public final class BoardWrapper {
+        private final Board b;
+
+        private BoardWrapper(final Board b) {
+            this.b = b;
         }
 
         /**
@@ -99,7 +368,7 @@ public class MessageBroker {
          * @param patcher The patcher.
          */
         public void patch(final Consumer<Board.BoardPatcher> patcher) {
-            this.prepareForPatch();
+            MessageBroker.this.bind(this.b);
 
             b.patch(patcher);
         }
@@ -0,0 +1,81 @@
+package server.api;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import server.database.OrphanCollector;
+import server.database.SecondLevelCache;
+
+import java.util.Optional;
+
+/**
+ * Exposes runtime metrics of the server, used to size the caches and queues.
+ */
+@RestController
+public final class MetricsController {
+    private final BoardCache boardCache;
+    private final BoardLanes boardLanes;
+    private final WriteBehind writeBehind;
+    private final GroupCommitter groupCommitter;
+    private final SecondLevelCache secondLevelCache;
+    private final Optional<OrphanCollector> orphanCollector;
+    private final SessionOutboxes sessionOutboxes;
+
+    /**
+     * Constructor.
+     *
+     * @param boardCache       The board cache.
+     * @param boardLanes       The board lanes.
+     * @param writeBehind      The write-behind of field updates.
+     * @param groupCommitter   The committer of the board mutations.
+     * @param secondLevelCache The second-level cache of the tags and presets.
+     * @param orphanCollector  The collector of orphaned rows, which only runs in JPA mode.
+     * @param sessionOutboxes  The outbound queues of the websocket sessions.
+     */
+    public MetricsController(final BoardCache boardCache, final BoardLanes boardLanes, final WriteBehind writeBehind,
+                             final GroupCommitter groupCommitter, final SecondLevelCache secondLevelCache,
+                             final Optional<OrphanCollector> orphanCollector, final SessionOutboxes sessionOutboxes) {
+        this.boardCache = boardCache;
+        this.boardLanes = boardLanes;
+        this.writeBehind = writeBehind;
+        this.groupCommitter = groupCommitter;
+        this.secondLevelCache = secondLevelCache;
+        this.orphanCollector = orphanCollector;
+        this.sessionOutboxes = sessionOutboxes;
+    }
+
+    @GetMapping("/metrics/board-cache")
+    private BoardCache.Stats boardCache() {
+        return boardCache.stats();
+    }
+
+    @GetMapping("/metrics/board-lanes")
+    private BoardLanes.Stats boardLanes() {
+        return boardLanes.stats();
+    }
+
+    @GetMapping("/metrics/write-behind")
+    private WriteBehind.Stats writeBehind() {
+        return writeBehind.stats();
+    }
+
+    @GetMapping("/metrics/group-commit")
+    private GroupCommitter.Stats groupCommit() {
+        return groupCommitter.stats();
+    }
+
+    @GetMapping("/metrics/entity-cache")
+    private SecondLevelCache.Stats entityCache() {
+        return secondLevelCache.stats();
+    }
+
+    @GetMapping("/metrics/orphan-gc")
+    private ResponseEntity<OrphanCollector.Stats> orphanGc() {
+        return ResponseEntity.of(orphanCollector.map(OrphanCollector::stats));
+    }
+
+    @GetMapping("/metrics/websocket-outbound")
+    private SessionOutboxes.Stats websocketOutbound() {
+        return sessionOutboxes.stats();
+    }
+}
@@ -0,0 +1,496 @@
+package server.api;
+
+import commons.events.BinaryEventCodec;
+import commons.events.EventCodec;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The outbound queues of the websocket sessions.
+ * <p>
+ * Each session has a bounded queue of the messages to send to it, drained by a writer thread, so that sending an
+ * event only enqueues it: a slow or stalled client doesn't hold up the lane of the board (nor the other clients), and
+ * the messages of a session are never sent concurrently, which the websocket sessions don't allow. The writers are a
+ * fixed pool shared by all the sessions; a session only takes one while its queue has messages, and gives it back after
+ * a few frames, so that a busy session doesn't starve the others. A send that takes longer than the send timeout
+ * (to a client that stopped reading) closes its session, which gives the writer back once the send fails; the
+ * sessions are closed by threads of their own, since closing can block as well.
+ * <p>
+ * When the queue of a session is full, the client is too slow to keep up, and one of the overflow policies applies:
+ * {@code drop-and-resync} drops the messages queued so far, along with the new one, and queues a message telling the
+ * client to reload the board instead, while {@code disconnect} closes the session.
+ * <p>
+ * With a coalescing window, a writer waits that long after a message is queued before sending it, and sends the
+ * messages queued by then as a single frame, an {@code EventBatch} of their events, which the client applies at once.
+ * The batch is spliced together from the messages as they were encoded, so the events aren't encoded again.
+ */
+@Component
+public final class SessionOutboxes {
+    /**
+     * The number of frames a writer sends for a session before moving on to the other sessions.
+     */
+    private static final int FRAMES_PER_TURN = 16;
+
+    /**
+     * What to do when the queue of a session is full.
+     */
+    enum Overflow {
+        DROP_AND_RESYNC,
+        DISCONNECT;
+
+        static Overflow of(final String name) {
+            return switch (name) {
+                case "drop-and-resync" -> DROP_AND_RESYNC;
+                case "disconnect" -> DISCONNECT;
+                default -> throw new IllegalArgumentException("unknown overflow policy " + name);
+            };
+        }
+    }
+
+    /**
+     * Where the messages of a session are sent.
+     */
+    interface Transport {
+        /**
+         * Sends a message. Never called concurrently.
+         *
+         * @param message The message.
+         * @throws IOException If sending fails.
+         */
+        void send(WebSocketMessage<?> message) throws IOException;
+
+        /**
+         * Closes the session, because its client could not keep up.
+         *
+         * @throws IOException If closing fails.
+         */
+        void close() throws IOException;
+    }
+
+    private final int capacity;
+    private final Overflow overflow;
+    private final long coalesceMillis;
+    private final long sendTimeoutMillis;
+    private final int writerThreads;
+    private final ExecutorService writers;
+    private final ExecutorService closers;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final AtomicInteger sessions;
+    private final AtomicLong queued;
+    private final AtomicLong maxQueued;
+    private final AtomicLong sent;
+    private final AtomicLong sendNanos;
+    private final AtomicLong maxSendNanos;
+    private final AtomicLong dropped;
+    private final AtomicLong resyncs;
+    private final AtomicLong disconnects;
+    private final AtomicLong sendTimeouts;
+    private final AtomicLong failedSends;
+    private final AtomicLong batches;
+    private final AtomicLong batched;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity       The number of messages a session can have queued.
+     * @param overflow       The policy when a queue is full: "drop-and-resync" or "disconnect".
+     * @param coalesceMillis How long to gather the messages of a session into one frame, or 0 to send each as is.
+     * @param writers        The number of writer threads, or 0 for two per core.
+     * @param sendTimeout    How long sending a frame can take before the session is closed, in millis, or 0 for ever.
+     */
+    public SessionOutboxes(@Value("${talio.websocket.outbound.capacity:256}") final int capacity,
+                           @Value("${talio.websocket.outbound.overflow:drop-and-resync}") final String overflow,
+                           @Value("${talio.websocket.outbound.coalesce-ms:0}") final long coalesceMillis,
+                           @Value("${talio.websocket.outbound.writers:0}") final int writers,
+                           @Value("${talio.websocket.outbound.send-timeout-ms:10000}") final long sendTimeout) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("invalid outbound queue capacity");
+        }
+        if (coalesceMillis < 0) {
+            throw new IllegalArgumentException("invalid coalescing window");
+        }
+        if (writers < 0) {
+            throw new IllegalArgumentException("invalid number of writers");
+        }
+        if (sendTimeout < 0) {
+            throw new IllegalArgumentException("invalid send timeout");
+        }
+
+        this.capacity = capacity;
+        this.overflow = Overflow.of(overflow);
+        this.coalesceMillis = coalesceMillis;
+        this.sendTimeoutMillis = sendTimeout;
+        this.writerThreads = writers == 0 ? 2 * Runtime.getRuntime().availableProcessors() : writers;
+
+        var threads = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(this.writerThreads, r -> {
+            var t = new Thread(r, "websocket-writer-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // the closers are only started when sessions are closed, which is rare.
+        var closerThreads = new AtomicInteger();
+        this.closers = Executors.newFixedThreadPool(this.writerThreads, r -> {
+            var t = new Thread(r, "websocket-closer-" + closerThreads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // the timer only hands queues over to the writers, and the sessions whose send timed out to the closers.
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            var t = new Thread(r, "websocket-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        // most sends are done well before their timeout, which is then cancelled.
+        this.timer.setRemoveOnCancelPolicy(true);
+
+        this.sessions = new AtomicInteger();
+        this.queued = new AtomicLong();
+        this.maxQueued = new AtomicLong();
+        this.sent = new AtomicLong();
+        this.sendNanos = new AtomicLong();
+        this.maxSendNanos = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.resyncs = new AtomicLong();
+        this.disconnects = new AtomicLong();
+        this.sendTimeouts = new AtomicLong();
+        this.failedSends = new AtomicLong();
+        this.batches = new AtomicLong();
+        this.batched = new AtomicLong();
+    }
+
+    /**
+     * Opens the outbox of a session.
+     *
+     * @param transport Sends the messages of the session.
+     * @param resync    Creates the message that tells the client to reload its board, when messages were dropped.
+     * @return The outbox.
+     */
+    Outbox open(final Transport transport, final Supplier<WebSocketMessage<?>> resync) {
+        this.sessions.incrementAndGet();
+        return new Outbox(transport, resync);
+    }
+
+    /**
+     * A message waiting to be sent.
+     *
+     * @param message  The message.
+     * @param since    When it was queued, in nanos.
+     */
+    private record Queued(WebSocketMessage<?> message, long since) {
+    }
+
+    /**
+     * The outbound queue of a session.
+     */
+    final class Outbox {
+        private final Transport transport;
+        private final Supplier<WebSocketMessage<?>> resync;
+
+        // guarded by this.
+        private final ArrayDeque<Queued> queue;
+        private boolean draining;
+        private boolean closed;
+
+        private Outbox(final Transport transport, final Supplier<WebSocketMessage<?>> resync) {
+            this.transport = transport;
+            this.resync = resync;
+            this.queue = new ArrayDeque<>();
+        }
+
+        /**
+         * Queues a message to be sent. Never blocks.
+         *
+         * @param message The message.
+         */
+        void send(final WebSocketMessage<?> message) {
+            var now = System.nanoTime();
+
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+
+                if (this.queue.size() == SessionOutboxes.this.capacity) {
+                    this.overflow();
+                } else {
+                    this.enqueue(new Queued(message, now));
+                }
+            }
+        }
+
+        /**
+         * Adds a message to the queue, and hands the queue over to a writer if none has it yet.
+         *
+         * @param message The message.
+         */
+        private void enqueue(final Queued message) {
+            this.queue.add(message);
+            SessionOutboxes.this.queued.incrementAndGet();
+            SessionOutboxes.this.maxQueued.accumulateAndGet(this.queue.size(), Math::max);
+
+            if (!this.draining) {
+                this.draining = true;
+                if (SessionOutboxes.this.coalesceMillis == 0) {
+                    SessionOutboxes.this.writers.execute(this::drain);
+                } else {
+                    // the timer only hands the queue over to a writer, so a slow send doesn't delay the others.
+                    SessionOutboxes.this.timer.schedule(() -> SessionOutboxes.this.writers.execute(this::drain),
+                            SessionOutboxes.this.coalesceMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        /**
+         * Applies the overflow policy to the full queue, dropping the message that didn't fit.
+         */
+        private void overflow() {
+            SessionOutboxes.this.dropped.addAndGet(this.queue.size() + 1L);
+
+            if (SessionOutboxes.this.overflow == Overflow.DISCONNECT) {
+                this.closeLocked();
+                SessionOutboxes.this.disconnects.incrementAndGet();
+                this.closeTransport();
+                return;
+            }
+
+            this.clear();
+            // the messages dropped (the new one included, whose change the board already has) are replaced by a
+            // single one that makes the client reload the board, which is then as good as having applied them.
+            SessionOutboxes.this.resyncs.incrementAndGet();
+            this.enqueue(new Queued(this.resync.get(), System.nanoTime()));
+        }
+
+        /**
+         * Closes the session, on a closer: closing can block behind a stalled send, and neither the lane of the board
+         * nor a writer should wait for it.
+         */
+        private void closeTransport() {
+            SessionOutboxes.this.closers.execute(() -> {
+                try {
+                    this.transport.close();
+                } catch (IOException e) {
+                    // the session is gone either way.
+                }
+            });
+        }
+
+        /**
+         * Sends a frame, closing the session if that takes longer than the send timeout.
+         *
+         * @param message The frame.
+         * @throws IOException If sending fails.
+         */
+        private void sendFrame(final WebSocketMessage<?> message) throws IOException {
+            if (SessionOutboxes.this.sendTimeoutMillis == 0) {
+                this.transport.send(message);
+                return;
+            }
+
+            var timeout = SessionOutboxes.this.timer.schedule(this::sendTimedOut,
+                    SessionOutboxes.this.sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                this.transport.send(message);
+            } finally {
+                timeout.cancel(false);
+            }
+        }
+
+        private void sendTimedOut() {
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+
+                this.closeLocked();
+            }
+
+            SessionOutboxes.this.sendTimeouts.incrementAndGet();
+            // the send that is stuck fails once the session is closed, which frees its writer.
+            this.closeTransport();
+        }
+
+        private void clear() {
+            SessionOutboxes.this.queued.addAndGet(-this.queue.size());
+            this.queue.clear();
+        }
+
+        private void drain() {
+            for (int frames = 0; ; frames++) {
+                List<Queued> next;
+                synchronized (this) {
+                    if (this.closed || this.queue.isEmpty()) {
+                        this.draining = false;
+                        return;
+                    }
+                    if (frames == FRAMES_PER_TURN) {
+                        // still draining; the queue goes to the back of the line, behind the other sessions.
+                        SessionOutboxes.this.writers.execute(this::drain);
+                        return;
+                    }
+
+                    if (SessionOutboxes.this.coalesceMillis == 0) {
+                        next = List.of(this.queue.poll());
+                    } else {
+                        next = new ArrayList<>(this.queue);
+                        this.queue.clear();
+                    }
+                    SessionOutboxes.this.queued.addAndGet(-next.size());
+                }
+
+                try {
+                    var message = coalesce(next);
+                    if (message != null) {
+                        this.sendFrame(message);
+                    } else {
+                        for (var queued : next) {
+                            this.sendFrame(queued.message());
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    SessionOutboxes.this.failedSends.incrementAndGet();
+                    // the session is broken; the messages queued after these would fail as well.
+                    this.close();
+                    continue;
+                }
+
+                var now = System.nanoTime();
+                for (var queued : next) {
+                    var latency = now - queued.since();
+                    SessionOutboxes.this.sent.incrementAndGet();
+                    SessionOutboxes.this.sendNanos.addAndGet(latency);
+                    SessionOutboxes.this.maxSendNanos.accumulateAndGet(latency, Math::max);
+                }
+            }
+        }
+
+        /**
+         * Closes the outbox, dropping the messages not sent yet.
+         */
+        synchronized void close() {
+            this.closeLocked();
+        }
+
+        private void closeLocked() {
+            if (this.closed) {
+                return;
+            }
+
+            this.closed = true;
+            this.clear();
+            SessionOutboxes.this.sessions.decrementAndGet();
+        }
+
+        /**
+         * The number of messages waiting to be sent.
+         *
+         * @return The queue depth.
+         */
+        synchronized int depth() {
+            return this.queue.size();
+        }
+    }
+
+    /**
+     * Joins messages into a single frame with all their events.
+     *
+     * @param messages The messages, in order.
+     * @return The frame, or null if the messages are not all of the same kind and have to be sent one by one.
+     */
+    private WebSocketMessage<?> coalesce(final List<Queued> messages) {
+        if (messages.size() == 1) {
+            return messages.get(0).message();
+        }
+
+        WebSocketMessage<?> frame;
+        if (messages.stream().allMatch(q -> q.message() instanceof TextMessage)) {
+            var events = new ArrayList<String>(messages.size());
+            for (var queued : messages) {
+                events.add(((TextMessage) queued.message()).getPayload());
+            }
+            frame = new TextMessage(EventCodec.batch(events));
+        } else if (messages.stream().allMatch(q -> q.message() instanceof BinaryMessage)) {
+            var events = new ArrayList<ByteBuffer>(messages.size());
+            for (var queued : messages) {
+                events.add(((BinaryMessage) queued.message()).getPayload());
+            }
+            frame = new BinaryMessage(BinaryEventCodec.batch(events));
+        } else {
+            return null;
+        }
+
+        this.batches.incrementAndGet();
+        this.batched.addAndGet(messages.size());
+        return frame;
+    }
+
+    /**
+     * Gets the metrics of the outbound queues.
+     *
+     * @return The stats.
+     */
+    public Stats stats() {
+        var s = this.sent.get();
+        return new Stats(this.capacity, this.overflow.name(), this.coalesceMillis, this.writerThreads,
+                this.sessions.get(), this.queued.get(), this.maxQueued.get(), s,
+                s == 0 ? 0 : this.sendNanos.get() / s / 1000,
+                TimeUnit.NANOSECONDS.toMicros(this.maxSendNanos.get()), this.dropped.get(), this.resyncs.get(),
+                this.disconnects.get(), this.sendTimeouts.get(), this.failedSends.get(), this.batches.get(),
+                this.batched.get());
+    }
+
+    /**
+     * Stops the writers.
+     */
+    @PreDestroy
+    public void close() {
+        this.timer.shutdownNow();
+        this.writers.shutdownNow();
+        this.closers.shutdownNow();
+    }
+
+    /**
+     * Outbound queue metrics.
+     *
+     * @param capacity             The configured capacity of a queue.
+     * @param overflow             The configured overflow policy.
+     * @param coalesceMillis       The configured coalescing window.
+     * @param writers              The number of writer threads.
+     * @param sessions             The number of open sessions.
+     * @param queued               The number of messages waiting, summed across all sessions.
+     * @param maxQueued            The deepest a queue has been.
+     * @param sent                 The number of messages sent.
+     * @param averageLatencyMicros The average time from queueing a message to having sent it.
+     * @param maxLatencyMicros     The longest time from queueing a message to having sent it.
+     * @param dropped              The number of messages dropped because a queue was full.
+     * @param resyncs              The number of times a client was told to reload its board instead.
+     * @param disconnects          The number of sessions closed because their queue was full.
+     * @param sendTimeouts         The number of sessions closed because a send took longer than the send timeout.
+     * @param failedSends          The number of messages that could not be sent.
+     * @param batches              The number of frames that carried several messages.
+     * @param batched              The number of messages sent in those frames.
+     */
+    public record Stats(int capacity, String overflow, long coalesceMillis, int writers, int sessions, long queued,
+                        long maxQueued, long sent, long averageLatencyMicros, long maxLatencyMicros, long dropped,
+                        long resyncs, long disconnects, long sendTimeouts, long failedSends, long batches,
+                        long batched) {
+    }
+}
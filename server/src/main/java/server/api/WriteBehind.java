@@ -0,0 +1,265 @@
+package server.api;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import server.api.exceptions.BoardBusy;
+import server.database.EntityStore;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind persistence of field updates (titles, texts, colors, ...).
+ * <p>
+ * When enabled, updating a field of an entity of a live board only marks the entity as dirty; the change is applied
+ * to the live board and broadcast right away, and the entity is saved later, on the lane of its board. Updates to an
+ * entity that is already dirty are coalesced into the same write. The pending writes of a board are flushed at most
+ * {@code max-lag} after the first of them, before any structural change to the board (creating, moving or deleting
+ * entities), before the board is loaded again, and on shutdown.
+ * <p>
+ * When disabled, entities are saved right away, as part of the transaction of the update. So are the updates made
+ * within another transaction (the operations of a batch), which have to be rolled back along with it.
+ */
+@Component
+public final class WriteBehind {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehind.class);
+
+    private final boolean enabled;
+    private final long maxLagMillis;
+
+    private final BoardLanes boardLanes;
+    private final BoardCache boardCache;
+    private final TransactionTemplate transaction;
+    private final ScheduledExecutorService timer;
+
+    private final ConcurrentHashMap<Long, Pending> pending;
+
+    private final AtomicLong coalescedWrites;
+    private final AtomicLong flushedWrites;
+    private final AtomicLong flushes;
+    private final AtomicLong failedFlushes;
+    private final AtomicLong maxLagNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param enabled            Whether field updates are written behind, or right away.
+     * @param maxLagMillis       The longest time a write can stay pending.
+     * @param boardLanes         The execution lanes of the boards.
+     * @param boardCache         The cache of live boards.
+     * @param transactionManager The transaction manager.
+     */
+    public WriteBehind(@Value("${talio.write-behind.enabled:false}") final boolean enabled,
+                       @Value("${talio.write-behind.max-lag-ms:200}") final long maxLagMillis,
+                       final BoardLanes boardLanes, final BoardCache boardCache,
+                       final PlatformTransactionManager transactionManager) {
+        if (maxLagMillis < 0) {
+            throw new IllegalArgumentException("invalid write-behind lag");
+        }
+
+        this.enabled = enabled;
+        this.maxLagMillis = maxLagMillis;
+        this.boardLanes = boardLanes;
+        this.boardCache = boardCache;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        this.pending = new ConcurrentHashMap<>();
+
+        this.coalescedWrites = new AtomicLong();
+        this.flushedWrites = new AtomicLong();
+        this.flushes = new AtomicLong();
+        this.failedFlushes = new AtomicLong();
+        this.maxLagNanos = new AtomicLong();
+    }
+
+    /**
+     * Whether field updates are written behind.
+     *
+     * @return Whether write-behind is enabled.
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * A dirty entity: the store to write it with, and its dirty fields.
+     *
+     * @param store  The store.
+     * @param fields The names of the fields.
+     */
+    private record Write(EntityStore<Object> store, Set<String> fields) {
+    }
+
+    /**
+     * The dirty entities of a board.
+     */
+    private static final class Pending {
+        private final IdentityHashMap<Object, Write> writes = new IdentityHashMap<>();
+        private final long since = System.nanoTime();
+    }
+
+    /**
+     * Writes an updated field of an entity of a board: right away if write-behind is disabled or if a transaction is
+     * active, and later otherwise. Should only be called from the lane of the board.
+     *
+     * @param boardId    The board id.
+     * @param entity     The entity, which must be the live instance.
+     * @param store      The store to write it with.
+     * @param field      The name of the field.
+     * @param <E>        The type of the entity.
+     */
+    @SuppressWarnings("unchecked")
+    public <E> void save(final long boardId, final E entity, final EntityStore<E> store, final String field) {
+        // a write left pending would outlive the rollback of the transaction, and be flushed regardless.
+        if (!this.enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            store.update(entity, Set.of(field));
+            return;
+        }
+
+        var created = new boolean[1];
+        var p = this.pending.computeIfAbsent(boardId, id -> {
+            created[0] = true;
+            return new Pending();
+        });
+
+        synchronized (p) {
+            var write = p.writes.get(entity);
+            if (write == null) {
+                p.writes.put(entity, new Write((EntityStore<Object>) store, new HashSet<>(Set.of(field))));
+            } else {
+                write.fields().add(field);
+                this.coalescedWrites.incrementAndGet();
+            }
+        }
+
+        if (created[0]) {
+            this.timer.schedule(() -> this.flushLater(boardId), this.maxLagMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushLater(final long boardId) {
+        try {
+            this.boardLanes.submit(boardId, () -> this.flushOrEvict(boardId));
+        } catch (BoardBusy e) {
+            // try again once the board had the chance to catch up.
+            this.timer.schedule(() -> this.flushLater(boardId), this.maxLagMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushOrEvict(final long boardId) {
+        try {
+            this.flush(boardId);
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not flush the pending writes of board {}; reloading it", boardId, e);
+
+            // the live board is ahead of the database now, so reload it from what was actually persisted.
+            this.boardCache.evict(boardId);
+        }
+    }
+
+    /**
+     * Writes the pending updates of a board, in a transaction (joining the current one, if any). Should only be called
+     * from the lane of the board.
+     *
+     * @param boardId The board id.
+     */
+    public void flush(final long boardId) {
+        var p = this.pending.remove(boardId);
+        if (p == null) {
+            return;
+        }
+
+        ArrayList<Runnable> writes;
+        synchronized (p) {
+            writes = new ArrayList<>(p.writes.size());
+            p.writes.forEach((entity, write) -> writes.add(() -> write.store().update(entity, write.fields())));
+        }
+
+        this.maxLagNanos.accumulateAndGet(System.nanoTime() - p.since, Math::max);
+        this.flushes.incrementAndGet();
+
+        try {
+            this.transaction.executeWithoutResult(status -> writes.forEach(Runnable::run));
+        } catch (RuntimeException e) {
+            this.failedFlushes.incrementAndGet();
+            throw e;
+        }
+
+        this.flushedWrites.addAndGet(writes.size());
+    }
+
+    /**
+     * Flushes the pending updates of all the boards, before the application shuts down.
+     */
+    @PreDestroy
+    public void flushAll() {
+        this.timer.shutdownNow();
+
+        for (var boardId : new ArrayList<>(this.pending.keySet())) {
+            try {
+                this.boardLanes.run(boardId, () -> this.flush(boardId));
+            } catch (RuntimeException e) {
+                LOGGER.error("Could not flush the pending writes of board {} on shutdown", boardId, e);
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the write-behind metrics.
+     *
+     * @return The metrics.
+     */
+    public Stats stats() {
+        int pendingWrites = 0;
+        long oldest = 0;
+        var now = System.nanoTime();
+
+        for (var p : this.pending.values()) {
+            synchronized (p) {
+                pendingWrites += p.writes.size();
+            }
+
+            oldest = Math.max(oldest, now - p.since);
+        }
+
+        return new Stats(this.enabled, this.maxLagMillis, this.pending.size(), pendingWrites,
+                TimeUnit.NANOSECONDS.toMillis(oldest), TimeUnit.NANOSECONDS.toMillis(this.maxLagNanos.get()),
+                this.coalescedWrites.get(), this.flushedWrites.get(), this.flushes.get(), this.failedFlushes.get());
+    }
+
+    /**
+     * Write-behind metrics.
+     *
+     * @param enabled          Whether write-behind is enabled.
+     * @param maxLagMillis     The configured maximum lag.
+     * @param pendingBoards    The number of boards with pending writes.
+     * @param pendingWrites    The number of dirty entities.
+     * @param currentLagMillis The age of the oldest pending write.
+     * @param maxLagSeenMillis The largest lag of a flush so far.
+     * @param coalescedWrites  The number of updates that were merged into an already pending write.
+     * @param flushedWrites    The number of entities written by flushes.
+     * @param flushes          The number of flushes.
+     * @param failedFlushes    The number of flushes that failed.
+     */
+    public record Stats(boolean enabled, long maxLagMillis, int pendingBoards, int pendingWrites,
+                        long currentLagMillis, long maxLagSeenMillis, long coalescedWrites, long flushedWrites,
+                        long flushes, long failedFlushes) {
+    }
+}
@@ -0,0 +1,23 @@
+package server.api.exceptions;
+
+public class BoardBusy extends RuntimeException {
+    private final long id;
+
+    /**
+     * Constructor.
+     *
+     * @param id Board id.
+     */
+    public BoardBusy(final long id) {
+        super("Too many pending requests for board with id " + id);
+        this.id = id;
+    }
+
+    /**
+     * Getter.
+     * @return Board id.
+     */
+    public long getId() {
+        return id;
+    }
+}
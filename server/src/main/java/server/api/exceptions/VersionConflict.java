@@ -0,0 +1,34 @@
+package server.api.exceptions;
+
+public class VersionConflict extends RuntimeException {
+    private final long expected;
+    private final long actual;
+
+    /**
+     * Constructor.
+     *
+     * @param expected The version the client expected the entity to be at.
+     * @param actual   The version the entity is at.
+     */
+    public VersionConflict(final long expected, final long actual) {
+        super("Expected version " + expected + ", but it is at version " + actual);
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    /**
+     * Getter.
+     * @return The expected version.
+     */
+    public long getExpected() {
+        return expected;
+    }
+
+    /**
+     * Getter.
+     * @return The actual version.
+     */
+    public long getActual() {
+        return actual;
+    }
+}
@@ -0,0 +1,109 @@
+package server.database;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+import commons.Board;
+import commons.Card;
+import commons.Tag;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+/**
+ * Converts whole boards to and from the JSON documents the stores that don't use the relational tables keep them as.
+ */
+public final class BoardDocuments {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .findAndRegisterModules()
+            .setDateFormat(new StdDateFormat().withColonInTimeZone(true));
+
+    private static final ObjectReader SUMMARY_READER = MAPPER.readerFor(BoardSummary.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private BoardDocuments() {
+    }
+
+    /**
+     * The object mapper of the documents, which can also be used for the events.
+     *
+     * @return The object mapper.
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Encodes a board.
+     *
+     * @param board The board.
+     * @return The document.
+     * @throws IOException If the board could not be encoded.
+     */
+    public static byte[] encode(final Board board) throws IOException {
+        return MAPPER.writeValueAsBytes(board);
+    }
+
+    /**
+     * Decodes a board, ready to become a live board.
+     *
+     * @param in The document.
+     * @return The board.
+     * @throws IOException If the document could not be decoded.
+     */
+    public static Board decode(final InputStream in) throws IOException {
+        var board = MAPPER.readValue(in, Board.class);
+
+        for (var list : board.getCardLists()) {
+            for (var card : list.getCards()) {
+                relinkTags(board, card);
+            }
+        }
+
+        // the order keys are not part of the JSON, but the children are in order.
+        board.normalizeOrderKeys(l -> { }, c -> { }, s -> { });
+
+        return board;
+    }
+
+    /**
+     * Decodes only the summary of a board, skipping over its lists, tags and presets without building them.
+     *
+     * @param in The document.
+     * @return The summary.
+     * @throws IOException If the document could not be decoded.
+     */
+    public static BoardSummary decodeSummary(final InputStream in) throws IOException {
+        return SUMMARY_READER.readValue(in);
+    }
+
+    /**
+     * Links a decoded card to the tags of the board, instead of the copies it was decoded with.
+     *
+     * @param board The board.
+     * @param card  The card.
+     */
+    public static void relinkTags(final Board board, final Card card) {
+        for (var tag : new ArrayList<>(card.getTags())) {
+            var boardTag = findTag(board, tag.getId());
+            if (boardTag != null && boardTag != tag) {
+                card.patch(cp -> {
+                    cp.removeTag(tag);
+                    cp.addTag(boardTag);
+                });
+            }
+        }
+    }
+
+    private static Tag findTag(final Board board, final long tagId) {
+        for (var tag : board.getTags()) {
+            if (tag.getId() == tagId) {
+                return tag;
+            }
+        }
+
+        return null;
+    }
+}
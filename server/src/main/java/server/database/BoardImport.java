@@ -0,0 +1,231 @@
+package server.database;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.CardSubtask;
+import commons.ColorPreset;
+import commons.Tag;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reads boards to import, and prepares them to be stored as new boards. A board can be read from the JSON of the
+ * board, with all of its lists, cards and subtasks (as {@code /boards/{id}} returns it), or from the NDJSON records
+ * that the boards are exported as.
+ * <p>
+ * Either way, the document is decoded as it is read, without being buffered, but the board is built as a whole before
+ * it is stored, as the stores write a new board at once.
+ */
+public final class BoardImport {
+    private static final Map<String, Field> FIELDS = new ConcurrentHashMap<>();
+
+    /**
+     * Reads the entities from the records, which also have their type and the ids of their parents.
+     */
+    private static final ObjectReader RECORDS = BoardDocuments.mapper().reader()
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private BoardImport() {
+    }
+
+    /**
+     * Reads a board to import, from its JSON.
+     *
+     * @param in The document.
+     * @return The board, with the ids of the document.
+     * @throws IOException If the document could not be read.
+     */
+    public static Board read(final InputStream in) throws IOException {
+        return BoardDocuments.mapper().readValue(in, Board.class);
+    }
+
+    /**
+     * Reads a board to import, from the records it was exported as, one record at a time. The board comes first, and
+     * every other record comes after its parent.
+     *
+     * @param in The records.
+     * @return The board, with the ids of the records.
+     * @throws IOException If the records could not be read, or are out of order.
+     */
+    public static Board readRecords(final InputStream in) throws IOException {
+        Board board = null;
+        var tags = new HashMap<Long, Tag>();
+        var lists = new HashMap<Long, CardList>();
+        var cards = new HashMap<Long, Card>();
+
+        try (MappingIterator<ObjectNode> records = RECORDS.forType(ObjectNode.class).readValues(in)) {
+            while (records.hasNextValue()) {
+                var node = records.nextValue();
+                var type = node.path("type").asText();
+
+                if (board == null) {
+                    if (!type.equals("board")) {
+                        throw new IOException("the first record should be the board, not a " + type);
+                    }
+                    board = RECORDS.readValue(node, Board.class);
+                    continue;
+                }
+
+                var parent = board;
+                switch (type) {
+                    case "preset" -> {
+                        var preset = readRecord(node, ColorPreset.class);
+                        parent.patch(bp -> bp.addCardColorPreset(preset));
+                    }
+                    case "tag" -> {
+                        var tag = readRecord(node, Tag.class);
+                        tags.put(tag.getId(), tag);
+                        parent.patch(bp -> bp.addTag(tag));
+                    }
+                    case "list" -> {
+                        var list = readRecord(node, CardList.class);
+                        lists.put(list.getId(), list);
+                        parent.patch(bp -> bp.addCardList(list));
+                    }
+                    case "card" -> {
+                        var card = readCard(node, tags);
+                        cards.put(card.getId(), card);
+                        parentOf(lists, node, "list").patch(lp -> lp.addCard(card));
+                    }
+                    case "subtask" -> {
+                        var subtask = readRecord(node, CardSubtask.class);
+                        parentOf(cards, node, "card").patch(cp -> cp.addSubtask(subtask));
+                    }
+                    default -> throw new IOException("unknown record type " + type);
+                }
+            }
+        }
+
+        if (board == null) {
+            throw new IOException("there are no records");
+        }
+
+        return board;
+    }
+
+    private static <T> T readRecord(final ObjectNode node, final Class<T> type) throws IOException {
+        return RECORDS.readValue(node, type);
+    }
+
+    private static Card readCard(final ObjectNode node, final Map<Long, Tag> tags) throws IOException {
+        // the tags are only ids, of tags of the board.
+        var tagIds = node.remove("tags");
+        var card = readRecord(node, Card.class);
+
+        if (tagIds != null) {
+            for (var tagId : tagIds) {
+                var tag = tags.get(tagId.asLong());
+                if (tag == null) {
+                    throw new IOException("card " + card.getId() + " has the unknown tag " + tagId.asLong());
+                }
+                card.patch(cp -> cp.addTag(tag));
+            }
+        }
+
+        return card;
+    }
+
+    private static <T> T parentOf(final Map<Long, T> parents, final ObjectNode node, final String field)
+            throws IOException {
+        var parent = parents.get(node.path(field).asLong());
+        if (parent == null) {
+            throw new IOException("the " + field + " of " + node + " comes after it, or doesn't exist");
+        }
+
+        return parent;
+    }
+
+    private static void set(final Object entity, final String name, final long value) {
+        var field = FIELDS.computeIfAbsent(entity.getClass().getName() + "." + name, key -> {
+            try {
+                // the setters of the ids are package-private, and those of the parents only set them once.
+                var f = entity.getClass().getDeclaredField(name);
+                f.setAccessible(true);
+                return f;
+            } catch (NoSuchFieldException e) {
+                throw new IllegalArgumentException(entity.getClass() + " has no field " + name, e);
+            }
+        });
+
+        try {
+            field.setLong(entity, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gives all the entities of a board read by {@link #read} or {@link #readRecords} new ids, and points them to
+     * their new parents. The cards keep their tags and presets, and the children keep their order.
+     *
+     * @param board The board.
+     * @param ids   Allocates the id of a new entity of the given type.
+     */
+    public static void renumber(final Board board, final ToLongFunction<Class<?>> ids) {
+        var boardId = ids.applyAsLong(Board.class);
+        set(board, "id", boardId);
+
+        var tags = new HashMap<Long, Tag>();
+        for (var tag : board.getTags()) {
+            tags.put(tag.getId(), tag);
+            set(tag, "id", ids.applyAsLong(Tag.class));
+            set(tag, "boardId", boardId);
+        }
+
+        var presets = new HashMap<Long, Long>();
+        for (var preset : board.getPresets()) {
+            var id = ids.applyAsLong(ColorPreset.class);
+            presets.put(preset.getId(), id);
+            set(preset, "id", id);
+            set(preset, "board", boardId);
+        }
+        set(board, "defaultCardColorPreset", presets.getOrDefault(board.getDefaultCardColorPreset(), 0L));
+
+        for (var list : board.getCardLists()) {
+            set(list, "id", ids.applyAsLong(CardList.class));
+            set(list, "board", boardId);
+
+            for (var card : list.getCards()) {
+                renumber(card, list, tags, presets, ids);
+            }
+        }
+
+        // the order keys are not part of the JSON, but the children are in order.
+        board.normalizeOrderKeys(l -> { }, c -> { }, s -> { });
+    }
+
+    private static void renumber(final Card card, final CardList list, final Map<Long, Tag> tags,
+                                 final Map<Long, Long> presets, final ToLongFunction<Class<?>> ids) {
+        set(card, "id", ids.applyAsLong(Card.class));
+        set(card, "cardList", list.getId());
+        set(card, "colorPresetKey", presets.getOrDefault(card.getColorPresetKey(), 0L));
+
+        // the card was decoded with copies of the tags, which still have the ids of the document.
+        for (var tag : new ArrayList<>(card.getTags())) {
+            var boardTag = tags.get(tag.getId());
+            card.patch(cp -> {
+                cp.removeTag(tag);
+                if (boardTag != null) {
+                    cp.addTag(boardTag);
+                }
+            });
+        }
+
+        for (CardSubtask subtask : card.getSubtasks()) {
+            set(subtask, "id", ids.applyAsLong(CardSubtask.class));
+            set(subtask, "card", card.getId());
+        }
+    }
+}
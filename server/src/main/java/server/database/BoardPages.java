@@ -0,0 +1,66 @@
+package server.database;
+
+import commons.Board;
+import commons.Card;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A board as its store reads it to export it, rather than its live instance, so that exporting a board doesn't load
+ * it into the board cache: the board itself, and the cards of its lists a page at a time.
+ * <p>
+ * The cards of a list are paged in the order of their order keys (then ids), from the last card of the previous page,
+ * so that a card removed in between doesn't make the next page skip one.
+ */
+public interface BoardPages {
+    /**
+     * The order of the cards of a list, with the cards that don't have an order key yet first.
+     */
+    Comparator<Card> CARD_ORDER = Comparator
+            .comparing((Card card) -> Objects.requireNonNullElse(card.getOrderKey(), ""))
+            .thenComparingLong(Card::getId);
+
+    /**
+     * Gets the board, with its tags, presets and lists. The cards of the lists are read with {@link #cards}.
+     *
+     * @return The board.
+     */
+    Board board();
+
+    /**
+     * Reads a page of the cards of a list, with their tags and subtasks.
+     *
+     * @param listId The list id.
+     * @param after  The last card of the previous page, or null to read the first page.
+     * @param limit  The maximum number of cards to read.
+     * @return The cards, in order; fewer than the limit if this is the last page.
+     */
+    List<Card> cards(long listId, Card after, int limit);
+
+    /**
+     * Pages a board that was read as a whole, for the stores that only hold boards as a whole.
+     *
+     * @param board The board, which should not be a live instance.
+     * @return The pages.
+     */
+    static BoardPages of(final Board board) {
+        return new BoardPages() {
+            @Override
+            public Board board() {
+                return board;
+            }
+
+            @Override
+            public List<Card> cards(final long listId, final Card after, final int limit) {
+                return board.getCardLists().stream().filter(l -> l.getId() == listId).findFirst()
+                        .map(list -> list.getCards().stream()
+                                .filter(card -> after == null || CARD_ORDER.compare(card, after) > 0)
+                                .limit(limit)
+                                .toList())
+                        .orElse(List.of());
+            }
+        };
+    }
+}
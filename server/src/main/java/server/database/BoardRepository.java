@@ -1,8 +1,20 @@
 package server.database;
 
 import commons.Board;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Optional;
+
 
 public interface BoardRepository extends JpaRepository<Board, Long> {
+    /**
+     * Finds a whole board, with its lists joined; the other collections are batch fetched once they are accessed.
+     *
+     * @param id The board id.
+     * @return The board, if it exists.
+     */
+    @Override
+    @EntityGraph(Board.FULL_GRAPH)
+    Optional<Board> findById(Long id);
 }
@@ -0,0 +1,159 @@
+package server.database;
+
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.CardSubtask;
+import commons.ColorPreset;
+import commons.Tag;
+import commons.events.ServerToClientEvent;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The persistence backend of the boards, selected with {@code talio.persistence.mode}.
+ * <p>
+ * The board service patches the live boards in memory, and tells the store about every entity it creates, changes or
+ * deletes, through the entity stores. Once a patch is done (and its transaction, if any, committed), the events it
+ * caused are handed to {@link #journal}, before they are published.
+ */
+public interface BoardStore {
+    /**
+     * The store of the boards themselves.
+     *
+     * @return The entity store.
+     */
+    EntityStore<Board> boards();
+
+    /**
+     * The store of the card lists.
+     *
+     * @return The entity store.
+     */
+    EntityStore<CardList> cardLists();
+
+    /**
+     * The store of the cards.
+     *
+     * @return The entity store.
+     */
+    EntityStore<Card> cards();
+
+    /**
+     * The store of the subtasks.
+     *
+     * @return The entity store.
+     */
+    EntityStore<CardSubtask> subtasks();
+
+    /**
+     * The store of the tags.
+     *
+     * @return The entity store.
+     */
+    EntityStore<Tag> tags();
+
+    /**
+     * The store of the color presets.
+     *
+     * @return The entity store.
+     */
+    EntityStore<ColorPreset> presets();
+
+    /**
+     * Stores that a tag was added to a card. By default, the whole card is saved.
+     *
+     * @param card The card.
+     * @param tag  The tag.
+     */
+    default void cardTagAdded(final Card card, final Tag tag) {
+        cards().save(card);
+    }
+
+    /**
+     * Stores that a tag was removed from a card. By default, the whole card is saved.
+     *
+     * @param card The card.
+     * @param tag  The tag.
+     */
+    default void cardTagRemoved(final Card card, final Tag tag) {
+        cards().save(card);
+    }
+
+    /**
+     * Stores that a tag was removed from all of its cards, as it is being deleted. By default, each card is saved.
+     *
+     * @param tag   The tag.
+     * @param cards The cards it was on.
+     */
+    default void tagRemovedFromCards(final Tag tag, final List<Card> cards) {
+        cards.forEach(cards()::save);
+    }
+
+    /**
+     * Stores that the cards that used a preset don't anymore, as it is being deleted. By default, each card is saved.
+     *
+     * @param presetId The preset id.
+     * @param cards    The cards that used it.
+     */
+    default void presetRemovedFromCards(final long presetId, final List<Card> cards) {
+        cards.forEach(cards()::save);
+    }
+
+    /**
+     * Stores a whole new board at once, such as one read by {@link BoardImport#read}. All of its entities get new ids.
+     *
+     * @param board The board.
+     * @return The board, ready to become the live instance.
+     */
+    Board importBoard(Board board);
+
+    /**
+     * Loads the whole graph of a board, to become its live instance.
+     *
+     * @param boardId The board id.
+     * @return The board, if it exists.
+     */
+    Optional<Board> load(long boardId);
+
+    /**
+     * Reads a board from the store to export it, without it becoming live.
+     *
+     * @param boardId The board id.
+     * @return The board, read a page of cards at a time, if it exists.
+     */
+    Optional<BoardPages> pages(long boardId);
+
+    /**
+     * Gets the summaries of all the boards, sorted by id: their own fields, without their lists, tags and presets.
+     *
+     * @return The boards.
+     */
+    List<Board> findAll();
+
+    /**
+     * Gets the summaries of some boards: their own fields, without their lists, tags and presets.
+     *
+     * @param boardIds The ids of the boards.
+     * @return The boards that exist.
+     */
+    List<Board> findAllById(Iterable<Long> boardIds);
+
+    /**
+     * Counts the boards.
+     *
+     * @return The number of boards.
+     */
+    long count();
+
+    /**
+     * Records the events caused by a patch of a board, once the patch is done. Returns once they are durable, if the
+     * store relies on them for durability; the store of JPA mode doesn't.
+     *
+     * @param boardId The board id.
+     * @param events  The events.
+     */
+    default void journal(final long boardId, final List<ServerToClientEvent> events) {
+    }
+}
@@ -0,0 +1,83 @@
+package server.database;
+
+import commons.Board;
+import commons.events.BoardBackgroundColorSetEvent;
+import commons.events.BoardFontColorSetEvent;
+import commons.events.BoardTitleSetEvent;
+import commons.events.DefaultCardColorPresetSetEvent;
+import commons.events.EventBatch;
+import commons.events.ServerToClientEvent;
+
+import java.util.List;
+
+/**
+ * The fields of a board that it is listed by, kept by the stores that only hold the board as a whole, so that listing
+ * the boards doesn't rebuild or decode each of them.
+ *
+ * @param id                     The board id.
+ * @param title                  The title.
+ * @param fontColor              The font color.
+ * @param backgroundColor        The background color.
+ * @param defaultCardColorPreset The default card color preset.
+ * @param version                The version of the board.
+ */
+public record BoardSummary(long id, String title, String fontColor, String backgroundColor,
+                           long defaultCardColorPreset, long version) {
+    /**
+     * Summarizes a board.
+     *
+     * @param board The board.
+     * @return The summary.
+     */
+    public static BoardSummary of(final Board board) {
+        return new BoardSummary(board.getId(), board.getTitle(), board.getFontColor(), board.getBackgroundColor(),
+                board.getDefaultCardColorPreset(), board.getVersion());
+    }
+
+    /**
+     * Applies the events of a patch to the summary. Only the events that change the fields of the board change the
+     * summary, and each of them increments its version, as it does that of the board.
+     *
+     * @param events The events.
+     * @return The summary after the events.
+     */
+    public BoardSummary apply(final List<? extends ServerToClientEvent> events) {
+        var summary = this;
+        for (var event : events) {
+            summary = summary.apply(event);
+        }
+
+        return summary;
+    }
+
+    private BoardSummary apply(final ServerToClientEvent event) {
+        if (event instanceof EventBatch batch) {
+            return this.apply(batch.events());
+        }
+
+        var next = this.version + 1;
+        if (event instanceof BoardTitleSetEvent e) {
+            return new BoardSummary(this.id, e.newTitle(), this.fontColor, this.backgroundColor,
+                    this.defaultCardColorPreset, next);
+        } else if (event instanceof BoardFontColorSetEvent e) {
+            return new BoardSummary(this.id, this.title, e.fontColor(), this.backgroundColor,
+                    this.defaultCardColorPreset, next);
+        } else if (event instanceof BoardBackgroundColorSetEvent e) {
+            return new BoardSummary(this.id, this.title, this.fontColor, e.background(),
+                    this.defaultCardColorPreset, next);
+        } else if (event instanceof DefaultCardColorPresetSetEvent e) {
+            return new BoardSummary(this.id, this.title, this.fontColor, this.backgroundColor, e.presetKey(), next);
+        }
+
+        return this;
+    }
+
+    /**
+     * Makes the board the summary is of, without its lists, tags and presets, as {@link Board#summary()} does.
+     *
+     * @return The board.
+     */
+    public Board toBoard() {
+        return BoardDocuments.mapper().convertValue(this, Board.class);
+    }
+}
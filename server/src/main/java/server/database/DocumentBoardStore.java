@@ -0,0 +1,252 @@
+package server.database;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.CardSubtask;
+import commons.ColorPreset;
+import commons.Tag;
+import commons.events.ServerToClientEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Stores each board as one document: its JSON, deflated, in a row of the {@code board_document} table. Loading a board
+ * is one lookup by primary key and one decode, instead of joining the tables of all of its entities. Selected with
+ * {@code talio.persistence.mode=document}.
+ * <p>
+ * The entity stores only assign ids. Once a patch is done, the store rewrites the document of the board from the live
+ * instance it loaded, before the events of the patch are published, together with a summary of the board to list it
+ * by, so that listing the boards doesn't decode their documents.
+ * <p>
+ * Ids are allocated from the {@code board_document_ids} sequence, in blocks. Boards stored in JPA mode are not
+ * migrated.
+ */
+@Component
+@ConditionalOnProperty(name = "talio.persistence.mode", havingValue = "document")
+public final class DocumentBoardStore implements BoardStore {
+    private static final long ID_BLOCK = 1024;
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * The live instances of the boards, as loaded or created by this store; the board cache keeps them alive.
+     */
+    private final ConcurrentHashMap<Long, WeakReference<Board>> live;
+
+    private long nextId;
+    private long lastReservedId;
+
+    private final EntityStore<Board> boards =
+            new IdAssigningStore<>(Board.class, this::allocateId, this::createBoard, this::deleteBoard);
+    private final EntityStore<CardList> cardLists = new IdAssigningStore<>(CardList.class, this::allocateId);
+    private final EntityStore<Card> cards = new IdAssigningStore<>(Card.class, this::allocateId);
+    private final EntityStore<CardSubtask> subtasks = new IdAssigningStore<>(CardSubtask.class, this::allocateId);
+    private final EntityStore<Tag> tags = new IdAssigningStore<>(Tag.class, this::allocateId);
+    private final EntityStore<ColorPreset> presets = new IdAssigningStore<>(ColorPreset.class, this::allocateId);
+
+    /**
+     * Constructor. Creates the table and the sequence, if they don't exist yet.
+     *
+     * @param jdbc The JDBC template of the database.
+     */
+    public DocumentBoardStore(final JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.live = new ConcurrentHashMap<>();
+
+        jdbc.execute("CREATE TABLE IF NOT EXISTS board_document (id BIGINT PRIMARY KEY, document BLOB NOT NULL)");
+        // documents stored before the summaries were kept get theirs when they are first listed.
+        jdbc.execute("ALTER TABLE board_document ADD COLUMN IF NOT EXISTS summary VARCHAR");
+        jdbc.execute("CREATE SEQUENCE IF NOT EXISTS board_document_ids START WITH 1 INCREMENT BY " + ID_BLOCK);
+    }
+
+    private synchronized long allocateId() {
+        if (this.nextId == 0 || this.nextId > this.lastReservedId) {
+            var first = this.jdbc.queryForObject("SELECT NEXT VALUE FOR board_document_ids", Long.class);
+            this.nextId = first;
+            this.lastReservedId = first + ID_BLOCK - 1;
+        }
+
+        return this.nextId++;
+    }
+
+    private static byte[] compress(final Board board) {
+        var out = new ByteArrayOutputStream();
+        try (var deflater = new DeflaterOutputStream(out)) {
+            deflater.write(BoardDocuments.encode(board));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static Board decompress(final byte[] document) {
+        try (var in = new InflaterInputStream(new ByteArrayInputStream(document))) {
+            return BoardDocuments.decode(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String summarize(final Board board) {
+        try {
+            return BoardDocuments.mapper().writeValueAsString(BoardSummary.of(board));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Optional<Board> summary(final long boardId, final String summary) {
+        if (summary == null) {
+            var board = this.read(boardId);
+            board.ifPresent(b -> this.jdbc.update("UPDATE board_document SET summary = ? WHERE id = ?",
+                    summarize(b), boardId));
+
+            return board.map(Board::summary);
+        }
+
+        try {
+            return Optional.of(BoardDocuments.mapper().readValue(summary, BoardSummary.class).toBoard());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void createBoard(final Board board) {
+        this.jdbc.update("INSERT INTO board_document (id, document, summary) VALUES (?, ?, ?)", board.getId(),
+                compress(board), summarize(board));
+        this.live.put(board.getId(), new WeakReference<>(board));
+    }
+
+    private void deleteBoard(final long boardId) {
+        this.live.remove(boardId);
+        this.jdbc.update("DELETE FROM board_document WHERE id = ?", boardId);
+    }
+
+    private Optional<Board> read(final long boardId) {
+        return this.jdbc.query("SELECT document FROM board_document WHERE id = ?",
+                (rs, n) -> decompress(rs.getBytes(1)), boardId).stream().findFirst();
+    }
+
+    @Override
+    public EntityStore<Board> boards() {
+        return this.boards;
+    }
+
+    @Override
+    public EntityStore<CardList> cardLists() {
+        return this.cardLists;
+    }
+
+    @Override
+    public EntityStore<Card> cards() {
+        return this.cards;
+    }
+
+    @Override
+    public EntityStore<CardSubtask> subtasks() {
+        return this.subtasks;
+    }
+
+    @Override
+    public EntityStore<Tag> tags() {
+        return this.tags;
+    }
+
+    @Override
+    public EntityStore<ColorPreset> presets() {
+        return this.presets;
+    }
+
+    @Override
+    public Board importBoard(final Board board) {
+        BoardImport.renumber(board, type -> this.allocateId());
+        this.createBoard(board);
+
+        return board;
+    }
+
+    @Override
+    public Optional<Board> load(final long boardId) {
+        var board = this.read(boardId);
+        board.ifPresent(b -> this.live.put(boardId, new WeakReference<>(b)));
+
+        return board;
+    }
+
+    /**
+     * Decodes the document of the board, without it becoming the live instance the store rewrites the document from.
+     *
+     * @param boardId The board id.
+     * @return The board, if it exists.
+     */
+    @Override
+    public Optional<BoardPages> pages(final long boardId) {
+        return this.read(boardId).map(BoardPages::of);
+    }
+
+    @Override
+    public List<Board> findAll() {
+        var rows = this.jdbc.query("SELECT id, summary FROM board_document ORDER BY id",
+                (rs, n) -> Map.entry(rs.getLong(1), Optional.ofNullable(rs.getString(2))));
+
+        var result = new ArrayList<Board>(rows.size());
+        for (var row : rows) {
+            this.summary(row.getKey(), row.getValue().orElse(null)).ifPresent(result::add);
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<Board> findAllById(final Iterable<Long> boardIds) {
+        var result = new ArrayList<Board>();
+        for (var id : boardIds) {
+            this.jdbc.query("SELECT summary FROM board_document WHERE id = ?",
+                    (rs, n) -> Optional.ofNullable(rs.getString(1)), id).stream().findFirst()
+                    .flatMap(summary -> this.summary(id, summary.orElse(null))).ifPresent(result::add);
+        }
+
+        return result;
+    }
+
+    @Override
+    public long count() {
+        return this.jdbc.queryForObject("SELECT COUNT(*) FROM board_document", Long.class);
+    }
+
+    /**
+     * Rewrites the document and the summary of a board, from its live instance.
+     *
+     * @param boardId The board id.
+     * @param events  The events.
+     */
+    @Override
+    public void journal(final long boardId, final List<ServerToClientEvent> events) {
+        var ref = this.live.get(boardId);
+        var board = ref != null ? ref.get() : null;
+        if (board == null) {
+            // the board was deleted by this patch.
+            return;
+        }
+
+        this.jdbc.update("UPDATE board_document SET document = ?, summary = ? WHERE id = ?", compress(board),
+                summarize(board), boardId);
+    }
+}
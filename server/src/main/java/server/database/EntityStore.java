@@ -0,0 +1,42 @@
+package server.database;
+
+import java.util.Set;
+
+/**
+ * Writes the entities of one type, for a {@link BoardStore}.
+ *
+ * @param <E> The type of the entities.
+ */
+public interface EntityStore<E> {
+    /**
+     * Saves an entity, assigning it an id if it doesn't have one yet.
+     *
+     * @param entity The entity.
+     * @return The saved entity, which should be used instead of the given one from now on.
+     */
+    E save(E entity);
+
+    /**
+     * Writes some fields of an entity that is already stored. By default, the whole entity is saved.
+     *
+     * @param entity The entity.
+     * @param fields The names of the fields that changed.
+     */
+    default void update(final E entity, final Set<String> fields) {
+        save(entity);
+    }
+
+    /**
+     * Saves some entities that already have ids.
+     *
+     * @param entities The entities.
+     */
+    void saveAll(Iterable<E> entities);
+
+    /**
+     * Deletes an entity.
+     *
+     * @param id The id of the entity.
+     */
+    void deleteById(long id);
+}
@@ -0,0 +1,76 @@
+package server.database;
+
+import java.lang.reflect.Field;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * An entity store of a {@link BoardStore} that keeps whole boards rather than rows: saving only assigns ids to new
+ * entities, since the rest of the changes reach the board store in other ways.
+ *
+ * @param <E> The type of the entities.
+ */
+public final class IdAssigningStore<E> implements EntityStore<E> {
+    private final Field id;
+    private final LongSupplier ids;
+    private final Consumer<E> created;
+    private final LongConsumer deleted;
+
+    /**
+     * Constructor.
+     *
+     * @param type    The type of the entities.
+     * @param ids     Allocates the ids.
+     * @param created Called with the entities that were assigned an id.
+     * @param deleted Called with the ids of the deleted entities.
+     */
+    public IdAssigningStore(final Class<E> type, final LongSupplier ids, final Consumer<E> created,
+                            final LongConsumer deleted) {
+        try {
+            // the setters of the ids are package-private.
+            this.id = type.getDeclaredField("id");
+            this.id.setAccessible(true);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException(type + " has no id", e);
+        }
+
+        this.ids = ids;
+        this.created = created;
+        this.deleted = deleted;
+    }
+
+    /**
+     * Constructor, for entities that the board store doesn't have to know about.
+     *
+     * @param type The type of the entities.
+     * @param ids  Allocates the ids.
+     */
+    public IdAssigningStore(final Class<E> type, final LongSupplier ids) {
+        this(type, ids, e -> { }, id -> { });
+    }
+
+    @Override
+    public E save(final E entity) {
+        try {
+            if (this.id.getLong(entity) == 0) {
+                this.id.setLong(entity, this.ids.getAsLong());
+                this.created.accept(entity);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return entity;
+    }
+
+    @Override
+    public void saveAll(final Iterable<E> entities) {
+        // only the order keys are saved this way, and they are rebuilt when a board is loaded.
+    }
+
+    @Override
+    public void deleteById(final long entityId) {
+        this.deleted.accept(entityId);
+    }
+}
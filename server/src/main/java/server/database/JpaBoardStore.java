@@ -0,0 +1,621 @@
+package server.database;
+
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.CardSubtask;
+import commons.ColorPreset;
+import commons.Tag;
+import commons.events.ColorPresetCreatedEvent;
+import commons.events.ColorPresetRemovedEvent;
+import commons.events.ServerToClientEvent;
+import commons.events.TagCreatedEvent;
+import commons.events.TagDeletedEvent;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import server.Config;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Stores the boards in normalized tables, through the JPA repositories. This is the default persistence mode.
+ */
+@Component
+@ConditionalOnProperty(name = "talio.persistence.mode", havingValue = "jpa", matchIfMissing = true)
+public final class JpaBoardStore implements BoardStore {
+    private static final String VERSION = "version";
+
+    /**
+     * The allocation size of the sequences that hibernate generates the ids from, which is also the number of ids
+     * each value of a sequence stands for.
+     */
+    private static final long ID_BLOCK = 50;
+
+    /**
+     * The rows inserted per JDBC batch, when importing a board.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * The statements that delete the children of a card, before the card itself is deleted.
+     */
+    private static final List<String> CARD_CHILDREN = List.of(
+            "delete from card_subtask where card = ?1",
+            "delete from card_tags where card_id = ?1");
+
+    /**
+     * The statements that delete the children of a list (and theirs), before the list itself is deleted.
+     */
+    private static final List<String> CARD_LIST_CHILDREN = List.of(
+            "delete from card_subtask where card in (select id from card where card_list = ?1)",
+            "delete from card_tags where card_id in (select id from card where card_list = ?1)",
+            "delete from card where card_list = ?1");
+
+    /**
+     * The statements that delete the children of a board (and theirs), before the board itself is deleted.
+     */
+    private static final List<String> BOARD_CHILDREN = List.of(
+            "delete from card_subtask where card in (select c.id from card c join card_list l on c.card_list = l.id "
+                    + "where l.board = ?1)",
+            "delete from card_tags where card_id in (select c.id from card c join card_list l on c.card_list = l.id "
+                    + "where l.board = ?1)",
+            "delete from card_tags where tags_id in (select id from tag where board_id = ?1)",
+            "delete from card where card_list in (select id from card_list where board = ?1)",
+            "delete from card_list where board = ?1",
+            "delete from tag where board_id = ?1",
+            "delete from color_preset where board = ?1");
+
+    /**
+     * Selects a page of the cards of a list, after the given order key and id; the cards that don't have an order key
+     * yet come first, as they do when the list is loaded.
+     */
+    private static final String CARD_PAGE = "select c from Card c where c.cardList = :list"
+            + " and (coalesce(c.orderKey, '') > :key or (coalesce(c.orderKey, '') = :key and c.id > :id))"
+            + " order by coalesce(c.orderKey, ''), c.id";
+
+    private static final Map<Class<?>, String> TABLES = Map.of(Board.class, "board", CardList.class, "card_list",
+            Card.class, "card", CardSubtask.class, "card_subtask", Tag.class, "tag", ColorPreset.class, "color_preset");
+
+    private final BoardRepository boardRepository;
+
+    private final EntityStore<Board> boards;
+    private final EntityStore<CardList> cardLists;
+    private final EntityStore<Card> cards;
+    private final EntityStore<CardSubtask> subtasks;
+    private final EntityStore<Tag> tags;
+    private final EntityStore<ColorPreset> presets;
+
+    private final TransactionTemplate transaction;
+    private final EntityManager entityManager;
+
+    /**
+     * Constructor.
+     *
+     * @param config             Config, with the repositories.
+     * @param transactionManager The transaction manager.
+     * @param entityManager      The shared entity manager, for the targeted updates.
+     */
+    public JpaBoardStore(final Config config, final PlatformTransactionManager transactionManager,
+                         final EntityManager entityManager) {
+        this.boardRepository = config.getBoardRepository();
+        this.entityManager = entityManager;
+
+        this.boards = new RepositoryStore<>(config.getBoardRepository(), Board.class, entityManager,
+                BOARD_CHILDREN);
+        this.cardLists = new RepositoryStore<>(config.getCardListRepository(), CardList.class, entityManager,
+                CARD_LIST_CHILDREN);
+        this.cards = new RepositoryStore<>(config.getCardRepository(), Card.class, entityManager, CARD_CHILDREN);
+        this.subtasks = new RepositoryStore<>(config.getSubtaskRepository(), CardSubtask.class, entityManager,
+                List.of());
+        this.tags = new RepositoryStore<>(config.getTagRepository(), Tag.class, entityManager, List.of());
+        this.presets = new RepositoryStore<>(config.getColorPresetRepository(), ColorPreset.class, entityManager,
+                List.of());
+
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * An entity store that writes through a repository, joining the current transaction.
+     *
+     * @param <E> The type of the entities.
+     */
+    private static final class RepositoryStore<E> implements EntityStore<E> {
+        private final JpaRepository<E, Long> repository;
+        private final Class<E> type;
+        private final EntityManager entityManager;
+        private final ConcurrentHashMap<String, Field> fields;
+        private final boolean cached;
+        private final boolean versioned;
+        private final List<String> children;
+
+        private RepositoryStore(final JpaRepository<E, Long> repository, final Class<E> type,
+                                final EntityManager entityManager, final List<String> children) {
+            this.repository = repository;
+            this.children = children;
+            this.type = type;
+            this.entityManager = entityManager;
+            this.fields = new ConcurrentHashMap<>();
+            this.cached = type.isAnnotationPresent(Cacheable.class);
+            this.versioned = Arrays.stream(type.getDeclaredFields()).anyMatch(f -> f.getName().equals(VERSION));
+        }
+
+        private Field field(final String name) {
+            return this.fields.computeIfAbsent(name, n -> {
+                try {
+                    var f = this.type.getDeclaredField(n);
+                    f.setAccessible(true);
+                    return f;
+                } catch (NoSuchFieldException e) {
+                    throw new IllegalArgumentException(this.type.getSimpleName() + " has no field " + n, e);
+                }
+            });
+        }
+
+        private Object get(final E entity, final String name) {
+            try {
+                return this.field(name).get(entity);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void set(final E entity, final String name, final Object value) {
+            try {
+                this.field(name).set(entity, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public E save(final E entity) {
+            return this.repository.save(entity);
+        }
+
+        /**
+         * Updates only the columns of the fields, with one statement; unlike a save, which merges the detached
+         * entity, so it first selects it (with its collections), and then updates all of its columns.
+         * <p>
+         * A bulk update would evict the whole cache region of a cached entity, so those are instead found (in the
+         * cache, usually) and updated through the session, which updates their cache entry as well.
+         * <p>
+         * The version of a versioned entity changes with its fields, so it is always written along with them.
+         */
+        @Override
+        public void update(final E entity, final Set<String> changed) {
+            var fields = changed;
+            if (this.versioned && !changed.contains(VERSION)) {
+                fields = new HashSet<>(changed);
+                fields.add(VERSION);
+            }
+
+            if (this.cached) {
+                var managed = this.entityManager.find(this.type, this.get(entity, "id"));
+                if (managed != null) {
+                    for (var field : fields) {
+                        this.set(managed, field, this.get(entity, field));
+                    }
+                }
+
+                return;
+            }
+
+            var jpql = new StringBuilder("update ").append(this.type.getSimpleName()).append(" e set ");
+            var first = true;
+            for (var field : fields) {
+                jpql.append(first ? "" : ", ").append("e.").append(field).append(" = :").append(field);
+                first = false;
+            }
+            jpql.append(" where e.id = :id");
+
+            var query = this.entityManager.createQuery(jpql.toString());
+            for (var field : fields) {
+                query.setParameter(field, this.get(entity, field));
+            }
+            query.setParameter("id", this.get(entity, "id"));
+
+            query.executeUpdate();
+        }
+
+        @Override
+        public void saveAll(final Iterable<E> entities) {
+            this.repository.saveAll(entities);
+        }
+
+        /**
+         * Deletes an entity, and its children along with it, with one statement per table; the entities only refer to
+         * their parents by id, so nothing else would delete them.
+         */
+        @Override
+        public void deleteById(final long id) {
+            for (var statement : this.children) {
+                this.entityManager.createNativeQuery(statement)
+                        .unwrap(NativeQuery.class)
+                        .addSynchronizedQuerySpace(statement.split(" ")[2])
+                        .setParameter(1, id)
+                        .executeUpdate();
+            }
+
+            this.repository.deleteById(id);
+        }
+    }
+
+    // the native statements declare the only table they touch; otherwise, hibernate would clear the second-level cache.
+    @Override
+    public void cardTagAdded(final Card card, final Tag tag) {
+        this.entityManager.createNativeQuery("insert into card_tags (card_id, tags_id) values (?1, ?2)")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("card_tags")
+                .setParameter(1, card.getId())
+                .setParameter(2, tag.getId())
+                .executeUpdate();
+    }
+
+    @Override
+    public void cardTagRemoved(final Card card, final Tag tag) {
+        this.entityManager.createNativeQuery("delete from card_tags where card_id = ?1 and tags_id = ?2")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("card_tags")
+                .setParameter(1, card.getId())
+                .setParameter(2, tag.getId())
+                .executeUpdate();
+    }
+
+    @Override
+    public void tagRemovedFromCards(final Tag tag, final List<Card> cards) {
+        this.entityManager.createNativeQuery("delete from card_tags where tags_id = ?1")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("card_tags")
+                .setParameter(1, tag.getId())
+                .executeUpdate();
+    }
+
+    @Override
+    public void presetRemovedFromCards(final long presetId, final List<Card> cards) {
+        this.entityManager.createQuery("update Card c set c.colorPresetKey = 0, c.version = c.version + 1 "
+                        + "where c.colorPresetKey = :preset")
+                .setParameter("preset", presetId)
+                .executeUpdate();
+    }
+
+    @Override
+    public EntityStore<Board> boards() {
+        return this.boards;
+    }
+
+    @Override
+    public EntityStore<CardList> cardLists() {
+        return this.cardLists;
+    }
+
+    @Override
+    public EntityStore<Card> cards() {
+        return this.cards;
+    }
+
+    @Override
+    public EntityStore<CardSubtask> subtasks() {
+        return this.subtasks;
+    }
+
+    @Override
+    public EntityStore<Tag> tags() {
+        return this.tags;
+    }
+
+    @Override
+    public EntityStore<ColorPreset> presets() {
+        return this.presets;
+    }
+
+    /**
+     * Inserts all the rows of the board with JDBC batches, in one transaction, rather than persisting the entities one
+     * by one.
+     * <p>
+     * The ids are taken from the sequences of the entities, in blocks of {@link #ID_BLOCK} ids per value, the same
+     * way hibernate takes them (with its pooled optimizer); so both can allocate from them at the same time.
+     *
+     * @param board The board.
+     * @return The board.
+     */
+    @Override
+    public Board importBoard(final Board board) {
+        this.transaction.executeWithoutResult(status -> this.entityManager.unwrap(Session.class).doWork(connection -> {
+            BoardImport.renumber(board, new SequenceBlocks(connection));
+            insert(connection, board);
+        }));
+
+        return board;
+    }
+
+    /**
+     * Allocates ids from the sequences of the entities, one block at a time.
+     */
+    private static final class SequenceBlocks implements ToLongFunction<Class<?>> {
+        private final Connection connection;
+        private final HashMap<Class<?>, long[]> blocks;
+
+        private SequenceBlocks(final Connection connection) {
+            this.connection = connection;
+            this.blocks = new HashMap<>();
+        }
+
+        @Override
+        public long applyAsLong(final Class<?> type) {
+            // the next id, and the last id of the block.
+            var block = this.blocks.computeIfAbsent(type, t -> new long[] {1, 0});
+            if (block[0] > block[1]) {
+                var sequence = TABLES.get(type) + "_seq";
+                try (var statement = this.connection.createStatement();
+                     var result = statement.executeQuery("select next value for " + sequence)) {
+                    result.next();
+                    var last = result.getLong(1);
+
+                    // hibernate starts a new sequence with a block of its own, up to its first value.
+                    block[0] = Math.max(1, last - ID_BLOCK + 1);
+                    block[1] = last;
+                } catch (SQLException e) {
+                    throw new IllegalStateException("could not allocate ids from " + sequence, e);
+                }
+            }
+
+            return block[0]++;
+        }
+    }
+
+    /**
+     * A batched insert statement, executed every {@link #BATCH_SIZE} rows.
+     */
+    private static final class BatchInsert implements AutoCloseable {
+        private final PreparedStatement statement;
+        private int rows;
+
+        private BatchInsert(final Connection connection, final String table, final String... columns)
+                throws SQLException {
+            var placeholders = String.join(", ", Collections.nCopies(columns.length, "?"));
+            this.statement = connection.prepareStatement(
+                    "insert into " + table + " (" + String.join(", ", columns) + ") values (" + placeholders + ")");
+        }
+
+        private void add(final Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                this.statement.setObject(i + 1, values[i]);
+            }
+
+            this.statement.addBatch();
+            if (++this.rows % BATCH_SIZE == 0) {
+                this.statement.executeBatch();
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (this.rows % BATCH_SIZE != 0) {
+                    this.statement.executeBatch();
+                }
+            } finally {
+                this.statement.close();
+            }
+        }
+    }
+
+    private static void insert(final Connection connection, final Board board) throws SQLException {
+        try (var boards = new BatchInsert(connection, "board",
+                "id", "title", "font_color", "background_color", "default_card_color_preset", "version")) {
+            boards.add(board.getId(), board.getTitle(), board.getFontColor(), board.getBackgroundColor(),
+                    board.getDefaultCardColorPreset(), board.getVersion());
+        }
+
+        try (var tags = new BatchInsert(connection, "tag", "id", "name", "font_color", "background_color", "board_id");
+             var presets = new BatchInsert(connection, "color_preset",
+                     "id", "name", "background", "foreground", "board", "presets_sequence")) {
+            for (var tag : board.getTags()) {
+                tags.add(tag.getId(), tag.getName(), tag.getFontColor(), tag.getBackgroundColor(), board.getId());
+            }
+
+            var sequence = 0;
+            for (var preset : board.getPresets()) {
+                presets.add(preset.getId(), preset.getName(), preset.getBackground(), preset.getForeground(),
+                        board.getId(), sequence++);
+            }
+        }
+
+        try (var lists = new BatchInsert(connection, "card_list",
+                "id", "board", "title", "font_color", "background_color", "order_key", "version");
+             var cards = new BatchInsert(connection, "card", "id", "card_list", "title", "text", "category",
+                     "due_date", "color_preset_key", "order_key", "version");
+             var cardTags = new BatchInsert(connection, "card_tags", "card_id", "tags_id");
+             var subtasks = new BatchInsert(connection, "card_subtask",
+                     "id", "card", "name", "completed", "order_key")) {
+            for (var list : board.getCardLists()) {
+                lists.add(list.getId(), board.getId(), list.getTitle(), list.getFontColor(),
+                        list.getBackgroundColor(), list.getOrderKey(), list.getVersion());
+
+                for (var card : list.getCards()) {
+                    var dueDate = card.getDueDate() != null ? card.getDueDate().toOffsetDateTime() : null;
+                    cards.add(card.getId(), list.getId(), card.getTitle(), card.getText(), card.getCategory(),
+                            dueDate, card.getColorPresetKey(), card.getOrderKey(), card.getVersion());
+
+                    for (var tag : card.getTags()) {
+                        cardTags.add(card.getId(), tag.getId());
+                    }
+
+                    for (var subtask : card.getSubtasks()) {
+                        subtasks.add(subtask.getId(), card.getId(), subtask.getName(), subtask.isCompleted(),
+                                subtask.getOrderKey());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Initializes the lazy collections of a board, while its session is still open. With batch fetching, this takes a
+     * few statements per level of the graph, rather than one per list or card.
+     *
+     * @param board The board.
+     */
+    private static void initialize(final Board board) {
+        Hibernate.initialize(board.getTags());
+        Hibernate.initialize(board.getPresets());
+
+        for (var list : board.getCardLists()) {
+            for (var card : list.getCards()) {
+                Hibernate.initialize(card.getTags());
+                Hibernate.initialize(card.getSubtasks());
+            }
+        }
+    }
+
+    /**
+     * Loads the whole board graph from the database. The board outlives the session it was loaded in,
+     * so the lazy associations have to be initialized here.
+     * <p>
+     * Rows that don't have an order key yet (created before order keys existed) get one here.
+     *
+     * @param boardId The board id.
+     * @return The board, if it exists.
+     */
+    @Override
+    public Optional<Board> load(final long boardId) {
+        return this.transaction.execute(status -> {
+            var board = this.boardRepository.findById(boardId);
+
+            board.ifPresent(b -> {
+                initialize(b);
+                b.normalizeOrderKeys(this.cardLists::save, this.cards::save, this.subtasks::save);
+            });
+
+            return board;
+        });
+    }
+
+    /**
+     * Reads the board with its tags, presets and lists, and then the cards of a list a page at a time, each page in a
+     * transaction of its own. The entities are detached once read, so they are not the ones of the live board.
+     *
+     * @param boardId The board id.
+     * @return The board, if it exists.
+     */
+    @Override
+    public Optional<BoardPages> pages(final long boardId) {
+        var board = this.transaction.execute(status -> {
+            var b = this.entityManager.find(Board.class, boardId);
+            if (b != null) {
+                Hibernate.initialize(b.getTags());
+                Hibernate.initialize(b.getPresets());
+                Hibernate.initialize(b.getCardLists());
+            }
+
+            return Optional.ofNullable(b);
+        });
+
+        return board.map(b -> new BoardPages() {
+            @Override
+            public Board board() {
+                return b;
+            }
+
+            @Override
+            public List<Card> cards(final long listId, final Card after, final int limit) {
+                return JpaBoardStore.this.cardPage(listId, after, limit);
+            }
+        });
+    }
+
+    private List<Card> cardPage(final long listId, final Card after, final int limit) {
+        // the first page starts after the least possible order key and id.
+        var key = after != null ? Objects.requireNonNullElse(after.getOrderKey(), "") : "";
+        var id = after != null ? after.getId() : 0L;
+
+        return this.transaction.execute(status -> {
+            var cards = this.entityManager.createQuery(CARD_PAGE, Card.class)
+                    .setParameter("list", listId)
+                    .setParameter("key", key)
+                    .setParameter("id", id)
+                    .setMaxResults(limit)
+                    .getResultList();
+
+            for (var card : cards) {
+                Hibernate.initialize(card.getTags());
+                Hibernate.initialize(card.getSubtasks());
+            }
+
+            return cards;
+        });
+    }
+
+    /**
+     * Reads the board rows only, in one statement; the collections of the boards are never fetched.
+     *
+     * @return The boards.
+     */
+    @Override
+    public List<Board> findAll() {
+        return this.transaction.execute(status ->
+                this.boardRepository.findAll(Sort.by(Sort.Direction.ASC, "id")).stream().map(Board::summary).toList());
+    }
+
+    /**
+     * Reads the board rows only, in one statement; the collections of the boards are never fetched.
+     *
+     * @param boardIds The ids of the boards.
+     * @return The boards that exist.
+     */
+    @Override
+    public List<Board> findAllById(final Iterable<Long> boardIds) {
+        return this.transaction.execute(status ->
+                this.boardRepository.findAllById(boardIds).stream().map(Board::summary).toList());
+    }
+
+    @Override
+    public long count() {
+        return this.boardRepository.count();
+    }
+
+    /**
+     * Evicts the cached tag or preset ids of the board when a tag or preset was created or deleted. Hibernate doesn't
+     * do it, as those collections are the inverse side of their association; field updates, however, do go through
+     * the cache.
+     *
+     * @param boardId The board id.
+     * @param events  The events.
+     */
+    @Override
+    public void journal(final long boardId, final List<ServerToClientEvent> events) {
+        var cache = this.entityManager.getEntityManagerFactory().getCache().unwrap(Cache.class);
+
+        for (var event : events) {
+            if (event instanceof TagCreatedEvent || event instanceof TagDeletedEvent) {
+                cache.evictCollectionData(SecondLevelCache.BOARD_TAGS, boardId);
+            } else if (event instanceof ColorPresetCreatedEvent || event instanceof ColorPresetRemovedEvent) {
+                cache.evictCollectionData(SecondLevelCache.BOARD_PRESETS, boardId);
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package server.database;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Deletes the rows whose parent row is gone: the lists of deleted boards, the cards of deleted lists, and so on. The
+ * boards, lists and cards are deleted along with their children now, but the rows orphaned before that (or by
+ * deleting rows by hand) would otherwise stay in the database for good.
+ * <p>
+ * The rows are deleted a batch at a time, each batch in a transaction of its own, with a pause between the batches,
+ * so that a collection doesn't hold locks for long nor compete with the requests for the database. The parents are
+ * collected before their children, so that the children they orphan are collected in the same run.
+ */
+@Component
+@ConditionalOnProperty(name = "talio.persistence.mode", havingValue = "jpa", matchIfMissing = true)
+public final class OrphanCollector {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrphanCollector.class);
+
+    /**
+     * A kind of orphans: how to find a batch of them, and how to delete it.
+     *
+     * @param find    Selects the ids of orphans.
+     * @param deletes Delete the rows of the orphans with the ids in {@code :ids}, their links to other rows first.
+     */
+    private record Kind(String find, List<String> deletes) {
+    }
+
+    private static final List<Kind> KINDS = List.of(
+            new Kind("select l.id from card_list l where not exists "
+                    + "(select 1 from board b where b.id = l.board)",
+                    List.of("delete from card_list where id in (:ids)")),
+            new Kind("select c.id from card c where not exists "
+                    + "(select 1 from card_list l where l.id = c.card_list)",
+                    List.of("delete from card_tags where card_id in (:ids)", "delete from card where id in (:ids)")),
+            new Kind("select s.id from card_subtask s where not exists "
+                    + "(select 1 from card c where c.id = s.card)",
+                    List.of("delete from card_subtask where id in (:ids)")),
+            new Kind("select t.id from tag t where not exists "
+                    + "(select 1 from board b where b.id = t.board_id)",
+                    List.of("delete from card_tags where tags_id in (:ids)", "delete from tag where id in (:ids)")),
+            new Kind("select p.id from color_preset p where not exists "
+                    + "(select 1 from board b where b.id = p.board)",
+                    List.of("delete from color_preset where id in (:ids)")));
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final ScheduledExecutorService timer;
+    private volatile boolean closed;
+
+    private final AtomicLong runs;
+    private final AtomicLong reclaimedRows;
+    private final AtomicReference<Report> lastRun;
+
+    /**
+     * Constructor.
+     *
+     * @param intervalMillis     The time between two collections, or 0 to only collect when asked to.
+     * @param batchSize          The most rows of a table deleted per transaction.
+     * @param pauseMillis        The pause between two batches.
+     * @param entityManager      The shared entity manager.
+     * @param transactionManager The transaction manager.
+     */
+    public OrphanCollector(@Value("${talio.orphan-gc.interval-ms:600000}") final long intervalMillis,
+                           @Value("${talio.orphan-gc.batch-size:500}") final int batchSize,
+                           @Value("${talio.orphan-gc.pause-ms:50}") final long pauseMillis,
+                           final EntityManager entityManager, final PlatformTransactionManager transactionManager) {
+        if (intervalMillis < 0 || batchSize < 1 || pauseMillis < 0) {
+            throw new IllegalArgumentException("invalid orphan collection settings");
+        }
+
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+
+        this.runs = new AtomicLong();
+        this.reclaimedRows = new AtomicLong();
+        this.lastRun = new AtomicReference<>();
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "orphan-collector");
+            t.setDaemon(true);
+            return t;
+        });
+        if (intervalMillis > 0) {
+            this.timer.scheduleWithFixedDelay(this::collectOrReport, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void collectOrReport() {
+        try {
+            this.collect();
+        } catch (RuntimeException e) {
+            // the next run tries again.
+            LOGGER.error("Could not collect the orphaned rows", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deletes all the orphans there are.
+     *
+     * @return What was deleted.
+     * @throws InterruptedException If interrupted while pausing between two batches, or closed.
+     */
+    public synchronized Report collect() throws InterruptedException {
+        var start = System.nanoTime();
+        var reclaimed = new long[KINDS.size()];
+        var batches = 0L;
+
+        for (int i = 0; i < KINDS.size(); i++) {
+            var kind = KINDS.get(i);
+
+            int deleted;
+            do {
+                if (this.closed) {
+                    throw new InterruptedException("the orphan collector was closed");
+                }
+
+                if (batches > 0 && this.pauseMillis > 0) {
+                    Thread.sleep(this.pauseMillis);
+                }
+
+                deleted = this.transaction.execute(status -> this.deleteBatch(kind));
+                reclaimed[i] += deleted;
+                batches++;
+            } while (deleted == this.batchSize);
+        }
+
+        var report = new Report(reclaimed[0], reclaimed[1], reclaimed[2], reclaimed[3], reclaimed[4], batches,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        this.runs.incrementAndGet();
+        this.reclaimedRows.addAndGet(report.rows());
+        this.lastRun.set(report);
+
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int deleteBatch(final Kind kind) {
+        List<Number> ids = this.entityManager.createNativeQuery(kind.find())
+                .setMaxResults(this.batchSize)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        var longIds = ids.stream().map(Number::longValue).toList();
+        for (var delete : kind.deletes()) {
+            // each statement declares the only table it touches; otherwise, hibernate would clear the whole
+            // second-level cache.
+            this.entityManager.createNativeQuery(delete)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace(delete.split(" ")[2])
+                    .setParameter("ids", longIds)
+                    .executeUpdate();
+        }
+
+        return ids.size();
+    }
+
+    /**
+     * Gets the metrics of the collector.
+     *
+     * @return The stats.
+     */
+    public Stats stats() {
+        return new Stats(this.runs.get(), this.reclaimedRows.get(), this.lastRun.get());
+    }
+
+    /**
+     * Stops the collector. A running collection stops after its current batch; it is not interrupted, since that
+     * could close the files of the database.
+     */
+    @PreDestroy
+    public void close() {
+        this.closed = true;
+        this.timer.shutdown();
+        try {
+            this.timer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * What a collection deleted.
+     *
+     * @param lists    The number of lists deleted.
+     * @param cards    The number of cards deleted.
+     * @param subtasks The number of subtasks deleted.
+     * @param tags     The number of tags deleted.
+     * @param presets  The number of presets deleted.
+     * @param batches  The number of transactions it took.
+     * @param millis   The time it took, pauses included.
+     */
+    public record Report(long lists, long cards, long subtasks, long tags, long presets, long batches, long millis) {
+        /**
+         * The total number of rows deleted, not counting the links between cards and tags.
+         *
+         * @return The number of rows.
+         */
+        @JsonGetter("rows")
+        public long rows() {
+            return this.lists + this.cards + this.subtasks + this.tags + this.presets;
+        }
+    }
+
+    /**
+     * Orphan collection metrics.
+     *
+     * @param runs          The number of collections so far.
+     * @param reclaimedRows The number of rows deleted so far.
+     * @param lastRun       What the last collection deleted, or null if there was none yet.
+     */
+    public record Stats(long runs, long reclaimedRows, Report lastRun) {
+    }
+}
@@ -0,0 +1,96 @@
+package server.database;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import commons.Board;
+import commons.ColorPreset;
+import commons.Tag;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * The regions of the second-level cache of hibernate, which keeps the tags and presets (and the ids of those of each
+ * board) across sessions, so that loading a board or finding a tag doesn't read them from the database again.
+ */
+@Component
+public final class SecondLevelCache {
+    /**
+     * The region of the tags.
+     */
+    public static final String TAGS = Tag.class.getName();
+
+    /**
+     * The region of the presets.
+     */
+    public static final String PRESETS = ColorPreset.class.getName();
+
+    /**
+     * The region of the tag ids of each board.
+     */
+    public static final String BOARD_TAGS = Board.class.getName() + ".tags";
+
+    /**
+     * The region of the preset ids of each board.
+     */
+    public static final String BOARD_PRESETS = Board.class.getName() + ".presets";
+
+    private static final List<String> REGIONS = List.of(TAGS, PRESETS, BOARD_TAGS, BOARD_PRESETS);
+
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Constructor.
+     *
+     * @param entityManagerFactory The entity manager factory.
+     */
+    public SecondLevelCache(final EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    /**
+     * Gets the metrics of the regions. They are only counted while hibernate.generate_statistics is on.
+     *
+     * @return The stats.
+     */
+    public Stats stats() {
+        var statistics = this.sessionFactory.getStatistics();
+
+        return new Stats(REGIONS.stream().map(name -> {
+            var region = statistics.getDomainDataRegionStatistics(name);
+            return new Region(name, region.getHitCount(), region.getMissCount(), region.getPutCount(),
+                    region.getElementCountInMemory());
+        }).toList());
+    }
+
+    /**
+     * Metrics of a cache region.
+     *
+     * @param name     The name of the region.
+     * @param hits     The number of lookups served from the cache.
+     * @param misses   The number of lookups that had to read the database.
+     * @param puts     The number of entries put in the cache.
+     * @param elements The number of entries in memory, or a negative number if the cache doesn't count them.
+     */
+    public record Region(String name, long hits, long misses, long puts, long elements) {
+        /**
+         * The ratio of hits to lookups.
+         *
+         * @return The hit rate, or 0 if there were no lookups yet.
+         */
+        @JsonGetter("hitRate")
+        public double hitRate() {
+            var lookups = this.hits + this.misses;
+            return lookups == 0 ? 0 : (double) this.hits / lookups;
+        }
+    }
+
+    /**
+     * Second-level cache metrics.
+     *
+     * @param regions The metrics of each region.
+     */
+    public record Stats(List<Region> regions) {
+    }
+}
@@ -0,0 +1,205 @@
+package server.database.wal;
+
+import commons.Board;
+import commons.Tag;
+import commons.events.BoardBackgroundColorSetEvent;
+import commons.events.BoardFontColorSetEvent;
+import commons.events.BoardTitleSetEvent;
+import commons.events.CardCategorySetEvent;
+import commons.events.CardCreatedEvent;
+import commons.events.CardDueDateSetEvent;
+import commons.events.CardListTitleSetEvent;
+import commons.events.CardMovedEvent;
+import commons.events.CardPresetSetEvent;
+import commons.events.CardRemovedEvent;
+import commons.events.CardSubtaskCompletenessSetEvent;
+import commons.events.CardSubtaskCreatedEvent;
+import commons.events.CardSubtaskMovedEvent;
+import commons.events.CardSubtaskNameSetEvent;
+import commons.events.CardSubtaskRemovedEvent;
+import commons.events.CardTagAddedEvent;
+import commons.events.CardTagRemovedEvent;
+import commons.events.CardTextSetEvent;
+import commons.events.CardTitleSetEvent;
+import commons.events.ColorPresetBackgroundColorSetEvent;
+import commons.events.ColorPresetCreatedEvent;
+import commons.events.ColorPresetFontColorSetEvent;
+import commons.events.ColorPresetNameSetEvent;
+import commons.events.ColorPresetRemovedEvent;
+import commons.events.DefaultCardColorPresetSetEvent;
+import commons.events.EventBatch;
+import commons.events.ListBackgroundColorSetEvent;
+import commons.events.ListCreatedEvent;
+import commons.events.ListFontColorSetEvent;
+import commons.events.ListRemovedEvent;
+import commons.events.ListsReorderedEvent;
+import commons.events.ServerToClientEvent;
+import commons.events.TagBackgroundColorSetEvent;
+import commons.events.TagCreatedEvent;
+import commons.events.TagDeletedEvent;
+import commons.events.TagFontColorSetEvent;
+import commons.events.TagNameSetEvent;
+import commons.events.XListCardMoveEvent;
+import server.database.BoardDocuments;
+
+/**
+ * Applies the events of the write-ahead log to a board, redoing the patches that caused them.
+ * <p>
+ * An entity an event carries is in its state as of that event (the broker copies it when the event is emitted), so
+ * the events that follow it in the record apply on top of it, and the versions come out the same as the live ones.
+ * Replaying the creation of an entity that already exists is still a no-op, so that records written before that are
+ * replayed as well.
+ */
+final class EventReplayer {
+    private EventReplayer() {
+    }
+
+    private static Tag findTag(final Board board, final long tagId) {
+        for (var tag : board.getTags()) {
+            if (tag.getId() == tagId) {
+                return tag;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean hasCardList(final Board board, final long cardListId) {
+        return board.getCardLists().stream().anyMatch(l -> l.getId() == cardListId);
+    }
+
+    private static boolean hasCard(final Board board, final long cardId) {
+        return board.getCardLists().stream().flatMap(l -> l.getCards().stream()).anyMatch(c -> c.getId() == cardId);
+    }
+
+    /**
+     * Applies an event to a board.
+     *
+     * @param board The board.
+     * @param event The event.
+     */
+    static void apply(final Board board, final ServerToClientEvent event) {
+        if (event instanceof EventBatch batch) {
+            for (var e : batch.events()) {
+                apply(board, e);
+            }
+        } else if (event instanceof BoardTitleSetEvent e) {
+            board.patch(bp -> bp.setTitle(e.newTitle()));
+        } else if (event instanceof BoardFontColorSetEvent e) {
+            board.patch(bp -> bp.setFontColor(e.fontColor()));
+        } else if (event instanceof BoardBackgroundColorSetEvent e) {
+            board.patch(bp -> bp.setBackgroundColor(e.background()));
+        } else if (event instanceof ListCreatedEvent e) {
+            if (!hasCardList(board, e.list().getId())) {
+                board.patch(bp -> bp.addCardList(e.list()));
+                for (var card : e.list().getCards()) {
+                    BoardDocuments.relinkTags(board, card);
+                }
+            }
+        } else if (event instanceof ListRemovedEvent e) {
+            if (hasCardList(board, e.cardList().getId())) {
+                board.patch(bp -> bp.removeCardList(e.cardList().getId()));
+            }
+        } else if (event instanceof ListsReorderedEvent e) {
+            board.patch(bp -> bp.moveCardList(e.cardList(), e.placedAfter()));
+        } else if (event instanceof CardListTitleSetEvent e) {
+            board.patch(bp -> bp.patchCardList(e.cardListId(), lp -> lp.setTitle(e.newTitle())));
+        } else if (event instanceof ListFontColorSetEvent e) {
+            board.patch(bp -> bp.patchCardList(e.listId(), lp -> lp.setFontColor(e.newFont())));
+        } else if (event instanceof ListBackgroundColorSetEvent e) {
+            board.patch(bp -> bp.patchCardList(e.listId(), lp -> lp.setBackgroundColor(e.newBackground())));
+        } else if (event instanceof CardCreatedEvent e) {
+            if (!hasCard(board, e.card().getId())) {
+                board.patch(bp -> bp.patchCardList(e.cardListId(), lp -> lp.addCard(e.card())));
+                BoardDocuments.relinkTags(board, e.card());
+            }
+        } else if (event instanceof CardRemovedEvent e) {
+            if (hasCard(board, e.card().getId())) {
+                board.patch(bp -> bp.patchCardList(e.cardListId(), lp -> lp.removeCard(e.card().getId())));
+            }
+        } else if (event instanceof CardMovedEvent e) {
+            board.patch(bp -> bp.patchCardList(e.cardListId(), lp -> lp.moveCard(e.card(), e.placedAfter())));
+        } else if (event instanceof XListCardMoveEvent e) {
+            board.patch(bp -> bp.xListCardMove(e.srcCardList(), e.card(), e.destCardList(), e.hook(),
+                    card -> {
+                    }));
+        } else {
+            applyToCard(board, event);
+        }
+    }
+
+    private static void applyToCard(final Board board, final ServerToClientEvent event) {
+        if (event instanceof CardTitleSetEvent e) {
+            board.cardById(e.cardId()).patch(cp -> cp.setTitle(e.newTitle()));
+        } else if (event instanceof CardTextSetEvent e) {
+            board.cardById(e.cardId()).patch(cp -> cp.setText(e.newText()));
+        } else if (event instanceof CardCategorySetEvent e) {
+            board.cardById(e.cardId()).patch(cp -> cp.setCategory(e.newCategory()));
+        } else if (event instanceof CardDueDateSetEvent e) {
+            board.cardById(e.cardId()).patch(cp -> cp.setDueDate(e.dueDate()));
+        } else if (event instanceof CardPresetSetEvent e) {
+            board.cardById(e.cardId()).patch(cp -> cp.setColorPreset(e.presetKey()));
+        } else if (event instanceof CardTagAddedEvent e) {
+            board.cardById(e.cardId()).patch(cp -> cp.addTag(board.tagById(e.tagId())));
+        } else if (event instanceof CardTagRemovedEvent e) {
+            // the tag might have been deleted from the board already, so look it up on the card.
+            var card = board.cardById(e.cardId());
+            card.getTags().stream().filter(t -> t.getId() == e.tagId()).findFirst()
+                    .ifPresent(tag -> card.patch(cp -> cp.removeTag(tag)));
+        } else if (event instanceof CardSubtaskCreatedEvent e) {
+            var card = board.cardById(e.cardId());
+            if (card.getSubtasks().stream().noneMatch(s -> s.getId() == e.subtask().getId())) {
+                card.patch(cp -> cp.addSubtask(e.subtask()));
+            }
+        } else if (event instanceof CardSubtaskRemovedEvent e) {
+            var card = board.cardById(e.cardId());
+            if (card.getSubtasks().stream().anyMatch(s -> s.getId() == e.subtaskId())) {
+                card.patch(cp -> cp.deleteSubtask(e.subtaskId()));
+            }
+        } else if (event instanceof CardSubtaskMovedEvent e) {
+            board.cardById(e.cardId()).patch(cp -> cp.moveSubtask(e.subtask(), e.placedAfter()));
+        } else if (event instanceof CardSubtaskNameSetEvent e) {
+            board.subtaskById(e.subtaskId()).patch(sp -> sp.setName(e.newName()));
+        } else if (event instanceof CardSubtaskCompletenessSetEvent e) {
+            board.subtaskById(e.subtaskId()).patch(sp -> sp.setCompleteness(e.newCompleteness()));
+        } else {
+            applyToTagsAndPresets(board, event);
+        }
+    }
+
+    private static void applyToTagsAndPresets(final Board board, final ServerToClientEvent event) {
+        if (event instanceof TagCreatedEvent e) {
+            if (findTag(board, e.tag().getId()) == null) {
+                board.patch(bp -> bp.addTag(e.tag()));
+            }
+        } else if (event instanceof TagDeletedEvent e) {
+            if (findTag(board, e.tag().getId()) != null) {
+                board.patch(bp -> bp.removeTag(e.tag().getId()));
+            }
+        } else if (event instanceof TagNameSetEvent e) {
+            board.patch(bp -> bp.patchTag(e.tag().getId(), tp -> tp.setName(e.newName())));
+        } else if (event instanceof TagFontColorSetEvent e) {
+            board.patch(bp -> bp.patchTag(e.tag().getId(), tp -> tp.setFontColor(e.newFontColor())));
+        } else if (event instanceof TagBackgroundColorSetEvent e) {
+            board.patch(bp -> bp.patchTag(e.tag().getId(), tp -> tp.setBackgroundColor(e.newBackgroundColor())));
+        } else if (event instanceof ColorPresetCreatedEvent e) {
+            if (board.getPresets().stream().noneMatch(p -> p.getId() == e.preset().getId())) {
+                board.patch(bp -> bp.addCardColorPreset(e.preset()));
+            }
+        } else if (event instanceof ColorPresetRemovedEvent e) {
+            if (board.getPresets().stream().anyMatch(p -> p.getId() == e.preset().getId())) {
+                board.patch(bp -> bp.removeColorPreset(e.preset().getId()));
+            }
+        } else if (event instanceof ColorPresetNameSetEvent e) {
+            board.patch(bp -> bp.setPresetName(e.presetKey(), e.name()));
+        } else if (event instanceof ColorPresetFontColorSetEvent e) {
+            board.patch(bp -> bp.setPresetFontColor(e.presetKey(), e.fontColor()));
+        } else if (event instanceof ColorPresetBackgroundColorSetEvent e) {
+            board.patch(bp -> bp.setPresetBackgroundColor(e.presetKey(), e.background()));
+        } else if (event instanceof DefaultCardColorPresetSetEvent e) {
+            board.patch(bp -> bp.setDefaultCardColorPreset(e.presetKey()));
+        }
+
+        // the board removal is handled by the store, and the other events don't change the board.
+    }
+}
@@ -0,0 +1,541 @@
+package server.database.wal;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.CardSubtask;
+import commons.ColorPreset;
+import commons.Tag;
+import commons.events.ServerToClientEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import server.database.BoardDocuments;
+import server.database.BoardImport;
+import server.database.BoardPages;
+import server.database.BoardStore;
+import server.database.BoardSummary;
+import server.database.EntityStore;
+import server.database.IdAssigningStore;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the boards as snapshots plus a write-ahead log of the events of their patches, so that writing only takes
+ * sequential appends. Selected with {@code talio.persistence.mode=wal}.
+ * <p>
+ * The entity stores only assign ids; the changes themselves are captured by the events that the board service
+ * {@link #journal journals} once a patch is done, which are appended to the log before they are published. Every
+ * {@code snapshot-interval-ms}, the log is rotated, the boards that have records in the old segments get a new
+ * snapshot, and the old segments are deleted.
+ * <p>
+ * A board is loaded from its latest snapshot, replaying the records appended after it. On boot, the log is scanned to
+ * find those records again. The boards are listed from a summary of each, which the records are applied to as they are
+ * appended, rather than by loading them.
+ * <p>
+ * Ids are allocated from a single counter, in blocks that are reserved in the log before they are handed out. Boards
+ * stored in JPA mode are not migrated.
+ */
+@Component
+@ConditionalOnProperty(name = "talio.persistence.mode", havingValue = "wal")
+public final class WalBoardStore implements BoardStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WalBoardStore.class);
+
+    private static final long ID_BLOCK = 1024;
+    private static final String SNAPSHOT_PREFIX = "board-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private final Path dir;
+    private final WriteAheadLog log;
+    private final ScheduledExecutorService timer;
+
+    private final ConcurrentSkipListMap<Long, BoardLog> boardLogs;
+
+    private final AtomicLong nextId;
+    private volatile long reservedIds;
+
+    private final AtomicLong snapshots;
+    private final AtomicLong checkpoints;
+
+    private final EntityStore<Board> boards =
+            new IdAssigningStore<>(Board.class, this::allocateId, this::createBoard, this::deleteBoard);
+    private final EntityStore<CardList> cardLists = new IdAssigningStore<>(CardList.class, this::allocateId);
+    private final EntityStore<Card> cards = new IdAssigningStore<>(Card.class, this::allocateId);
+    private final EntityStore<CardSubtask> subtasks = new IdAssigningStore<>(CardSubtask.class, this::allocateId);
+    private final EntityStore<Tag> tags = new IdAssigningStore<>(Tag.class, this::allocateId);
+    private final EntityStore<ColorPreset> presets = new IdAssigningStore<>(ColorPreset.class, this::allocateId);
+
+    /**
+     * Constructor. Recovers the state of the store from the snapshots and the log in the directory.
+     *
+     * @param dir                The directory of the snapshots and of the log.
+     * @param snapshotIntervalMs The time between checkpoints.
+     */
+    public WalBoardStore(@Value("${talio.wal.dir:./talio-wal}") final String dir,
+                         @Value("${talio.wal.snapshot-interval-ms:60000}") final long snapshotIntervalMs) {
+        if (snapshotIntervalMs <= 0) {
+            throw new IllegalArgumentException("invalid snapshot interval");
+        }
+
+        this.dir = Path.of(dir);
+        this.boardLogs = new ConcurrentSkipListMap<>();
+        this.nextId = new AtomicLong();
+        this.snapshots = new AtomicLong();
+        this.checkpoints = new AtomicLong();
+
+        long lastSeq;
+        try {
+            lastSeq = this.recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // every segment starts with the ids reserved so far, so that deleting the older segments keeps them reserved.
+        this.log = new WriteAheadLog(this.dir, lastSeq,
+                seq -> this.encode(new LogRecord(0, List.of(), this.reservedIds)));
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "wal-checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.scheduleWithFixedDelay(this::checkpointOrReport, snapshotIntervalMs, snapshotIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A record of the log: either the events of a patch of a board, or (with board 0) a reservation of the ids up to
+     * {@code ids}.
+     *
+     * @param board  The board id.
+     * @param events The events.
+     * @param ids    The ids reserved so far.
+     */
+    record LogRecord(long board, List<ServerToClientEvent> events, long ids) {
+    }
+
+    /**
+     * The records of a board appended after its latest snapshot, and the summary of the board as of the last of them.
+     * Appending to it, and folding it into a snapshot, are done while holding its monitor.
+     */
+    private static final class BoardLog {
+        private final ArrayList<WriteAheadLog.Entry> pending = new ArrayList<>();
+        private long snapshotSeq;
+        private BoardSummary summary;
+        private boolean deleted;
+
+        private BoardLog(final long snapshotSeq, final BoardSummary summary) {
+            this.snapshotSeq = snapshotSeq;
+            this.summary = summary;
+        }
+    }
+
+    private long recover() throws IOException {
+        Files.createDirectories(this.dir);
+
+        try (var files = Files.list(this.dir)) {
+            for (var path : files.toList()) {
+                var name = path.getFileName().toString();
+                if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)) {
+                    var id = Long.parseLong(name, SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length(),
+                            10);
+                    this.boardLogs.put(id, new BoardLog(this.readSnapshotSeq(path), this.readSnapshotSummary(id)));
+                } else if (name.endsWith(".tmp")) {
+                    Files.delete(path);
+                }
+            }
+        }
+
+        long lastSeq = 0;
+        long reserved = 0;
+        for (var entry : WriteAheadLog.read(this.dir)) {
+            var record = this.decode(entry.payload());
+            lastSeq = Math.max(lastSeq, entry.seq());
+            reserved = Math.max(reserved, record.ids());
+
+            var boardLog = record.board() != 0 ? this.boardLogs.get(record.board()) : null;
+            if (boardLog != null && entry.seq() > boardLog.snapshotSeq) {
+                boardLog.pending.add(entry);
+                boardLog.summary = boardLog.summary.apply(record.events());
+            }
+        }
+
+        this.reservedIds = reserved;
+        this.nextId.set(reserved);
+
+        return lastSeq;
+    }
+
+    private String encode(final LogRecord record) {
+        try {
+            return BoardDocuments.mapper().writeValueAsString(record);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private LogRecord decode(final String payload) {
+        try {
+            return BoardDocuments.mapper().readValue(payload, LogRecord.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long allocateId() {
+        var id = this.nextId.incrementAndGet();
+        if (id > this.reservedIds) {
+            this.reserveIds(id);
+        }
+
+        return id;
+    }
+
+    private synchronized void reserveIds(final long id) {
+        if (id <= this.reservedIds) {
+            return;
+        }
+
+        var reserved = id + ID_BLOCK;
+        this.log.append(this.encode(new LogRecord(0, List.of(), reserved)));
+        this.reservedIds = reserved;
+    }
+
+    private Path snapshotPath(final long boardId) {
+        return this.dir.resolve(SNAPSHOT_PREFIX + boardId + SNAPSHOT_SUFFIX);
+    }
+
+    private long readSnapshotSeq(final Path path) throws IOException {
+        try (var reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return Long.parseLong(reader.readLine());
+        }
+    }
+
+    private void writeSnapshot(final Board board, final long seq) throws IOException {
+        var path = this.snapshotPath(board.getId());
+        var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(new ByteBuffer[] {
+                    ByteBuffer.wrap((seq + "\n").getBytes(StandardCharsets.UTF_8)),
+                    ByteBuffer.wrap(BoardDocuments.encode(board)),
+            });
+            channel.force(false);
+        }
+
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        this.snapshots.incrementAndGet();
+    }
+
+    /**
+     * Opens the snapshot of a board, past its sequence number.
+     */
+    private InputStream openSnapshot(final long boardId) throws IOException {
+        var in = Files.newInputStream(this.snapshotPath(boardId));
+
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                in.close();
+                throw new EOFException("truncated snapshot of board " + boardId);
+            }
+        }
+
+        return in;
+    }
+
+    private Board readSnapshot(final long boardId) throws IOException {
+        try (var in = this.openSnapshot(boardId)) {
+            return BoardDocuments.decode(in);
+        }
+    }
+
+    private BoardSummary readSnapshotSummary(final long boardId) throws IOException {
+        try (var in = this.openSnapshot(boardId)) {
+            return BoardDocuments.decodeSummary(in);
+        }
+    }
+
+    /**
+     * Rebuilds a board from its latest snapshot and some of the records after it.
+     */
+    private Board rebuild(final long boardId, final List<WriteAheadLog.Entry> records) throws IOException {
+        var board = this.readSnapshot(boardId);
+
+        for (var entry : records) {
+            for (var event : this.decode(entry.payload()).events()) {
+                EventReplayer.apply(board, event);
+            }
+        }
+
+        return board;
+    }
+
+    private void createBoard(final Board board) {
+        var boardLog = new BoardLog(0, BoardSummary.of(board));
+
+        synchronized (boardLog) {
+            try {
+                this.writeSnapshot(board, 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            this.boardLogs.put(board.getId(), boardLog);
+        }
+    }
+
+    private void deleteBoard(final long boardId) {
+        var boardLog = this.boardLogs.remove(boardId);
+        if (boardLog == null) {
+            return;
+        }
+
+        synchronized (boardLog) {
+            boardLog.deleted = true;
+            boardLog.pending.clear();
+
+            try {
+                Files.deleteIfExists(this.snapshotPath(boardId));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public EntityStore<Board> boards() {
+        return this.boards;
+    }
+
+    @Override
+    public EntityStore<CardList> cardLists() {
+        return this.cardLists;
+    }
+
+    @Override
+    public EntityStore<Card> cards() {
+        return this.cards;
+    }
+
+    @Override
+    public EntityStore<CardSubtask> subtasks() {
+        return this.subtasks;
+    }
+
+    @Override
+    public EntityStore<Tag> tags() {
+        return this.tags;
+    }
+
+    @Override
+    public EntityStore<ColorPreset> presets() {
+        return this.presets;
+    }
+
+    /**
+     * Writes the whole board as its first snapshot, rather than logging the creation of every entity.
+     *
+     * @param board The board.
+     * @return The board.
+     */
+    @Override
+    public Board importBoard(final Board board) {
+        BoardImport.renumber(board, type -> this.allocateId());
+        this.createBoard(board);
+
+        return board;
+    }
+
+    @Override
+    public Optional<Board> load(final long boardId) {
+        var boardLog = this.boardLogs.get(boardId);
+        if (boardLog == null) {
+            return Optional.empty();
+        }
+
+        synchronized (boardLog) {
+            if (boardLog.deleted) {
+                return Optional.empty();
+            }
+
+            try {
+                return Optional.of(this.rebuild(boardId, boardLog.pending));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the board from its snapshot and its records, as it is only in the log as a whole.
+     *
+     * @param boardId The board id.
+     * @return The board, if it exists.
+     */
+    @Override
+    public Optional<BoardPages> pages(final long boardId) {
+        return this.load(boardId).map(BoardPages::of);
+    }
+
+    @Override
+    public List<Board> findAll() {
+        return this.findAllById(this.boardLogs.keySet());
+    }
+
+    @Override
+    public List<Board> findAllById(final Iterable<Long> boardIds) {
+        var result = new ArrayList<Board>();
+        for (var id : boardIds) {
+            var boardLog = this.boardLogs.get(id);
+            if (boardLog == null) {
+                continue;
+            }
+
+            synchronized (boardLog) {
+                if (!boardLog.deleted) {
+                    result.add(boardLog.summary.toBoard());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public long count() {
+        return this.boardLogs.size();
+    }
+
+    /**
+     * Appends the events of a patch to the log, and waits until they are durable.
+     *
+     * @param boardId The board id.
+     * @param events  The events.
+     */
+    @Override
+    public void journal(final long boardId, final List<ServerToClientEvent> events) {
+        var boardLog = this.boardLogs.get(boardId);
+        if (boardLog == null) {
+            // the board was deleted by this patch.
+            return;
+        }
+
+        var payload = this.encode(new LogRecord(boardId, events, 0));
+
+        synchronized (boardLog) {
+            if (!boardLog.deleted) {
+                var seq = this.log.append(payload);
+                boardLog.pending.add(new WriteAheadLog.Entry(seq, payload));
+                boardLog.summary = boardLog.summary.apply(events);
+            }
+        }
+    }
+
+    /**
+     * Folds the records in the log into new snapshots of their boards, and deletes the old segments of the log.
+     *
+     * @throws IOException If a snapshot could not be written.
+     */
+    void checkpoint() throws IOException {
+        var boundary = this.log.rotate();
+
+        // every board is visited, since a record appended before the rotation might only now be added to its board.
+        for (var e : this.boardLogs.entrySet()) {
+            var boardLog = e.getValue();
+
+            synchronized (boardLog) {
+                var folded = boardLog.pending.stream().filter(r -> r.seq() <= boundary).toList();
+                if (boardLog.deleted || folded.isEmpty()) {
+                    continue;
+                }
+
+                this.writeSnapshot(this.rebuild(e.getKey(), folded), boundary);
+                boardLog.snapshotSeq = boundary;
+                boardLog.pending.removeAll(folded);
+            }
+        }
+
+        this.log.deleteOldSegments();
+        this.checkpoints.incrementAndGet();
+    }
+
+    private void checkpointOrReport() {
+        try {
+            this.checkpoint();
+        } catch (IOException | RuntimeException e) {
+            // the old segments are kept, so nothing is lost; the next checkpoint tries again.
+            LOGGER.error("Could not checkpoint the write-ahead log", e);
+        }
+    }
+
+    /**
+     * Takes a last checkpoint, and closes the log.
+     */
+    @PreDestroy
+    public void close() {
+        // a running checkpoint is waited for rather than interrupted, which would close the files it writes.
+        this.timer.shutdown();
+        try {
+            this.timer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.checkpointOrReport();
+        this.log.close();
+    }
+
+    /**
+     * Returns a snapshot of the metrics of the store.
+     *
+     * @return The metrics.
+     */
+    public Stats stats() {
+        long pending = 0;
+        for (var boardLog : this.boardLogs.values()) {
+            synchronized (boardLog) {
+                pending += boardLog.pending.size();
+            }
+        }
+
+        return new Stats(this.boardLogs.size(), pending, this.log.records(), this.log.syncs(), this.snapshots.get(),
+                this.checkpoints.get());
+    }
+
+    /**
+     * Metrics of the store.
+     *
+     * @param boards         The number of boards.
+     * @param pendingRecords The number of records not folded into snapshots yet.
+     * @param records        The number of records appended.
+     * @param syncs          The number of fsyncs of the log.
+     * @param snapshots      The number of snapshots written.
+     * @param checkpoints    The number of checkpoints.
+     */
+    public record Stats(int boards, long pendingRecords, long records, long syncs, long snapshots, long checkpoints) {
+    }
+}
@@ -0,0 +1,357 @@
+package server.database.wal;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of records, split into segment files.
+ * <p>
+ * Records are appended by a single writer thread: it takes all the records that queued up while it was writing the
+ * previous ones, writes them, and forces them to disk with one fsync. An append returns once its record is durable.
+ * <p>
+ * Each record is one line: its sequence number, the CRC32 of its payload, and the payload. A record that was torn by
+ * a crash fails its checksum, and ends its segment; after a restart, the log goes on in a new segment.
+ */
+final class WriteAheadLog implements Closeable {
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final LinkedBlockingQueue<Pending> queue;
+    private final Thread writer;
+    private final Function<Long, String> segmentHeader;
+
+    private long lastSeq;
+    private FileChannel segment;
+    private volatile Path segmentPath;
+    private volatile boolean closed;
+    private volatile Exception failure;
+
+    private final AtomicLong records;
+    private final AtomicLong syncs;
+
+    /**
+     * A record waiting to be written, or a request to start a new segment (without a payload).
+     */
+    private record Pending(String payload, CompletableFuture<Long> done) {
+    }
+
+    /**
+     * A record read back from the log.
+     *
+     * @param seq     The sequence number.
+     * @param payload The payload.
+     */
+    record Entry(long seq, String payload) {
+    }
+
+    /**
+     * Opens a log, starting a new segment after the records it already has.
+     *
+     * @param dir           The directory of the segments.
+     * @param lastSeq       The sequence number of the last record in the log, as read by {@link #read}.
+     * @param segmentHeader Makes the payload of the record that every new segment starts with, given its sequence
+     *                      number.
+     */
+    WriteAheadLog(final Path dir, final long lastSeq, final Function<Long, String> segmentHeader) {
+        this.dir = dir;
+        this.lastSeq = lastSeq;
+        this.segmentHeader = segmentHeader;
+        this.queue = new LinkedBlockingQueue<>();
+        this.records = new AtomicLong();
+        this.syncs = new AtomicLong();
+
+        try {
+            Files.createDirectories(dir);
+            this.openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.writer = new Thread(this::writeLoop, "write-ahead-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private static Path segmentPath(final Path dir, final long firstSeq) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, firstSeq, SUFFIX));
+    }
+
+    private static List<Path> segments(final Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+
+        try (var files = Files.list(dir)) {
+            return files.filter(f -> {
+                var name = f.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static long checksum(final String payload) {
+        var crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * Reads all the records of the log in a directory, in order. The records of a segment are read up to its first torn
+     * or corrupt record.
+     *
+     * @param dir The directory of the segments.
+     * @return The records.
+     * @throws IOException If the log could not be read.
+     */
+    static List<Entry> read(final Path dir) throws IOException {
+        var entries = new ArrayList<Entry>();
+
+        for (var path : segments(dir)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    var entry = parse(line);
+                    if (entry == null) {
+                        break;
+                    }
+
+                    entries.add(entry);
+                }
+            }
+        }
+
+        return entries;
+    }
+
+    private static Entry parse(final String line) {
+        var parts = line.split(" ", 3);
+        if (parts.length != 3) {
+            return null;
+        }
+
+        try {
+            var seq = Long.parseLong(parts[0]);
+            var crc = Long.parseLong(parts[1], 16);
+
+            return crc == checksum(parts[2]) ? new Entry(seq, parts[2]) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void openSegment() throws IOException {
+        var firstSeq = this.lastSeq + 1;
+        this.segmentPath = segmentPath(this.dir, firstSeq);
+        this.segment = FileChannel.open(this.segmentPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        this.lastSeq = firstSeq;
+        this.segment.write(ByteBuffer.wrap(line(firstSeq, this.segmentHeader.apply(firstSeq))));
+        this.segment.force(false);
+        this.forceDirectory();
+    }
+
+    private void forceDirectory() {
+        // makes the creation of the segment durable; not supported on every platform.
+        try (var d = FileChannel.open(this.dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException e) {
+            // best effort.
+        }
+    }
+
+    private static byte[] line(final long seq, final String payload) {
+        return (seq + " " + Long.toHexString(checksum(payload)) + " " + payload + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends a record, and waits until it is durable.
+     *
+     * @param payload The payload, which must not contain line breaks.
+     * @return The sequence number of the record.
+     */
+    long append(final String payload) {
+        if (payload.indexOf('\n') >= 0 || payload.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("payload contains a line break");
+        }
+
+        return this.enqueue(payload);
+    }
+
+    /**
+     * Starts a new segment. The records appended after this returns go to the new segment.
+     *
+     * @return The sequence number of the last record before the new segment.
+     */
+    long rotate() {
+        return this.enqueue(null);
+    }
+
+    private long enqueue(final String payload) {
+        if (this.closed) {
+            throw new IllegalStateException("the write-ahead log is closed");
+        }
+
+        if (this.failure != null) {
+            throw new IllegalStateException("the write-ahead log failed", this.failure);
+        }
+
+        var done = new CompletableFuture<Long>();
+        this.queue.add(new Pending(payload, done));
+
+        try {
+            return done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw new UncheckedIOException(io);
+            }
+
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+
+            throw e;
+        }
+    }
+
+    private void writeLoop() {
+        var group = new ArrayList<Pending>();
+
+        while (!this.closed || !this.queue.isEmpty()) {
+            try {
+                var first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                group.add(first);
+                this.queue.drainTo(group);
+            } catch (InterruptedException e) {
+                this.closed = true;
+                this.queue.drainTo(group);
+            }
+
+            this.write(group);
+            group.clear();
+        }
+    }
+
+    private void write(final List<Pending> group) {
+        var written = new ArrayList<CompletableFuture<Long>>();
+        var seqs = new ArrayList<Long>();
+
+        try {
+            for (var pending : group) {
+                if (pending.payload() == null) {
+                    // flush what came before, so that the rotation is ordered after it.
+                    this.sync(written, seqs);
+                    var boundary = this.lastSeq;
+                    this.segment.close();
+                    this.openSegment();
+                    pending.done().complete(boundary);
+                    continue;
+                }
+
+                var seq = ++this.lastSeq;
+                this.segment.write(ByteBuffer.wrap(line(seq, pending.payload())));
+                written.add(pending.done());
+                seqs.add(seq);
+            }
+
+            this.sync(written, seqs);
+        } catch (IOException | RuntimeException e) {
+            // what made it to the file is unknown now, so nothing can be appended after it.
+            this.failure = e;
+
+            for (var pending : group) {
+                pending.done().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void sync(final List<CompletableFuture<Long>> written, final List<Long> seqs) throws IOException {
+        if (written.isEmpty()) {
+            return;
+        }
+
+        this.segment.force(false);
+        this.syncs.incrementAndGet();
+        this.records.addAndGet(written.size());
+
+        for (int i = 0; i < written.size(); i++) {
+            written.get(i).complete(seqs.get(i));
+        }
+
+        written.clear();
+        seqs.clear();
+    }
+
+    /**
+     * Deletes the segments before the current one.
+     *
+     * @throws IOException If a segment could not be deleted.
+     */
+    void deleteOldSegments() throws IOException {
+        var current = this.segmentPath;
+        for (var path : segments(this.dir)) {
+            if (path.compareTo(current) < 0) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * The number of records written so far.
+     *
+     * @return The number of records.
+     */
+    long records() {
+        return this.records.get();
+    }
+
+    /**
+     * The number of fsyncs done so far.
+     *
+     * @return The number of fsyncs.
+     */
+    long syncs() {
+        return this.syncs.get();
+    }
+
+    /**
+     * Writes the queued records, and closes the log.
+     */
+    @Override
+    public void close() {
+        // not interrupted, since that would close the segment under the writer; it notices within a poll.
+        this.closed = true;
+
+        try {
+            this.writer.join();
+            this.segment.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
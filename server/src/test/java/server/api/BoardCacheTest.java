@@ -0,0 +1,137 @@
+package server.api;
+
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class BoardCacheTest {
+
+    private static Board boardWithCards(final int cards) {
+        var board = new Board();
+        var list = new CardList();
+
+        board.patch(bp -> bp.addCardList(list));
+        list.patch(lp -> {
+            for (int i = 0; i < cards; i++) {
+                lp.addCard(new Card());
+            }
+        });
+
+        return board;
+    }
+
+    @Test
+    void testHitAndMiss() {
+        var cache = new BoardCache(4, 100);
+        var loads = new AtomicInteger();
+        var board = new Board();
+
+        var first = cache.get(1, id -> {
+            loads.incrementAndGet();
+            return Optional.of(board);
+        });
+        var second = cache.get(1, id -> {
+            loads.incrementAndGet();
+            return Optional.of(new Board());
+        });
+
+        Assertions.assertSame(board, first.orElseThrow());
+        Assertions.assertSame(board, second.orElseThrow(), "second lookup should be served from the cache");
+        Assertions.assertEquals(1, loads.get());
+
+        var stats = cache.stats();
+        Assertions.assertEquals(1, stats.hits());
+        Assertions.assertEquals(1, stats.misses());
+        Assertions.assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void testMissingBoardIsNotCached() {
+        var cache = new BoardCache(4, 100);
+
+        Assertions.assertTrue(cache.get(1, id -> Optional.empty()).isEmpty());
+        Assertions.assertEquals(0, cache.stats().residentBoards());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedBoard() {
+        var cache = new BoardCache(2, 100);
+        var loads = new AtomicInteger();
+
+        cache.get(1, id -> Optional.of(new Board()));
+        cache.get(2, id -> Optional.of(new Board()));
+        cache.get(1, id -> Optional.of(new Board())); // 2 is now the least recently used board
+        cache.get(3, id -> Optional.of(new Board()));
+
+        cache.get(1, id -> {
+            loads.incrementAndGet();
+            return Optional.of(new Board());
+        });
+        Assertions.assertEquals(0, loads.get(), "board 1 should still be cached");
+
+        cache.get(2, id -> {
+            loads.incrementAndGet();
+            return Optional.of(new Board());
+        });
+        Assertions.assertEquals(1, loads.get(), "board 2 should have been evicted");
+        Assertions.assertEquals(2, cache.stats().evictions());
+    }
+
+    @Test
+    void testTellsTheListenersAboutEvictions() {
+        var cache = new BoardCache(2, 100);
+        var evicted = new ArrayList<Long>();
+        cache.onEviction(evicted::add);
+
+        cache.get(1, id -> Optional.of(new Board()));
+        cache.get(2, id -> Optional.of(new Board()));
+        cache.get(3, id -> Optional.of(new Board()));
+        cache.evict(2);
+        cache.evict(2);
+        cache.clear();
+
+        Assertions.assertEquals(List.of(1L, 2L, 3L), evicted);
+    }
+
+    @Test
+    void testEvictsByCardCount() {
+        var cache = new BoardCache(10, 10);
+
+        cache.get(1, id -> Optional.of(boardWithCards(6)));
+        cache.get(2, id -> Optional.of(boardWithCards(6)));
+
+        var stats = cache.stats();
+        Assertions.assertEquals(1, stats.residentBoards());
+        Assertions.assertEquals(6, stats.residentCards());
+        Assertions.assertEquals(1, stats.evictions());
+    }
+
+    @Test
+    void testEvict() {
+        var cache = new BoardCache(4, 100);
+        var loads = new AtomicInteger();
+
+        cache.get(1, id -> Optional.of(boardWithCards(3)));
+        cache.evict(1);
+
+        Assertions.assertEquals(0, cache.stats().residentCards());
+
+        cache.get(1, id -> {
+            loads.incrementAndGet();
+            return Optional.of(new Board());
+        });
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testInvalidLimits() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BoardCache(0, 100));
+    }
+}
@@ -48,6 +48,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -367,6 +368,18 @@ final class BoardControllerTest {
                 "The boards returned by the server do not match the boards created");
     }
 
+    @Test
+    void getSpecificBoardsLeavesOutTheLists() {
+        var board = this.createBoard();
+        this.createCardList(board.getId());
+
+        var boards = this.getSpecificBoards(List.of(board.getId()));
+
+        Assertions.assertEquals(1, boards.size());
+        Assertions.assertEquals(board.getId(), boards.get(0).getId());
+        Assertions.assertTrue(boards.get(0).getCardLists().isEmpty(), "Listing the boards should not load their lists");
+    }
+
     @Test
     void getSpecificBoardsTest() {
         var board1 = this.createBoard();
@@ -524,6 +537,26 @@ final class BoardControllerTest {
         Assertions.assertEquals(newTitle, card2.getTitle());
     }
 
+    @Test
+    void setCardTitleWithStaleVersion() {
+        var board = this.createBoard();
+        var cardList = this.createCardList(board.getId());
+        var card = this.createCard(board.getId(), cardList.getId());
+        var url = "%s/card_title?version=%d".formatted(this.cardUrl(board.getId(), cardList.getId(), card.getId()),
+                card.getVersion());
+
+        var first = this.restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>("first"), Void.class);
+        Assertions.assertEquals(HttpStatus.NO_CONTENT, first.getStatusCode());
+
+        // the card is at the next version now.
+        var second = this.restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>("second"), Void.class);
+        Assertions.assertEquals(HttpStatus.CONFLICT, second.getStatusCode());
+
+        var card2 = this.getCard(board.getId(), cardList.getId(), card.getId());
+        Assertions.assertEquals("first", card2.getTitle());
+        Assertions.assertEquals(card.getVersion() + 1, card2.getVersion());
+    }
+
     @Test
     void setCardText() {
         var board = this.createBoard();
@@ -1595,26 +1628,17 @@ final class BoardControllerTest {
         var card = this.createCard(board.getId(), cardList.getId());
         this.setCardPreset(board.getId(), cardList.getId(), card.getId(), preset.getId());
 
-        try (var s = this.initWebsocket(board.getId(), 2)) {
+        try (var s = this.initWebsocket(board.getId(), 1)) {
             this.deletePreset(board.getId(), preset.getId());
         } catch (final Exception e) {
             throw new RuntimeException(e);
         }
 
-        Assertions.assertEquals(2, this.receivedEvents.size());
-        var event1 = this.receivedEvents.removeFirst();
-        var event2 = this.receivedEvents.removeFirst();
-        Assertions.assertTrue(this.receivedEvents.isEmpty());
-        Assertions.assertInstanceOf(ColorPresetRemovedEvent.class, event1);
-        Assertions.assertInstanceOf(CardPresetSetEvent.class, event2);
-
-        var e1 = (ColorPresetRemovedEvent) event1;
-        var e2 = (CardPresetSetEvent) event2;
-
-        Assertions.assertEquals(preset.getId(), e1.preset().getId());
+        // the removal of the preset implies that the card has none anymore.
+        var e = this.assertOneWsEventIs(ColorPresetRemovedEvent.class);
+        Assertions.assertEquals(preset.getId(), e.preset().getId());
 
-        Assertions.assertEquals(0, e2.presetKey());
-        Assertions.assertEquals(card.getId(), e2.cardId());
+        Assertions.assertEquals(0, this.getCard(board.getId(), cardList.getId(), card.getId()).getColorPresetKey());
     }
 
     @Test
@@ -1835,27 +1859,17 @@ final class BoardControllerTest {
         var card = this.createCard(board.getId(), cardList.getId());
         this.addTagToCard(board.getId(), cardList.getId(), card.getId(), tag.getId());
 
-        try (var s = this.initWebsocket(board.getId(), 2)) {
+        try (var s = this.initWebsocket(board.getId(), 1)) {
             this.deleteTag(board.getId(), tag.getId());
         } catch (final Exception e) {
             throw new RuntimeException(e);
         }
 
-        Assertions.assertEquals(2, this.receivedEvents.size());
-        var event1 = this.receivedEvents.removeFirst();
-        var event2 = this.receivedEvents.removeFirst();
-        Assertions.assertTrue(this.receivedEvents.isEmpty());
-
-        Assertions.assertInstanceOf(TagDeletedEvent.class, event1);
-        Assertions.assertInstanceOf(CardTagRemovedEvent.class, event2);
-
-        var e1 = (TagDeletedEvent) event1;
-        var e2 = (CardTagRemovedEvent) event2;
-
-        Assertions.assertEquals(tag.getId(), e1.tag().getId());
+        // the deletion of the tag implies its removal from the card.
+        var e = this.assertOneWsEventIs(TagDeletedEvent.class);
+        Assertions.assertEquals(tag.getId(), e.tag().getId());
 
-        Assertions.assertEquals(card.getId(), e2.cardId());
-        Assertions.assertEquals(tag.getId(), e2.tagId());
+        Assertions.assertTrue(this.getCard(board.getId(), cardList.getId(), card.getId()).getTags().isEmpty());
     }
 
     private static class SetParameterizedTypeReference extends ParameterizedTypeReference<Set<Tag>> {
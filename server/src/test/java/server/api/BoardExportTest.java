@@ -0,0 +1,161 @@
+package server.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.CardSubtask;
+import commons.ColorPreset;
+import commons.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import server.database.BoardDocuments;
+import server.database.BoardImport;
+import server.database.BoardPages;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+class BoardExportTest {
+
+    private static Board board(final int cards) {
+        var board = new Board();
+        var tag = new Tag("tag");
+        var list = new CardList();
+
+        board.patch(bp -> {
+            bp.addTag(tag);
+            bp.addCardColorPreset(new ColorPreset());
+            bp.addCardList(list);
+        });
+        list.patch(lp -> {
+            for (int i = 0; i < cards; i++) {
+                var card = new Card("card " + i);
+                lp.addCard(card);
+                card.patch(cp -> cp.addSubtask(new CardSubtask()));
+            }
+        });
+
+        var ids = new AtomicInteger();
+        BoardImport.renumber(board, type -> ids.incrementAndGet());
+
+        // only tags with ids can be added.
+        for (var card : list.getCards()) {
+            card.patch(cp -> cp.addTag(tag));
+        }
+
+        return board;
+    }
+
+    private static byte[] exportBytes(final Board board, final Consumer<Board> betweenReads) throws IOException {
+        var reads = new AtomicInteger();
+        var pages = BoardPages.of(board);
+        var export = new BoardExport(new BoardPages() {
+            @Override
+            public Board board() {
+                return pages.board();
+            }
+
+            @Override
+            public List<Card> cards(final long listId, final Card after, final int limit) {
+                if (reads.getAndIncrement() == 1) {
+                    betweenReads.accept(board);
+                }
+                return pages.cards(listId, after, limit);
+            }
+        });
+
+        var out = new ByteArrayOutputStream();
+        export.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static List<JsonNode> export(final Board board, final Consumer<Board> betweenReads) throws IOException {
+        var records = new ArrayList<JsonNode>();
+        for (var line : new String(exportBytes(board, betweenReads), StandardCharsets.UTF_8).split("\n")) {
+            records.add(BoardDocuments.mapper().readTree(line));
+        }
+        return records;
+    }
+
+    private static List<JsonNode> ofType(final List<JsonNode> records, final String type) {
+        return records.stream().filter(r -> r.get("type").asText().equals(type)).toList();
+    }
+
+    @Test
+    void testExportsOneRecordPerLine() throws IOException {
+        var board = board(3);
+        var records = export(board, b -> { });
+
+        Assertions.assertEquals("board", records.get(0).get("type").asText());
+        Assertions.assertEquals(board.getId(), records.get(0).get("id").asLong());
+        Assertions.assertEquals(1, ofType(records, "tag").size());
+        Assertions.assertEquals(1, ofType(records, "list").size());
+        Assertions.assertEquals(3, ofType(records, "subtask").size());
+
+        var card = ofType(records, "card").get(0);
+        var first = board.getCardLists().get(0).getCards().get(0);
+        Assertions.assertEquals(first.getId(), card.get("id").asLong());
+        Assertions.assertEquals(board.getTags().get(0).getId(), card.get("tags").get(0).asLong());
+    }
+
+    @Test
+    void testReadsTheCardsInChunks() throws IOException {
+        var cards = BoardExport.CHUNK_CARDS * 2 + 1;
+        var board = board(cards);
+
+        // the first card is removed after the first chunk was read, which should not make the export skip any card.
+        var list = board.getCardLists().get(0);
+        var removed = list.getCards().get(0).getId();
+        var records = export(board, b -> list.patch(lp -> lp.removeCard(removed)));
+
+        var ids = ofType(records, "card").stream().map(r -> r.get("id").asLong()).toList();
+        Assertions.assertEquals(cards, ids.size());
+        Assertions.assertEquals(cards, ids.stream().distinct().count());
+    }
+
+    @Test
+    void testExportedRecordsCanBeImported() throws IOException {
+        var board = board(3);
+        var first = board.getCardLists().get(0).getCards().get(0);
+        first.patch(cp -> cp.setTitle("renamed"));
+        board.patch(bp -> bp.setTitle("board"));
+
+        var imported = BoardImport.readRecords(new ByteArrayInputStream(exportBytes(board, b -> { })));
+
+        Assertions.assertEquals(board.getId(), imported.getId());
+        Assertions.assertEquals("board", imported.getTitle());
+        Assertions.assertEquals(board.getVersion(), imported.getVersion());
+        Assertions.assertEquals(1, imported.getPresets().size());
+        Assertions.assertEquals(board.getTags().get(0).getId(), imported.getTags().get(0).getId());
+
+        var cards = imported.getCardLists().get(0).getCards();
+        Assertions.assertEquals(board.getCardLists().get(0).getCards().stream().map(Card::getId).toList(),
+                cards.stream().map(Card::getId).toList());
+        Assertions.assertEquals("renamed", cards.get(0).getTitle());
+        Assertions.assertEquals(first.getVersion(), cards.get(0).getVersion());
+        Assertions.assertSame(imported.getTags().get(0), cards.get(0).getTags().iterator().next(),
+                "the card should be linked to the tag of the board");
+        Assertions.assertEquals(first.getSubtasks().get(0).getId(), cards.get(0).getSubtasks().get(0).getId());
+
+        // the records of the import are then stored like those of any other board.
+        var ids = new AtomicInteger(100);
+        BoardImport.renumber(imported, type -> ids.incrementAndGet());
+        Assertions.assertEquals(imported.getCardLists().get(0).getId(), imported.getCardLists().get(0).getCards()
+                .get(0).getCardList());
+    }
+
+    @Test
+    void testRecordsBeforeTheirParentAreRejected() {
+        var records = "{\"type\":\"board\",\"id\":1}\n{\"type\":\"card\",\"id\":3,\"list\":2}\n";
+
+        Assertions.assertThrows(IOException.class,
+                () -> BoardImport.readRecords(new ByteArrayInputStream(records.getBytes(StandardCharsets.UTF_8))));
+    }
+}
@@ -0,0 +1,179 @@
+package server.api;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import server.api.exceptions.BoardBusy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class BoardLanesTest {
+    private BoardLanes lanes;
+
+    @AfterEach
+    void tearDown() {
+        if (lanes != null) {
+            lanes.shutdown();
+        }
+    }
+
+    @Test
+    void testTasksOfABoardRunInOrder() throws InterruptedException {
+        lanes = new BoardLanes(4, 1024);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        var threads = new ArrayList<Thread>();
+
+        // each submitter waits for the previous one to be queued, so the submission order is known.
+        for (int i = 0; i < 100; i++) {
+            final int n = i;
+            var t = new Thread(() -> lanes.run(1, () -> order.add(n)));
+            threads.add(t);
+            t.start();
+            t.join();
+        }
+
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(i, (int) order.get(i));
+        }
+        Assertions.assertEquals(100, lanes.sequence(1));
+    }
+
+    @Test
+    void testTasksOfABoardNeverOverlap() throws InterruptedException {
+        lanes = new BoardLanes(4, 1024);
+        var counter = new int[1];
+        var threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < 8; i++) {
+            var t = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    lanes.run(1, () -> counter[0]++);
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+
+        for (var t : threads) {
+            t.join();
+        }
+
+        Assertions.assertEquals(8000, counter[0]);
+    }
+
+    @Test
+    void testBoardsRunInParallel() throws InterruptedException {
+        lanes = new BoardLanes(2, 16);
+        var bothRunning = new CountDownLatch(2);
+        var results = Collections.synchronizedList(new ArrayList<Boolean>());
+
+        Runnable waitForOther = () -> {
+            bothRunning.countDown();
+            try {
+                results.add(bothRunning.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+
+        var t1 = new Thread(() -> lanes.run(1, waitForOther));
+        var t2 = new Thread(() -> lanes.run(2, waitForOther));
+        t1.start();
+        t2.start();
+        t1.join();
+        t2.join();
+
+        Assertions.assertEquals(List.of(true, true), results);
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws InterruptedException {
+        lanes = new BoardLanes(1, 1);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var blocker = new Thread(() -> lanes.run(1, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }));
+        blocker.start();
+        started.await();
+
+        var queued = new Thread(() -> lanes.run(1, () -> {
+        }));
+        queued.start();
+        while (lanes.stats().pending() == 0) {
+            Thread.sleep(1);
+        }
+
+        Assertions.assertThrows(BoardBusy.class, () -> lanes.run(1, () -> {
+        }));
+        Assertions.assertEquals(1, lanes.stats().rejected());
+
+        release.countDown();
+        blocker.join();
+        queued.join();
+    }
+
+    @Test
+    void testForgottenLaneRunsItsQueueBeforeBeingDropped() throws InterruptedException {
+        lanes = new BoardLanes(4, 16);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var ran = new CountDownLatch(1);
+
+        lanes.submit(1, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        started.await();
+        lanes.forget(1);
+
+        // still queued behind the running task, rather than on a second lane of the board.
+        var queued = new Thread(() -> lanes.run(1, ran::countDown));
+        queued.start();
+        Assertions.assertFalse(ran.await(100, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        Assertions.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        queued.join();
+
+        while (lanes.stats().lanes() != 0) {
+            Thread.sleep(1);
+        }
+        int result = lanes.call(1, () -> 1);
+        Assertions.assertEquals(1, result);
+    }
+
+    @Test
+    void testReentrantCallRunsInline() {
+        lanes = new BoardLanes(1, 16);
+
+        int result = lanes.call(1, () -> lanes.call(1, () -> 42));
+
+        Assertions.assertEquals(42, result);
+    }
+
+    @Test
+    void testExceptionsArePropagated() {
+        lanes = new BoardLanes(1, 16);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> lanes.run(1, () -> {
+            throw new IllegalStateException();
+        }));
+        int result = lanes.call(1, () -> 1);
+        Assertions.assertEquals(1, result);
+    }
+}
@@ -0,0 +1,176 @@
+package server.api;
+
+import commons.Card;
+import commons.ColorPreset;
+import commons.CardSubtask;
+import commons.Tag;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import server.api.exceptions.VersionConflict;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Checks that updating a field of a live board writes only that field: one UPDATE statement, without selecting the
+ * entity first.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+final class BoardServiceStatementsTest {
+    @Autowired
+    private BoardService boardService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private long boardId;
+    private long listId;
+    private long cardId;
+    private long subtaskId;
+    private long tagId;
+    private long presetId;
+
+    @BeforeEach
+    void setUp() {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.setStatisticsEnabled(true);
+
+        boardId = boardService.newBoard().getId();
+        listId = boardService.newList(boardId).getId();
+        cardId = boardService.newCard(boardId, listId, new Card("card")).getId();
+        subtaskId = boardService.newSubtask(boardId, listId, cardId, new CardSubtask()).getId();
+        tagId = boardService.newTag(boardId, new Tag("tag")).getId();
+        presetId = boardService.newPreset(boardId, new ColorPreset()).getId();
+    }
+
+    private void assertOneStatement(final Runnable update) {
+        statistics.clear();
+        update.run();
+
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testBoardFields() {
+        assertOneStatement(() -> boardService.setBoardTitle(boardId, "title", null));
+        assertOneStatement(() -> boardService.setBoardFont(boardId, "#000000", null));
+        assertOneStatement(() -> boardService.setBoardBackground(boardId, "#ffffff", null));
+        assertOneStatement(() -> boardService.setDefaultPreset(boardId, presetId, null));
+    }
+
+    @Test
+    void testCardListFields() {
+        assertOneStatement(() -> boardService.setCardListTitle(boardId, listId, "title", null));
+        assertOneStatement(() -> boardService.setCardListFont(boardId, listId, "#000000", null));
+        assertOneStatement(() -> boardService.setCardListBackground(boardId, listId, "#ffffff", null));
+    }
+
+    @Test
+    void testCardFields() {
+        assertOneStatement(() -> boardService.setCardTitle(boardId, listId, cardId, "title", null));
+        assertOneStatement(() -> boardService.setCardText(boardId, listId, cardId, "text", null));
+        assertOneStatement(() -> boardService.setCardDueDate(boardId, listId, cardId, ZonedDateTime.now(), null));
+        assertOneStatement(() -> boardService.setCardPreset(boardId, listId, cardId, presetId, null));
+    }
+
+    @Test
+    void testStaleVersionTouchesNothing() {
+        boardService.setCardTitle(boardId, listId, cardId, "title", null);
+
+        statistics.clear();
+        Assertions.assertThrows(VersionConflict.class,
+                () -> boardService.setCardTitle(boardId, listId, cardId, "other", 0L));
+
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+        Assertions.assertEquals("title", boardService.getCard(boardId, listId, cardId).getTitle());
+    }
+
+    @Test
+    void testReadsAreCopiesOfTheLiveBoard() {
+        statistics.clear();
+        var card = boardService.getCard(boardId, listId, cardId);
+        card.patch(cp -> cp.setTitle("changed"));
+
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+        Assertions.assertEquals("card", boardService.getCard(boardId, listId, cardId).getTitle());
+        Assertions.assertNotSame(boardService.getBoard(boardId), boardService.getBoard(boardId));
+    }
+
+    @Test
+    void testCardTags() {
+        assertOneStatement(() -> boardService.addTagToCard(boardId, listId, cardId, tagId));
+        Assertions.assertEquals(1, boardService.getCard(boardId, listId, cardId).getTags().size());
+
+        assertOneStatement(() -> boardService.removeTagFromCard(boardId, listId, cardId, tagId));
+        Assertions.assertTrue(boardService.getCard(boardId, listId, cardId).getTags().isEmpty());
+    }
+
+    @Test
+    void testNewTagAndPresetOnlyInsertThemselves() {
+        statistics.clear();
+        boardService.newTag(boardId, new Tag("other"));
+        boardService.newPreset(boardId, new ColorPreset());
+
+        // the ids and the inserts; the board isn't merged.
+        Assertions.assertTrue(statistics.getPrepareStatementCount() <= 4);
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertEquals(2, boardService.getBoard(boardId).getTags().size());
+    }
+
+    @Test
+    void testDeleteTagIsSetBased() {
+        for (int i = 0; i < 50; i++) {
+            var card = boardService.newCard(boardId, listId, new Card("card")).getId();
+            boardService.addTagToCard(boardId, listId, card, tagId);
+        }
+
+        statistics.clear();
+        boardService.deleteTag(boardId, tagId);
+
+        // the card tags, then the tag is found and deleted; not one statement per card, and the board isn't merged.
+        Assertions.assertTrue(statistics.getPrepareStatementCount() <= 3);
+        Assertions.assertTrue(boardService.getCard(boardId, listId, cardId).getTags().isEmpty());
+    }
+
+    @Test
+    void testDeletePresetIsSetBased() {
+        for (int i = 0; i < 50; i++) {
+            var card = boardService.newCard(boardId, listId, new Card("card")).getId();
+            boardService.setCardPreset(boardId, listId, card, presetId, null);
+        }
+
+        statistics.clear();
+        boardService.deletePreset(boardId, presetId);
+
+        Assertions.assertTrue(statistics.getPrepareStatementCount() <= 3);
+        Assertions.assertTrue(boardService.getBoard(boardId).cardsWithPreset(presetId).isEmpty());
+    }
+
+    @Test
+    void testSubtaskFields() {
+        assertOneStatement(() -> boardService.setSubtaskName(boardId, listId, cardId, subtaskId, "name"));
+        assertOneStatement(() -> boardService.setSubtaskCompleteness(boardId, listId, cardId, subtaskId, true));
+    }
+
+    @Test
+    void testTagFields() {
+        assertOneStatement(() -> boardService.setTagName(boardId, tagId, "name"));
+        assertOneStatement(() -> boardService.setTagFontColor(boardId, tagId, "#000000"));
+        assertOneStatement(() -> boardService.setTagBackgroundColor(boardId, tagId, "#ffffff"));
+    }
+
+    @Test
+    void testPresetFields() {
+        assertOneStatement(() -> boardService.setPresetName(boardId, presetId, "name"));
+        assertOneStatement(() -> boardService.setPresetFontColor(boardId, presetId, "#000000"));
+        assertOneStatement(() -> boardService.setPresetBackgroundColor(boardId, presetId, "#ffffff"));
+    }
+}
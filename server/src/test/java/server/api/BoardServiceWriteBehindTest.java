@@ -0,0 +1,39 @@
+package server.api;
+
+import commons.Card;
+import commons.operations.SetCardTitleOperation;
+import commons.patchExceptions.NoSuchCard;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+/**
+ * Checks that the field updates of a batch are rolled back with it, even though field updates are written behind.
+ */
+@SpringBootTest(properties = "talio.write-behind.enabled=true")
+@ActiveProfiles("test")
+final class BoardServiceWriteBehindTest {
+    @Autowired
+    private BoardService boardService;
+    @Autowired
+    private WriteBehind writeBehind;
+
+    @Test
+    void testFailedBatchLeavesNoPendingWrites() {
+        var boardId = boardService.newBoard().getId();
+        var listId = boardService.newList(boardId).getId();
+        var cardId = boardService.newCard(boardId, listId, new Card("card")).getId();
+
+        Assertions.assertThrows(NoSuchCard.class, () -> boardService.batch(boardId, List.of(
+                new SetCardTitleOperation(listId, cardId, "changed"),
+                new SetCardTitleOperation(listId, Long.MAX_VALUE, "missing"))));
+
+        Assertions.assertEquals(0, writeBehind.stats().pendingWrites());
+        // the board was evicted, so this reloads it from the database.
+        Assertions.assertEquals("card", boardService.getCard(boardId, listId, cardId).getTitle());
+    }
+}
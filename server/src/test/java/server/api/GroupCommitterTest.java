@@ -0,0 +1,160 @@
+package server.api;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class GroupCommitterTest {
+
+    private static final class CountingTransactionManager implements PlatformTransactionManager {
+        private final AtomicInteger commits = new AtomicInteger();
+        private final AtomicInteger rollbacks = new AtomicInteger();
+
+        @Override
+        public TransactionStatus getTransaction(final TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(final TransactionStatus status) {
+            this.commits.incrementAndGet();
+        }
+
+        @Override
+        public void rollback(final TransactionStatus status) {
+            this.rollbacks.incrementAndGet();
+        }
+    }
+
+    private static GroupCommitter groupCommitter(final boolean enabled, final int maxBatch, final long maxDelay,
+                                                 final BoardLanes boardLanes,
+                                                 final PlatformTransactionManager transactionManager) {
+        return new GroupCommitter(enabled, maxBatch, maxDelay, transactionManager, boardLanes, new BoardCache(4, 100),
+                new MessageBroker());
+    }
+
+    /**
+     * Runs a task through the group committer from the lane of a board, without waiting for it.
+     */
+    private static CompletableFuture<Void> executeOnLane(final BoardLanes boardLanes,
+                                                         final GroupCommitter groupCommitter, final long boardId,
+                                                         final Runnable task) {
+        var result = new CompletableFuture<Void>();
+        boardLanes.submit(boardId, () -> {
+            try {
+                groupCommitter.execute(boardId, task);
+                result.complete(null);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        return result;
+    }
+
+    @Test
+    void testDisabledCommitsEachRightAway() {
+        var transactionManager = new CountingTransactionManager();
+        var groupCommitter = groupCommitter(false, 64, 1000, new BoardLanes(1, 16), transactionManager);
+        var ran = new AtomicInteger();
+
+        groupCommitter.execute(1, ran::incrementAndGet);
+        groupCommitter.execute(2, ran::incrementAndGet);
+
+        Assertions.assertEquals(2, ran.get());
+        Assertions.assertEquals(2, transactionManager.commits.get());
+        Assertions.assertEquals(0, groupCommitter.stats().groups());
+    }
+
+    @Test
+    void testConcurrentWorkIsCommittedTogether() throws Exception {
+        var transactionManager = new CountingTransactionManager();
+        var boardLanes = new BoardLanes(8, 16);
+        var groupCommitter = groupCommitter(true, 8, 10000, boardLanes, transactionManager);
+        var ran = new AtomicInteger();
+
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (long boardId = 1; boardId <= 8; boardId++) {
+            results.add(executeOnLane(boardLanes, groupCommitter, boardId, ran::incrementAndGet));
+        }
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(8, ran.get());
+        Assertions.assertEquals(1, transactionManager.commits.get(), "a full group should commit once");
+        Assertions.assertEquals(1, groupCommitter.stats().groups());
+        Assertions.assertEquals(8, groupCommitter.stats().maxGroupSize());
+
+        groupCommitter.shutdown();
+    }
+
+    @Test
+    void testGroupCommitsOnceEveryLaneWaits() throws Exception {
+        var transactionManager = new CountingTransactionManager();
+        var boardLanes = new BoardLanes(4, 16);
+        // the delay is never waited out, as the batch is sized from the lanes.
+        var groupCommitter = groupCommitter(true, 0, 600_000, boardLanes, transactionManager);
+        Assertions.assertEquals(4, groupCommitter.stats().maxBatch());
+
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (long boardId = 1; boardId <= 4; boardId++) {
+            results.add(executeOnLane(boardLanes, groupCommitter, boardId, () -> { }));
+        }
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        Assertions.assertEquals(1, transactionManager.commits.get());
+
+        groupCommitter.shutdown();
+    }
+
+    @Test
+    void testFailingWorkDoesNotFailTheRestOfTheGroup() throws Exception {
+        var transactionManager = new CountingTransactionManager();
+        var boardLanes = new BoardLanes(2, 16);
+        var groupCommitter = groupCommitter(true, 2, 10000, boardLanes, transactionManager);
+        var goodRuns = new AtomicInteger();
+
+        var good = executeOnLane(boardLanes, groupCommitter, 1, goodRuns::incrementAndGet);
+        var bad = executeOnLane(boardLanes, groupCommitter, 2, () -> {
+            throw new IllegalArgumentException("bad");
+        });
+
+        good.get(10, TimeUnit.SECONDS);
+        var e = Assertions.assertThrows(Exception.class, () -> bad.get(10, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IllegalArgumentException.class, e.getCause());
+
+        Assertions.assertEquals(2, goodRuns.get(), "the good work should run again after the group was rolled back");
+        Assertions.assertEquals(1, transactionManager.commits.get());
+        Assertions.assertEquals(2, transactionManager.rollbacks.get());
+        Assertions.assertEquals(1, groupCommitter.stats().retriedGroups());
+
+        groupCommitter.shutdown();
+    }
+
+    @Test
+    void testNestedWorkJoinsTheGroup() throws Exception {
+        var transactionManager = new CountingTransactionManager();
+        var boardLanes = new BoardLanes(1, 16);
+        var groupCommitter = groupCommitter(true, 64, 0, boardLanes, transactionManager);
+        var ran = new AtomicInteger();
+
+        executeOnLane(boardLanes, groupCommitter, 1, () -> {
+            groupCommitter.execute(1, ran::incrementAndGet);
+            ran.incrementAndGet();
+        }).get(10, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(2, ran.get());
+        Assertions.assertEquals(1, transactionManager.commits.get());
+
+        groupCommitter.shutdown();
+    }
+}
@@ -0,0 +1,246 @@
+package server.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.events.BinaryEventCodec;
+import commons.events.BoardTitleSetEvent;
+import commons.events.CardCreatedEvent;
+import commons.events.CardTitleSetEvent;
+import commons.events.EventBatch;
+import commons.events.ListCreatedEvent;
+import commons.events.ServerToClientEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+class MessageBrokerTest {
+
+    @Test
+    void testFansOutToAllSubscribers() {
+        var broker = new MessageBroker();
+        var board = new Board();
+        List<ServerToClientEvent> first = new ArrayList<>();
+        List<ServerToClientEvent> second = new ArrayList<>();
+
+        broker.addSubscriber(board.getId(), f -> first.add(f.event()));
+        broker.addSubscriber(board.getId(), f -> second.add(f.event()));
+
+        broker.getWrapper(board).patch(bp -> bp.setTitle("title"));
+
+        Assertions.assertEquals(List.of(new BoardTitleSetEvent(board.getId(), "title")), first);
+        Assertions.assertEquals(first, second);
+    }
+
+    @Test
+    void testFailingSubscriberDoesNotStopTheOthers() {
+        var broker = new MessageBroker();
+        var board = new Board();
+        List<ServerToClientEvent> events = new ArrayList<>();
+
+        broker.addSubscriber(board.getId(), f -> {
+            throw new IllegalStateException("session closed");
+        });
+        broker.addSubscriber(board.getId(), f -> events.add(f.event()));
+
+        Assertions.assertDoesNotThrow(() -> broker.getWrapper(board).patch(bp -> bp.setTitle("title")));
+        Assertions.assertEquals(List.of(new BoardTitleSetEvent(board.getId(), "title")), events);
+    }
+
+    @Test
+    void testSubscribersShareOneFrame() throws JsonProcessingException {
+        var broker = new MessageBroker();
+        var board = new Board();
+        List<MessageBroker.Frame> first = new ArrayList<>();
+        List<MessageBroker.Frame> second = new ArrayList<>();
+
+        broker.addSubscriber(board.getId(), first::add);
+        broker.addSubscriber(board.getId(), second::add);
+
+        broker.getWrapper(board).patch(bp -> bp.setTitle("title"));
+
+        Assertions.assertEquals(1, first.size());
+        Assertions.assertSame(first.get(0), second.get(0));
+        Assertions.assertEquals(new BoardTitleSetEvent(board.getId(), "title").serialize(),
+                first.get(0).message().getPayload());
+    }
+
+    @Test
+    void testBinaryMessagesDoNotShareABuffer() throws IOException {
+        var frame = MessageBroker.Frame.of(new BoardTitleSetEvent(1, "title"));
+
+        // sending a message consumes its buffer, which must not empty that of the next session.
+        var first = frame.binary().getPayload();
+        first.position(first.limit());
+
+        var second = frame.binary().getPayload();
+        Assertions.assertEquals(new BoardTitleSetEvent(1, "title"), BinaryEventCodec.decode(second));
+    }
+
+    @Test
+    void testGraphIsAttachedOnce() {
+        var broker = new MessageBroker();
+        var board = new Board();
+        List<ServerToClientEvent> events = new ArrayList<>();
+
+        broker.addSubscriber(board.getId(), f -> events.add(f.event()));
+
+        // patching the same instance several times must not attach additional observers.
+        broker.getWrapper(board).patch(bp -> bp.setTitle("a"));
+        broker.getWrapper(board).patch(bp -> bp.setTitle("b"));
+
+        Assertions.assertEquals(List.of(
+                new BoardTitleSetEvent(board.getId(), "a"),
+                new BoardTitleSetEvent(board.getId(), "b")), events);
+    }
+
+    @Test
+    void testNewEntitiesAreObserved() {
+        var broker = new MessageBroker();
+        var board = new Board();
+        var list = new CardList();
+        var card = new Card();
+        List<ServerToClientEvent> events = new ArrayList<>();
+
+        broker.getWrapper(board).patch(bp -> bp.addCardList(list));
+        broker.addSubscriber(board.getId(), f -> events.add(f.event()));
+
+        list.patch(lp -> lp.addCard(card));
+        card.patch(cp -> cp.setTitle("card"));
+
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertInstanceOf(CardCreatedEvent.class, events.get(0));
+        Assertions.assertEquals(new CardTitleSetEvent(card.getId(), "card"), events.get(1));
+    }
+
+    @Test
+    void testRemovedSubscriberIsNotNotified() {
+        var broker = new MessageBroker();
+        var board = new Board();
+        List<ServerToClientEvent> events = new ArrayList<>();
+        Consumer<MessageBroker.Frame> subscriber = f -> events.add(f.event());
+
+        broker.addSubscriber(board.getId(), subscriber);
+        broker.removeSubscriber(board.getId(), subscriber);
+
+        broker.getWrapper(board).patch(bp -> bp.setTitle("title"));
+
+        Assertions.assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void testDeferredEventsArePublishedAfterTheAction() {
+        var broker = new MessageBroker();
+        var board = new Board();
+        List<ServerToClientEvent> events = new ArrayList<>();
+
+        broker.addSubscriber(board.getId(), f -> events.add(f.event()));
+
+        broker.deferred(board.getId(), () -> {
+            broker.getWrapper(board).patch(bp -> bp.setTitle("a"));
+            broker.getWrapper(board).patch(bp -> bp.setTitle("b"));
+
+            Assertions.assertTrue(events.isEmpty(), "events should be held back until the action completes");
+            return null;
+        });
+
+        Assertions.assertEquals(List.of(
+                new BoardTitleSetEvent(board.getId(), "a"),
+                new BoardTitleSetEvent(board.getId(), "b")), events);
+    }
+
+    @Test
+    void testHeldEventsCarryTheEntitiesAsTheyWereEmitted() {
+        var broker = new MessageBroker();
+        var board = new Board();
+        var list = new CardList();
+        List<ServerToClientEvent> events = new ArrayList<>();
+
+        broker.addSubscriber(board.getId(), f -> events.add(f.event()));
+
+        broker.batched(board.getId(), () -> {
+            broker.getWrapper(board).patch(bp -> {
+                bp.addCardList(list);
+                bp.patchCardList(list.getId(), lp -> lp.setTitle("renamed"));
+            });
+            return null;
+        });
+
+        var batch = (EventBatch) events.get(0);
+        var created = (ListCreatedEvent) batch.events().get(0);
+        Assertions.assertEquals("", created.list().getTitle());
+        Assertions.assertEquals(0, created.list().getVersion());
+        Assertions.assertEquals(1, list.getVersion());
+    }
+
+    @Test
+    void testNestedDeferredJoinsTheBatch() {
+        var broker = new MessageBroker();
+        var board = new Board();
+        List<ServerToClientEvent> events = new ArrayList<>();
+
+        broker.addSubscriber(board.getId(), f -> events.add(f.event()));
+
+        broker.batched(board.getId(), () -> {
+            broker.deferred(board.getId(), () -> {
+                broker.getWrapper(board).patch(bp -> bp.setTitle("a"));
+                return null;
+            });
+            broker.deferred(board.getId(), () -> {
+                broker.getWrapper(board).patch(bp -> bp.setTitle("b"));
+                return null;
+            });
+            return null;
+        });
+
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertInstanceOf(EventBatch.class, events.get(0));
+    }
+
+    @Test
+    void testBatchedEventsArePublishedTogether() {
+        var broker = new MessageBroker();
+        var board = new Board();
+        List<ServerToClientEvent> events = new ArrayList<>();
+
+        broker.addSubscriber(board.getId(), f -> events.add(f.event()));
+
+        var result = broker.batched(board.getId(), () -> {
+            broker.getWrapper(board).patch(bp -> bp.setTitle("a"));
+            broker.getWrapper(board).patch(bp -> bp.setTitle("b"));
+
+            Assertions.assertTrue(events.isEmpty(), "events should be held back until the batch completes");
+            return 42;
+        });
+
+        Assertions.assertEquals(42, (int) result);
+        Assertions.assertEquals(List.of(new EventBatch(List.of(
+                new BoardTitleSetEvent(board.getId(), "a"),
+                new BoardTitleSetEvent(board.getId(), "b")))), events);
+    }
+
+    @Test
+    void testFailedBatchPublishesNothing() {
+        var broker = new MessageBroker();
+        var board = new Board();
+        List<ServerToClientEvent> events = new ArrayList<>();
+
+        broker.addSubscriber(board.getId(), f -> events.add(f.event()));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> broker.batched(board.getId(), () -> {
+            broker.getWrapper(board).patch(bp -> bp.setTitle("a"));
+            throw new IllegalStateException();
+        }));
+
+        Assertions.assertTrue(events.isEmpty());
+
+        // events after the failed batch are published as usual.
+        broker.getWrapper(board).patch(bp -> bp.setTitle("b"));
+        Assertions.assertEquals(List.of(new BoardTitleSetEvent(board.getId(), "b")), events);
+    }
+}
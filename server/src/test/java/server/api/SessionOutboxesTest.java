@@ -0,0 +1,208 @@
+package server.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import commons.events.BoardResyncEvent;
+import commons.events.CardTitleSetEvent;
+import commons.events.EventBatch;
+import commons.events.EventCodec;
+import commons.events.ServerToClientEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class SessionOutboxesTest {
+    private static final int CAPACITY = 4;
+    private static final int WRITERS = 2;
+
+    /**
+     * A client whose first message takes until released to send.
+     */
+    private static final class SlowClient implements SessionOutboxes.Transport {
+        private final List<String> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private final CountDownLatch done;
+
+        private SlowClient(final int messages) {
+            this.done = new CountDownLatch(messages);
+        }
+
+        @Override
+        public void send(final WebSocketMessage<?> message) {
+            this.sending.countDown();
+            try {
+                this.release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            this.received.add((String) message.getPayload());
+            this.done.countDown();
+        }
+
+        @Override
+        public void close() {
+            this.closed.countDown();
+        }
+    }
+
+    private static void await(final CountDownLatch latch) throws InterruptedException {
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testSendsInOrder() throws InterruptedException {
+        var outboxes = new SessionOutboxes(CAPACITY, "drop-and-resync", 0, WRITERS, 0);
+        var client = new SlowClient(3);
+        var outbox = outboxes.open(client, () -> new TextMessage("resync"));
+
+        client.release.countDown();
+        for (int i = 0; i < 3; i++) {
+            outbox.send(new TextMessage("m" + i));
+        }
+
+        await(client.done);
+        Assertions.assertEquals(List.of("m0", "m1", "m2"), client.received);
+        Assertions.assertEquals(0, outbox.depth());
+        outboxes.close();
+    }
+
+    @Test
+    void testOverflowDropsAndResyncs() throws InterruptedException {
+        var outboxes = new SessionOutboxes(CAPACITY, "drop-and-resync", 0, WRITERS, 0);
+        var client = new SlowClient(2);
+        var outbox = outboxes.open(client, () -> new TextMessage("resync"));
+
+        outbox.send(new TextMessage("m0"));
+        await(client.sending);
+
+        // the client is stuck on m0, which doesn't hold up queueing the others.
+        for (int i = 1; i <= CAPACITY + 1; i++) {
+            outbox.send(new TextMessage("m" + i));
+        }
+        // the message that didn't fit is dropped too, the resync taking its place.
+        Assertions.assertEquals(1, outbox.depth());
+
+        client.release.countDown();
+        await(client.done);
+
+        Assertions.assertEquals(List.of("m0", "resync"), client.received);
+        var stats = outboxes.stats();
+        Assertions.assertEquals(CAPACITY + 1, stats.dropped());
+        Assertions.assertEquals(1, stats.resyncs());
+        Assertions.assertEquals(CAPACITY, stats.maxQueued());
+        outboxes.close();
+    }
+
+    @Test
+    void testOverflowDisconnects() throws InterruptedException {
+        // the only writer is stuck sending m0, so closing the session mustn't need one.
+        var outboxes = new SessionOutboxes(CAPACITY, "disconnect", 0, 1, 0);
+        var client = new SlowClient(1);
+        var outbox = outboxes.open(client, () -> new TextMessage("resync"));
+
+        outbox.send(new TextMessage("m0"));
+        await(client.sending);
+        for (int i = 1; i <= CAPACITY + 1; i++) {
+            outbox.send(new TextMessage("m" + i));
+        }
+
+        await(client.closed);
+        client.release.countDown();
+        await(client.done);
+        outbox.send(new TextMessage("after"));
+
+        Assertions.assertEquals(List.of("m0"), client.received);
+        Assertions.assertEquals(0, outbox.depth());
+        var stats = outboxes.stats();
+        Assertions.assertEquals(1, stats.disconnects());
+        Assertions.assertEquals(0, stats.sessions());
+        outboxes.close();
+    }
+
+    @Test
+    void testStalledSendClosesTheSession() throws InterruptedException {
+        var outboxes = new SessionOutboxes(CAPACITY, "drop-and-resync", 0, 1, 50);
+        var client = new SlowClient(1);
+        var outbox = outboxes.open(client, () -> new TextMessage("resync"));
+
+        outbox.send(new TextMessage("m0"));
+        await(client.sending);
+
+        // closed while the send is still stuck.
+        await(client.closed);
+        var stats = outboxes.stats();
+        Assertions.assertEquals(1, stats.sendTimeouts());
+        Assertions.assertEquals(0, stats.sessions());
+
+        client.release.countDown();
+        await(client.done);
+        outbox.send(new TextMessage("after"));
+        Assertions.assertEquals(0, outbox.depth());
+        outboxes.close();
+    }
+
+    @Test
+    void testBusySessionLetsTheOthersThrough() throws InterruptedException {
+        var outboxes = new SessionOutboxes(64, "drop-and-resync", 0, 1, 0);
+        var stalled = new SlowClient(1);
+        var sent = new CopyOnWriteArrayList<String>();
+        var done = new CountDownLatch(21);
+        SessionOutboxes.Transport recording = new SessionOutboxes.Transport() {
+            @Override
+            public void send(final WebSocketMessage<?> message) {
+                sent.add((String) message.getPayload());
+                done.countDown();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        var busy = outboxes.open(recording, () -> new TextMessage("resync"));
+        var quiet = outboxes.open(recording, () -> new TextMessage("resync"));
+
+        // the only writer is held up until both sessions have queued their messages.
+        outboxes.open(stalled, () -> new TextMessage("resync")).send(new TextMessage("s0"));
+        await(stalled.sending);
+        for (int i = 0; i < 20; i++) {
+            busy.send(new TextMessage("b" + i));
+        }
+        quiet.send(new TextMessage("q0"));
+        stalled.release.countDown();
+
+        await(done);
+        Assertions.assertEquals(16, sent.indexOf("q0"));
+        outboxes.close();
+    }
+
+    @Test
+    void testCoalescesIntoOneBatch() throws InterruptedException, JsonProcessingException {
+        var outboxes = new SessionOutboxes(CAPACITY, "drop-and-resync", 50, WRITERS, 0);
+        var client = new SlowClient(1);
+        var outbox = outboxes.open(client, () -> new TextMessage("resync"));
+        var events = List.<ServerToClientEvent>of(new CardTitleSetEvent(1, "a"), new BoardResyncEvent(2),
+                new CardTitleSetEvent(1, "b"));
+
+        client.release.countDown();
+        for (var event : events) {
+            outbox.send(new TextMessage(EventCodec.encode(event)));
+        }
+
+        await(client.done);
+        Assertions.assertEquals(1, client.received.size());
+        Assertions.assertEquals(new EventBatch(events), EventCodec.decodeServerToClient(client.received.get(0)));
+        // counted before the frame is sent.
+        var stats = outboxes.stats();
+        Assertions.assertEquals(1, stats.batches());
+        Assertions.assertEquals(3, stats.batched());
+        outboxes.close();
+    }
+}
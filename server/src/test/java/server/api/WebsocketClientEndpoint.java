@@ -1,6 +1,7 @@
 package server.api;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import commons.events.EventBatch;
 import commons.events.MessageProcessedEvent;
 import commons.events.ServerToClientEvent;
 import commons.events.SubscribeToBoard;
@@ -16,6 +17,7 @@ import jakarta.websocket.WebSocketContainer;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -107,13 +109,17 @@ public class WebsocketClientEndpoint implements AutoCloseable {
     @OnMessage
     public void onMessage(final String message) throws JsonProcessingException {
         System.out.println("<<< " + message);
-        ServerToClientEvent event = ServerToClientEvent.deserialize(message);
-        if (event instanceof MessageProcessedEvent) {
-            this.initCountdownLatch.countDown();
-            return;
+        ServerToClientEvent received = ServerToClientEvent.deserialize(message);
+        // the events of a batch are recorded one by one.
+        var events = received instanceof EventBatch batch ? batch.flattened() : List.of(received);
+        for (var event : events) {
+            if (event instanceof MessageProcessedEvent) {
+                this.initCountdownLatch.countDown();
+                continue;
+            }
+            this.receivedEvents.add(event);
+            this.shutdownLatch.countDown();
         }
-        this.receivedEvents.add(event);
-        this.shutdownLatch.countDown();
     }
 
     /**
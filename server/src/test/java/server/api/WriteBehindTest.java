@@ -0,0 +1,168 @@
+package server.api;
+
+import commons.Card;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import server.database.EntityStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class WriteBehindTest {
+
+    private static final class CountingTransactionManager implements PlatformTransactionManager {
+        private final AtomicInteger commits = new AtomicInteger();
+
+        @Override
+        public TransactionStatus getTransaction(final TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(final TransactionStatus status) {
+            this.commits.incrementAndGet();
+        }
+
+        @Override
+        public void rollback(final TransactionStatus status) {
+        }
+    }
+
+    private static EntityStore<Card> recordingStore(final List<Card> saved) {
+        return new EntityStore<>() {
+            @Override
+            public Card save(final Card entity) {
+                synchronized (saved) {
+                    saved.add(entity);
+                }
+                return entity;
+            }
+
+            @Override
+            public void saveAll(final Iterable<Card> entities) {
+                throw new UnsupportedOperationException("saveAll");
+            }
+
+            @Override
+            public void deleteById(final long id) {
+                throw new UnsupportedOperationException("deleteById");
+            }
+        };
+    }
+
+    private static WriteBehind writeBehind(final boolean enabled, final long maxLag,
+                                           final PlatformTransactionManager transactionManager) {
+        return new WriteBehind(enabled, maxLag, new BoardLanes(1, 16), new BoardCache(4, 100), transactionManager);
+    }
+
+    @Test
+    void testDisabledWritesRightAway() {
+        List<Card> saved = new ArrayList<>();
+        var writeBehind = writeBehind(false, 1000, new CountingTransactionManager());
+        var card = new Card();
+
+        writeBehind.save(1, card, recordingStore(saved), "title");
+
+        Assertions.assertEquals(List.of(card), saved);
+        Assertions.assertEquals(0, writeBehind.stats().pendingWrites());
+    }
+
+    @Test
+    void testCoalescedUpdatesWriteAllTheirFields() {
+        var updated = new ArrayList<Set<String>>();
+        var store = new EntityStore<Card>() {
+            @Override
+            public Card save(final Card entity) {
+                throw new UnsupportedOperationException("save");
+            }
+
+            @Override
+            public void update(final Card entity, final Set<String> fields) {
+                updated.add(Set.copyOf(fields));
+            }
+
+            @Override
+            public void saveAll(final Iterable<Card> entities) {
+                throw new UnsupportedOperationException("saveAll");
+            }
+
+            @Override
+            public void deleteById(final long id) {
+                throw new UnsupportedOperationException("deleteById");
+            }
+        };
+        var writeBehind = writeBehind(true, 60000, new CountingTransactionManager());
+        var card = new Card();
+
+        writeBehind.save(1, card, store, "title");
+        writeBehind.save(1, card, store, "text");
+        writeBehind.save(1, card, store, "title");
+        writeBehind.flush(1);
+
+        Assertions.assertEquals(List.of(Set.of("title", "text")), updated);
+    }
+
+    @Test
+    void testRepeatedUpdatesAreCoalesced() {
+        List<Card> saved = new ArrayList<>();
+        var transactionManager = new CountingTransactionManager();
+        var writeBehind = writeBehind(true, 60000, transactionManager);
+        var store = recordingStore(saved);
+        var a = new Card();
+        var b = new Card();
+
+        for (int i = 0; i < 10; i++) {
+            writeBehind.save(1, a, store, "title");
+        }
+        writeBehind.save(1, b, store, "title");
+
+        Assertions.assertTrue(saved.isEmpty(), "nothing should be written before the flush");
+        Assertions.assertEquals(2, writeBehind.stats().pendingWrites());
+        Assertions.assertEquals(9, writeBehind.stats().coalescedWrites());
+
+        writeBehind.flush(1);
+
+        Assertions.assertEquals(2, saved.size());
+        Assertions.assertTrue(saved.contains(a) && saved.contains(b));
+        Assertions.assertEquals(1, transactionManager.commits.get(), "a flush should commit once");
+        Assertions.assertEquals(0, writeBehind.stats().pendingWrites());
+    }
+
+    @Test
+    void testFlushesAfterMaxLag() throws InterruptedException {
+        List<Card> saved = new ArrayList<>();
+        var writeBehind = writeBehind(true, 10, new CountingTransactionManager());
+
+        writeBehind.save(1, new Card(), recordingStore(saved), "title");
+
+        for (int i = 0; i < 200 && writeBehind.stats().flushedWrites() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        synchronized (saved) {
+            Assertions.assertEquals(1, saved.size());
+        }
+        Assertions.assertEquals(0, writeBehind.stats().pendingBoards());
+    }
+
+    @Test
+    void testFlushAllOnShutdown() {
+        List<Card> saved = new ArrayList<>();
+        var writeBehind = writeBehind(true, 60000, new CountingTransactionManager());
+        var store = recordingStore(saved);
+
+        writeBehind.save(1, new Card(), store, "title");
+        writeBehind.save(2, new Card(), store, "title");
+
+        writeBehind.flushAll();
+
+        Assertions.assertEquals(2, saved.size());
+        Assertions.assertEquals(2, writeBehind.stats().flushes());
+    }
+}
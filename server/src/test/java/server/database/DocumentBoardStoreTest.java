@@ -0,0 +1,81 @@
+package server.database;
+
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.Tag;
+import commons.events.BoardTitleSetEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+
+class DocumentBoardStoreTest {
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        var dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        this.jdbc = new JdbcTemplate(dataSource);
+    }
+
+    private static Board populate(final DocumentBoardStore store) {
+        var board = store.boards().save(new Board());
+
+        var tag = store.tags().save(new Tag("tag"));
+        var list = store.cardLists().save(new CardList());
+        var card = store.cards().save(new Card("card"));
+
+        board.patch(bp -> {
+            bp.setTitle("board");
+            bp.addTag(tag);
+            bp.addCardList(list);
+        });
+        list.patch(lp -> lp.addCard(card));
+        card.patch(cp -> cp.addTag(tag));
+
+        store.journal(board.getId(), List.of(new BoardTitleSetEvent(board.getId(), "board")));
+
+        return board;
+    }
+
+    @Test
+    void testLoadReadsLastJournaledState() {
+        var board = populate(new DocumentBoardStore(this.jdbc));
+
+        // a new store only sees what was written to the table.
+        var store = new DocumentBoardStore(this.jdbc);
+        var loaded = store.load(board.getId()).orElseThrow();
+
+        Assertions.assertEquals("board", loaded.getTitle());
+        var card = loaded.getCardLists().get(0).getCards().get(0);
+        Assertions.assertEquals("card", card.getTitle());
+        Assertions.assertSame(loaded.getTags().get(0), card.getTags().iterator().next(),
+                "the card should be linked to the tag of the board");
+        Assertions.assertEquals(1, store.count());
+    }
+
+    @Test
+    void testDeletedBoardIsNotRewritten() {
+        var store = new DocumentBoardStore(this.jdbc);
+        var board = populate(store);
+
+        store.boards().deleteById(board.getId());
+        store.journal(board.getId(), List.of());
+
+        Assertions.assertTrue(store.load(board.getId()).isEmpty());
+        Assertions.assertEquals(0, store.count());
+    }
+
+    @Test
+    void testIdsAreUniqueAcrossStores() {
+        var first = new DocumentBoardStore(this.jdbc).cards().save(new Card()).getId();
+        var second = new DocumentBoardStore(this.jdbc).cards().save(new Card()).getId();
+
+        Assertions.assertNotEquals(first, second);
+    }
+}
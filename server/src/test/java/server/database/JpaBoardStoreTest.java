@@ -0,0 +1,305 @@
+package server.database;
+
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.CardSubtask;
+import commons.Tag;
+import commons.events.TagCreatedEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import server.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks that loading boards takes a bounded number of statements, however many lists and cards they have.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+// the store runs its own transactions, which should not join one of the test.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaBoardStoreTest {
+    @Autowired
+    private BoardRepository boardRepository;
+    @Autowired
+    private CardListRepository cardListRepository;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private ColorPresetRepository colorPresetRepository;
+    @Autowired
+    private SubtaskRepository subtaskRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private EntityManager entityManager;
+
+    private JpaBoardStore store;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        var config = new Config(boardRepository, cardListRepository, cardRepository, tagRepository,
+                colorPresetRepository, subtaskRepository);
+
+        this.store = new JpaBoardStore(config, transactionManager, entityManager);
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Creates a board with tagged cards that have subtasks, the way the board service does.
+     */
+    private long populate(final int lists, final int cardsPerList) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            var board = store.boards().save(new Board());
+
+            var tag = store.tags().save(new Tag("tag"));
+            board.patch(bp -> bp.addTag(tag));
+
+            for (int i = 0; i < lists; i++) {
+                var list = new CardList();
+                list.presaveForBoard(board);
+                store.cardLists().save(list);
+                board.patch(bp -> bp.addCardList(list));
+
+                for (int j = 0; j < cardsPerList; j++) {
+                    var card = new Card("card");
+                    card.presaveForList(list);
+                    store.cards().save(card);
+                    list.patch(lp -> lp.addCard(card));
+                    card.patch(cp -> cp.addTag(tag));
+
+                    var subtask = new CardSubtask();
+                    subtask.presaveForCard(card);
+                    store.subtasks().save(subtask);
+                    card.patch(cp -> cp.addSubtask(subtask));
+                }
+            }
+
+            return board.getId();
+        });
+    }
+
+    private long statementsOf(final Runnable action) {
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        action.run();
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long hits(final String region) {
+        return statistics.getDomainDataRegionStatistics(region).getHitCount();
+    }
+
+    @Test
+    void testLoadBatchFetchesTheGraph() {
+        var boardId = populate(10, 10);
+
+        var board = new Board[1];
+        var statements = statementsOf(() -> board[0] = store.load(boardId).orElseThrow());
+
+        Assertions.assertEquals(10, board[0].getCardLists().size());
+        var card = board[0].getCardLists().get(9).getCards().get(9);
+        Assertions.assertEquals(1, card.getTags().size());
+        Assertions.assertEquals(1, card.getSubtasks().size());
+
+        // the board and its lists, its tags and presets, then the cards, card tags and subtasks in batches; one
+        // statement per list or card would be over 200.
+        Assertions.assertTrue(statements <= 10, "loading the board took " + statements + " statements");
+    }
+
+    @Test
+    void testFindAllReadsOnlyTheBoards() {
+        var ids = List.of(populate(5, 4), populate(5, 4), populate(5, 4));
+
+        var boards = new List<?>[1];
+        var statements = statementsOf(() -> boards[0] = store.findAllById(ids));
+
+        Assertions.assertEquals(3, boards[0].size());
+        Assertions.assertTrue(((Board) boards[0].get(0)).getCardLists().isEmpty());
+        Assertions.assertEquals(1, statements);
+
+        statements = statementsOf(() -> boards[0] = store.findAll());
+        Assertions.assertEquals(ids, boards[0].stream().map(b -> ((Board) b).getId()).toList());
+        Assertions.assertEquals(1, statements);
+    }
+
+    @Test
+    void testPagesTheCardsOfAList() {
+        var boardId = populate(2, 5);
+        var loaded = store.load(boardId).orElseThrow();
+        var list = loaded.getCardLists().get(1);
+
+        var pages = store.pages(boardId).orElseThrow();
+        Assertions.assertEquals(2, pages.board().getCardLists().size());
+        Assertions.assertEquals(1, pages.board().getTags().size());
+
+        var ids = new ArrayList<Long>();
+        Card last = null;
+        List<Card> page;
+        do {
+            page = store.pages(boardId).orElseThrow().cards(list.getId(), last, 2);
+            Assertions.assertTrue(page.size() <= 2);
+            for (var card : page) {
+                Assertions.assertEquals(1, card.getTags().size());
+                Assertions.assertEquals(1, card.getSubtasks().size());
+                ids.add(card.getId());
+            }
+            last = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == 2);
+
+        Assertions.assertEquals(list.getCards().stream().map(Card::getId).toList(), ids);
+        Assertions.assertTrue(store.pages(-1).isEmpty());
+    }
+
+    @Test
+    void testSavingACardDoesNotLoadTheBoard() {
+        var boardId = populate(10, 10);
+        var board = store.load(boardId).orElseThrow();
+        var card = board.getCardLists().get(0).getCards().get(0);
+
+        card.patch(cp -> cp.setTitle("renamed"));
+        var statements = statementsOf(() -> store.cards().save(card));
+
+        // the card, its tags and subtasks for the merge, and the update.
+        Assertions.assertTrue(statements <= 5, "saving the card took " + statements + " statements");
+    }
+
+    @Test
+    void testUpdateWritesOnlyTheFields() {
+        var boardId = populate(2, 2);
+        var card = store.load(boardId).orElseThrow().getCardLists().get(0).getCards().get(0);
+
+        card.patch(cp -> {
+            cp.setTitle("renamed");
+            cp.setText("text");
+        });
+        var statements = statementsOf(() -> new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> store.cards().update(card, Set.of("title", "text"))));
+
+        Assertions.assertEquals(1, statements);
+
+        var reloaded = store.load(boardId).orElseThrow().getCardLists().get(0).getCards().get(0);
+        Assertions.assertEquals("renamed", reloaded.getTitle());
+        Assertions.assertEquals("text", reloaded.getText());
+    }
+
+    @Test
+    void testTagsAndPresetsAreCached() {
+        var boardId = populate(2, 2);
+        var first = statementsOf(() -> store.load(boardId).orElseThrow());
+
+        var board = new Board[1];
+        var second = statementsOf(() -> board[0] = store.load(boardId).orElseThrow());
+
+        Assertions.assertEquals(1, board[0].getTags().size());
+        Assertions.assertTrue(hits(SecondLevelCache.BOARD_TAGS) > 0);
+        Assertions.assertTrue(hits(SecondLevelCache.BOARD_PRESETS) > 0);
+        // the tags and presets of the board are not read again.
+        Assertions.assertTrue(second < first, "loading the board again took " + second + " statements");
+    }
+
+    @Test
+    void testCreatedTagEvictsTheTagsOfTheBoard() {
+        var boardId = populate(1, 1);
+        var board = store.load(boardId).orElseThrow();
+
+        var tag = new TransactionTemplate(transactionManager).execute(status -> {
+            var t = store.tags().save(new Tag("other"));
+            board.patch(bp -> bp.addTag(t));
+            return t;
+        });
+        store.journal(boardId, List.of(new TagCreatedEvent(tag)));
+
+        Assertions.assertEquals(2, store.load(boardId).orElseThrow().getTags().size());
+    }
+
+    @Test
+    void testUpdateOfCachedTagUpdatesTheCache() {
+        var boardId = populate(1, 1);
+        var tag = store.load(boardId).orElseThrow().getTags().get(0);
+
+        tag.patch(tp -> tp.setName("renamed"));
+        var statements = statementsOf(() -> new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> store.tags().update(tag, Set.of("name"))));
+
+        // found in the cache, so only the update.
+        Assertions.assertEquals(1, statements);
+        Assertions.assertEquals("renamed", store.load(boardId).orElseThrow().getTags().get(0).getName());
+    }
+
+    @Test
+    void testImportBatchesTheInserts() throws IOException {
+        var boardId = populate(10, 10);
+        var document = BoardDocuments.encode(store.load(boardId).orElseThrow());
+
+        var imported = new Board[1];
+        var statements = statementsOf(() -> {
+            try {
+                imported[0] = store.importBoard(BoardImport.read(new ByteArrayInputStream(document)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        // a few blocks of ids and one batch per table; one statement per row would be over 300.
+        Assertions.assertTrue(statements <= 20, "importing the board took " + statements + " statements");
+        Assertions.assertNotEquals(boardId, imported[0].getId());
+
+        var loaded = store.load(imported[0].getId()).orElseThrow();
+        Assertions.assertEquals(10, loaded.getCardLists().size());
+        var card = loaded.getCardLists().get(9).getCards().get(9);
+        Assertions.assertEquals(1, card.getSubtasks().size());
+        Assertions.assertEquals(loaded.getTags().get(0).getId(), card.getTags().iterator().next().getId());
+
+        // the ids hibernate allocates afterwards don't collide with the imported ones.
+        var list = new TransactionTemplate(transactionManager)
+                .execute(status -> store.cardLists().save(new CardList()));
+        Assertions.assertTrue(loaded.getCardLists().stream().noneMatch(l -> l.getId() == list.getId()));
+    }
+
+    private long rows(final String table) {
+        return ((Number) entityManager.createNativeQuery("select count(*) from " + table).getSingleResult())
+                .longValue();
+    }
+
+    @Test
+    void testDeletingABoardDeletesItsRows() {
+        var boardId = populate(2, 2);
+        var other = populate(1, 1);
+
+        var tables = List.of("card_list", "card", "card_subtask", "card_tags", "tag");
+        var before = tables.stream().map(this::rows).toList();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> store.boards().deleteById(boardId));
+        var after = tables.stream().map(this::rows).toList();
+
+        // its 2 lists, 4 cards with a subtask and a tag each, and its tag.
+        Assertions.assertEquals(List.of(2L, 4L, 4L, 4L, 1L),
+                List.of(before.get(0) - after.get(0), before.get(1) - after.get(1), before.get(2) - after.get(2),
+                        before.get(3) - after.get(3), before.get(4) - after.get(4)));
+        Assertions.assertTrue(store.load(other).isPresent());
+    }
+}
@@ -0,0 +1,70 @@
+package server.database;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@DataJpaTest
+@ActiveProfiles("test")
+// the collector runs its own transactions, which should not join one of the test.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrphanCollectorTest {
+    private static final long MISSING_BOARD = 1_000_000;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManager entityManager;
+
+    private void sql(final String statement) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> entityManager.createNativeQuery(statement).executeUpdate());
+    }
+
+    /**
+     * Leaves behind the rows of a board deleted without its children: 3 lists with a card each, which has a subtask
+     * and a tag.
+     */
+    private void orphans() {
+        sql("insert into tag (id, name, board_id) values (1000001, 'tag', " + MISSING_BOARD + ")");
+        sql("insert into color_preset (id, name, board) values (1000001, 'preset', " + MISSING_BOARD + ")");
+
+        for (int i = 1; i <= 3; i++) {
+            var id = 1_000_000 + i;
+            sql("insert into card_list (id, board, version) values (" + id + ", " + MISSING_BOARD + ", 0)");
+            sql("insert into card (id, card_list, color_preset_key, version) values (" + id + ", " + id + ", 0, 0)");
+            sql("insert into card_subtask (id, card, completed) values (" + id + ", " + id + ", false)");
+            sql("insert into card_tags (card_id, tags_id) values (" + id + ", 1000001)");
+        }
+    }
+
+    @Test
+    void testCollectsOrphansInBatches() throws InterruptedException {
+        var collector = new OrphanCollector(0, 2, 0, entityManager, transactionManager);
+        // the orphans other tests might have left behind.
+        var before = collector.collect().rows();
+        orphans();
+
+        var report = collector.collect();
+
+        Assertions.assertEquals(3, report.lists());
+        Assertions.assertEquals(3, report.cards());
+        Assertions.assertEquals(3, report.subtasks());
+        Assertions.assertEquals(1, report.tags());
+        Assertions.assertEquals(1, report.presets());
+        // 3 rows take 2 batches of 2, for each of lists, cards and subtasks; then one for the tags, and the presets.
+        Assertions.assertEquals(8, report.batches());
+
+        Assertions.assertEquals(0, collector.collect().rows());
+        Assertions.assertEquals(before + 11, collector.stats().reclaimedRows());
+        Assertions.assertEquals(3, collector.stats().runs());
+        collector.close();
+    }
+}
@@ -0,0 +1,324 @@
+package server.database.wal;
+
+import commons.Board;
+import commons.Card;
+import commons.CardList;
+import commons.CardSubtask;
+import commons.Tag;
+import commons.events.BoardBackgroundColorSetEvent;
+import commons.events.BoardTitleSetEvent;
+import commons.events.CardCreatedEvent;
+import commons.events.CardSubtaskCreatedEvent;
+import commons.events.CardSubtaskMovedEvent;
+import commons.events.CardTagAddedEvent;
+import commons.events.CardTitleSetEvent;
+import commons.events.ListCreatedEvent;
+import commons.events.TagCreatedEvent;
+import commons.events.TagDeletedEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import server.api.MessageBroker;
+import server.database.BoardDocuments;
+import server.database.BoardImport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+class WalBoardStoreTest {
+    private static final long NEVER = 3_600_000;
+
+    @TempDir
+    Path dir;
+
+    private WalBoardStore open() {
+        return new WalBoardStore(this.dir.toString(), NEVER);
+    }
+
+    /**
+     * Does what the board service does: creates a list with a tagged card, and journals the events.
+     */
+    private static Board populate(final WalBoardStore store) {
+        var board = store.boards().save(new Board());
+        var id = board.getId();
+
+        board.patch(bp -> bp.setTitle("board"));
+        store.journal(id, List.of(new BoardTitleSetEvent(id, "board")));
+
+        var tag = store.tags().save(new Tag("tag"));
+        board.patch(bp -> bp.addTag(tag));
+        store.journal(id, List.of(new TagCreatedEvent(tag)));
+
+        var list = store.cardLists().save(new CardList());
+        board.patch(bp -> bp.addCardList(list));
+        store.journal(id, List.of(new ListCreatedEvent(list)));
+
+        var card = store.cards().save(new Card("card"));
+        list.patch(lp -> lp.addCard(card));
+        store.journal(id, List.of(new CardCreatedEvent(list.getId(), card)));
+
+        card.patch(cp -> cp.addTag(tag));
+        card.patch(cp -> cp.setTitle("renamed"));
+        store.journal(id, List.of(new CardTagAddedEvent(card.getId(), tag.getId()),
+                new CardTitleSetEvent(card.getId(), "renamed")));
+
+        return board;
+    }
+
+    private static void assertSameBoard(final Board expected, final Board actual) {
+        Assertions.assertEquals(expected.getId(), actual.getId());
+        Assertions.assertEquals("board", actual.getTitle());
+        Assertions.assertEquals(1, actual.getCardLists().size());
+
+        var card = actual.getCardLists().get(0).getCards().get(0);
+        Assertions.assertEquals(expected.getCardLists().get(0).getCards().get(0).getId(), card.getId());
+        Assertions.assertEquals("renamed", card.getTitle());
+        Assertions.assertSame(actual.getTags().get(0), card.getTags().iterator().next(),
+                "the card should be linked to the tag of the board");
+    }
+
+    private long segments() throws IOException {
+        try (var files = Files.list(this.dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("wal-")).count();
+        }
+    }
+
+    @Test
+    void testLoadReplaysJournal() {
+        var store = this.open();
+        var board = populate(store);
+
+        assertSameBoard(board, store.load(board.getId()).orElseThrow());
+        Assertions.assertEquals(1, store.count());
+
+        store.close();
+    }
+
+    @Test
+    void testRecoversAfterCrash() {
+        var crashed = this.open();
+        var board = populate(crashed);
+
+        // not closed, so nothing was folded into a snapshot.
+        var store = this.open();
+
+        assertSameBoard(board, store.load(board.getId()).orElseThrow());
+        Assertions.assertTrue(store.stats().pendingRecords() > 0);
+
+        store.close();
+    }
+
+    @Test
+    void testCheckpointTruncatesLog() throws IOException {
+        var store = this.open();
+        var board = populate(store);
+
+        store.checkpoint();
+
+        Assertions.assertEquals(0, store.stats().pendingRecords());
+        Assertions.assertEquals(1, this.segments());
+        assertSameBoard(board, store.load(board.getId()).orElseThrow());
+        store.close();
+
+        var reopened = this.open();
+        assertSameBoard(board, reopened.load(board.getId()).orElseThrow());
+        reopened.close();
+    }
+
+    @Test
+    void testTornRecordIsIgnored() throws IOException {
+        var crashed = this.open();
+        var board = populate(crashed);
+
+        try (var files = Files.list(this.dir)) {
+            var last = files.filter(f -> f.getFileName().toString().startsWith("wal-")).sorted()
+                    .reduce((a, b) -> b).orElseThrow();
+            Files.writeString(last, "999 deadbeef {\"board\":", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+
+        var store = this.open();
+        var loaded = store.load(board.getId()).orElseThrow();
+        assertSameBoard(board, loaded);
+
+        // the log goes on after the torn record.
+        loaded.patch(bp -> bp.setTitle("again"));
+        store.journal(board.getId(), List.of(new BoardTitleSetEvent(board.getId(), "again")));
+        store.close();
+
+        var reopened = this.open();
+        Assertions.assertEquals("again", reopened.load(board.getId()).orElseThrow().getTitle());
+        reopened.close();
+    }
+
+    @Test
+    void testDeletedBoardStaysDeleted() {
+        var store = this.open();
+        var board = populate(store);
+
+        store.boards().deleteById(board.getId());
+        Assertions.assertTrue(store.load(board.getId()).isEmpty());
+        store.close();
+
+        var reopened = this.open();
+        Assertions.assertTrue(reopened.load(board.getId()).isEmpty());
+        Assertions.assertEquals(0, reopened.count());
+        reopened.close();
+    }
+
+    @Test
+    void testListsTheBoardsAsTheyAre() {
+        var crashed = this.open();
+        var board = populate(crashed);
+        var id = board.getId();
+
+        board.patch(bp -> bp.setBackgroundColor("#123456"));
+        crashed.journal(id, List.of(new BoardBackgroundColorSetEvent("#123456")));
+        crashed.boards().save(new Board());
+
+        var listed = crashed.findAll().get(0);
+        Assertions.assertEquals("board", listed.getTitle());
+        Assertions.assertEquals("#123456", listed.getBackgroundColor());
+        Assertions.assertEquals(board.getVersion(), listed.getVersion());
+        Assertions.assertTrue(listed.getCardLists().isEmpty());
+
+        // once from the log, and once from the snapshots the checkpoint on close writes.
+        for (var i = 0; i < 2; i++) {
+            var store = this.open();
+            var boards = store.findAllById(List.of(id));
+            Assertions.assertEquals(1, boards.size());
+            Assertions.assertEquals("board", boards.get(0).getTitle());
+            Assertions.assertEquals("#123456", boards.get(0).getBackgroundColor());
+            Assertions.assertEquals(board.getVersion(), boards.get(0).getVersion());
+            Assertions.assertEquals(2, store.findAll().size());
+            store.close();
+        }
+    }
+
+    @Test
+    void testPagesTheStoredBoard() {
+        var store = this.open();
+        var board = populate(store);
+
+        var pages = store.pages(board.getId()).orElseThrow();
+        Assertions.assertNotSame(board, pages.board());
+        assertSameBoard(board, pages.board());
+
+        var list = pages.board().getCardLists().get(0);
+        var cards = pages.cards(list.getId(), null, 10);
+        Assertions.assertEquals("renamed", cards.get(0).getTitle());
+        Assertions.assertTrue(pages.cards(list.getId(), cards.get(0), 10).isEmpty());
+        Assertions.assertTrue(store.pages(-1).isEmpty());
+
+        store.close();
+    }
+
+    @Test
+    void testDeletedTagIsRemovedFromCardsOnReplay() {
+        var crashed = this.open();
+        var board = populate(crashed);
+        var tag = board.getTags().get(0);
+
+        // the deletion of the tag is the only event of its removal from the card.
+        board.patch(bp -> bp.removeTag(tag.getId()));
+        crashed.journal(board.getId(), List.of(new TagDeletedEvent(tag)));
+
+        var store = this.open();
+        var loaded = store.load(board.getId()).orElseThrow();
+        Assertions.assertTrue(loaded.getTags().isEmpty());
+        Assertions.assertTrue(loaded.getCardLists().get(0).getCards().get(0).getTags().isEmpty());
+        store.close();
+    }
+
+    @Test
+    void testMovedSubtaskIsReplayed() {
+        var crashed = this.open();
+        var board = populate(crashed);
+        var card = board.getCardLists().get(0).getCards().get(0);
+
+        var first = crashed.subtasks().save(new CardSubtask());
+        card.patch(cp -> cp.addSubtask(first));
+        var second = crashed.subtasks().save(new CardSubtask());
+        card.patch(cp -> cp.addSubtask(second));
+        crashed.journal(board.getId(), List.of(new CardSubtaskCreatedEvent(card.getId(), first),
+                new CardSubtaskCreatedEvent(card.getId(), second)));
+
+        card.patch(cp -> cp.moveSubtask(second.getId(), 0));
+        crashed.journal(board.getId(), List.of(new CardSubtaskMovedEvent(card.getId(), second.getId(), 0)));
+
+        var store = this.open();
+        var subtasks = store.load(board.getId()).orElseThrow().getCardLists().get(0).getCards().get(0).getSubtasks();
+        Assertions.assertEquals(List.of(second.getId(), first.getId()),
+                subtasks.stream().map(CardSubtask::getId).toList());
+        store.close();
+    }
+
+    @Test
+    void testReplayedVersionsMatchTheLiveOnes() {
+        var crashed = this.open();
+        var board = crashed.boards().save(new Board());
+        var broker = new MessageBroker();
+        broker.setJournal(crashed::journal);
+
+        // one patch creates a list and a card, then changes them, as a batch of operations would.
+        var list = crashed.cardLists().save(new CardList());
+        var card = crashed.cards().save(new Card("card"));
+        broker.batched(board.getId(), () -> {
+            broker.getWrapper(board).patch(bp -> {
+                bp.addCardList(list);
+                bp.patchCardList(list.getId(), lp -> {
+                    lp.addCard(card);
+                    lp.setTitle("list");
+                    lp.patchCard(card.getId(), cp -> cp.setTitle("renamed"));
+                });
+            });
+            return null;
+        });
+
+        var store = this.open();
+        var replayed = store.load(board.getId()).orElseThrow().getCardLists().get(0);
+        Assertions.assertEquals(list.getVersion(), replayed.getVersion());
+        Assertions.assertEquals(card.getVersion(), replayed.getCards().get(0).getVersion());
+        Assertions.assertEquals("renamed", replayed.getCards().get(0).getTitle());
+        store.close();
+    }
+
+    @Test
+    void testIdsAreNotReusedAfterCrash() {
+        var crashed = this.open();
+        var first = crashed.cards().save(new Card()).getId();
+
+        var store = this.open();
+        var second = store.cards().save(new Card()).getId();
+
+        Assertions.assertTrue(second > first);
+        store.close();
+    }
+
+    @Test
+    void testImportedBoardGetsNewIds() throws IOException {
+        var store = this.open();
+        var board = populate(store);
+
+        var document = new ByteArrayInputStream(BoardDocuments.encode(board));
+        var imported = store.importBoard(BoardImport.read(document));
+        store.close();
+
+        Assertions.assertNotEquals(board.getId(), imported.getId());
+        var reopened = this.open();
+        var loaded = reopened.load(imported.getId()).orElseThrow();
+        Assertions.assertEquals("board", loaded.getTitle());
+
+        var card = loaded.getCardLists().get(0).getCards().get(0);
+        Assertions.assertNotEquals(board.getCardLists().get(0).getCards().get(0).getId(), card.getId());
+        Assertions.assertEquals("renamed", card.getTitle());
+        Assertions.assertNotEquals(board.getTags().get(0).getId(), loaded.getTags().get(0).getId());
+        Assertions.assertSame(loaded.getTags().get(0), card.getTags().iterator().next());
+        Assertions.assertEquals(2, reopened.count());
+        reopened.close();
+    }
+}